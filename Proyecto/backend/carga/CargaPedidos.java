@@ -0,0 +1,204 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prueba de carga de creación de pedidos sobre un solo producto muy demandado
+ * Registra un usuario y un producto nuevos, opcionalmente activa sus reservas en memoria (hot)
+ * o fracciona su stock (shards), y envía POST /api/orders desde varios hilos a la vez.
+ * Informa pedidos por segundo, latencias y códigos de respuesta, y comprueba que el stock final
+ * coincida con los pedidos aceptados.
+ *
+ * Se ejecuta sin compilar, con el backend ya levantado:
+ *   java carga/CargaPedidos.java --pedidos 4000 --hilos 32 --modo hot
+ *
+ * Opciones (todas opcionales):
+ *   --url            URL base del backend (http://localhost:8080)
+ *   --pedidos        Pedidos medidos (4000)
+ *   --hilos          Clientes simultáneos (32)
+ *   --modo           normal, hot o shards (normal)
+ *   --fracciones     Fracciones del stock en modo shards (8)
+ *   --cantidad       Unidades por pedido (1)
+ *   --stock          Stock inicial del producto (alcanza para todos los pedidos)
+ *   --calentamiento  Pedidos previos que no se miden (200)
+ */
+public class CargaPedidos {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern STOCK = Pattern.compile("\"stock\"\\s*:\\s*(-?\\d+)");
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String url;
+
+    private CargaPedidos(String url) {
+        this.url = url;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = leerOpciones(args);
+        String url = opciones.getOrDefault("url", "http://localhost:8080");
+        int pedidos = Integer.parseInt(opciones.getOrDefault("pedidos", "4000"));
+        int hilos = Integer.parseInt(opciones.getOrDefault("hilos", "32"));
+        String modo = opciones.getOrDefault("modo", "normal");
+        int fracciones = Integer.parseInt(opciones.getOrDefault("fracciones", "8"));
+        int cantidad = Integer.parseInt(opciones.getOrDefault("cantidad", "1"));
+        int calentamiento = Integer.parseInt(opciones.getOrDefault("calentamiento", "200"));
+        int stock = Integer.parseInt(opciones.getOrDefault("stock",
+                String.valueOf((pedidos + calentamiento) * cantidad)));
+
+        CargaPedidos carga = new CargaPedidos(url);
+        long marca = System.currentTimeMillis();
+
+        long usuarioId = carga.extraerId(carga.enviar("POST", "/api/auth/register",
+                "{\"nombre\":\"Carga\",\"email\":\"carga-" + marca + "@mikeys.test\",\"password\":\"carga123\","
+                        + "\"direccion\":\"Prueba de carga\",\"telefono\":\"0\"}"));
+        long productoId = carga.extraerId(carga.enviar("POST", "/api/products",
+                "{\"nombre\":\"Carga " + marca + "\",\"descripcion\":\"Producto de prueba de carga\","
+                        + "\"precio\":10.00,\"stock\":" + stock + "}"));
+
+        switch (modo) {
+            case "normal" -> { }
+            case "hot" -> carga.verificar(carga.enviar("PUT", "/api/products/" + productoId + "/hot", ""));
+            case "shards" -> carga.verificar(carga.enviar("PUT",
+                    "/api/products/" + productoId + "/shards?count=" + fracciones, ""));
+            default -> throw new IllegalArgumentException("Modo no válido: " + modo + " (normal, hot o shards)");
+        }
+
+        String cuerpo = "{\"usuarioId\":" + usuarioId + ",\"items\":[{\"productoId\":" + productoId
+                + ",\"cantidad\":" + cantidad + "}]}";
+        Resultado previo = carga.ejecutar(cuerpo, calentamiento, hilos);
+        Resultado medido = carga.ejecutar(cuerpo, pedidos, hilos);
+
+        System.out.printf("Producto %d, modo %s, %d hilos, %d unidades por pedido%n",
+                productoId, modo, hilos, cantidad);
+        System.out.printf("%d pedidos en %.2f s = %.0f pedidos/s%n",
+                pedidos, medido.segundos(), pedidos / medido.segundos());
+        System.out.printf("Latencia ms: p50 %.1f, p95 %.1f, p99 %.1f, máx %.1f%n",
+                medido.percentil(50), medido.percentil(95), medido.percentil(99), medido.percentil(100));
+        System.out.println("Códigos de respuesta: " + medido.codigos());
+
+        // El total de los productos fraccionados se refresca periódicamente
+        if (modo.equals("shards")) {
+            Thread.sleep(5000);
+        }
+        int aceptados = previo.aceptados() + medido.aceptados();
+        int esperado = stock - aceptados * cantidad;
+        Matcher stockFinal = STOCK.matcher(carga.enviar("GET", "/api/products/" + productoId, null).body());
+        int obtenido = stockFinal.find() ? Integer.parseInt(stockFinal.group(1)) : -1;
+        System.out.printf("Stock final %d, esperado %d (%d pedidos aceptados): %s%n",
+                obtenido, esperado, aceptados, obtenido == esperado ? "OK" : "DIFERENCIA");
+    }
+
+    /**
+     * Envía la misma petición de pedido desde varios hilos hasta completar la cantidad indicada
+     */
+    private Resultado ejecutar(String cuerpo, int pedidos, int hilos) throws InterruptedException {
+        long[] latencias = new long[pedidos];
+        Map<Integer, LongAdder> codigos = new ConcurrentHashMap<>();
+        AtomicInteger siguiente = new AtomicInteger();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < hilos; i++) {
+            ejecutor.execute(() -> {
+                int indice;
+                while ((indice = siguiente.getAndIncrement()) < pedidos) {
+                    long antes = System.nanoTime();
+                    int codigo;
+                    try {
+                        codigo = enviar("POST", "/api/orders", cuerpo).statusCode();
+                    } catch (Exception e) {
+                        codigo = -1;
+                    }
+                    latencias[indice] = System.nanoTime() - antes;
+                    codigos.computeIfAbsent(codigo, clave -> new LongAdder()).increment();
+                }
+            });
+        }
+        ejecutor.shutdown();
+        ejecutor.awaitTermination(1, TimeUnit.HOURS);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Map<Integer, Long> totales = new TreeMap<>();
+        codigos.forEach((codigo, total) -> totales.put(codigo, total.sum()));
+        Arrays.sort(latencias);
+        return new Resultado(segundos, latencias, totales);
+    }
+
+    private HttpResponse<String> enviar(String metodo, String ruta, String cuerpo) throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(url + ruta))
+                .timeout(Duration.ofSeconds(60));
+        if (cuerpo == null) {
+            peticion.GET();
+        } else {
+            peticion.header("Content-Type", "application/json")
+                    .method(metodo, HttpRequest.BodyPublishers.ofString(cuerpo));
+        }
+        return cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> verificar(HttpResponse<String> respuesta) {
+        if (respuesta.statusCode() >= 300) {
+            throw new IllegalStateException("Respuesta " + respuesta.statusCode() + ": " + respuesta.body());
+        }
+        return respuesta;
+    }
+
+    private long extraerId(HttpResponse<String> respuesta) {
+        Matcher id = ID.matcher(verificar(respuesta).body());
+        if (!id.find()) {
+            throw new IllegalStateException("La respuesta no incluye un ID: " + respuesta.body());
+        }
+        return Long.parseLong(id.group(1));
+    }
+
+    private static Map<String, String> leerOpciones(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Opción no válida: " + args[i]);
+            }
+            opciones.put(args[i].substring(2), args[i + 1]);
+        }
+        return opciones;
+    }
+
+    /**
+     * Resultado de una tanda de pedidos
+     * @param segundos Duración total
+     * @param latencias Latencias en nanosegundos, ordenadas
+     * @param codigos Cantidad de respuestas por código HTTP (-1 si la petición falló)
+     */
+    private record Resultado(double segundos, long[] latencias, Map<Integer, Long> codigos) {
+
+        int aceptados() {
+            return codigos.getOrDefault(201, 0L).intValue();
+        }
+
+        double percentil(int percentil) {
+            if (latencias.length == 0) {
+                return 0;
+            }
+            int posicion = (int) Math.ceil(percentil / 100.0 * latencias.length) - 1;
+            return latencias[Math.max(posicion, 0)] / 1e6;
+        }
+    }
+}
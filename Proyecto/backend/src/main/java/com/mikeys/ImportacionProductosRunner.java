@@ -0,0 +1,86 @@
+package com.mikeys;
+
+import com.mikeys.service.FormatoArchivo;
+import com.mikeys.service.ImportacionProductos;
+import com.mikeys.service.ResultadoImportacion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Importación masiva de productos desde la línea de comandos
+ * Se activa con --importar-productos=ruta/al/archivo.csv (o .ndjson); el formato se deduce
+ * de la extensión o se indica con --formato=csv|ndjson. Al terminar muestra el resumen
+ * y cierra la aplicación. Ejemplo:
+ * mvn spring-boot:run -Dspring-boot.run.arguments="--importar-productos=productos.csv --spring.main.web-application-type=none"
+ */
+@Component
+public class ImportacionProductosRunner implements ApplicationRunner {
+
+    private static final String OPCION_ARCHIVO = "importar-productos";
+    private static final String OPCION_FORMATO = "formato";
+
+    private final ImportacionProductos importacionProductos;
+    private final ConfigurableApplicationContext contexto;
+
+    @Autowired
+    public ImportacionProductosRunner(ImportacionProductos importacionProductos,
+                                      ConfigurableApplicationContext contexto) {
+        this.importacionProductos = importacionProductos;
+        this.contexto = contexto;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption(OPCION_ARCHIVO)) {
+            return;
+        }
+
+        int codigoSalida;
+        try {
+            Path archivo = Paths.get(args.getOptionValues(OPCION_ARCHIVO).get(0));
+            String formato = args.containsOption(OPCION_FORMATO)
+                    ? args.getOptionValues(OPCION_FORMATO).get(0)
+                    : deducirFormato(archivo);
+
+            System.out.println("Importando productos desde " + archivo + "...");
+            ResultadoImportacion resultado;
+            try (InputStream entrada = Files.newInputStream(archivo)) {
+                resultado = importacionProductos.importar(entrada, FormatoArchivo.desdeParametro(formato, null));
+            }
+
+            System.out.println("=================================");
+            System.out.println("Filas leídas: " + resultado.getFilasLeidas());
+            System.out.println("Importadas: " + resultado.getImportadas());
+            System.out.println("Con error: " + resultado.getConError());
+            System.out.println("Duración: " + resultado.getDuracionMs() + " ms");
+            System.out.println("=================================");
+            for (ResultadoImportacion.ErrorFila error : resultado.getErrores()) {
+                System.out.println("Línea " + error.getFila() + ": " + error.getMensaje());
+            }
+            if (resultado.getErroresOmitidos() > 0) {
+                System.out.println("... y " + resultado.getErroresOmitidos() + " errores más");
+            }
+            codigoSalida = resultado.getConError() == 0 ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Error al importar productos: " + e.getMessage());
+            codigoSalida = 2;
+        }
+
+        int codigo = codigoSalida;
+        System.exit(SpringApplication.exit(contexto, () -> codigo));
+    }
+
+    private static String deducirFormato(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase();
+        return nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl") ? "ndjson" : "csv";
+    }
+}
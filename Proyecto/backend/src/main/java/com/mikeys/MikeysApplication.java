@@ -2,6 +2,7 @@ package com.mikeys;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -10,6 +11,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * Arranca el servidor embebido Tomcat y configura Spring Boot
  */
 @SpringBootApplication
+@EnableScheduling
 public class MikeysApplication implements WebMvcConfigurer {
 
     public static void main(String[] args) {
@@ -1,5 +1,6 @@
 package com.mikeys.controller;
 
+import com.mikeys.dto.UsuarioDTO;
 import com.mikeys.model.Usuario;
 import com.mikeys.service.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -58,10 +59,9 @@ public class AuthController {
             // Registrar el usuario
             Usuario usuarioRegistrado = usuarioService.registrarUsuario(usuario);
             
-            // No devolver la contraseña en la respuesta
-            usuarioRegistrado.setPassword(null);
-            
-            return ResponseEntity.status(HttpStatus.CREATED).body(createSuccessResponse("Usuario registrado exitosamente", usuarioRegistrado));
+            // La proyección no incluye la contraseña ni los pedidos
+            return ResponseEntity.status(HttpStatus.CREATED).body(createSuccessResponse("Usuario registrado exitosamente",
+                    UsuarioDTO.desde(usuarioRegistrado)));
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
@@ -88,11 +88,8 @@ public class AuthController {
                 return ResponseEntity.badRequest().body(createErrorResponse("La contraseña es obligatoria"));
             }
 
-            // Autenticar al usuario
-            Usuario usuario = usuarioService.autenticarUsuario(loginRequest.getEmail(), loginRequest.getPassword());
-            
-            // No devolver la contraseña en la respuesta
-            usuario.setPassword(null);
+            // Autenticar al usuario (la proyección no incluye la contraseña ni los pedidos)
+            UsuarioDTO usuario = usuarioService.autenticarUsuario(loginRequest.getEmail(), loginRequest.getPassword());
             
             // Crear respuesta exitosa
             Map<String, Object> response = new HashMap<>();
@@ -161,9 +158,9 @@ public class AuthController {
     /**
      * Genera un token simple (en producción usar JWT)
      */
-    private String generateToken(Usuario usuario) {
+    private String generateToken(UsuarioDTO usuario) {
         // En un sistema real, aquí se generaría un JWT token
         // Por simplicidad, generamos un token simple
-        return "token_" + usuario.getId() + "_" + System.currentTimeMillis();
+        return "token_" + usuario.id() + "_" + System.currentTimeMillis();
     }
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+package com.mikeys.controller;
+
+import com.mikeys.service.AgrupadorPedidos;
+import com.mikeys.service.AnaliticaVentas;
+import com.mikeys.service.ArchivoPedidos;
+import com.mikeys.service.CatalogoCache;
+import com.mikeys.service.DisponibilidadProductos;
+import com.mikeys.service.IndiceBusquedaProductos;
+import com.mikeys.service.IndicePrecios;
+import com.mikeys.service.IdempotenciaPedidos;
+import com.mikeys.service.InstantaneaCatalogo;
+import com.mikeys.service.InventarioFraccionado;
+import com.mikeys.service.RecepcionPedidos;
+import com.mikeys.service.ReintentosConcurrencia;
+import com.mikeys.service.ReservasStock;
+import com.mikeys.service.SugerenciasProductos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controlador REST para consultar métricas internas de la aplicación
+ * Expone estadísticas de las cachés y estructuras en memoria
+ */
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "*")
+public class MetricasController {
+
+    private final CatalogoCache catalogoCache;
+    private final IndiceBusquedaProductos indiceBusqueda;
+    private final SugerenciasProductos sugerencias;
+    private final IndicePrecios indicePrecios;
+    private final DisponibilidadProductos disponibilidad;
+    private final InstantaneaCatalogo instantaneaCatalogo;
+    private final ReservasStock reservas;
+    private final InventarioFraccionado inventarioFraccionado;
+    private final RecepcionPedidos recepcionPedidos;
+    private final IdempotenciaPedidos idempotencia;
+    private final AgrupadorPedidos agrupador;
+    private final ReintentosConcurrencia reintentos;
+    private final ArchivoPedidos archivo;
+    private final AnaliticaVentas analitica;
+
+    @Autowired
+    public MetricasController(CatalogoCache catalogoCache, IndiceBusquedaProductos indiceBusqueda,
+                              SugerenciasProductos sugerencias, IndicePrecios indicePrecios,
+                              DisponibilidadProductos disponibilidad, InstantaneaCatalogo instantaneaCatalogo,
+                              ReservasStock reservas, InventarioFraccionado inventarioFraccionado,
+                              RecepcionPedidos recepcionPedidos, IdempotenciaPedidos idempotencia,
+                              AgrupadorPedidos agrupador, ReintentosConcurrencia reintentos,
+                              ArchivoPedidos archivo, AnaliticaVentas analitica) {
+        this.catalogoCache = catalogoCache;
+        this.indiceBusqueda = indiceBusqueda;
+        this.sugerencias = sugerencias;
+        this.indicePrecios = indicePrecios;
+        this.disponibilidad = disponibilidad;
+        this.instantaneaCatalogo = instantaneaCatalogo;
+        this.reservas = reservas;
+        this.inventarioFraccionado = inventarioFraccionado;
+        this.recepcionPedidos = recepcionPedidos;
+        this.idempotencia = idempotencia;
+        this.agrupador = agrupador;
+        this.reintentos = reintentos;
+        this.archivo = archivo;
+        this.analitica = analitica;
+    }
+
+    /**
+     * Obtiene las métricas de la caché del catálogo
+     * @return ResponseEntity con aciertos, fallos, desalojos e invalidaciones
+     */
+    @GetMapping("/catalog-cache")
+    public ResponseEntity<?> obtenerMetricasCatalogo() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de la caché del catálogo",
+                catalogoCache.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el tamaño del índice de búsqueda de productos
+     * @return ResponseEntity con la cantidad de productos, términos y trigramas indexados
+     */
+    @GetMapping("/search-index")
+    public ResponseEntity<?> obtenerMetricasIndiceBusqueda() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas del índice de búsqueda",
+                indiceBusqueda.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el tamaño del árbol de sugerencias
+     * @return ResponseEntity con la cantidad de productos indexados
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<?> obtenerMetricasSugerencias() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas del autocompletado",
+                sugerencias.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el tamaño del índice de precios
+     * @return ResponseEntity con la cantidad de productos indexados y el rango de precios
+     */
+    @GetMapping("/price-index")
+    public ResponseEntity<?> obtenerMetricasIndicePrecios() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas del índice de precios",
+                indicePrecios.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el estado del conjunto de productos disponibles
+     * @return ResponseEntity con la cantidad de disponibles y los desvíos corregidos por la reconciliación
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<?> obtenerMetricasDisponibilidad() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de disponibilidad de productos",
+                disponibilidad.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el estado de la instantánea serializada del catálogo
+     * @return ResponseEntity con la versión, los tamaños en bytes y las peticiones servidas
+     */
+    @GetMapping("/catalog-snapshot")
+    public ResponseEntity<?> obtenerMetricasInstantanea() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de la instantánea del catálogo",
+                instantaneaCatalogo.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el estado de las reservas de stock en memoria
+     * @return ResponseEntity con los pedidos admitidos, rechazados y compensados, y las unidades por producto
+     */
+    @GetMapping("/reservations")
+    public ResponseEntity<?> obtenerMetricasReservas() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de las reservas de stock",
+                reservas.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el estado del inventario fraccionado
+     * @return ResponseEntity con las fracciones por producto y cómo se resolvieron los descuentos
+     */
+    @GetMapping("/stock-shards")
+    public ResponseEntity<?> obtenerMetricasInventarioFraccionado() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas del inventario fraccionado",
+                inventarioFraccionado.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el estado de la recepción asíncrona de pedidos
+     * @return ResponseEntity con la profundidad de la cola, el tamaño de los lotes, los hilos y los resultados
+     */
+    @GetMapping("/order-intake")
+    public ResponseEntity<?> obtenerMetricasRecepcionPedidos() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de la recepción de pedidos",
+                recepcionPedidos.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el estado de las claves de idempotencia de los pedidos
+     * @return ResponseEntity con las entradas en memoria, las repeticiones y los conflictos
+     */
+    @GetMapping("/idempotency")
+    public ResponseEntity<?> obtenerMetricasIdempotencia() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de las claves de idempotencia",
+                idempotencia.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el estado de los pedidos agrupados en una sola transacción
+     * @return ResponseEntity con la cantidad de grupos, su tamaño y la duración de sus transacciones
+     */
+    @GetMapping("/group-commit")
+    public ResponseEntity<?> obtenerMetricasPedidosAgrupados() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de los pedidos agrupados",
+                agrupador.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene los conflictos de concurrencia y los reintentos de las modificaciones de stock
+     * @return ResponseEntity con la configuración de los reintentos y los contadores por operación
+     */
+    @GetMapping("/concurrency-retries")
+    public ResponseEntity<?> obtenerMetricasReintentos() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de los reintentos por conflictos de concurrencia",
+                reintentos.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene el avance del archivo de pedidos cerrados
+     * @return ResponseEntity con las filas movidas, las filas por segundo y el retraso respecto del corte
+     */
+    @GetMapping("/order-archive")
+    public ResponseEntity<?> obtenerMetricasArchivo() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas del archivo de pedidos",
+                archivo.getEstadisticas()));
+    }
+
+    /**
+     * Obtiene la actividad de la analítica de ventas que respalda los reportes
+     * @return ResponseEntity con los eventos aplicados, las reconstrucciones y el tamaño de las ventanas
+     */
+    @GetMapping("/sales-analytics")
+    public ResponseEntity<?> obtenerMetricasAnalitica() {
+        return ResponseEntity.ok(createSuccessResponse("Métricas de la analítica de ventas",
+                analitica.getEstadisticas()));
+    }
+
+    /**
+     * Crea una respuesta exitosa estándar
+     */
+    private Map<String, Object> createSuccessResponse(String message, Object data) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", message);
+        response.put("data", data);
+        return response;
+    }
+}
@@ -1,14 +1,35 @@
 package com.mikeys.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mikeys.dto.PedidoDTO;
 import com.mikeys.model.*;
+import com.mikeys.repository.PedidoRepository;
+import com.mikeys.service.AgrupadorPedidos;
+import com.mikeys.service.ContadoresPedidos;
+import com.mikeys.service.ExportacionDatos;
+import com.mikeys.service.FormatoArchivo;
+import com.mikeys.service.IdempotenciaPedidos;
+import com.mikeys.service.PaginaPedidos;
 import com.mikeys.service.PedidoService;
-import com.mikeys.service.UsuarioService;
+import com.mikeys.service.PedidoSinResultadoException;
+import com.mikeys.service.RecepcionPedidos;
+import com.mikeys.service.RespuestaIdempotente;
+import com.mikeys.service.ResultadoCancelacion;
+import com.mikeys.service.TicketPedido;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -23,72 +44,177 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class PedidoController {
 
+    private static final String ENCABEZADO_IDEMPOTENCIA = "Idempotency-Key";
+    private static final String ENCABEZADO_REPETIDA = "Idempotent-Replayed";
+
     private final PedidoService pedidoService;
-    private final UsuarioService usuarioService;
+    private final ExportacionDatos exportacionDatos;
+    private final RecepcionPedidos recepcionPedidos;
+    private final AgrupadorPedidos agrupador;
+    private final IdempotenciaPedidos idempotencia;
+    private final ContadoresPedidos contadores;
+    private final ObjectMapper objectMapper;
+    private final boolean asincronoPorDefecto;
 
     @Autowired
-    public PedidoController(PedidoService pedidoService, UsuarioService usuarioService) {
+    public PedidoController(PedidoService pedidoService, ExportacionDatos exportacionDatos,
+                            RecepcionPedidos recepcionPedidos, AgrupadorPedidos agrupador,
+                            IdempotenciaPedidos idempotencia, ContadoresPedidos contadores,
+                            ObjectMapper objectMapper,
+                            @Value("${mikeys.pedidos.asincrono:false}") boolean asincronoPorDefecto) {
         this.pedidoService = pedidoService;
-        this.usuarioService = usuarioService;
+        this.exportacionDatos = exportacionDatos;
+        this.recepcionPedidos = recepcionPedidos;
+        this.agrupador = agrupador;
+        this.idempotencia = idempotencia;
+        this.contadores = contadores;
+        this.objectMapper = objectMapper;
+        this.asincronoPorDefecto = asincronoPorDefecto;
     }
 
     /**
      * Crea un nuevo pedido
+     * En modo asíncrono solo se valida el formato del pedido: se encola y se responde 202
+     * con un ticket para consultar el resultado en /api/orders/tickets/{id}
+     * Con el encabezado Idempotency-Key los reintentos con la misma clave reciben la respuesta
+     * original sin crear otro pedido
      * @param orderRequest Datos del pedido a crear
-     * @return ResponseEntity con el pedido creado o mensaje de error
+     * @param async Si es true el pedido se encola (por defecto, mikeys.pedidos.asincrono)
+     * @param idempotencyKey Clave de idempotencia opcional (hasta 100 caracteres)
+     * @return ResponseEntity con el pedido creado, el ticket o mensaje de error
      */
     @PostMapping
-    public ResponseEntity<?> crearPedido(@RequestBody OrderRequest orderRequest) {
-        try {
-            // Validar datos del pedido
-            if (orderRequest.getUsuarioId() == null) {
-                return ResponseEntity.badRequest().body(createErrorResponse("El ID del usuario es obligatorio"));
+    public ResponseEntity<?> crearPedido(@RequestBody OrderRequest orderRequest,
+                                         @RequestParam(required = false) Boolean async,
+                                         @RequestHeader(value = ENCABEZADO_IDEMPOTENCIA, required = false) String idempotencyKey) {
+        boolean asincrono = async != null ? async : asincronoPorDefecto;
+        if (idempotencyKey == null) {
+            try {
+                return procesarPedido(orderRequest, asincrono);
+            } catch (PedidoSinResultadoException e) {
+                return responderSinResultado(e);
             }
-            
-            if (orderRequest.getItems() == null || orderRequest.getItems().isEmpty()) {
-                return ResponseEntity.badRequest().body(createErrorResponse("El pedido debe contener al menos un item"));
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > ClaveIdempotencia.LONGITUD_MAXIMA) {
+            return ResponseEntity.badRequest().body(createErrorResponse(
+                    "La clave de idempotencia debe tener entre 1 y " + ClaveIdempotencia.LONGITUD_MAXIMA + " caracteres"));
+        }
+
+        try {
+            RespuestaIdempotente respuesta = idempotencia.ejecutar(idempotencyKey, describirSolicitud(orderRequest, asincrono),
+                    () -> guardarRespuesta(procesarPedido(orderRequest, asincrono)));
+
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(respuesta.estado())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(ENCABEZADO_REPETIDA, String.valueOf(respuesta.repetida()));
+            if (respuesta.ubicacion() != null) {
+                builder.location(URI.create(respuesta.ubicacion()));
             }
+            return builder.body(respuesta.cuerpo());
+
+        } catch (PedidoSinResultadoException e) {
+            return responderSinResultado(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al crear pedido: " + e.getMessage()));
+        }
+    }
 
-            // Convertir OrderItemRequest a ItemPedido
-            List<ItemPedido> items = new ArrayList<>();
-            for (OrderItemRequest itemRequest : orderRequest.getItems()) {
-                if (itemRequest.getProductoId() == null || itemRequest.getCantidad() == null || itemRequest.getCantidad() <= 0) {
-                    return ResponseEntity.badRequest().body(createErrorResponse("Datos de item inválidos"));
+    /**
+     * El pedido puede haberse creado: 409 sin Retry-After para que el cliente revise sus pedidos
+     * antes de reintentar (con clave de idempotencia, la clave queda reservada)
+     */
+    private ResponseEntity<?> responderSinResultado(PedidoSinResultadoException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
+    }
+
+    /**
+     * Valida el pedido y lo crea o lo encola
+     * @throws PedidoSinResultadoException si no se sabe si el pedido se creó
+     */
+    private ResponseEntity<?> procesarPedido(OrderRequest orderRequest, boolean asincrono) {
+        try {
+            List<ItemPedido> items = convertirItems(orderRequest);
+
+            if (asincrono) {
+                try {
+                    TicketPedido ticket = recepcionPedidos.encolar(orderRequest.getUsuarioId(), items);
+                    return ResponseEntity.status(HttpStatus.ACCEPTED)
+                            .location(URI.create("/api/orders/tickets/" + ticket.getId()))
+                            .body(createSuccessResponse("Pedido recibido, se procesará en breve", ticket));
+                } catch (IllegalStateException e) {
+                    // Cola llena: el cliente debe reintentar en lugar de quedar esperando
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "1")
+                            .body(createErrorResponse(e.getMessage()));
                 }
-                
-                Producto producto = new Producto();
-                producto.setId(itemRequest.getProductoId());
-                
-                ItemPedido item = new ItemPedido(producto, itemRequest.getCantidad(), BigDecimal.ZERO);
-                items.add(item);
             }
 
             // Crear el pedido
-            Pedido pedidoCreado = pedidoService.crearPedido(orderRequest.getUsuarioId(), items);
+            Pedido pedidoCreado = agrupador.crearPedido(orderRequest.getUsuarioId(), items);
             
             return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(createSuccessResponse("Pedido creado exitosamente", pedidoCreado));
+                    .body(createSuccessResponse("Pedido creado exitosamente", PedidoDTO.desde(pedidoCreado)));
             
+        } catch (PedidoSinResultadoException e) {
+            // No se responde aquí: con clave de idempotencia la respuesta no debe liberarla
+            throw e;
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Conflicto con otras transacciones concurrentes después de los reintentos
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Error al crear pedido: " + e.getMessage()));
         }
     }
 
+    /**
+     * Obtiene el estado de un pedido recibido de forma asíncrona
+     * @param id ID del ticket
+     * @return ResponseEntity con el ticket (estado, ID del pedido creado o motivo del rechazo)
+     */
+    @GetMapping("/tickets/{id}")
+    public ResponseEntity<?> obtenerTicket(@PathVariable String id) {
+        try {
+            TicketPedido ticket = recepcionPedidos.buscarTicket(id);
+            return ResponseEntity.ok(createSuccessResponse("Ticket encontrado", ticket));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     /**
      * Obtiene todos los pedidos de un usuario
+     * Si se indica after o limit la respuesta se pagina por cursor
      * @param usuarioId ID del usuario
+     * @param after Cursor devuelto en nextCursor por la página anterior
+     * @param limit Cantidad máxima de pedidos por página
      * @return ResponseEntity con la lista de pedidos
      */
     @GetMapping("/user/{usuarioId}")
-    public ResponseEntity<?> obtenerPedidosPorUsuario(@PathVariable Long usuarioId) {
+    public ResponseEntity<?> obtenerPedidosPorUsuario(@PathVariable Long usuarioId,
+                                                      @RequestParam(required = false) String after,
+                                                      @RequestParam(required = false) Integer limit) {
         try {
-            // Verificar que el usuario existe
-            usuarioService.buscarPorId(usuarioId);
-            
-            List<Pedido> pedidos = pedidoService.obtenerPedidosPorUsuario(usuarioId);
+            if (after != null || limit != null) {
+                PaginaPedidos pagina = pedidoService.obtenerPaginaPorUsuario(usuarioId, after, limit);
+                return ResponseEntity.ok(createPageResponse("Pedidos obtenidos exitosamente", pagina));
+            }
+
+            // Pedidos, items y nombres de producto en una sola consulta
+            List<PedidoDTO> pedidos = pedidoService.obtenerDetallesPorUsuario(usuarioId);
             
             if (pedidos.isEmpty()) {
                 return ResponseEntity.ok(createSuccessResponse("No hay pedidos para este usuario", pedidos));
@@ -105,15 +231,104 @@ public class PedidoController {
         }
     }
 
+    /**
+     * Obtiene la cantidad de pedidos de cada estado para el panel de operaciones
+     * Se responde con los contadores en memoria, sin consultar la tabla de pedidos
+     * @return ResponseEntity con la cantidad por estado, el total y el estado de la reconciliación
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> obtenerEstadisticas() {
+        try {
+            return ResponseEntity.ok(createSuccessResponse("Estadísticas de pedidos obtenidas exitosamente",
+                    contadores.getEstadisticas()));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al obtener estadísticas de pedidos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Obtiene los pedidos con un estado, del más reciente al más antiguo, paginados por cursor
+     * @param estado Estado de los pedidos (PENDIENTE, PROCESANDO, ENVIADO, ENTREGADO o CANCELADO)
+     * @param after Cursor devuelto en nextCursor por la página anterior
+     * @param limit Cantidad máxima de pedidos por página
+     * @return ResponseEntity con la página de pedidos
+     */
+    @GetMapping("/status/{estado}")
+    public ResponseEntity<?> obtenerPedidosPorEstado(@PathVariable String estado,
+                                                     @RequestParam(required = false) String after,
+                                                     @RequestParam(required = false) Integer limit) {
+        try {
+            EstadoPedido estadoPedido;
+            try {
+                estadoPedido = EstadoPedido.valueOf(estado.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Estado de pedido inválido: " + estado));
+            }
+
+            PaginaPedidos pagina = pedidoService.obtenerPaginaPorEstado(estadoPedido, after, limit);
+            return ResponseEntity.ok(createPageResponse("Pedidos obtenidos exitosamente", pagina));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al obtener pedidos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Exporta todos los pedidos con sus items en CSV (una línea por item) o NDJSON (una línea por pedido)
+     * Las filas se escriben en la respuesta a medida que se leen de la base de datos,
+     * sin cargar la tabla en memoria
+     * @param format Formato del archivo: csv o ndjson (si no se indica, se deduce del encabezado Accept)
+     * @param accept Encabezado Accept de la petición
+     * @return ResponseEntity con el archivo en flujo o mensaje de error en JSON
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarPedidos(@RequestParam(required = false) String format,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        try {
+            FormatoArchivo formato = FormatoArchivo.desdeParametro(format, accept);
+            StreamingResponseBody cuerpo = salida -> exportacionDatos.exportarPedidos(salida, formato);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(formato.getTipoContenido()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pedidos." + formato.getParametro() + "\"")
+                    .body(cuerpo);
+
+        } catch (IllegalArgumentException e) {
+            // La respuesta en flujo no pasa por los conversores de mensajes: el error se serializa aquí
+            byte[] error;
+            try {
+                error = objectMapper.writeValueAsBytes(createErrorResponse(e.getMessage()));
+            } catch (JsonProcessingException errorJson) {
+                throw new IllegalStateException(errorJson);
+            }
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(salida -> salida.write(error));
+        }
+    }
+
     /**
      * Obtiene un pedido por su ID
+     * Responde 304 si If-None-Match o If-Modified-Since coinciden con la versión del pedido,
+     * que se consulta sin cargar la entidad
      * @param id ID del pedido
+     * @param webRequest Petición actual, usada para la validación condicional
      * @return ResponseEntity con el pedido o mensaje de error
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> obtenerPedidoPorId(@PathVariable Long id) {
+    public ResponseEntity<?> obtenerPedidoPorId(@PathVariable Long id, WebRequest webRequest) {
         try {
-            Pedido pedido = pedidoService.buscarPorId(id);
+            PedidoRepository.VersionPedido version = pedidoService.obtenerVersion(id);
+            long ultimaModificacion = version.getFechaActualizacion()
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            String etag = "\"pedido-" + id + "-" + version.getEstado().name() + "-" + ultimaModificacion + "\"";
+            if (webRequest.checkNotModified(etag, ultimaModificacion)) {
+                return null;
+            }
+
+            PedidoDTO pedido = pedidoService.obtenerDetallePorId(id);
             return ResponseEntity.ok(createSuccessResponse("Pedido encontrado", pedido));
             
         } catch (IllegalArgumentException e) {
@@ -138,7 +353,8 @@ public class PedidoController {
                 return ResponseEntity.badRequest().body(createErrorResponse("El estado es obligatorio"));
             }
 
-            Pedido pedidoActualizado = pedidoService.actualizarEstado(id, estadoRequest.getEstado());
+            pedidoService.actualizarEstado(id, estadoRequest.getEstado());
+            PedidoDTO pedidoActualizado = pedidoService.obtenerDetallePorId(id);
             return ResponseEntity.ok(createSuccessResponse("Estado del pedido actualizado exitosamente", pedidoActualizado));
             
         } catch (IllegalArgumentException e) {
@@ -158,17 +374,57 @@ public class PedidoController {
     @PutMapping("/{id}/cancel")
     public ResponseEntity<?> cancelarPedido(@PathVariable Long id) {
         try {
-            Pedido pedidoCancelado = pedidoService.cancelarPedido(id);
+            pedidoService.cancelarPedido(id);
+            PedidoDTO pedidoCancelado = pedidoService.obtenerDetallePorId(id);
             return ResponseEntity.ok(createSuccessResponse("Pedido cancelado exitosamente", pedidoCancelado));
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Conflicto con otras transacciones concurrentes después de los reintentos
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Error al cancelar pedido: " + e.getMessage()));
         }
     }
 
+    /**
+     * Cancela varios pedidos a la vez (por ejemplo, tras un lote de pagos fallidos)
+     * Se cancelan en una sola transacción y el stock se restaura con una sola sentencia;
+     * los pedidos que no se pueden cancelar se informan sin afectar a los demás
+     * @param cancelacionRequest IDs de los pedidos a cancelar
+     * @return ResponseEntity con los pedidos cancelados y el motivo de rechazo de los demás
+     */
+    @PutMapping("/cancel")
+    public ResponseEntity<?> cancelarPedidos(@RequestBody CancelacionRequest cancelacionRequest) {
+        try {
+            if (cancelacionRequest.getPedidoIds() == null) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Debe indicar al menos un pedido"));
+            }
+
+            ResultadoCancelacion resultado = pedidoService.cancelarPedidos(cancelacionRequest.getPedidoIds());
+            String mensaje = resultado.rechazados().isEmpty()
+                    ? "Pedidos cancelados exitosamente"
+                    : "Se cancelaron " + resultado.cancelados().size() + " pedidos, "
+                      + resultado.rechazados().size() + " no se pudieron cancelar";
+            return ResponseEntity.ok(createSuccessResponse(mensaje, resultado));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Conflicto con otras transacciones concurrentes después de los reintentos
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al cancelar pedidos: " + e.getMessage()));
+        }
+    }
+
     /**
      * Clase interna para recibir los datos del pedido
      */
@@ -235,6 +491,22 @@ public class PedidoController {
         }
     }
 
+    /**
+     * Clase interna para recibir los pedidos de una cancelación masiva
+     */
+    public static class CancelacionRequest {
+        private List<Long> pedidoIds;
+
+        // Getters y Setters
+        public List<Long> getPedidoIds() {
+            return pedidoIds;
+        }
+
+        public void setPedidoIds(List<Long> pedidoIds) {
+            this.pedidoIds = pedidoIds;
+        }
+    }
+
     /**
      * Crea una respuesta de error estándar
      */
@@ -245,6 +517,64 @@ public class PedidoController {
         return response;
     }
 
+    /**
+     * Convierte la respuesta de un pedido en la que se guarda para su clave de idempotencia
+     */
+    private RespuestaIdempotente guardarRespuesta(ResponseEntity<?> respuesta) {
+        try {
+            URI ubicacion = respuesta.getHeaders().getLocation();
+            return RespuestaIdempotente.nueva(respuesta.getStatusCode().value(),
+                    objectMapper.writeValueAsString(respuesta.getBody()),
+                    ubicacion != null ? ubicacion.toString() : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Representación canónica del pedido: una clave reutilizada con otro pedido se rechaza
+     */
+    private static String describirSolicitud(OrderRequest orderRequest, boolean asincrono) {
+        StringBuilder descripcion = new StringBuilder()
+                .append("usuario=").append(orderRequest.getUsuarioId())
+                .append(";async=").append(asincrono)
+                .append(";items=");
+        if (orderRequest.getItems() != null) {
+            for (OrderItemRequest item : orderRequest.getItems()) {
+                descripcion.append(item.getProductoId()).append('x').append(item.getCantidad()).append(',');
+            }
+        }
+        return descripcion.toString();
+    }
+
+    /**
+     * Valida el formato del pedido y convierte sus items en ItemPedido
+     * (solo con el ID del producto; PedidoService completa el resto)
+     * @throws IllegalArgumentException si faltan datos
+     */
+    private List<ItemPedido> convertirItems(OrderRequest orderRequest) {
+        if (orderRequest.getUsuarioId() == null) {
+            throw new IllegalArgumentException("El ID del usuario es obligatorio");
+        }
+
+        if (orderRequest.getItems() == null || orderRequest.getItems().isEmpty()) {
+            throw new IllegalArgumentException("El pedido debe contener al menos un item");
+        }
+
+        List<ItemPedido> items = new ArrayList<>();
+        for (OrderItemRequest itemRequest : orderRequest.getItems()) {
+            if (itemRequest.getProductoId() == null || itemRequest.getCantidad() == null || itemRequest.getCantidad() <= 0) {
+                throw new IllegalArgumentException("Datos de item inválidos");
+            }
+
+            Producto producto = new Producto();
+            producto.setId(itemRequest.getProductoId());
+
+            items.add(new ItemPedido(producto, itemRequest.getCantidad(), BigDecimal.ZERO));
+        }
+        return items;
+    }
+
     /**
      * Crea una respuesta exitosa estándar
      */
@@ -255,4 +585,14 @@ public class PedidoController {
         response.put("data", data);
         return response;
     }
+
+    /**
+     * Crea una respuesta exitosa paginada, con el cursor de la siguiente página
+     */
+    private Map<String, Object> createPageResponse(String message, PaginaPedidos pagina) {
+        Map<String, Object> response = createSuccessResponse(message, pagina.getPedidos());
+        response.put("nextCursor", pagina.getSiguienteCursor());
+        response.put("hasMore", pagina.hayMas());
+        return response;
+    }
 }
\ No newline at end of file
@@ -1,12 +1,32 @@
 package com.mikeys.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mikeys.dto.ProductoDTO;
 import com.mikeys.model.Producto;
+import com.mikeys.service.ExportacionDatos;
+import com.mikeys.service.FormatoArchivo;
+import com.mikeys.service.ImportacionProductos;
+import com.mikeys.service.InstantaneaCatalogo;
+import com.mikeys.service.InventarioFraccionado;
+import com.mikeys.service.LoteProductos;
+import com.mikeys.service.PaginaProductos;
+import com.mikeys.service.ProductoEnUsoException;
 import com.mikeys.service.ProductoService;
+import com.mikeys.service.ReservasStock;
+import com.mikeys.service.ResultadoImportacion;
+import com.mikeys.service.SugerenciaProducto;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
@@ -22,20 +42,78 @@ import java.util.Map;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final InstantaneaCatalogo instantaneaCatalogo;
+    private final ImportacionProductos importacionProductos;
+    private final ExportacionDatos exportacionDatos;
+    private final ReservasStock reservas;
+    private final InventarioFraccionado inventarioFraccionado;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ProductoController(ProductoService productoService) {
+    public ProductoController(ProductoService productoService, InstantaneaCatalogo instantaneaCatalogo,
+                              ImportacionProductos importacionProductos, ExportacionDatos exportacionDatos,
+                              ReservasStock reservas, InventarioFraccionado inventarioFraccionado,
+                              ObjectMapper objectMapper) {
         this.productoService = productoService;
+        this.instantaneaCatalogo = instantaneaCatalogo;
+        this.importacionProductos = importacionProductos;
+        this.exportacionDatos = exportacionDatos;
+        this.reservas = reservas;
+        this.inventarioFraccionado = inventarioFraccionado;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Obtiene todos los productos
+     * Si se indica after, limit, sort, minPrice o maxPrice la respuesta se pagina por cursor
+     * Los listados ordenados por precio y los rangos de precio se resuelven con el índice de precios en memoria
+     * El catálogo completo se responde con los bytes ya serializados (y en gzip si el cliente lo acepta)
+     * Responde 304 si If-None-Match o If-Modified-Since coinciden con la versión del catálogo;
+     * la variante gzip lleva su propio ETag (sufijo -gzip) para no confundirla con la sin comprimir
+     * @param after Cursor devuelto en nextCursor por la página anterior
+     * @param limit Cantidad máxima de productos por página
+     * @param sort Criterio de orden: id, precio o fecha_creacion (con rango de precio solo precio)
+     * @param minPrice Precio mínimo incluido
+     * @param maxPrice Precio máximo incluido
+     * @param webRequest Petición actual, usada para la validación condicional
      * @return ResponseEntity con la lista de productos
      */
     @GetMapping
-    public ResponseEntity<?> obtenerTodosLosProductos() {
+    public ResponseEntity<?> obtenerTodosLosProductos(@RequestParam(required = false) String after,
+                                                      @RequestParam(required = false) Integer limit,
+                                                      @RequestParam(required = false) String sort,
+                                                      @RequestParam(required = false) BigDecimal minPrice,
+                                                      @RequestParam(required = false) BigDecimal maxPrice,
+                                                      WebRequest webRequest) {
         try {
-            List<Producto> productos = productoService.obtenerTodos();
+            String version = productoService.obtenerVersionCatalogo();
+            long ultimaModificacion = productoService.obtenerUltimaModificacionCatalogo();
+            String etag = "\"catalogo-" + version + "\"";
+
+            if (esPaginado(after, limit, sort) || minPrice != null || maxPrice != null) {
+                if (webRequest.checkNotModified(etag, ultimaModificacion)) {
+                    return null;
+                }
+                PaginaProductos pagina = productoService.obtenerPagina(null, false, sort, after, limit,
+                        minPrice, maxPrice);
+                return ResponseEntity.ok(createPageResponse("Productos obtenidos exitosamente", pagina));
+            }
+
+            // El ETag se calcula para la variante que se va a enviar
+            InstantaneaCatalogo.Instantanea instantanea = instantaneaCatalogo.obtener(version);
+            boolean gzip = instantanea != null && aceptaGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (gzip) {
+                etag = "\"catalogo-" + version + "-gzip\"";
+            }
+            if (webRequest.checkNotModified(etag, ultimaModificacion)) {
+                return null;
+            }
+
+            if (instantanea != null) {
+                return responderInstantanea(instantanea, gzip);
+            }
+
+            List<ProductoDTO> productos = productoService.obtenerTodos();
             
             if (productos.isEmpty()) {
                 return ResponseEntity.ok(createSuccessResponse("No hay productos disponibles", productos));
@@ -43,21 +121,72 @@ public class ProductoController {
             
             return ResponseEntity.ok(createSuccessResponse("Productos obtenidos exitosamente", productos));
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Error al obtener productos: " + e.getMessage()));
         }
     }
 
+    /**
+     * Escribe directamente los bytes de la instantánea del catálogo
+     * Usa la variante gzip si el cliente la acepta en Accept-Encoding
+     */
+    private ResponseEntity<byte[]> responderInstantanea(InstantaneaCatalogo.Instantanea instantanea,
+                                                        boolean gzip) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(instantanea.getGzip());
+        }
+        return respuesta.body(instantanea.getJson());
+    }
+
+    /**
+     * Indica si Accept-Encoding incluye gzip sin q=0
+     */
+    private boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String codificacion : acceptEncoding.split(",")) {
+            String[] partes = codificacion.trim().split(";");
+            String nombre = partes[0].trim();
+            if (!nombre.equalsIgnoreCase("gzip") && !nombre.equals("*")) {
+                continue;
+            }
+            boolean rechazada = false;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim().replace(" ", "");
+                if (parametro.matches("q=0(\\.0{0,3})?")) {
+                    rechazada = true;
+                }
+            }
+            if (!rechazada) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Obtiene un producto por su ID
+     * Responde 304 si If-None-Match o If-Modified-Since coinciden con la versión del catálogo
      * @param id ID del producto
+     * @param webRequest Petición actual, usada para la validación condicional
      * @return ResponseEntity con el producto o mensaje de error
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> obtenerProductoPorId(@PathVariable Long id) {
+    public ResponseEntity<?> obtenerProductoPorId(@PathVariable Long id, WebRequest webRequest) {
         try {
-            Producto producto = productoService.buscarPorId(id);
+            String etag = "\"producto-" + id + "-" + productoService.obtenerVersionCatalogo() + "\"";
+            if (webRequest.checkNotModified(etag, productoService.obtenerUltimaModificacionCatalogo())) {
+                return null;
+            }
+
+            ProductoDTO producto = productoService.buscarPorId(id);
             return ResponseEntity.ok(createSuccessResponse("Producto encontrado", producto));
             
         } catch (IllegalArgumentException e) {
@@ -69,6 +198,28 @@ public class ProductoController {
         }
     }
 
+    /**
+     * Obtiene varios productos por su ID en una sola petición
+     * Pensado para que el carrito valide precio y stock de todas sus líneas de una vez
+     * @param ids IDs de los productos separados por coma (máximo 100)
+     * @return ResponseEntity con los productos en el orden pedido y los IDs no encontrados en missing
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<?> obtenerProductosPorIds(@RequestParam List<Long> ids) {
+        try {
+            LoteProductos lote = productoService.buscarPorIds(ids);
+            Map<String, Object> response = createSuccessResponse("Productos obtenidos exitosamente", lote.getProductos());
+            response.put("missing", lote.getIdsNoEncontrados());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al obtener productos: " + e.getMessage()));
+        }
+    }
+
     /**
      * Crea un nuevo producto
      * @param producto Datos del producto a crear
@@ -96,7 +247,7 @@ public class ProductoController {
 
             Producto productoCreado = productoService.crearProducto(producto);
             return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(createSuccessResponse("Producto creado exitosamente", productoCreado));
+                    .body(createSuccessResponse("Producto creado exitosamente", ProductoDTO.desde(productoCreado)));
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
@@ -106,6 +257,66 @@ public class ProductoController {
         }
     }
 
+    /**
+     * Importa productos de forma masiva desde un archivo CSV o NDJSON enviado en el cuerpo
+     * El cuerpo se procesa como flujo y se guarda en lotes; las filas con error se informan
+     * en el resultado sin detener la importación
+     * @param format Formato del cuerpo: csv o ndjson (si no se indica, se deduce del Content-Type)
+     * @param contentType Content-Type de la petición
+     * @param cuerpo Contenido del archivo
+     * @return ResponseEntity con el resumen de la importación
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importarProductos(@RequestParam(required = false) String format,
+                                               @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                               InputStream cuerpo) {
+        try {
+            FormatoArchivo formato = FormatoArchivo.desdeParametro(format, contentType);
+            ResultadoImportacion resultado = importacionProductos.importar(cuerpo, formato);
+            String mensaje = resultado.getConError() == 0
+                    ? "Importación completada exitosamente"
+                    : "Importación completada con " + resultado.getConError() + " filas con error";
+            return ResponseEntity.ok(createSuccessResponse(mensaje, resultado));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al importar productos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Exporta todos los productos en CSV o NDJSON
+     * Las filas se escriben en la respuesta a medida que se leen de la base de datos,
+     * sin cargar la tabla en memoria. El CSV puede volver a importarse con POST /import
+     * @param format Formato del archivo: csv o ndjson (si no se indica, se deduce del encabezado Accept)
+     * @param accept Encabezado Accept de la petición
+     * @return ResponseEntity con el archivo en flujo o mensaje de error en JSON
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarProductos(@RequestParam(required = false) String format,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        try {
+            FormatoArchivo formato = FormatoArchivo.desdeParametro(format, accept);
+            StreamingResponseBody cuerpo = salida -> exportacionDatos.exportarProductos(salida, formato);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(formato.getTipoContenido()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"productos." + formato.getParametro() + "\"")
+                    .body(cuerpo);
+
+        } catch (IllegalArgumentException e) {
+            // La respuesta en flujo no pasa por los conversores de mensajes: el error se serializa aquí
+            byte[] error;
+            try {
+                error = objectMapper.writeValueAsBytes(createErrorResponse(e.getMessage()));
+            } catch (JsonProcessingException errorJson) {
+                throw new IllegalStateException(errorJson);
+            }
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(salida -> salida.write(error));
+        }
+    }
+
     /**
      * Actualiza un producto existente
      * @param id ID del producto a actualizar
@@ -116,11 +327,17 @@ public class ProductoController {
     public ResponseEntity<?> actualizarProducto(@PathVariable Long id, @RequestBody Producto producto) {
         try {
             Producto productoActualizado = productoService.actualizarProducto(id, producto);
-            return ResponseEntity.ok(createSuccessResponse("Producto actualizado exitosamente", productoActualizado));
+            return ResponseEntity.ok(createSuccessResponse("Producto actualizado exitosamente",
+                    ProductoDTO.desde(productoActualizado)));
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Conflicto con otras modificaciones concurrentes después de los reintentos
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Error al actualizar producto: " + e.getMessage()));
@@ -129,6 +346,7 @@ public class ProductoController {
 
     /**
      * Elimina un producto
+     * No se pueden eliminar los productos que aparecen en pedidos archivados (409)
      * @param id ID del producto a eliminar
      * @return ResponseEntity con mensaje de éxito o error
      */
@@ -141,21 +359,128 @@ public class ProductoController {
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(createErrorResponse(e.getMessage()));
+        } catch (ProductoEnUsoException e) {
+            // Reintentar no cambia el resultado
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            // Una clave foránea de la base de datos sigue haciendo referencia al producto
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse("El producto tiene registros asociados y no se puede eliminar"));
+        } catch (IllegalStateException e) {
+            // Conflicto con otras modificaciones concurrentes después de los reintentos
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Error al eliminar producto: " + e.getMessage()));
         }
     }
 
+    /**
+     * Activa las reservas de stock en memoria de un producto muy demandado
+     * Sus pedidos se admiten o rechazan en memoria antes de llegar a la base de datos
+     * @param id ID del producto
+     * @return ResponseEntity con las unidades disponibles para reservar o mensaje de error
+     */
+    @PutMapping("/{id}/hot")
+    public ResponseEntity<?> activarReservas(@PathVariable Long id) {
+        try {
+            Map<String, Object> data = new HashMap<>();
+            data.put("productoId", id);
+            data.put("disponibles", reservas.activar(id));
+            return ResponseEntity.ok(createSuccessResponse("Reservas en memoria activadas", data));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al activar reservas: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Desactiva las reservas de stock en memoria de un producto
+     * @param id ID del producto
+     * @return ResponseEntity con mensaje de éxito o error
+     */
+    @DeleteMapping("/{id}/hot")
+    public ResponseEntity<?> desactivarReservas(@PathVariable Long id) {
+        if (!reservas.desactivar(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("El producto no tiene reservas en memoria activadas: " + id));
+        }
+        return ResponseEntity.ok(createSuccessResponse("Reservas en memoria desactivadas", null));
+    }
+
+    /**
+     * Reparte el stock de un producto en varias fracciones para que las compras simultáneas
+     * no bloqueen siempre la misma fila
+     * @param id ID del producto
+     * @param count Cantidad de fracciones (entre 2 y 64)
+     * @return ResponseEntity con el stock total repartido o mensaje de error
+     */
+    @PutMapping("/{id}/shards")
+    public ResponseEntity<?> fraccionarStock(@PathVariable Long id, @RequestParam int count) {
+        try {
+            Map<String, Object> data = new HashMap<>();
+            data.put("productoId", id);
+            data.put("fracciones", count);
+            data.put("stock", inventarioFraccionado.fraccionar(id, count));
+            return ResponseEntity.ok(createSuccessResponse("Stock fraccionado exitosamente", data));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al fraccionar stock: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Vuelve a guardar el stock de un producto fraccionado en una sola fila
+     * @param id ID del producto
+     * @return ResponseEntity con el stock total o mensaje de error
+     */
+    @DeleteMapping("/{id}/shards")
+    public ResponseEntity<?> unificarStock(@PathVariable Long id) {
+        try {
+            Map<String, Object> data = new HashMap<>();
+            data.put("productoId", id);
+            data.put("stock", inventarioFraccionado.unificar(id));
+            return ResponseEntity.ok(createSuccessResponse("Stock unificado exitosamente", data));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al unificar stock: " + e.getMessage()));
+        }
+    }
+
     /**
      * Busca productos por nombre
+     * Si se indica after, limit o sort la respuesta se pagina por cursor
      * @param nombre Nombre o parte del nombre del producto
+     * @param after Cursor devuelto en nextCursor por la página anterior
+     * @param limit Cantidad máxima de productos por página
+     * @param sort Criterio de orden: id, precio o fecha_creacion
      * @return ResponseEntity con la lista de productos encontrados
      */
     @GetMapping("/search")
-    public ResponseEntity<?> buscarPorNombre(@RequestParam String nombre) {
+    public ResponseEntity<?> buscarPorNombre(@RequestParam String nombre,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String sort) {
         try {
-            List<Producto> productos = productoService.buscarPorNombre(nombre);
+            if (esPaginado(after, limit, sort)) {
+                PaginaProductos pagina = productoService.obtenerPagina(nombre, false, sort, after, limit);
+                return ResponseEntity.ok(createPageResponse("Productos encontrados", pagina));
+            }
+
+            List<ProductoDTO> productos = productoService.buscarPorNombre(nombre);
             
             if (productos.isEmpty()) {
                 return ResponseEntity.ok(createSuccessResponse("No se encontraron productos", productos));
@@ -163,20 +488,53 @@ public class ProductoController {
             
             return ResponseEntity.ok(createSuccessResponse("Productos encontrados", productos));
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Error al buscar productos: " + e.getMessage()));
         }
     }
 
+    /**
+     * Obtiene sugerencias de autocompletado para el buscador
+     * Se responden desde memoria, sin consultar la base de datos
+     * @param q Texto escrito por el usuario
+     * @param limit Cantidad máxima de sugerencias
+     * @return ResponseEntity con la lista de sugerencias (id, nombre y stock)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> sugerirProductos(@RequestParam String q,
+                                              @RequestParam(required = false) Integer limit) {
+        try {
+            List<SugerenciaProducto> sugerencias = productoService.sugerir(q, limit);
+            return ResponseEntity.ok(createSuccessResponse("Sugerencias obtenidas", sugerencias));
+            
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al obtener sugerencias: " + e.getMessage()));
+        }
+    }
+
     /**
      * Obtiene productos disponibles (con stock > 0)
+     * Si se indica after, limit o sort la respuesta se pagina por cursor
+     * @param after Cursor devuelto en nextCursor por la página anterior
+     * @param limit Cantidad máxima de productos por página
+     * @param sort Criterio de orden: id, precio o fecha_creacion
      * @return ResponseEntity con la lista de productos disponibles
      */
     @GetMapping("/available")
-    public ResponseEntity<?> obtenerProductosDisponibles() {
+    public ResponseEntity<?> obtenerProductosDisponibles(@RequestParam(required = false) String after,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(required = false) String sort) {
         try {
-            List<Producto> productos = productoService.obtenerProductosDisponibles();
+            if (esPaginado(after, limit, sort)) {
+                PaginaProductos pagina = productoService.obtenerPagina(null, true, sort, after, limit);
+                return ResponseEntity.ok(createPageResponse("Productos disponibles obtenidos exitosamente", pagina));
+            }
+
+            List<ProductoDTO> productos = productoService.obtenerProductosDisponibles();
             
             if (productos.isEmpty()) {
                 return ResponseEntity.ok(createSuccessResponse("No hay productos disponibles", productos));
@@ -184,12 +542,31 @@ public class ProductoController {
             
             return ResponseEntity.ok(createSuccessResponse("Productos disponibles obtenidos exitosamente", productos));
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Error al obtener productos disponibles: " + e.getMessage()));
         }
     }
 
+    /**
+     * Indica si la petición solicita paginación por cursor
+     */
+    private boolean esPaginado(String after, Integer limit, String sort) {
+        return after != null || limit != null || sort != null;
+    }
+
+    /**
+     * Crea una respuesta exitosa paginada, con el cursor de la siguiente página
+     */
+    private Map<String, Object> createPageResponse(String message, PaginaProductos pagina) {
+        Map<String, Object> response = createSuccessResponse(message, pagina.getProductos());
+        response.put("nextCursor", pagina.getSiguienteCursor());
+        response.put("hasMore", pagina.hayMas());
+        return response;
+    }
+
     /**
      * Crea una respuesta de error estándar
      */
@@ -0,0 +1,130 @@
+package com.mikeys.controller;
+
+import com.mikeys.service.AnaliticaVentas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controlador REST para los reportes de ventas
+ * Los reportes se responden desde la analítica en memoria, sin consultar la base de datos
+ */
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*")
+public class ReporteController {
+
+    private final AnaliticaVentas analitica;
+
+    @Autowired
+    public ReporteController(AnaliticaVentas analitica) {
+        this.analitica = analitica;
+    }
+
+    /**
+     * Obtiene los ingresos, pedidos y unidades vendidas por día (los pedidos cancelados no cuentan)
+     * @param days Cantidad de días hasta hoy incluido (por defecto 30)
+     * @return ResponseEntity con las ventas de cada día y los totales del período
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<?> obtenerIngresos(@RequestParam(defaultValue = "30") int days) {
+        try {
+            return ResponseEntity.ok(createSuccessResponse("Ingresos por día obtenidos exitosamente",
+                    analitica.obtenerIngresos(days)));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al obtener ingresos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Obtiene los productos más vendidos en una ventana de días
+     * @param window Días de la ventana hasta hoy incluido (por defecto 7)
+     * @param limit Cantidad máxima de productos (por defecto 10)
+     * @return ResponseEntity con los productos y sus unidades vendidas, de más a menos vendido
+     */
+    @GetMapping("/top-sellers")
+    public ResponseEntity<?> obtenerMasVendidos(@RequestParam(defaultValue = "7") int window,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(createSuccessResponse("Productos más vendidos obtenidos exitosamente",
+                    analitica.obtenerMasVendidos(window, limit)));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al obtener productos más vendidos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Obtiene las unidades vendidas de un producto en cada ventana
+     * @param id ID del producto
+     * @return ResponseEntity con las unidades por ventana (en días)
+     */
+    @GetMapping("/products/{id}")
+    public ResponseEntity<?> obtenerVentasProducto(@PathVariable Long id) {
+        try {
+            Map<String, Object> ventas = new HashMap<>();
+            ventas.put("productoId", id);
+            ventas.put("unidadesPorVentana", analitica.obtenerUnidadesProducto(id));
+            return ResponseEntity.ok(createSuccessResponse("Ventas del producto obtenidas exitosamente", ventas));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al obtener ventas del producto: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Reconstruye los reportes a partir de la base de datos (por ejemplo, tras cambios hechos
+     * directamente en la base de datos)
+     * @return ResponseEntity con el estado de la analítica tras la reconstrucción
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> reconstruir() {
+        try {
+            return ResponseEntity.ok(createSuccessResponse("Reportes reconstruidos exitosamente",
+                    analitica.reconstruir()));
+
+        } catch (IllegalStateException e) {
+            // Los pedidos siguieron cambiando durante todos los intentos
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error al reconstruir reportes: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Crea una respuesta de error estándar
+     */
+    private Map<String, Object> createErrorResponse(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return response;
+    }
+
+    /**
+     * Crea una respuesta exitosa estándar
+     */
+    private Map<String, Object> createSuccessResponse(String message, Object data) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", message);
+        response.put("data", data);
+        return response;
+    }
+}
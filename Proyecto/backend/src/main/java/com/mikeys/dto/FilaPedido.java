@@ -0,0 +1,54 @@
+package com.mikeys.dto;
+
+import com.mikeys.model.EstadoPedido;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fila plana de la consulta de pedidos: columnas del pedido más las de uno de sus items
+ * Permite leer pedidos, items y nombres de producto en una sola consulta
+ */
+public record FilaPedido(Long pedidoId,
+                         Long usuarioId,
+                         LocalDateTime fechaPedido,
+                         LocalDateTime fechaActualizacion,
+                         BigDecimal total,
+                         EstadoPedido estado,
+                         Long itemId,
+                         Long productoId,
+                         String productoNombre,
+                         Integer cantidad,
+                         BigDecimal precio) {
+
+    /**
+     * Agrupa las filas por pedido conservando el orden de la consulta
+     * @param filas Filas devueltas por la consulta (un pedido sin items trae una fila con itemId null)
+     * @return Pedidos con sus items
+     */
+    public static List<PedidoDTO> agrupar(List<FilaPedido> filas) {
+        Map<Long, List<ItemPedidoDTO>> itemsPorPedido = new LinkedHashMap<>();
+        Map<Long, FilaPedido> cabeceras = new LinkedHashMap<>();
+
+        for (FilaPedido fila : filas) {
+            List<ItemPedidoDTO> items = itemsPorPedido.computeIfAbsent(fila.pedidoId(), id -> new ArrayList<>());
+            cabeceras.putIfAbsent(fila.pedidoId(), fila);
+            if (fila.itemId() != null) {
+                items.add(new ItemPedidoDTO(fila.itemId(), fila.productoId(), fila.productoNombre(),
+                        fila.cantidad(), fila.precio()));
+            }
+        }
+
+        List<PedidoDTO> pedidos = new ArrayList<>(cabeceras.size());
+        for (FilaPedido cabecera : cabeceras.values()) {
+            pedidos.add(new PedidoDTO(cabecera.pedidoId(), cabecera.usuarioId(), cabecera.fechaPedido(),
+                    cabecera.fechaActualizacion(), cabecera.total(), cabecera.estado(),
+                    itemsPorPedido.get(cabecera.pedidoId())));
+        }
+        return pedidos;
+    }
+}
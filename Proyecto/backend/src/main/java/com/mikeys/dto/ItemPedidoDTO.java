@@ -0,0 +1,30 @@
+package com.mikeys.dto;
+
+import com.mikeys.model.ItemPedido;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección de solo lectura de un item de pedido, con el nombre del producto
+ */
+public record ItemPedidoDTO(Long id,
+                            Long productoId,
+                            String productoNombre,
+                            Integer cantidad,
+                            BigDecimal precio) {
+
+    /**
+     * Crea la proyección a partir de una entidad cuyo producto ya está cargado
+     * @param item Entidad del item
+     * @return Proyección con los datos del item
+     */
+    public static ItemPedidoDTO desde(ItemPedido item) {
+        return new ItemPedidoDTO(item.getId(), item.getProducto().getId(), item.getProducto().getNombre(),
+                item.getCantidad(), item.getPrecio());
+    }
+
+    // Método para obtener el subtotal del item
+    public BigDecimal getSubtotal() {
+        return precio.multiply(BigDecimal.valueOf(cantidad));
+    }
+}
@@ -0,0 +1,34 @@
+package com.mikeys.dto;
+
+import com.mikeys.model.EstadoPedido;
+import com.mikeys.model.Pedido;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Proyección de solo lectura de un Pedido con sus items
+ * Referencia al usuario solo por su ID para no cargar la entidad
+ */
+public record PedidoDTO(Long id,
+                        Long usuarioId,
+                        LocalDateTime fechaPedido,
+                        LocalDateTime fechaActualizacion,
+                        BigDecimal total,
+                        EstadoPedido estado,
+                        List<ItemPedidoDTO> items) {
+
+    /**
+     * Crea la proyección a partir de una entidad cuyos items y productos ya están cargados
+     * @param pedido Entidad del pedido
+     * @return Proyección con los datos del pedido
+     */
+    public static PedidoDTO desde(Pedido pedido) {
+        List<ItemPedidoDTO> items = pedido.getItems() == null ? List.of()
+                : pedido.getItems().stream().map(ItemPedidoDTO::desde).collect(Collectors.toList());
+        return new PedidoDTO(pedido.getId(), pedido.getUsuario().getId(), pedido.getFechaPedido(),
+                pedido.getFechaActualizacion(), pedido.getTotal(), pedido.getEstado(), items);
+    }
+}
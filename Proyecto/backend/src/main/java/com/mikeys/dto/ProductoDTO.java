@@ -0,0 +1,32 @@
+package com.mikeys.dto;
+
+import com.mikeys.model.Producto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de solo lectura de un Producto
+ * Contiene únicamente las columnas que devuelven los endpoints, sin relaciones perezosas.
+ * Es inmutable, por lo que también se usa como copia en la caché del catálogo.
+ */
+public record ProductoDTO(Long id,
+                          String nombre,
+                          String descripcion,
+                          BigDecimal precio,
+                          Integer stock,
+                          String imagen,
+                          LocalDateTime fechaCreacion,
+                          LocalDateTime fechaActualizacion) {
+
+    /**
+     * Crea la proyección a partir de una entidad ya cargada
+     * @param producto Entidad del producto
+     * @return Proyección con los datos del producto
+     */
+    public static ProductoDTO desde(Producto producto) {
+        return new ProductoDTO(producto.getId(), producto.getNombre(), producto.getDescripcion(),
+                producto.getPrecio(), producto.getStock(), producto.getImagen(),
+                producto.getFechaCreacion(), producto.getFechaActualizacion());
+    }
+}
@@ -0,0 +1,27 @@
+package com.mikeys.dto;
+
+import com.mikeys.model.Usuario;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de solo lectura de un Usuario
+ * Nunca incluye la contraseña ni la lista de pedidos
+ */
+public record UsuarioDTO(Long id,
+                         String nombre,
+                         String email,
+                         String direccion,
+                         String telefono,
+                         LocalDateTime fechaRegistro) {
+
+    /**
+     * Crea la proyección a partir de una entidad ya cargada
+     * @param usuario Entidad del usuario
+     * @return Proyección con los datos públicos del usuario
+     */
+    public static UsuarioDTO desde(Usuario usuario) {
+        return new UsuarioDTO(usuario.getId(), usuario.getNombre(), usuario.getEmail(),
+                usuario.getDireccion(), usuario.getTelefono(), usuario.getFechaRegistro());
+    }
+}
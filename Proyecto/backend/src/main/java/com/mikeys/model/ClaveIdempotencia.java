@@ -0,0 +1,131 @@
+package com.mikeys.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad JPA que registra una clave de idempotencia (encabezado Idempotency-Key) de la creación de pedidos
+ * Mientras el pedido se procesa la fila no tiene estado HTTP; al terminar guarda la respuesta
+ * que se devuelve a los reintentos con la misma clave
+ * Una clave nueva siempre se inserta (nunca se fusiona con una fila existente), de modo que
+ * registrar una clave que otra instancia acaba de insertar falla por clave duplicada
+ */
+@Entity
+@Table(name = "claves_idempotencia")
+public class ClaveIdempotencia implements Persistable<String> {
+
+    /** Longitud máxima de una clave */
+    public static final int LONGITUD_MAXIMA = 100;
+
+    @Id
+    @Column(name = "clave", length = LONGITUD_MAXIMA)
+    private String clave;
+
+    @NotNull(message = "La huella de la solicitud es obligatoria")
+    @Column(name = "huella_solicitud", nullable = false, length = 64)
+    private String huellaSolicitud;
+
+    @Column(name = "estado_http")
+    private Integer estadoHttp;
+
+    @Lob
+    @Column(name = "respuesta")
+    private String respuesta;
+
+    @Column(name = "ubicacion", length = 255)
+    private String ubicacion;
+
+    @NotNull(message = "La fecha de creación es obligatoria")
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    // true hasta que la fila se inserta o se carga de la base de datos
+    @Transient
+    private boolean nueva = true;
+
+    // Constructor vacío
+    public ClaveIdempotencia() {
+    }
+
+    // Constructor con parámetros
+    public ClaveIdempotencia(String clave, String huellaSolicitud) {
+        this.clave = clave;
+        this.huellaSolicitud = huellaSolicitud;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+
+    /**
+     * Indica si la solicitud ya terminó y su respuesta está guardada
+     */
+    public boolean isCompletada() {
+        return estadoHttp != null;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarGuardada() {
+        nueva = false;
+    }
+
+    @Override
+    public String getId() {
+        return clave;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nueva;
+    }
+
+    // Getters y Setters
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public String getHuellaSolicitud() {
+        return huellaSolicitud;
+    }
+
+    public void setHuellaSolicitud(String huellaSolicitud) {
+        this.huellaSolicitud = huellaSolicitud;
+    }
+
+    public Integer getEstadoHttp() {
+        return estadoHttp;
+    }
+
+    public void setEstadoHttp(Integer estadoHttp) {
+        this.estadoHttp = estadoHttp;
+    }
+
+    public String getRespuesta() {
+        return respuesta;
+    }
+
+    public void setRespuesta(String respuesta) {
+        this.respuesta = respuesta;
+    }
+
+    public String getUbicacion() {
+        return ubicacion;
+    }
+
+    public void setUbicacion(String ubicacion) {
+        this.ubicacion = ubicacion;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+}
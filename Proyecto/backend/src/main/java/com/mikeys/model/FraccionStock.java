@@ -0,0 +1,79 @@
+package com.mikeys.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Entidad JPA que representa una fracción del stock de un Producto
+ * Los productos con stock fraccionado reparten sus unidades en varias filas
+ * para que las compras simultáneas no bloqueen siempre la misma fila
+ */
+@Entity
+@Table(name = "stock_shards",
+       uniqueConstraints = @UniqueConstraint(name = "uk_stock_shards_producto_numero",
+                                             columnNames = {"producto_id", "numero"}))
+public class FraccionStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "El producto es obligatorio")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @NotNull(message = "El número de fracción es obligatorio")
+    @Column(name = "numero", nullable = false)
+    private Integer numero;
+
+    @NotNull(message = "El stock es obligatorio")
+    @Min(value = 0, message = "El stock no puede ser negativo")
+    @Column(name = "stock", nullable = false)
+    private Integer stock;
+
+    // Constructor vacío
+    public FraccionStock() {
+    }
+
+    // Constructor con parámetros
+    public FraccionStock(Producto producto, Integer numero, Integer stock) {
+        this.producto = producto;
+        this.numero = numero;
+        this.stock = stock;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Producto getProducto() {
+        return producto;
+    }
+
+    public void setProducto(Producto producto) {
+        this.producto = producto;
+    }
+
+    public Integer getNumero() {
+        return numero;
+    }
+
+    public void setNumero(Integer numero) {
+        this.numero = numero;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+}
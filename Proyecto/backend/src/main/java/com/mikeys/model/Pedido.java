@@ -2,6 +2,7 @@ package com.mikeys.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -9,11 +10,19 @@ import java.util.List;
 
 /**
  * Entidad JPA que representa un Pedido en el sistema
+ * El grafo Pedido.conItems carga el pedido con sus items y los productos de cada item
+ * en la misma consulta
  */
 @Entity
 @Table(name = "pedidos")
+@NamedEntityGraph(name = Pedido.GRAFO_CON_ITEMS,
+                  attributeNodes = @NamedAttributeNode(value = "items", subgraph = "items"),
+                  subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("producto")))
 public class Pedido {
 
+    /** Nombre del grafo que carga el pedido con sus items y sus productos */
+    public static final String GRAFO_CON_ITEMS = "Pedido.conItems";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -36,13 +45,18 @@ public class Pedido {
     @Column(name = "estado", nullable = false, length = 50)
     private EstadoPedido estado;
 
-    // Relación con items del pedido
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    // Relación con items del pedido (fuera del grafo, se inicializan de a varios pedidos por consulta)
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ItemPedido> items;
 
     // Constructor vacío
     public Pedido() {
         this.fechaPedido = LocalDateTime.now();
+        this.fechaActualizacion = this.fechaPedido;
         this.estado = EstadoPedido.PENDIENTE;
     }
 
@@ -50,6 +64,7 @@ public class Pedido {
     public Pedido(Usuario usuario, BigDecimal total, List<ItemPedido> items) {
         this.usuario = usuario;
         this.fechaPedido = LocalDateTime.now();
+        this.fechaActualizacion = this.fechaPedido;
         this.total = total;
         this.estado = EstadoPedido.PENDIENTE;
         this.items = items;
@@ -101,6 +116,14 @@ public class Pedido {
         this.estado = estado;
     }
 
+    public LocalDateTime getFechaActualizacion() {
+        return fechaActualizacion;
+    }
+
+    public void setFechaActualizacion(LocalDateTime fechaActualizacion) {
+        this.fechaActualizacion = fechaActualizacion;
+    }
+
     public List<ItemPedido> getItems() {
         return items;
     }
@@ -124,6 +147,12 @@ public class Pedido {
         }
     }
 
+    // Método para actualizar la fecha de actualización
+    @PreUpdate
+    public void preUpdate() {
+        this.fechaActualizacion = LocalDateTime.now();
+    }
+
     @Override
     public String toString() {
         return "Pedido{" +
@@ -132,6 +161,7 @@ public class Pedido {
                 ", fechaPedido=" + fechaPedido +
                 ", total=" + total +
                 ", estado=" + estado +
+                ", fechaActualizacion=" + fechaActualizacion +
                 ", itemsCount=" + (items != null ? items.size() : 0) +
                 '}';
     }
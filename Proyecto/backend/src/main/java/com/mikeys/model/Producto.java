@@ -2,6 +2,8 @@ package com.mikeys.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -9,9 +11,12 @@ import java.util.List;
 
 /**
  * Entidad JPA que representa un Producto en el sistema
+ * Los proxies de productos sin inicializar (por ejemplo, de los items de varios pedidos)
+ * se cargan de a 50 por consulta
  */
 @Entity
 @Table(name = "productos")
+@BatchSize(size = 50)
 public class Producto {
 
     @Id
@@ -38,6 +43,11 @@ public class Producto {
     @Column(name = "stock", nullable = false)
     private Integer stock;
 
+    // Si es true, el stock real está repartido en stock_shards y esta columna guarda su total
+    @ColumnDefault("false")
+    @Column(name = "stock_fraccionado", nullable = false)
+    private boolean stockFraccionado = false;
+
     @Size(max = 255, message = "La URL de la imagen no puede exceder 255 caracteres")
     @Column(name = "imagen", length = 255)
     private String imagen;
@@ -48,6 +58,13 @@ public class Producto {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
 
+    // Versión para el bloqueo optimista: cada UPDATE (también los de JDBC) la incrementa,
+    // y guardar la entidad con una versión vieja falla en lugar de pisar el cambio ajeno
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Relación con items de pedidos
     @OneToMany(mappedBy = "producto", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ItemPedido> itemsPedido;
@@ -110,6 +127,14 @@ public class Producto {
         this.stock = stock;
     }
 
+    public boolean isStockFraccionado() {
+        return stockFraccionado;
+    }
+
+    public void setStockFraccionado(boolean stockFraccionado) {
+        this.stockFraccionado = stockFraccionado;
+    }
+
     public String getImagen() {
         return imagen;
     }
@@ -134,6 +159,14 @@ public class Producto {
         this.fechaActualizacion = fechaActualizacion;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<ItemPedido> getItemsPedido() {
         return itemsPedido;
     }
@@ -0,0 +1,116 @@
+package com.mikeys.repository;
+
+import com.mikeys.model.FraccionStock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio JPA para la entidad FraccionStock
+ * Las operaciones de stock son sentencias UPDATE condicionales sobre una sola fracción
+ */
+@Repository
+public interface FraccionStockRepository extends JpaRepository<FraccionStock, Long> {
+
+    /**
+     * Descuenta unidades de una fracción solo si le alcanzan
+     * @param productoId ID del producto
+     * @param numero Número de la fracción
+     * @param cantidad Unidades a descontar
+     * @return 1 si se descontó, 0 si la fracción no existe o no tiene unidades suficientes
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE FraccionStock f SET f.stock = f.stock - :cantidad " +
+           "WHERE f.producto.id = :productoId AND f.numero = :numero AND f.stock >= :cantidad")
+    int descontar(@Param("productoId") Long productoId,
+                  @Param("numero") int numero,
+                  @Param("cantidad") int cantidad);
+
+    /**
+     * Suma unidades a una fracción
+     * @param productoId ID del producto
+     * @param numero Número de la fracción
+     * @param cantidad Unidades a sumar
+     * @return 1 si se sumaron, 0 si la fracción no existe
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE FraccionStock f SET f.stock = f.stock + :cantidad " +
+           "WHERE f.producto.id = :productoId AND f.numero = :numero")
+    int acreditar(@Param("productoId") Long productoId,
+                  @Param("numero") int numero,
+                  @Param("cantidad") int cantidad);
+
+    /**
+     * Obtiene las fracciones de un producto con más unidades, de mayor a menor
+     * @param productoId ID del producto
+     * @param cantidad Unidades mínimas que debe tener la fracción
+     * @param pageable Cantidad de fracciones a devolver
+     * @return Números de las fracciones
+     */
+    @Query("SELECT f.numero FROM FraccionStock f " +
+           "WHERE f.producto.id = :productoId AND f.stock >= :cantidad ORDER BY f.stock DESC")
+    List<Integer> buscarConStock(@Param("productoId") Long productoId,
+                                 @Param("cantidad") int cantidad,
+                                 Pageable pageable);
+
+    /**
+     * Carga y bloquea todas las fracciones de un producto hasta el fin de la transacción
+     * @param productoId ID del producto
+     * @return Fracciones ordenadas por número
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FraccionStock f WHERE f.producto.id = :productoId ORDER BY f.numero")
+    List<FraccionStock> bloquearPorProducto(@Param("productoId") Long productoId);
+
+    /**
+     * Cuenta las fracciones de un producto
+     * @param productoId ID del producto
+     * @return Cantidad de fracciones (0 si el producto no tiene el stock fraccionado)
+     */
+    long countByProductoId(Long productoId);
+
+    /**
+     * Suma el stock de todas las fracciones de un producto
+     * @param productoId ID del producto
+     * @return Stock total (0 si el producto no tiene fracciones)
+     */
+    @Query("SELECT COALESCE(SUM(f.stock), 0) FROM FraccionStock f WHERE f.producto.id = :productoId")
+    long sumarStock(@Param("productoId") Long productoId);
+
+    /**
+     * Resume las fracciones de cada producto fraccionado
+     * @return Cantidad de fracciones, stock total y stock de la fracción más vacía por producto
+     */
+    @Query("SELECT f.producto.id AS productoId, COUNT(f) AS fracciones, SUM(f.stock) AS stock, " +
+           "MIN(f.stock) AS minimo FROM FraccionStock f GROUP BY f.producto.id")
+    List<ResumenFracciones> resumirPorProducto();
+
+    /**
+     * Elimina todas las fracciones de un producto
+     * @param productoId ID del producto
+     * @return Cantidad de fracciones eliminadas
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM FraccionStock f WHERE f.producto.id = :productoId")
+    int eliminarPorProducto(@Param("productoId") Long productoId);
+
+    /**
+     * Resumen de las fracciones de un producto
+     */
+    interface ResumenFracciones {
+        Long getProductoId();
+
+        Long getFracciones();
+
+        Long getStock();
+
+        Integer getMinimo();
+    }
+}
@@ -0,0 +1,130 @@
+package com.mikeys.repository;
+
+import com.mikeys.dto.FilaPedido;
+import com.mikeys.model.EstadoPedido;
+import com.mikeys.model.PedidoArchivado;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio JPA para los pedidos archivados
+ * Las consultas devuelven las mismas proyecciones que PedidoRepository para que los pedidos
+ * archivados se respondan igual que los activos
+ */
+@Repository
+public interface PedidoArchivadoRepository extends JpaRepository<PedidoArchivado, Long> {
+
+    /**
+     * Expresión JPQL que construye una fila plana pedido + item archivados (alias p, i y pr)
+     */
+    String FILA_PEDIDO = "new com.mikeys.dto.FilaPedido(p.id, p.usuarioId, p.fechaPedido, " +
+            "p.fechaActualizacion, p.total, p.estado, i.id, i.productoId, pr.nombre, i.cantidad, i.precio)";
+
+    /**
+     * Uniones de un pedido archivado con sus items y los productos (que pueden haberse eliminado)
+     */
+    String UNIONES = " FROM PedidoArchivado p LEFT JOIN ItemPedidoArchivado i ON i.pedidoId = p.id " +
+            "LEFT JOIN Producto pr ON pr.id = i.productoId ";
+
+    /**
+     * Obtiene un pedido archivado con sus items y los nombres de sus productos en una sola consulta
+     * @param id ID del pedido
+     * @return Filas planas del pedido (una por item); vacía si el pedido no está archivado
+     */
+    @Query("SELECT " + FILA_PEDIDO + UNIONES + "WHERE p.id = :id ORDER BY i.id")
+    List<FilaPedido> buscarFilasPorId(@Param("id") Long id);
+
+    /**
+     * Obtiene los pedidos archivados de un usuario con sus items en una sola consulta
+     * @param usuarioId ID del usuario
+     * @return Filas planas de los pedidos, del más reciente al más antiguo
+     */
+    @Query("SELECT " + FILA_PEDIDO + UNIONES +
+           "WHERE p.usuarioId = :usuarioId ORDER BY p.fechaPedido DESC, p.id DESC, i.id")
+    List<FilaPedido> buscarFilasPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Obtiene varios pedidos archivados con sus items en una sola consulta
+     * @param ids IDs de los pedidos
+     * @return Filas planas de los pedidos, del más reciente al más antiguo
+     */
+    @Query("SELECT " + FILA_PEDIDO + UNIONES +
+           "WHERE p.id IN :ids ORDER BY p.fechaPedido DESC, p.id DESC, i.id")
+    List<FilaPedido> buscarFilasPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Obtiene las claves de la siguiente porción de pedidos archivados de un usuario
+     * (paginación por cursor sobre el índice usuario_id, fecha_pedido, id)
+     * @param usuarioId ID del usuario
+     * @param despuesFecha Fecha del último pedido de la página anterior (null para la primera página)
+     * @param despuesId ID del último pedido de la página anterior, desempata fechas iguales
+     * @param pageable Tamaño de la porción (siempre página 0)
+     * @return Porción de claves (ID y fecha) de pedidos posteriores al cursor
+     */
+    @Query("SELECT p.id AS id, p.fechaPedido AS fechaPedido FROM PedidoArchivado p WHERE p.usuarioId = :usuarioId " +
+           "AND (:despuesFecha IS NULL OR p.fechaPedido < :despuesFecha " +
+           "     OR (p.fechaPedido = :despuesFecha AND p.id < :despuesId)) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    Slice<PedidoRepository.ClavePedido> buscarClavesSiguientesPorUsuario(@Param("usuarioId") Long usuarioId,
+                                                                         @Param("despuesFecha") LocalDateTime despuesFecha,
+                                                                         @Param("despuesId") Long despuesId,
+                                                                         Pageable pageable);
+
+    /**
+     * Obtiene las claves de la siguiente porción de pedidos archivados con un estado
+     * (paginación por cursor sobre el índice estado, fecha_pedido, id)
+     * @param estado Estado de los pedidos
+     * @param despuesFecha Fecha del último pedido de la página anterior (null para la primera página)
+     * @param despuesId ID del último pedido de la página anterior, desempata fechas iguales
+     * @param pageable Tamaño de la porción (siempre página 0)
+     * @return Porción de claves (ID y fecha) de pedidos posteriores al cursor
+     */
+    @Query("SELECT p.id AS id, p.fechaPedido AS fechaPedido FROM PedidoArchivado p WHERE p.estado = :estado " +
+           "AND (:despuesFecha IS NULL OR p.fechaPedido < :despuesFecha " +
+           "     OR (p.fechaPedido = :despuesFecha AND p.id < :despuesId)) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    Slice<PedidoRepository.ClavePedido> buscarClavesSiguientesPorEstado(@Param("estado") EstadoPedido estado,
+                                                                        @Param("despuesFecha") LocalDateTime despuesFecha,
+                                                                        @Param("despuesId") Long despuesId,
+                                                                        Pageable pageable);
+
+    /**
+     * Obtiene solo los datos que determinan la versión de un pedido archivado
+     * @param id ID del pedido
+     * @return Optional con el estado y la fecha de actualización si el pedido está archivado
+     */
+    @Query("SELECT p.estado AS estado, COALESCE(p.fechaActualizacion, p.fechaPedido) AS fechaActualizacion " +
+           "FROM PedidoArchivado p WHERE p.id = :id")
+    Optional<PedidoRepository.VersionPedido> buscarVersionPorId(@Param("id") Long id);
+
+    /**
+     * Indica si algún pedido archivado incluye un producto
+     * Los items archivados no tienen clave foránea, por lo que se consulta antes de eliminar el producto
+     * @param productoId ID del producto
+     * @return true si el producto aparece en algún item archivado
+     */
+    @Query("SELECT COUNT(i) > 0 FROM ItemPedidoArchivado i WHERE i.productoId = :productoId")
+    boolean existeItemConProducto(@Param("productoId") Long productoId);
+
+    /**
+     * Recorre todos los pedidos archivados con sus items sin cargarlos todos en memoria
+     * Debe consumirse dentro de una transacción y cerrarse al terminar
+     * @return Flujo de filas planas ordenadas por pedido e item
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = PedidoRepository.TAMANIO_BLOQUE_EXPORTACION))
+    @Query("SELECT " + FILA_PEDIDO + UNIONES + "ORDER BY p.id, i.id")
+    Stream<FilaPedido> recorrerFilas();
+}
@@ -1,11 +1,25 @@
 package com.mikeys.repository;
 
+import com.mikeys.dto.FilaPedido;
+import com.mikeys.model.EstadoPedido;
 import com.mikeys.model.Pedido;
 import com.mikeys.model.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio JPA para la entidad Pedido
@@ -14,6 +28,17 @@ import java.util.List;
 @Repository
 public interface PedidoRepository extends JpaRepository<Pedido, Long> {
 
+    /**
+     * Expresión JPQL que construye una fila plana pedido + item (alias p, i y pr)
+     */
+    String FILA_PEDIDO = "new com.mikeys.dto.FilaPedido(p.id, p.usuario.id, p.fechaPedido, " +
+            "p.fechaActualizacion, p.total, p.estado, i.id, pr.id, pr.nombre, i.cantidad, i.precio)";
+
+    /**
+     * Filas que el driver trae por cada viaje a la base de datos al recorrer una exportación
+     */
+    String TAMANIO_BLOQUE_EXPORTACION = "1000";
+
     /**
      * Busca todos los pedidos de un usuario específico
      * @param usuario Usuario propietario de los pedidos
@@ -21,6 +46,24 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
      */
     List<Pedido> findByUsuarioOrderByFechaPedidoDesc(Usuario usuario);
 
+    /**
+     * Busca un pedido con sus items y sus productos en una sola consulta
+     * @param id ID del pedido
+     * @return Optional con el pedido si existe
+     */
+    @EntityGraph(Pedido.GRAFO_CON_ITEMS)
+    @Query("SELECT p FROM Pedido p WHERE p.id = :id")
+    Optional<Pedido> buscarConItemsPorId(@Param("id") Long id);
+
+    /**
+     * Busca los pedidos de un usuario con sus items y sus productos en una sola consulta
+     * @param usuarioId ID del usuario
+     * @return Pedidos del usuario, del más reciente al más antiguo
+     */
+    @EntityGraph(Pedido.GRAFO_CON_ITEMS)
+    @Query("SELECT p FROM Pedido p WHERE p.usuario.id = :usuarioId ORDER BY p.fechaPedido DESC, p.id DESC")
+    List<Pedido> buscarConItemsPorUsuario(@Param("usuarioId") Long usuarioId);
+
     /**
      * Busca pedidos por estado
      * @param estado Estado del pedido
@@ -34,4 +77,124 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
      * @return Número de pedidos con el estado especificado
      */
     long countByEstado(com.mikeys.model.EstadoPedido estado);
-}
\ No newline at end of file
+
+    /**
+     * Cuenta los pedidos de todos los estados, activos y archivados, con una sola consulta agrupada
+     * Al ser una sola sentencia, un pedido que se archiva mientras tanto no se cuenta dos veces
+     * @return Cantidad de pedidos por estado (los estados sin pedidos no aparecen)
+     */
+    @Query(value = "SELECT estado AS estado, COUNT(*) AS cantidad FROM (" +
+                   "SELECT estado FROM pedidos UNION ALL SELECT estado FROM pedidos_archivados) t " +
+                   "GROUP BY estado", nativeQuery = true)
+    List<ConteoPorEstado> contarAgrupadosPorEstado();
+
+    /**
+     * Obtiene solo los datos que determinan la versión de un pedido, sin cargar la entidad
+     * @param id ID del pedido
+     * @return Optional con el estado y la fecha de actualización del pedido
+     */
+    @Query("SELECT p.estado AS estado, COALESCE(p.fechaActualizacion, p.fechaPedido) AS fechaActualizacion " +
+           "FROM Pedido p WHERE p.id = :id")
+    Optional<VersionPedido> buscarVersionPorId(@Param("id") Long id);
+
+    /**
+     * Obtiene un pedido con sus items y los nombres de sus productos en una sola consulta
+     * @param id ID del pedido
+     * @return Filas planas del pedido (una por item); vacía si el pedido no existe
+     */
+    @Query("SELECT " + FILA_PEDIDO + " FROM Pedido p LEFT JOIN p.items i LEFT JOIN i.producto pr " +
+           "WHERE p.id = :id ORDER BY i.id")
+    List<FilaPedido> buscarFilasPorId(@Param("id") Long id);
+
+    /**
+     * Obtiene los pedidos de un usuario con sus items y los nombres de sus productos en una sola consulta
+     * @param usuarioId ID del usuario
+     * @return Filas planas de los pedidos, del más reciente al más antiguo
+     */
+    @Query("SELECT " + FILA_PEDIDO + " FROM Pedido p LEFT JOIN p.items i LEFT JOIN i.producto pr " +
+           "WHERE p.usuario.id = :usuarioId ORDER BY p.fechaPedido DESC, p.id DESC, i.id")
+    List<FilaPedido> buscarFilasPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Obtiene las claves de la siguiente porción de pedidos de un usuario, del más reciente al más antiguo
+     * (paginación por cursor sobre el índice usuario_id, fecha_pedido, id)
+     * @param usuarioId ID del usuario
+     * @param despuesFecha Fecha del último pedido de la página anterior (null para la primera página)
+     * @param despuesId ID del último pedido de la página anterior, desempata fechas iguales
+     * @param pageable Tamaño de la porción (siempre página 0)
+     * @return Porción de claves (ID y fecha) de pedidos posteriores al cursor
+     */
+    @Query("SELECT p.id AS id, p.fechaPedido AS fechaPedido FROM Pedido p WHERE p.usuario.id = :usuarioId " +
+           "AND (:despuesFecha IS NULL OR p.fechaPedido < :despuesFecha " +
+           "     OR (p.fechaPedido = :despuesFecha AND p.id < :despuesId)) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    Slice<ClavePedido> buscarClavesSiguientesPorUsuario(@Param("usuarioId") Long usuarioId,
+                                                        @Param("despuesFecha") LocalDateTime despuesFecha,
+                                                        @Param("despuesId") Long despuesId,
+                                                        Pageable pageable);
+
+    /**
+     * Obtiene las claves de la siguiente porción de pedidos con un estado, del más reciente al más antiguo
+     * (paginación por cursor sobre el índice estado, fecha_pedido, id)
+     * @param estado Estado de los pedidos
+     * @param despuesFecha Fecha del último pedido de la página anterior (null para la primera página)
+     * @param despuesId ID del último pedido de la página anterior, desempata fechas iguales
+     * @param pageable Tamaño de la porción (siempre página 0)
+     * @return Porción de claves (ID y fecha) de pedidos posteriores al cursor
+     */
+    @Query("SELECT p.id AS id, p.fechaPedido AS fechaPedido FROM Pedido p WHERE p.estado = :estado " +
+           "AND (:despuesFecha IS NULL OR p.fechaPedido < :despuesFecha " +
+           "     OR (p.fechaPedido = :despuesFecha AND p.id < :despuesId)) " +
+           "ORDER BY p.fechaPedido DESC, p.id DESC")
+    Slice<ClavePedido> buscarClavesSiguientesPorEstado(@Param("estado") EstadoPedido estado,
+                                                       @Param("despuesFecha") LocalDateTime despuesFecha,
+                                                       @Param("despuesId") Long despuesId,
+                                                       Pageable pageable);
+
+    /**
+     * Obtiene varios pedidos con sus items y los nombres de sus productos en una sola consulta
+     * @param ids IDs de los pedidos
+     * @return Filas planas de los pedidos, del más reciente al más antiguo
+     */
+    @Query("SELECT " + FILA_PEDIDO + " FROM Pedido p LEFT JOIN p.items i LEFT JOIN i.producto pr " +
+           "WHERE p.id IN :ids ORDER BY p.fechaPedido DESC, p.id DESC, i.id")
+    List<FilaPedido> buscarFilasPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Recorre todos los pedidos con sus items sin cargarlos todos en memoria
+     * Las filas de un mismo pedido llegan consecutivas. Debe consumirse dentro de una transacción
+     * y cerrarse al terminar
+     * @return Flujo de filas planas ordenadas por pedido e item, leídas de la base de datos por bloques
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAMANIO_BLOQUE_EXPORTACION))
+    @Query("SELECT " + FILA_PEDIDO + " FROM Pedido p LEFT JOIN p.items i LEFT JOIN i.producto pr " +
+           "ORDER BY p.id, i.id")
+    Stream<FilaPedido> recorrerFilas();
+
+    /**
+     * Proyección con los campos que cambian cuando se modifica un pedido
+     */
+    interface VersionPedido {
+        EstadoPedido getEstado();
+
+        LocalDateTime getFechaActualizacion();
+    }
+
+    /**
+     * Proyección con la clave de orden de los listados de pedidos
+     */
+    interface ClavePedido {
+        Long getId();
+
+        LocalDateTime getFechaPedido();
+    }
+
+    /**
+     * Proyección con la cantidad de pedidos de un estado
+     */
+    interface ConteoPorEstado {
+        EstadoPedido getEstado();
+
+        long getCantidad();
+    }
+}
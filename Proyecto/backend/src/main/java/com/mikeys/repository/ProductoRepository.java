@@ -1,10 +1,26 @@
 package com.mikeys.repository;
 
+import com.mikeys.dto.ProductoDTO;
 import com.mikeys.model.Producto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio JPA para la entidad Producto
@@ -13,6 +29,17 @@ import java.util.List;
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
 
+    /**
+     * Expresión JPQL que construye la proyección ProductoDTO con solo las columnas necesarias
+     */
+    String PROYECCION = "new com.mikeys.dto.ProductoDTO(p.id, p.nombre, p.descripcion, p.precio, " +
+            "p.stock, p.imagen, p.fechaCreacion, p.fechaActualizacion)";
+
+    /**
+     * Filas que el driver trae por cada viaje a la base de datos al recorrer una exportación
+     */
+    String TAMANIO_BLOQUE_EXPORTACION = "1000";
+
     /**
      * Busca productos por nombre que contenga el texto (ignorando mayúsculas)
      * @param nombre Texto a buscar en el nombre
@@ -40,4 +67,146 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
      * @return Lista de productos ordenados
      */
     List<Producto> findAllByOrderByFechaCreacionDesc();
-}
\ No newline at end of file
+
+    /**
+     * Obtiene la siguiente porción de productos ordenados por ID (paginación por cursor)
+     * @param soloDisponibles true para devolver solo productos con stock > 0
+     * @param despuesId ID del último producto de la página anterior (null para la primera página)
+     * @param pageable Tamaño de la porción (siempre página 0)
+     * @return Porción de productos posteriores al cursor
+     */
+    @Query("SELECT " + PROYECCION + " FROM Producto p " +
+           "WHERE (:soloDisponibles = false OR p.stock > 0) " +
+           "AND (:despuesId IS NULL OR p.id > :despuesId) " +
+           "ORDER BY p.id ASC")
+    Slice<ProductoDTO> buscarSiguientesPorId(@Param("soloDisponibles") boolean soloDisponibles,
+                                          @Param("despuesId") Long despuesId,
+                                          Pageable pageable);
+
+    /**
+     * Obtiene la siguiente porción de productos ordenados por precio ascendente (paginación por cursor)
+     * @param soloDisponibles true para devolver solo productos con stock > 0
+     * @param despuesPrecio Precio del último producto de la página anterior (null para la primera página)
+     * @param despuesId ID del último producto de la página anterior, desempata precios iguales
+     * @param pageable Tamaño de la porción (siempre página 0)
+     * @return Porción de productos posteriores al cursor
+     */
+    @Query("SELECT " + PROYECCION + " FROM Producto p " +
+           "WHERE (:soloDisponibles = false OR p.stock > 0) " +
+           "AND (:despuesPrecio IS NULL OR p.precio > :despuesPrecio " +
+           "     OR (p.precio = :despuesPrecio AND p.id > :despuesId)) " +
+           "ORDER BY p.precio ASC, p.id ASC")
+    Slice<ProductoDTO> buscarSiguientesPorPrecio(@Param("soloDisponibles") boolean soloDisponibles,
+                                              @Param("despuesPrecio") BigDecimal despuesPrecio,
+                                              @Param("despuesId") Long despuesId,
+                                              Pageable pageable);
+
+    /**
+     * Obtiene la siguiente porción de productos ordenados por fecha de creación descendente
+     * (paginación por cursor, los más recientes primero)
+     * @param soloDisponibles true para devolver solo productos con stock > 0
+     * @param despuesFecha Fecha de creación del último producto de la página anterior (null para la primera página)
+     * @param despuesId ID del último producto de la página anterior, desempata fechas iguales
+     * @param pageable Tamaño de la porción (siempre página 0)
+     * @return Porción de productos posteriores al cursor
+     */
+    @Query("SELECT " + PROYECCION + " FROM Producto p " +
+           "WHERE (:soloDisponibles = false OR p.stock > 0) " +
+           "AND (:despuesFecha IS NULL OR p.fechaCreacion < :despuesFecha " +
+           "     OR (p.fechaCreacion = :despuesFecha AND p.id < :despuesId)) " +
+           "ORDER BY p.fechaCreacion DESC, p.id DESC")
+    Slice<ProductoDTO> buscarSiguientesPorFechaCreacion(@Param("soloDisponibles") boolean soloDisponibles,
+                                                     @Param("despuesFecha") LocalDateTime despuesFecha,
+                                                     @Param("despuesId") Long despuesId,
+                                                     Pageable pageable);
+
+    /**
+     * Obtiene la proyección de un producto por su ID
+     * @param id ID del producto
+     * @return Optional con la proyección si existe
+     */
+    @Query("SELECT " + PROYECCION + " FROM Producto p WHERE p.id = :id")
+    Optional<ProductoDTO> buscarProyeccionPorId(@Param("id") Long id);
+
+    /**
+     * Obtiene la proyección de varios productos por sus IDs en una sola consulta
+     * @param ids IDs de los productos
+     * @return Lista de proyecciones de los productos existentes (sin orden garantizado)
+     */
+    @Query("SELECT " + PROYECCION + " FROM Producto p WHERE p.id IN :ids")
+    List<ProductoDTO> buscarProyeccionesPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Carga varios productos en una sola consulta como entidades de solo lectura
+     * Hibernate no las revisa al hacer flush, así que modificarlas en memoria no genera UPDATE;
+     * se usan cuando el stock se actualiza con sentencias SQL propias
+     * @param ids IDs de los productos
+     * @return Lista de los productos existentes (sin orden garantizado)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT p FROM Producto p WHERE p.id IN :ids")
+    List<Producto> buscarSoloLecturaPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Obtiene el stock actual de varios productos sin cargar las entidades
+     * @param ids IDs de los productos
+     * @return ID y stock de los productos existentes
+     */
+    @Query("SELECT p.id AS id, p.stock AS stock FROM Producto p WHERE p.id IN :ids")
+    List<StockProducto> buscarStockPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Carga un producto y bloquea su fila hasta el fin de la transacción
+     * @param id ID del producto
+     * @return Optional con el producto si existe
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Producto p WHERE p.id = :id")
+    Optional<Producto> bloquearPorId(@Param("id") Long id);
+
+    /**
+     * Guarda el total de un producto con stock fraccionado (suma de sus fracciones)
+     * @param id ID del producto
+     * @param stock Stock total
+     * @param fecha Fecha de actualización
+     * @return 1 si se actualizó, 0 si el producto no existe o ya no tiene el stock fraccionado
+     */
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = :stock, p.fechaActualizacion = :fecha, p.version = p.version + 1 " +
+           "WHERE p.id = :id AND p.stockFraccionado = true")
+    int actualizarTotalFraccionado(@Param("id") Long id,
+                                   @Param("stock") Integer stock,
+                                   @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Obtiene la proyección de todos los productos ordenados por ID
+     * @return Lista de proyecciones de todos los productos
+     */
+    @Query("SELECT " + PROYECCION + " FROM Producto p ORDER BY p.id")
+    List<ProductoDTO> buscarProyecciones();
+
+    /**
+     * Obtiene los IDs de los productos con stock mayor a 0
+     * @return Lista de IDs de productos disponibles
+     */
+    @Query("SELECT p.id FROM Producto p WHERE p.stock > 0")
+    List<Long> buscarIdsDisponibles();
+
+    /**
+     * Recorre la proyección de todos los productos ordenados por ID sin cargarlos todos en memoria
+     * Debe consumirse dentro de una transacción y cerrarse al terminar
+     * @return Flujo de proyecciones leídas de la base de datos por bloques
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAMANIO_BLOQUE_EXPORTACION))
+    @Query("SELECT " + PROYECCION + " FROM Producto p ORDER BY p.id")
+    Stream<ProductoDTO> recorrerProyecciones();
+
+    /**
+     * Proyección con el stock de un producto
+     */
+    interface StockProducto {
+        Long getId();
+
+        Integer getStock();
+    }
+}
@@ -1,7 +1,10 @@
 package com.mikeys.repository;
 
+import com.mikeys.dto.UsuarioDTO;
 import com.mikeys.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -34,4 +37,15 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      * @return Optional con el usuario si existe
      */
     Optional<Usuario> findByEmailAndPassword(String email, String password);
-}
\ No newline at end of file
+
+    /**
+     * Busca la proyección de un usuario por email y contraseña, sin la contraseña ni sus pedidos
+     * @param email Email del usuario
+     * @param password Contraseña del usuario
+     * @return Optional con la proyección del usuario si existe
+     */
+    @Query("SELECT new com.mikeys.dto.UsuarioDTO(u.id, u.nombre, u.email, u.direccion, u.telefono, " +
+           "u.fechaRegistro) FROM Usuario u WHERE u.email = :email AND u.password = :password")
+    Optional<UsuarioDTO> buscarProyeccionPorCredenciales(@Param("email") String email,
+                                                         @Param("password") String password);
+}
@@ -0,0 +1,292 @@
+package com.mikeys.service;
+
+import com.mikeys.model.ItemPedido;
+import com.mikeys.model.Pedido;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupación de pedidos concurrentes en una sola transacción (group commit)
+ * Con el modo activado, cada pedido se deja en una cola y la petición espera su resultado.
+ * Un hilo toma el primer pedido, junta los que lleguen durante ventana-ms (hasta max-pedidos)
+ * y los crea todos con PedidoService.crearPedidosAgrupados: una transacción, un commit y lotes
+ * JDBC en lugar de una transacción por pedido. Cada petición recibe su propio pedido o su propio
+ * rechazo. Si el grupo completo falla por un error inesperado, sus pedidos se reintentan uno por uno
+ * para que un pedido problemático no arrastre a los demás.
+ * Cada petición espera a lo sumo espera-maxima-ms; si el hilo agrupador se detiene, los pedidos
+ * en la cola se rechazan en lugar de quedar esperando. Un pedido que ya estaba en un grupo en curso
+ * cuando venció la espera termina con PedidoSinResultadoException, porque su grupo todavía puede confirmarse.
+ * Con el modo desactivado los pedidos se crean individualmente, como siempre.
+ */
+@Component
+public class AgrupadorPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgrupadorPedidos.class);
+
+    private final PedidoService pedidoService;
+    private final boolean habilitado;
+    private final long ventanaMs;
+    private final int maxPedidos;
+    private final long esperaMaximaMs;
+
+    private final BlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private final Thread agrupador;
+    private volatile boolean activo = true;
+
+    private final AtomicLong grupos = new AtomicLong();
+    private final AtomicLong pedidosAgrupados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong gruposFallidos = new AtomicLong();
+    private final AtomicLong esperasVencidas = new AtomicLong();
+    private final AtomicLong tiempoTransaccionesMs = new AtomicLong();
+    private final AtomicInteger grupoMaximo = new AtomicInteger();
+
+    @Autowired
+    public AgrupadorPedidos(PedidoService pedidoService,
+                            @Value("${mikeys.pedidos.grupo.habilitado:false}") boolean habilitado,
+                            @Value("${mikeys.pedidos.grupo.ventana-ms:5}") long ventanaMs,
+                            @Value("${mikeys.pedidos.grupo.max-pedidos:50}") int maxPedidos,
+                            @Value("${mikeys.pedidos.grupo.espera-maxima-ms:30000}") long esperaMaximaMs) {
+        if (ventanaMs < 0 || maxPedidos <= 0 || esperaMaximaMs <= 0) {
+            throw new IllegalArgumentException(
+                    "La ventana, el tamaño y la espera máxima de los grupos de pedidos deben ser positivos");
+        }
+        this.pedidoService = pedidoService;
+        this.habilitado = habilitado;
+        this.ventanaMs = ventanaMs;
+        this.maxPedidos = maxPedidos;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.agrupador = new Thread(this::atender, "agrupador-pedidos");
+        this.agrupador.setDaemon(true);
+    }
+
+    /**
+     * Arranca el hilo que forma los grupos si el modo está activado
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (habilitado) {
+            agrupador.start();
+            logger.info("Pedidos agrupados: ventana de {} ms, hasta {} pedidos por transacción", ventanaMs, maxPedidos);
+        }
+    }
+
+    /**
+     * Deja de formar grupos; los pedidos que quedan en la cola se rechazan
+     */
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        agrupador.interrupt();
+        rechazarEnCola("La aplicación se está deteniendo");
+    }
+
+    /**
+     * Crea un pedido, agrupado con los concurrentes si el modo está activado
+     * @param usuarioId ID del usuario que realiza el pedido
+     * @param items Items del pedido
+     * @return Pedido creado
+     * @throws IllegalArgumentException si el pedido se rechaza (por ejemplo, por falta de stock)
+     * @throws IllegalStateException si la aplicación se está deteniendo o el pedido no llegó a procesarse
+     *         dentro de espera-maxima-ms (no se guardó nada)
+     * @throws PedidoSinResultadoException si el resultado no llega dentro de espera-maxima-ms pero el pedido
+     *         ya forma parte de un grupo en curso, cuya transacción todavía puede confirmarse
+     */
+    public Pedido crearPedido(Long usuarioId, List<ItemPedido> items) {
+        if (!habilitado) {
+            return pedidoService.crearPedido(usuarioId, items);
+        }
+        Pendiente pendiente = new Pendiente(new NuevoPedido(usuarioId, items), new CompletableFuture<>());
+        if (!activo) {
+            throw new IllegalStateException("La aplicación se está deteniendo");
+        }
+        cola.add(pendiente);
+        // Si la detención vació la cola entre la verificación y el add, el pedido no se atendería
+        if (!activo && cola.remove(pendiente)) {
+            throw new IllegalStateException("La aplicación se está deteniendo");
+        }
+
+        try {
+            return pendiente.resultado().get(esperaMaximaMs, TimeUnit.MILLISECONDS).obtener();
+        } catch (TimeoutException e) {
+            esperasVencidas.incrementAndGet();
+            if (cola.remove(pendiente)) {
+                throw new IllegalStateException("El pedido no se pudo procesar a tiempo, intente nuevamente");
+            }
+            // Ya forma parte de un grupo en curso: su transacción todavía puede confirmarse
+            throw new PedidoSinResultadoException(
+                    "El pedido se está procesando y su resultado no se conoce todavía; revise sus pedidos antes de reintentar");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (cola.remove(pendiente)) {
+                throw new IllegalStateException("Se interrumpió la espera del pedido");
+            }
+            throw new PedidoSinResultadoException(
+                    "Se interrumpió la espera del pedido y su resultado no se conoce; revise sus pedidos antes de reintentar");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No se pudo crear el pedido: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Crea pedidos que ya llegan juntos (por ejemplo, un lote de la recepción asíncrona)
+     * sin pasar por la cola: con el modo activado se guardan en grupos de hasta max-pedidos
+     * @param solicitudes Pedidos a crear
+     * @return Resultado de cada pedido, en el mismo orden
+     */
+    public List<ResultadoPedido> crearPedidos(List<NuevoPedido> solicitudes) {
+        List<ResultadoPedido> resultados = new ArrayList<>(solicitudes.size());
+        if (!habilitado) {
+            for (NuevoPedido solicitud : solicitudes) {
+                resultados.add(crearIndividual(solicitud));
+            }
+            return resultados;
+        }
+        for (int inicio = 0; inicio < solicitudes.size(); inicio += maxPedidos) {
+            resultados.addAll(crearGrupo(solicitudes.subList(inicio, Math.min(inicio + maxPedidos, solicitudes.size()))));
+        }
+        return resultados;
+    }
+
+    /**
+     * Obtiene la configuración y el tamaño de los grupos formados
+     * @return Mapa con la cantidad de grupos, pedidos por grupo y duración promedio de sus transacciones
+     */
+    public Map<String, Object> getEstadisticas() {
+        long cantidadGrupos = grupos.get();
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("habilitado", habilitado);
+        estadisticas.put("ventanaMs", ventanaMs);
+        estadisticas.put("maxPedidos", maxPedidos);
+        estadisticas.put("esperaMaximaMs", esperaMaximaMs);
+        estadisticas.put("esperasVencidas", esperasVencidas.get());
+        estadisticas.put("enEspera", cola.size());
+        estadisticas.put("grupos", cantidadGrupos);
+        estadisticas.put("pedidos", pedidosAgrupados.get());
+        estadisticas.put("rechazados", rechazados.get());
+        estadisticas.put("gruposFallidos", gruposFallidos.get());
+        estadisticas.put("grupoMaximo", grupoMaximo.get());
+        estadisticas.put("grupoPromedio", cantidadGrupos == 0 ? 0.0 : (double) pedidosAgrupados.get() / cantidadGrupos);
+        estadisticas.put("transaccionPromedioMs",
+                cantidadGrupos == 0 ? 0.0 : (double) tiempoTransaccionesMs.get() / cantidadGrupos);
+        return estadisticas;
+    }
+
+    /**
+     * Ciclo del hilo agrupador: espera el primer pedido y junta los que lleguen
+     * durante la ventana o hasta completar el grupo
+     * Si el hilo termina por cualquier motivo, deja de aceptar pedidos y rechaza los que esperan
+     */
+    private void atender() {
+        List<Pendiente> grupo = new ArrayList<>(maxPedidos);
+        try {
+            atender(grupo);
+        } catch (Throwable e) {
+            logger.error("El hilo agrupador de pedidos se detuvo por un error inesperado", e);
+            throw e;
+        } finally {
+            activo = false;
+            // El grupo pudo haberse confirmado antes del error
+            for (Pendiente pendiente : grupo) {
+                pendiente.resultado().complete(ResultadoPedido.rechazado(new PedidoSinResultadoException(
+                        "No se pudo confirmar el resultado del pedido; revise sus pedidos antes de reintentar")));
+            }
+            rechazarEnCola("Los pedidos agrupados no están disponibles");
+        }
+    }
+
+    private void atender(List<Pendiente> grupo) {
+        while (activo) {
+            try {
+                grupo.add(cola.take());
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+                while (grupo.size() < maxPedidos) {
+                    long restante = limite - System.nanoTime();
+                    Pendiente siguiente = restante > 0 ? cola.poll(restante, TimeUnit.NANOSECONDS) : cola.poll();
+                    if (siguiente == null) {
+                        break;
+                    }
+                    grupo.add(siguiente);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                activo = false;
+            }
+            if (grupo.isEmpty()) {
+                continue;
+            }
+
+            List<NuevoPedido> solicitudes = new ArrayList<>(grupo.size());
+            for (Pendiente pendiente : grupo) {
+                solicitudes.add(pendiente.solicitud());
+            }
+            List<ResultadoPedido> resultados = crearGrupo(solicitudes);
+            for (int i = 0; i < grupo.size(); i++) {
+                grupo.get(i).resultado().complete(resultados.get(i));
+            }
+            grupo.clear();
+        }
+    }
+
+    private List<ResultadoPedido> crearGrupo(List<NuevoPedido> solicitudes) {
+        long inicio = System.currentTimeMillis();
+        try {
+            List<ResultadoPedido> resultados = pedidoService.crearPedidosAgrupados(solicitudes);
+            grupos.incrementAndGet();
+            pedidosAgrupados.addAndGet(solicitudes.size());
+            grupoMaximo.accumulateAndGet(solicitudes.size(), Math::max);
+            tiempoTransaccionesMs.addAndGet(System.currentTimeMillis() - inicio);
+            for (ResultadoPedido resultado : resultados) {
+                if (resultado.error() != null) {
+                    rechazados.incrementAndGet();
+                }
+            }
+            return resultados;
+        } catch (RuntimeException e) {
+            gruposFallidos.incrementAndGet();
+            logger.warn("Falló el grupo de {} pedidos, se crean individualmente: {}", solicitudes.size(), e.getMessage());
+            List<ResultadoPedido> resultados = new ArrayList<>(solicitudes.size());
+            for (NuevoPedido solicitud : solicitudes) {
+                resultados.add(crearIndividual(solicitud.copia()));
+            }
+            return resultados;
+        }
+    }
+
+    private void rechazarEnCola(String motivo) {
+        Pendiente pendiente;
+        while ((pendiente = cola.poll()) != null) {
+            pendiente.resultado().complete(ResultadoPedido.rechazado(new IllegalStateException(motivo)));
+        }
+    }
+
+    private ResultadoPedido crearIndividual(NuevoPedido solicitud) {
+        try {
+            return ResultadoPedido.creado(pedidoService.crearPedido(solicitud.usuarioId(), solicitud.items()));
+        } catch (RuntimeException e) {
+            return ResultadoPedido.rechazado(e);
+        }
+    }
+
+    private record Pendiente(NuevoPedido solicitud, CompletableFuture<ResultadoPedido> resultado) {
+    }
+}
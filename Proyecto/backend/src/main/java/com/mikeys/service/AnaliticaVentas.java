@@ -0,0 +1,559 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.ProductoDTO;
+import com.mikeys.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analítica de ventas en memoria para los reportes
+ * Consume los eventos de pedidos creados y cancelados de PedidoService (tras el commit) y mantiene
+ * agregados incrementales de los últimos dias días, indexados por día y por ID de producto con
+ * arreglos y mapas de tipos primitivos: ingresos, pedidos y unidades por día, unidades de cada
+ * producto por día y unidades por producto en cada ventana deslizante (ventanas-dias).
+ * Al cambiar el día, el día que sale de cada ventana se descuenta de ella, sin volver a sumar nada.
+ * Cada refresco-ms se publica un informe inmutable con sumas acumuladas y los top productos de
+ * cada ventana, de modo que los reportes se responden sin consultar la base de datos ni bloquear.
+ * Las ventas se cuentan en el día de creación del pedido; una cancelación descuenta la venta de ese día.
+ * Al arrancar (o a pedido) los agregados se reconstruyen con dos consultas agrupadas sobre pedidos
+ * activos y archivados.
+ */
+@Component
+public class AnaliticaVentas {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnaliticaVentas.class);
+
+    /** Veces que se repite la reconstrucción si llegan eventos mientras se consulta la base de datos */
+    private static final int INTENTOS_RECONSTRUCCION = 3;
+
+    private static final String SQL_VENTAS_POR_DIA =
+            "SELECT CAST(fecha_pedido AS DATE), COUNT(*), SUM(total) FROM pedidos " +
+            "WHERE estado <> 'CANCELADO' AND fecha_pedido >= ? GROUP BY CAST(fecha_pedido AS DATE) " +
+            "UNION ALL " +
+            "SELECT CAST(fecha_pedido AS DATE), COUNT(*), SUM(total) FROM pedidos_archivados " +
+            "WHERE estado <> 'CANCELADO' AND fecha_pedido >= ? GROUP BY CAST(fecha_pedido AS DATE)";
+
+    private static final String SQL_UNIDADES_POR_DIA =
+            "SELECT CAST(p.fecha_pedido AS DATE), i.producto_id, SUM(i.cantidad) " +
+            "FROM pedidos p JOIN items_pedido i ON i.pedido_id = p.id " +
+            "WHERE p.estado <> 'CANCELADO' AND p.fecha_pedido >= ? " +
+            "GROUP BY CAST(p.fecha_pedido AS DATE), i.producto_id " +
+            "UNION ALL " +
+            "SELECT CAST(p.fecha_pedido AS DATE), i.producto_id, SUM(i.cantidad) " +
+            "FROM pedidos_archivados p JOIN items_pedido_archivados i ON i.pedido_id = p.id " +
+            "WHERE p.estado <> 'CANCELADO' AND p.fecha_pedido >= ? " +
+            "GROUP BY CAST(p.fecha_pedido AS DATE), i.producto_id";
+
+    private final ProductoRepository productoRepository;
+    private final CatalogoCache catalogoCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final int dias;
+    private final int[] ventanas;
+    private final int top;
+
+    // Agregados que modifican los eventos y la reconstrucción (protegidos por this)
+    private Acumulado acumulado;
+    private long cambios;
+    private boolean construido = false;
+
+    // Solo un hilo arma y publica el informe a la vez
+    private final Object publicacion = new Object();
+    private long cambiosPublicados = -1;
+    private volatile Informe informe;
+
+    private final AtomicLong pedidosRegistrados = new AtomicLong();
+    private final AtomicLong pedidosDescontados = new AtomicLong();
+    private final AtomicLong eventosFueraDeRango = new AtomicLong();
+    private final AtomicLong reconstrucciones = new AtomicLong();
+    private final AtomicLong reconstruccionesRepetidas = new AtomicLong();
+    private volatile long ultimaReconstruccionMs;
+
+    @Autowired
+    public AnaliticaVentas(ProductoRepository productoRepository,
+                           CatalogoCache catalogoCache,
+                           JdbcTemplate jdbcTemplate,
+                           @Value("${mikeys.reportes.dias:90}") int dias,
+                           @Value("${mikeys.reportes.ventanas-dias:1,7,30,90}") int[] ventanas,
+                           @Value("${mikeys.reportes.top:10}") int top) {
+        if (dias <= 0 || top <= 0 || ventanas.length == 0) {
+            throw new IllegalArgumentException("Los días, las ventanas y el top de los reportes deben ser mayores a 0");
+        }
+        int[] ordenadas = Arrays.stream(ventanas).distinct().sorted().toArray();
+        if (ordenadas[0] <= 0 || ordenadas[ordenadas.length - 1] > dias) {
+            throw new IllegalArgumentException("Las ventanas de los reportes deben estar entre 1 y " + dias + " días");
+        }
+        this.productoRepository = productoRepository;
+        this.catalogoCache = catalogoCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dias = dias;
+        this.ventanas = ordenadas;
+        this.top = top;
+        this.acumulado = new Acumulado(dias, ordenadas, hoy());
+    }
+
+    /**
+     * Carga los agregados al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        try {
+            reconstruir();
+        } catch (IllegalStateException e) {
+            logger.warn("No se pudo construir la analítica de ventas al iniciar: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Suma un pedido creado a los agregados
+     * Si hay una transacción activa se recibe tras el commit; si hace rollback no se recibe
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCrearsePedido(PedidoCreadoEvent evento) {
+        registrar(evento.getFechaPedido(), evento.getTotal(), evento.getUnidades(), 1);
+        pedidosRegistrados.incrementAndGet();
+    }
+
+    /**
+     * Descuenta un pedido cancelado de los agregados del día en que se creó
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCancelarsePedido(PedidoCanceladoEvent evento) {
+        registrar(evento.getFechaPedido(), evento.getTotal(), evento.getUnidades(), -1);
+        pedidosDescontados.incrementAndGet();
+    }
+
+    private synchronized void registrar(LocalDateTime fechaPedido, BigDecimal total, Map<Long, Integer> unidades,
+                                        int signo) {
+        acumulado.avanzarHasta(hoy());
+        long dia = fechaPedido.toLocalDate().toEpochDay();
+        if (!acumulado.sumarVentas(dia, signo, signo * aCentavos(total))) {
+            eventosFueraDeRango.incrementAndGet();
+            return;
+        }
+        for (Map.Entry<Long, Integer> unidad : unidades.entrySet()) {
+            acumulado.sumarUnidades(dia, unidad.getKey(), (long) signo * unidad.getValue());
+        }
+        cambios++;
+    }
+
+    /**
+     * Reconstruye los agregados de los últimos dias días a partir de pedidos activos y archivados
+     * Si mientras se consulta llega algún evento, la pasada se descarta y se repite
+     * @return Estadísticas de la analítica tras la reconstrucción
+     * @throws IllegalStateException si los pedidos siguieron cambiando en todos los intentos
+     */
+    public Map<String, Object> reconstruir() {
+        for (int intento = 1; intento <= INTENTOS_RECONSTRUCCION; intento++) {
+            long inicio = System.currentTimeMillis();
+            long cambiosAntes;
+            synchronized (this) {
+                cambiosAntes = cambios;
+            }
+
+            long hoy = hoy();
+            Acumulado nuevo = new Acumulado(dias, ventanas, hoy);
+            Timestamp desde = Timestamp.valueOf(LocalDate.ofEpochDay(hoy - dias + 1).atStartOfDay());
+            jdbcTemplate.query(SQL_VENTAS_POR_DIA, (RowCallbackHandler) fila -> nuevo.sumarVentas(
+                    fila.getDate(1).toLocalDate().toEpochDay(), fila.getLong(2), aCentavos(fila.getBigDecimal(3))),
+                    desde, desde);
+            jdbcTemplate.query(SQL_UNIDADES_POR_DIA, (RowCallbackHandler) fila -> nuevo.sumarUnidades(
+                    fila.getDate(1).toLocalDate().toEpochDay(), fila.getLong(2), fila.getLong(3)),
+                    desde, desde);
+
+            synchronized (this) {
+                if (cambios == cambiosAntes) {
+                    nuevo.avanzarHasta(hoy());
+                    acumulado = nuevo;
+                    construido = true;
+                    // Obliga a publicar un informe nuevo
+                    cambios++;
+                    ultimaReconstruccionMs = System.currentTimeMillis() - inicio;
+                    reconstrucciones.incrementAndGet();
+                    break;
+                }
+            }
+            reconstruccionesRepetidas.incrementAndGet();
+            if (intento == INTENTOS_RECONSTRUCCION) {
+                throw new IllegalStateException(
+                        "Los pedidos siguieron cambiando durante la reconstrucción de los reportes, intente nuevamente");
+            }
+        }
+        publicar();
+        return getEstadisticas();
+    }
+
+    /**
+     * Publica un informe nuevo si hubo cambios o cambió el día
+     */
+    @Scheduled(fixedDelayString = "${mikeys.reportes.refresco-ms:1000}",
+               initialDelayString = "${mikeys.reportes.refresco-ms:1000}")
+    public void publicar() {
+        synchronized (publicacion) {
+            Copia copia;
+            synchronized (this) {
+                acumulado.avanzarHasta(hoy());
+                Informe actual = informe;
+                if (actual != null && cambios == cambiosPublicados && actual.dia == acumulado.diaActual) {
+                    return;
+                }
+                copia = acumulado.copiar();
+                cambiosPublicados = cambios;
+            }
+            informe = armarInforme(copia);
+        }
+    }
+
+    private Informe armarInforme(Copia copia) {
+        long[] ingresosAcumulados = acumular(copia.ingresos);
+        long[] pedidosAcumulados = acumular(copia.pedidos);
+        long[] unidadesAcumuladas = acumular(copia.unidades);
+
+        List<long[]> topPorVentana = new ArrayList<>(ventanas.length);
+        Set<Long> ids = new TreeSet<>();
+        for (MapaLongLong unidades : copia.unidadesPorVentana) {
+            long[] mejores = mejores(unidades, top);
+            topPorVentana.add(mejores);
+            for (int i = 0; i < mejores.length; i += 2) {
+                ids.add(mejores[i]);
+            }
+        }
+        Map<Long, ProductoDTO> productos = ids.isEmpty() ? Map.of()
+                : catalogoCache.obtenerVarios(ids, productoRepository::buscarProyeccionesPorIds);
+
+        List<List<ProductoVendido>> masVendidos = new ArrayList<>(ventanas.length);
+        for (long[] mejores : topPorVentana) {
+            List<ProductoVendido> lista = new ArrayList<>(mejores.length / 2);
+            for (int i = 0; i < mejores.length; i += 2) {
+                ProductoDTO producto = productos.get(mejores[i]);
+                lista.add(new ProductoVendido(mejores[i], producto != null ? producto.nombre() : null, mejores[i + 1]));
+            }
+            masVendidos.add(List.copyOf(lista));
+        }
+        return new Informe(copia.dia, LocalDateTime.now(), copia.pedidos, copia.unidades, copia.ingresos,
+                ingresosAcumulados, pedidosAcumulados, unidadesAcumuladas, copia.unidadesPorVentana, masVendidos);
+    }
+
+    /**
+     * Los limite productos con más unidades (a igualdad, el de menor ID), como pares ID, unidades
+     */
+    private static long[] mejores(MapaLongLong unidades, int limite) {
+        // Montículo de mínimos con los mejores vistos: en la raíz queda el peor de ellos
+        PriorityQueue<long[]> monticulo = new PriorityQueue<>(limite + 1,
+                (a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(b[0], a[0]));
+        unidades.recorrer((producto, cantidad) -> {
+            if (cantidad <= 0) {
+                return;
+            }
+            monticulo.add(new long[] {producto, cantidad});
+            if (monticulo.size() > limite) {
+                monticulo.poll();
+            }
+        });
+        long[] pares = new long[monticulo.size() * 2];
+        for (int i = pares.length - 2; i >= 0; i -= 2) {
+            long[] par = monticulo.poll();
+            pares[i] = par[0];
+            pares[i + 1] = par[1];
+        }
+        return pares;
+    }
+
+    private static long[] acumular(long[] valores) {
+        long[] acumulados = new long[valores.length + 1];
+        for (int i = 0; i < valores.length; i++) {
+            acumulados[i + 1] = acumulados[i] + valores[i];
+        }
+        return acumulados;
+    }
+
+    /**
+     * Obtiene los ingresos, pedidos y unidades vendidas de cada uno de los últimos días
+     * @param cantidadDias Cantidad de días, incluido hoy (entre 1 y dias)
+     * @return Mapa con las ventas por día (del más antiguo a hoy) y los totales del período
+     * @throws IllegalArgumentException si la cantidad de días está fuera de rango
+     */
+    public Map<String, Object> obtenerIngresos(int cantidadDias) {
+        if (cantidadDias <= 0 || cantidadDias > dias) {
+            throw new IllegalArgumentException("Los días deben estar entre 1 y " + dias);
+        }
+        Informe actual = informeActual();
+        int desde = dias - cantidadDias;
+        List<Map<String, Object>> porDia = new ArrayList<>(cantidadDias);
+        for (int i = desde; i < dias; i++) {
+            Map<String, Object> dia = new LinkedHashMap<>();
+            dia.put("fecha", LocalDate.ofEpochDay(actual.dia - dias + 1 + i).toString());
+            dia.put("pedidos", actual.pedidos[i]);
+            dia.put("unidades", actual.unidades[i]);
+            dia.put("ingresos", aImporte(actual.ingresos[i]));
+            porDia.add(dia);
+        }
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("dias", cantidadDias);
+        reporte.put("pedidos", actual.pedidosAcumulados[dias] - actual.pedidosAcumulados[desde]);
+        reporte.put("unidades", actual.unidadesAcumuladas[dias] - actual.unidadesAcumuladas[desde]);
+        reporte.put("ingresos", aImporte(actual.ingresosAcumulados[dias] - actual.ingresosAcumulados[desde]));
+        reporte.put("porDia", porDia);
+        reporte.put("generado", actual.generado.toString());
+        return reporte;
+    }
+
+    /**
+     * Obtiene los productos más vendidos de una ventana
+     * @param ventana Días de la ventana, incluido hoy (una de ventanas-dias)
+     * @param limite Cantidad máxima de productos (entre 1 y top)
+     * @return Productos con sus unidades vendidas, de más a menos vendido
+     * @throws IllegalArgumentException si la ventana no está configurada o el límite está fuera de rango
+     */
+    public List<ProductoVendido> obtenerMasVendidos(int ventana, int limite) {
+        if (limite <= 0 || limite > top) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + top);
+        }
+        List<ProductoVendido> masVendidos = informeActual().masVendidos.get(indiceVentana(ventana));
+        return masVendidos.subList(0, Math.min(limite, masVendidos.size()));
+    }
+
+    /**
+     * Obtiene las unidades vendidas de un producto en cada ventana
+     * @param productoId ID del producto
+     * @return Mapa ventana (en días) -> unidades vendidas
+     */
+    public Map<Integer, Long> obtenerUnidadesProducto(long productoId) {
+        Informe actual = informeActual();
+        Map<Integer, Long> unidades = new LinkedHashMap<>();
+        for (int i = 0; i < ventanas.length; i++) {
+            unidades.put(ventanas[i], actual.unidadesPorVentana[i].obtener(productoId));
+        }
+        return unidades;
+    }
+
+    /**
+     * Ventanas configuradas, en días
+     */
+    public int[] getVentanas() {
+        return ventanas.clone();
+    }
+
+    /**
+     * Obtiene la configuración y la actividad de la analítica
+     * @return Mapa con los eventos aplicados, las reconstrucciones y el tamaño de las ventanas
+     */
+    public Map<String, Object> getEstadisticas() {
+        Informe actual = informe;
+        Map<String, Integer> productosPorVentana = new LinkedHashMap<>();
+        if (actual != null) {
+            for (int i = 0; i < ventanas.length; i++) {
+                productosPorVentana.put(String.valueOf(ventanas[i]), actual.unidadesPorVentana[i].tamanio());
+            }
+        }
+        Map<String, Object> estadisticas = new HashMap<>();
+        synchronized (this) {
+            estadisticas.put("construido", construido);
+        }
+        estadisticas.put("dias", dias);
+        estadisticas.put("ventanasDias", ventanas.clone());
+        estadisticas.put("top", top);
+        estadisticas.put("pedidosRegistrados", pedidosRegistrados.get());
+        estadisticas.put("pedidosDescontados", pedidosDescontados.get());
+        estadisticas.put("eventosFueraDeRango", eventosFueraDeRango.get());
+        estadisticas.put("reconstrucciones", reconstrucciones.get());
+        estadisticas.put("reconstruccionesRepetidas", reconstruccionesRepetidas.get());
+        estadisticas.put("ultimaReconstruccionMs", ultimaReconstruccionMs);
+        estadisticas.put("productosPorVentana", productosPorVentana);
+        estadisticas.put("informeGenerado", actual != null ? actual.generado.toString() : null);
+        return estadisticas;
+    }
+
+    private Informe informeActual() {
+        Informe actual = informe;
+        if (actual == null) {
+            publicar();
+            actual = informe;
+        }
+        return actual;
+    }
+
+    private int indiceVentana(int ventana) {
+        int indice = Arrays.binarySearch(ventanas, ventana);
+        if (indice < 0) {
+            throw new IllegalArgumentException("Ventana no disponible: " + ventana + " días. Ventanas: "
+                    + Arrays.toString(ventanas));
+        }
+        return indice;
+    }
+
+    private static long hoy() {
+        return LocalDate.now().toEpochDay();
+    }
+
+    private static long aCentavos(BigDecimal importe) {
+        return importe == null ? 0 : importe.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal aImporte(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * Agregados de los últimos dias días en arreglos circulares indexados por día (epoch day módulo dias)
+     * más las unidades por producto de cada ventana. No es seguro para hilos
+     */
+    private static final class Acumulado {
+
+        private final int dias;
+        private final int[] ventanas;
+        private long diaActual;
+
+        private final long[] ingresos;
+        private final long[] pedidos;
+        private final long[] unidades;
+        private final MapaLongLong[] unidadesPorDia;
+        private final MapaLongLong[] unidadesPorVentana;
+
+        Acumulado(int dias, int[] ventanas, long hoy) {
+            this.dias = dias;
+            this.ventanas = ventanas;
+            this.ingresos = new long[dias];
+            this.pedidos = new long[dias];
+            this.unidades = new long[dias];
+            this.unidadesPorDia = new MapaLongLong[dias];
+            this.unidadesPorVentana = new MapaLongLong[ventanas.length];
+            for (int i = 0; i < dias; i++) {
+                unidadesPorDia[i] = new MapaLongLong();
+            }
+            for (int i = 0; i < ventanas.length; i++) {
+                unidadesPorVentana[i] = new MapaLongLong();
+            }
+            reiniciar(hoy);
+        }
+
+        /**
+         * Avanza hasta un día nuevo: descuenta de cada ventana los días que salen de ella
+         * y libera las ranuras de los días que salen del período
+         */
+        void avanzarHasta(long dia) {
+            if (dia <= diaActual) {
+                return;
+            }
+            if (dia - diaActual >= dias) {
+                reiniciar(dia);
+                return;
+            }
+            for (long d = diaActual + 1; d <= dia; d++) {
+                for (int i = 0; i < ventanas.length; i++) {
+                    unidadesPorVentana[i].sumarTodo(unidadesPorDia[ranura(d - ventanas[i])], -1);
+                }
+                int ranura = ranura(d);
+                ingresos[ranura] = 0;
+                pedidos[ranura] = 0;
+                unidades[ranura] = 0;
+                unidadesPorDia[ranura].limpiar();
+            }
+            diaActual = dia;
+        }
+
+        /**
+         * @return false si el día está fuera del período (la venta no se registra)
+         */
+        boolean sumarVentas(long dia, long cantidadPedidos, long centavos) {
+            if (!enPeriodo(dia)) {
+                return false;
+            }
+            int ranura = ranura(dia);
+            pedidos[ranura] += cantidadPedidos;
+            ingresos[ranura] += centavos;
+            return true;
+        }
+
+        void sumarUnidades(long dia, long productoId, long cantidad) {
+            if (!enPeriodo(dia)) {
+                return;
+            }
+            int ranura = ranura(dia);
+            unidades[ranura] += cantidad;
+            unidadesPorDia[ranura].sumar(productoId, cantidad);
+            for (int i = 0; i < ventanas.length; i++) {
+                if (dia > diaActual - ventanas[i]) {
+                    unidadesPorVentana[i].sumar(productoId, cantidad);
+                }
+            }
+        }
+
+        /**
+         * Copia de los totales por día (del más antiguo a hoy) y de las ventanas
+         */
+        Copia copiar() {
+            long[] copiaIngresos = new long[dias];
+            long[] copiaPedidos = new long[dias];
+            long[] copiaUnidades = new long[dias];
+            for (int i = 0; i < dias; i++) {
+                int ranura = ranura(diaActual - dias + 1 + i);
+                copiaIngresos[i] = ingresos[ranura];
+                copiaPedidos[i] = pedidos[ranura];
+                copiaUnidades[i] = unidades[ranura];
+            }
+            MapaLongLong[] copiaVentanas = new MapaLongLong[ventanas.length];
+            for (int i = 0; i < ventanas.length; i++) {
+                copiaVentanas[i] = unidadesPorVentana[i].copia();
+            }
+            return new Copia(diaActual, copiaIngresos, copiaPedidos, copiaUnidades, copiaVentanas);
+        }
+
+        private boolean enPeriodo(long dia) {
+            return dia <= diaActual && dia > diaActual - dias;
+        }
+
+        private void reiniciar(long hoy) {
+            Arrays.fill(ingresos, 0);
+            Arrays.fill(pedidos, 0);
+            Arrays.fill(unidades, 0);
+            for (MapaLongLong mapa : unidadesPorDia) {
+                mapa.limpiar();
+            }
+            for (MapaLongLong mapa : unidadesPorVentana) {
+                mapa.limpiar();
+            }
+            diaActual = hoy;
+        }
+
+        private int ranura(long dia) {
+            return (int) Math.floorMod(dia, (long) dias);
+        }
+    }
+
+    private record Copia(long dia, long[] ingresos, long[] pedidos, long[] unidades,
+                         MapaLongLong[] unidadesPorVentana) {
+    }
+
+    /**
+     * Informe publicado: solo se lee, nunca se modifica después de armarlo
+     */
+    private record Informe(long dia, LocalDateTime generado, long[] pedidos, long[] unidades, long[] ingresos,
+                           long[] ingresosAcumulados, long[] pedidosAcumulados, long[] unidadesAcumuladas,
+                           MapaLongLong[] unidadesPorVentana, List<List<ProductoVendido>> masVendidos) {
+    }
+}
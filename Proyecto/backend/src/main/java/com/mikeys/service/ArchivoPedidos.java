@@ -0,0 +1,370 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.FilaPedido;
+import com.mikeys.model.EstadoPedido;
+import com.mikeys.model.ItemPedido;
+import com.mikeys.model.Pedido;
+import com.mikeys.model.Producto;
+import com.mikeys.model.Usuario;
+import com.mikeys.repository.PedidoArchivadoRepository;
+import com.mikeys.repository.ProductoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Archivo de pedidos cerrados
+ * Un proceso periódico mueve los pedidos ENTREGADO y CANCELADO cerrados hace más de antiguedad-dias
+ * (según fecha_actualizacion, que cambia con cada cambio de estado) a pedidos_archivados e
+ * items_pedido_archivados, para que las tablas activas (y sus índices) solo crezcan con los pedidos
+ * recientes. Cada lote de hasta tamanio-lote pedidos se mueve en su propia transacción (copia y
+ * borrado con sentencias SQL, recorriendo el índice estado, fecha_actualizacion, id) y entre lotes se hace una pausa de pausa-ms para no acaparar la base de datos.
+ * Los pedidos archivados conservan su ID y se siguen consultando por ID, por usuario y por estado;
+ * si un pedido archivado cambia de estado se restaura primero a las tablas activas.
+ */
+@Component
+public class ArchivoPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoPedidos.class);
+
+    /** Estados de los pedidos que ya no cambian y se pueden archivar */
+    public static final Set<EstadoPedido> ESTADOS_ARCHIVABLES = Collections.unmodifiableSet(
+            new TreeSet<>(List.of(EstadoPedido.ENTREGADO, EstadoPedido.CANCELADO)));
+
+    private static final String SQL_BLOQUEAR_LOTE =
+            "SELECT id FROM pedidos WHERE estado = ? AND fecha_actualizacion < ? " +
+            "ORDER BY fecha_actualizacion, id LIMIT ? FOR UPDATE";
+
+    private static final String SQL_COPIAR_PEDIDOS =
+            "INSERT INTO pedidos_archivados (id, usuario_id, fecha_pedido, total, estado, fecha_actualizacion, fecha_archivado) " +
+            "SELECT id, usuario_id, fecha_pedido, total, estado, fecha_actualizacion, ? FROM pedidos WHERE id IN (%s)";
+
+    private static final String SQL_COPIAR_ITEMS =
+            "INSERT INTO items_pedido_archivados (id, pedido_id, producto_id, cantidad, precio) " +
+            "SELECT id, pedido_id, producto_id, cantidad, precio FROM items_pedido WHERE pedido_id IN (%s)";
+
+    private static final String SQL_BORRAR_ITEMS = "DELETE FROM items_pedido WHERE pedido_id IN (%s)";
+
+    private static final String SQL_BORRAR_PEDIDOS = "DELETE FROM pedidos WHERE id IN (%s)";
+
+    private static final String SQL_PEDIDO_MAS_ANTIGUO =
+            "SELECT MIN(fecha_actualizacion) FROM pedidos WHERE estado = ? AND fecha_actualizacion < ?";
+
+    private static final String SQL_BLOQUEAR_ARCHIVADO = "SELECT id FROM pedidos_archivados WHERE id = ? FOR UPDATE";
+
+    private static final String SQL_RESTAURAR_PEDIDO =
+            "INSERT INTO pedidos (id, usuario_id, fecha_pedido, total, estado, fecha_actualizacion) " +
+            "SELECT id, usuario_id, fecha_pedido, total, estado, fecha_actualizacion FROM pedidos_archivados WHERE id = ?";
+
+    private static final String SQL_RESTAURAR_ITEMS =
+            "INSERT INTO items_pedido (id, pedido_id, producto_id, cantidad, precio) " +
+            "SELECT id, pedido_id, producto_id, cantidad, precio FROM items_pedido_archivados WHERE pedido_id = ?";
+
+    private static final String SQL_BORRAR_ITEMS_ARCHIVADOS = "DELETE FROM items_pedido_archivados WHERE pedido_id = ?";
+
+    private static final String SQL_BORRAR_ARCHIVADO = "DELETE FROM pedidos_archivados WHERE id = ?";
+
+    private final PedidoArchivadoRepository pedidoArchivadoRepository;
+    private final ProductoRepository productoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final boolean habilitado;
+    private final int antiguedadDias;
+    private final int tamanioLote;
+    private final long pausaMs;
+
+    private volatile boolean activo = true;
+
+    private final AtomicLong ejecuciones = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong pedidosArchivados = new AtomicLong();
+    private final AtomicLong itemsArchivados = new AtomicLong();
+    private final AtomicLong tiempoLotesMs = new AtomicLong();
+    private final AtomicLong restaurados = new AtomicLong();
+    private final AtomicLong ejecucionesFallidas = new AtomicLong();
+    private volatile Map<String, Object> ultimaEjecucion = Map.of();
+    private volatile LocalDateTime ultimoCorte;
+    private volatile LocalDateTime pendienteMasAntiguo;
+
+    @Autowired
+    public ArchivoPedidos(PedidoArchivadoRepository pedidoArchivadoRepository,
+                          ProductoRepository productoRepository,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${mikeys.archivo.habilitado:true}") boolean habilitado,
+                          @Value("${mikeys.archivo.antiguedad-dias:90}") int antiguedadDias,
+                          @Value("${mikeys.archivo.tamanio-lote:500}") int tamanioLote,
+                          @Value("${mikeys.archivo.pausa-ms:100}") long pausaMs) {
+        if (antiguedadDias < 0 || tamanioLote <= 0 || pausaMs < 0) {
+            throw new IllegalArgumentException(
+                    "La antigüedad, el tamaño de lote y la pausa del archivo de pedidos deben ser positivos");
+        }
+        this.pedidoArchivadoRepository = pedidoArchivadoRepository;
+        this.productoRepository = productoRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.antiguedadDias = antiguedadDias;
+        this.tamanioLote = tamanioLote;
+        this.pausaMs = pausaMs;
+    }
+
+    /**
+     * Deja de mover lotes al detener la aplicación; el lote en curso termina normalmente
+     */
+    @PreDestroy
+    public void detener() {
+        activo = false;
+    }
+
+    /**
+     * Mueve al archivo los pedidos cerrados más antiguos que el corte, lote por lote,
+     * hasta que no queden pedidos archivables o la aplicación se detenga
+     */
+    @Scheduled(fixedDelayString = "${mikeys.archivo.intervalo-ms:3600000}",
+               initialDelayString = "${mikeys.archivo.intervalo-ms:3600000}")
+    public void archivar() {
+        if (!habilitado) {
+            return;
+        }
+        LocalDateTime corte = LocalDateTime.now().minusDays(antiguedadDias);
+        long inicio = System.currentTimeMillis();
+        long lotesEjecucion = 0;
+        long pedidosEjecucion = 0;
+        long itemsEjecucion = 0;
+        try {
+            for (EstadoPedido estado : ESTADOS_ARCHIVABLES) {
+                while (activo) {
+                    long inicioLote = System.currentTimeMillis();
+                    long[] movidos = transaccion.execute(tx -> moverLote(estado, corte));
+                    if (movidos[0] == 0) {
+                        break;
+                    }
+                    tiempoLotesMs.addAndGet(System.currentTimeMillis() - inicioLote);
+                    lotes.incrementAndGet();
+                    pedidosArchivados.addAndGet(movidos[0]);
+                    itemsArchivados.addAndGet(movidos[1]);
+                    lotesEjecucion++;
+                    pedidosEjecucion += movidos[0];
+                    itemsEjecucion += movidos[1];
+                    if (movidos[0] < tamanioLote) {
+                        break;
+                    }
+                    esperar();
+                }
+            }
+        } catch (RuntimeException e) {
+            ejecucionesFallidas.incrementAndGet();
+            logger.error("Falló el archivo de pedidos después de {} lotes", lotesEjecucion, e);
+        }
+
+        long duracionMs = System.currentTimeMillis() - inicio;
+        Map<String, Object> ejecucion = new HashMap<>();
+        ejecucion.put("fecha", LocalDateTime.now().toString());
+        ejecucion.put("corte", corte.toString());
+        ejecucion.put("lotes", lotesEjecucion);
+        ejecucion.put("pedidos", pedidosEjecucion);
+        ejecucion.put("items", itemsEjecucion);
+        ejecucion.put("duracionMs", duracionMs);
+        ejecucion.put("filasPorSegundo", filasPorSegundo(pedidosEjecucion + itemsEjecucion, duracionMs));
+        ultimaEjecucion = ejecucion;
+        ejecuciones.incrementAndGet();
+        ultimoCorte = corte;
+        pendienteMasAntiguo = buscarPendienteMasAntiguo(corte);
+        if (pedidosEjecucion > 0) {
+            logger.info("Archivados {} pedidos y {} items en {} lotes ({} ms)",
+                    pedidosEjecucion, itemsEjecucion, lotesEjecucion, duracionMs);
+        }
+    }
+
+    /**
+     * Mueve un lote de pedidos de un estado dentro de la transacción actual
+     * Las filas se bloquean en el orden del índice para que una cancelación o un cambio de estado
+     * concurrente espere al lote (o el lote a ellos) en lugar de archivar un pedido a medio modificar
+     * @return Pedidos e items movidos
+     */
+    private long[] moverLote(EstadoPedido estado, LocalDateTime corte) {
+        List<Long> ids = jdbcTemplate.queryForList(SQL_BLOQUEAR_LOTE, Long.class,
+                estado.name(), Timestamp.valueOf(corte), tamanioLote);
+        if (ids.isEmpty()) {
+            return new long[] {0, 0};
+        }
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Object[] pedidoIds = ids.toArray();
+
+        List<Object> parametros = new ArrayList<>(ids.size() + 1);
+        parametros.add(Timestamp.valueOf(LocalDateTime.now()));
+        parametros.addAll(ids);
+        int pedidos = jdbcTemplate.update(String.format(SQL_COPIAR_PEDIDOS, marcadores), parametros.toArray());
+        int items = jdbcTemplate.update(String.format(SQL_COPIAR_ITEMS, marcadores), pedidoIds);
+        jdbcTemplate.update(String.format(SQL_BORRAR_ITEMS, marcadores), pedidoIds);
+        jdbcTemplate.update(String.format(SQL_BORRAR_PEDIDOS, marcadores), pedidoIds);
+        return new long[] {pedidos, items};
+    }
+
+    private void esperar() {
+        if (pausaMs == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pausaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            activo = false;
+        }
+    }
+
+    private LocalDateTime buscarPendienteMasAntiguo(LocalDateTime corte) {
+        LocalDateTime masAntiguo = null;
+        for (EstadoPedido estado : ESTADOS_ARCHIVABLES) {
+            Timestamp fecha = jdbcTemplate.queryForObject(SQL_PEDIDO_MAS_ANTIGUO, Timestamp.class,
+                    estado.name(), Timestamp.valueOf(corte));
+            if (fecha != null && (masAntiguo == null || fecha.toLocalDateTime().isBefore(masAntiguo))) {
+                masAntiguo = fecha.toLocalDateTime();
+            }
+        }
+        return masAntiguo;
+    }
+
+    /**
+     * Devuelve un pedido archivado a las tablas activas dentro de la transacción actual
+     * (por ejemplo, para cambiarle el estado); conserva su ID y los de sus items
+     * @param id ID del pedido
+     * @return true si el pedido estaba archivado y se restauró
+     */
+    public boolean restaurar(Long id) {
+        if (jdbcTemplate.queryForList(SQL_BLOQUEAR_ARCHIVADO, Long.class, id).isEmpty()) {
+            return false;
+        }
+        jdbcTemplate.update(SQL_RESTAURAR_PEDIDO, id);
+        jdbcTemplate.update(SQL_RESTAURAR_ITEMS, id);
+        jdbcTemplate.update(SQL_BORRAR_ITEMS_ARCHIVADOS, id);
+        jdbcTemplate.update(SQL_BORRAR_ARCHIVADO, id);
+        restaurados.incrementAndGet();
+        logger.info("Pedido {} restaurado desde el archivo", id);
+        return true;
+    }
+
+    /**
+     * Busca un pedido archivado y lo arma como entidad Pedido no administrada, con sus items y productos
+     * @param id ID del pedido
+     * @return Optional con el pedido si está archivado
+     */
+    public Optional<Pedido> buscar(Long id) {
+        List<Pedido> pedidos = armarPedidos(pedidoArchivadoRepository.buscarFilasPorId(id));
+        return pedidos.isEmpty() ? Optional.empty() : Optional.of(pedidos.get(0));
+    }
+
+    /**
+     * Obtiene los pedidos archivados de un usuario como entidades Pedido no administradas
+     * @param usuarioId ID del usuario
+     * @return Pedidos archivados del usuario, del más reciente al más antiguo
+     */
+    public List<Pedido> buscarPorUsuario(Long usuarioId) {
+        return armarPedidos(pedidoArchivadoRepository.buscarFilasPorUsuario(usuarioId));
+    }
+
+    /**
+     * Arma los pedidos de las filas planas; los productos se cargan con una sola consulta
+     * y los que ya no existen se reemplazan por un producto con el ID y sin datos
+     */
+    private List<Pedido> armarPedidos(List<FilaPedido> filas) {
+        if (filas.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> productoIds = new TreeSet<>();
+        for (FilaPedido fila : filas) {
+            if (fila.productoId() != null) {
+                productoIds.add(fila.productoId());
+            }
+        }
+        Map<Long, Producto> productos = productoIds.isEmpty() ? Map.of()
+                : productoRepository.buscarSoloLecturaPorIds(productoIds).stream()
+                        .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+        Map<Long, Pedido> pedidos = new LinkedHashMap<>();
+        for (FilaPedido fila : filas) {
+            Pedido pedido = pedidos.computeIfAbsent(fila.pedidoId(), pedidoId -> {
+                Usuario usuario = new Usuario();
+                usuario.setId(fila.usuarioId());
+                Pedido nuevo = new Pedido();
+                nuevo.setId(pedidoId);
+                nuevo.setUsuario(usuario);
+                nuevo.setFechaPedido(fila.fechaPedido());
+                nuevo.setFechaActualizacion(fila.fechaActualizacion());
+                nuevo.setTotal(fila.total());
+                nuevo.setEstado(fila.estado());
+                nuevo.setItems(new ArrayList<>());
+                return nuevo;
+            });
+            if (fila.itemId() == null) {
+                continue;
+            }
+            Producto producto = productos.get(fila.productoId());
+            if (producto == null) {
+                producto = new Producto();
+                producto.setId(fila.productoId());
+            }
+            ItemPedido item = new ItemPedido(producto, fila.cantidad(), fila.precio());
+            item.setId(fila.itemId());
+            item.setPedido(pedido);
+            pedido.getItems().add(item);
+        }
+        return new ArrayList<>(pedidos.values());
+    }
+
+    /**
+     * Obtiene la configuración, el avance del archivo y el retraso respecto del corte
+     * @return Mapa con las filas movidas, las filas por segundo, la última ejecución y el retraso
+     */
+    public Map<String, Object> getEstadisticas() {
+        long filas = pedidosArchivados.get() + itemsArchivados.get();
+        LocalDateTime corte = ultimoCorte;
+        LocalDateTime pendiente = pendienteMasAntiguo;
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("habilitado", habilitado);
+        estadisticas.put("antiguedadDias", antiguedadDias);
+        estadisticas.put("tamanioLote", tamanioLote);
+        estadisticas.put("pausaMs", pausaMs);
+        estadisticas.put("ejecuciones", ejecuciones.get());
+        estadisticas.put("ejecucionesFallidas", ejecucionesFallidas.get());
+        estadisticas.put("lotes", lotes.get());
+        estadisticas.put("pedidosArchivados", pedidosArchivados.get());
+        estadisticas.put("itemsArchivados", itemsArchivados.get());
+        estadisticas.put("filasPorSegundo", filasPorSegundo(filas, tiempoLotesMs.get()));
+        estadisticas.put("restaurados", restaurados.get());
+        estadisticas.put("ultimaEjecucion", ultimaEjecucion);
+        estadisticas.put("corte", corte != null ? corte.toString() : null);
+        estadisticas.put("pendienteMasAntiguo", pendiente != null ? pendiente.toString() : null);
+        estadisticas.put("retrasoSegundos",
+                corte != null && pendiente != null ? Duration.between(pendiente, corte).getSeconds() : 0L);
+        return estadisticas;
+    }
+
+    private static double filasPorSegundo(long filas, long ms) {
+        return ms == 0 ? 0.0 : filas * 1000.0 / ms;
+    }
+}
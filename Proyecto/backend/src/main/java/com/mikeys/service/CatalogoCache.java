@@ -0,0 +1,280 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.ProductoDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria del catálogo de productos (modelo de lectura)
+ * Guarda proyecciones inmutables (ProductoDTO) por ID con tamaño acotado y desalojo LRU,
+ * además del listado completo, que se guarda aparte y no cuenta para ese límite.
+ * Las escrituras invalidan las entradas afectadas después del commit
+ * y publican un CatalogoModificadoEvent con la nueva versión del catálogo.
+ */
+@Component
+public class CatalogoCache {
+
+    private final int maxEntradas;
+
+    // LinkedHashMap en orden de acceso: el primer elemento es el menos usado recientemente
+    private final LinkedHashMap<Long, ProductoDTO> entradas;
+
+    // Listado completo ordenado por ID, independiente del límite de entradas; null cuando no está cargado
+    private List<ProductoDTO> catalogoCompleto;
+
+    // Se incrementa en cada invalidación para descartar cargas que leyeron datos anteriores
+    // y sirve también como versión del catálogo para los ETag
+    private long generacion;
+
+    // Instante de arranque, distingue versiones de distintas ejecuciones de la aplicación
+    private final long inicio = System.currentTimeMillis();
+
+    // Instante (epoch ms) de la última modificación conocida del catálogo
+    private volatile long ultimaModificacion = inicio;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    private final ApplicationEventPublisher eventos;
+
+    public CatalogoCache(@Value("${mikeys.catalogo.cache.max-entradas:10000}") int maxEntradas,
+                         ApplicationEventPublisher eventos) {
+        if (maxEntradas <= 0) {
+            throw new IllegalArgumentException("El tamaño de la caché del catálogo debe ser mayor a 0");
+        }
+        this.maxEntradas = maxEntradas;
+        this.eventos = eventos;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ProductoDTO> eldest) {
+                if (size() > CatalogoCache.this.maxEntradas) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtiene un producto de la caché o lo carga con el cargador indicado
+     * @param id ID del producto
+     * @param cargador Lectura a la base de datos en caso de fallo
+     * @return Proyección del producto, vacía si no existe
+     */
+    public Optional<ProductoDTO> obtener(Long id, Supplier<Optional<ProductoDTO>> cargador) {
+        long generacionLeida;
+        synchronized (this) {
+            ProductoDTO producto = entradas.get(id);
+            if (producto != null) {
+                aciertos.incrementAndGet();
+                return Optional.of(producto);
+            }
+            generacionLeida = generacion;
+        }
+
+        fallos.incrementAndGet();
+        Optional<ProductoDTO> cargado = cargador.get();
+
+        cargado.ifPresent(producto -> {
+            synchronized (this) {
+                if (generacion == generacionLeida) {
+                    entradas.put(id, producto);
+                }
+            }
+        });
+        return cargado;
+    }
+
+    /**
+     * Obtiene varios productos de la caché y carga los que falten con una sola consulta
+     * @param ids IDs de los productos
+     * @param cargador Lectura a la base de datos de los IDs que no están en caché
+     * @return Mapa ID -> proyección del producto; los IDs inexistentes no aparecen
+     */
+    public Map<Long, ProductoDTO> obtenerVarios(Collection<Long> ids,
+                                                Function<Collection<Long>, List<ProductoDTO>> cargador) {
+        Map<Long, ProductoDTO> encontrados = new HashMap<>();
+        Set<Long> faltantes = new LinkedHashSet<>();
+        long generacionLeida;
+        synchronized (this) {
+            for (Long id : ids) {
+                ProductoDTO producto = entradas.get(id);
+                if (producto != null) {
+                    encontrados.put(id, producto);
+                } else {
+                    faltantes.add(id);
+                }
+            }
+            generacionLeida = generacion;
+        }
+        aciertos.addAndGet(encontrados.size());
+
+        if (!faltantes.isEmpty()) {
+            fallos.addAndGet(faltantes.size());
+            List<ProductoDTO> cargados = cargador.apply(faltantes);
+            synchronized (this) {
+                for (ProductoDTO producto : cargados) {
+                    encontrados.put(producto.id(), producto);
+                    if (generacion == generacionLeida) {
+                        entradas.put(producto.id(), producto);
+                    }
+                }
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Obtiene el catálogo completo de la caché o lo carga con el cargador indicado
+     * El listado se guarda siempre; las entradas por ID solo se precargan si el catálogo
+     * cabe en la caché, para no desalojar todo el LRU con una sola carga
+     * @param cargador Lectura de todos los productos en caso de fallo
+     * @return Lista inmutable con las proyecciones de todos los productos
+     */
+    public List<ProductoDTO> obtenerCatalogo(Supplier<List<ProductoDTO>> cargador) {
+        long generacionLeida;
+        synchronized (this) {
+            if (catalogoCompleto != null) {
+                aciertos.incrementAndGet();
+                return catalogoCompleto;
+            }
+            generacionLeida = generacion;
+        }
+
+        fallos.incrementAndGet();
+        List<ProductoDTO> cargado = Collections.unmodifiableList(new ArrayList<>(cargador.get()));
+
+        synchronized (this) {
+            if (generacion == generacionLeida) {
+                catalogoCompleto = cargado;
+                if (cargado.size() <= maxEntradas) {
+                    for (ProductoDTO producto : cargado) {
+                        entradas.put(producto.id(), producto);
+                    }
+                }
+            }
+        }
+        return cargado;
+    }
+
+    /**
+     * Invalida los productos indicados y el listado completo
+     * Si hay una transacción activa la invalidación se repite al completarse
+     * (commit o rollback), de lo contrario se aplica inmediatamente
+     * @param ids IDs de los productos modificados
+     */
+    public void invalidarTrasCommit(Collection<Long> ids) {
+        List<Long> copia = new ArrayList<>(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Invalidar también ahora para que la propia transacción no lea datos viejos
+            invalidar(copia);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidar(copia);
+                }
+            });
+        } else {
+            invalidar(copia);
+        }
+    }
+
+    /**
+     * Invalida un producto y el listado completo
+     * @param id ID del producto modificado
+     */
+    public void invalidarTrasCommit(Long id) {
+        invalidarTrasCommit(Collections.singletonList(id));
+    }
+
+    private void invalidar(Collection<Long> ids) {
+        invalidarEntradas(ids);
+        eventos.publishEvent(new CatalogoModificadoEvent(getVersion()));
+    }
+
+    private synchronized void invalidarEntradas(Collection<Long> ids) {
+        generacion++;
+        ultimaModificacion = System.currentTimeMillis();
+        catalogoCompleto = null;
+        for (Long id : ids) {
+            entradas.remove(id);
+        }
+        invalidaciones.incrementAndGet();
+    }
+
+    /**
+     * Vacía completamente la caché
+     */
+    public void limpiar() {
+        synchronized (this) {
+            generacion++;
+            ultimaModificacion = System.currentTimeMillis();
+            catalogoCompleto = null;
+            entradas.clear();
+            invalidaciones.incrementAndGet();
+        }
+        eventos.publishEvent(new CatalogoModificadoEvent(getVersion()));
+    }
+
+    /**
+     * Obtiene la versión actual del catálogo
+     * Cambia con cada escritura de productos, incluso tras el commit, sin leer la base de datos
+     * @return Versión opaca del catálogo
+     */
+    public synchronized String getVersion() {
+        return inicio + "-" + generacion;
+    }
+
+    /**
+     * Obtiene el instante de la última modificación conocida del catálogo
+     * @return Epoch en milisegundos (el arranque de la aplicación si no ha habido escrituras)
+     */
+    public long getUltimaModificacion() {
+        return ultimaModificacion;
+    }
+
+    /**
+     * Obtiene las métricas de uso de la caché
+     * @return Mapa con aciertos, fallos, desalojos, invalidaciones y tamaño
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        long totalAciertos = aciertos.get();
+        long totalFallos = fallos.get();
+        long total = totalAciertos + totalFallos;
+
+        synchronized (this) {
+            estadisticas.put("entradas", entradas.size());
+            estadisticas.put("catalogoCompletoCargado", catalogoCompleto != null);
+            estadisticas.put("productosCatalogoCompleto", catalogoCompleto == null ? 0 : catalogoCompleto.size());
+        }
+        estadisticas.put("maxEntradas", maxEntradas);
+        estadisticas.put("aciertos", totalAciertos);
+        estadisticas.put("fallos", totalFallos);
+        estadisticas.put("tasaAciertos", total == 0 ? 0.0 : (double) totalAciertos / total);
+        estadisticas.put("desalojos", desalojos.get());
+        estadisticas.put("invalidaciones", invalidaciones.get());
+        estadisticas.put("version", getVersion());
+        return estadisticas;
+    }
+}
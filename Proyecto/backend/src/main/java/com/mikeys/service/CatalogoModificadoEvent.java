@@ -0,0 +1,20 @@
+package com.mikeys.service;
+
+/**
+ * Evento publicado por CatalogoCache cada vez que cambia la versión del catálogo
+ */
+public class CatalogoModificadoEvent {
+
+    private final String version;
+
+    public CatalogoModificadoEvent(String version) {
+        this.version = version;
+    }
+
+    /**
+     * Versión del catálogo tras la modificación
+     */
+    public String getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,177 @@
+package com.mikeys.service;
+
+import com.mikeys.model.EstadoPedido;
+import com.mikeys.repository.PedidoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cantidad de pedidos por estado, mantenida en memoria
+ * El panel de operaciones consulta estos contadores en lugar de un COUNT por estado sobre pedidos.
+ * Se cargan al arrancar con una sola consulta agrupada, los cambios se aplican solo cuando
+ * la transacción que los produjo hace commit, y una reconciliación periódica corrige cualquier
+ * desvío (por ejemplo, cambios hechos directamente en la base de datos).
+ * Las lecturas no usan bloqueos; los escritores se sincronizan con la reconciliación.
+ */
+@Component
+public class ContadoresPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContadoresPedidos.class);
+
+    private final PedidoRepository pedidoRepository;
+
+    private final Map<EstadoPedido, AtomicLong> contadores = new EnumMap<>(EstadoPedido.class);
+    private volatile boolean construido = false;
+
+    // Cantidad de cambios aplicados; la reconciliación la usa para detectar escrituras concurrentes
+    private long cambios;
+
+    private final AtomicLong reconciliaciones = new AtomicLong();
+    private final AtomicLong reconciliacionesOmitidas = new AtomicLong();
+    private final AtomicLong desviosCorregidos = new AtomicLong();
+
+    @Autowired
+    public ContadoresPedidos(PedidoRepository pedidoRepository) {
+        this.pedidoRepository = pedidoRepository;
+        for (EstadoPedido estado : EstadoPedido.values()) {
+            contadores.put(estado, new AtomicLong());
+        }
+    }
+
+    /**
+     * Carga los contadores al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        reconciliar();
+    }
+
+    /**
+     * Compara los contadores con la base de datos y corrige las diferencias
+     * Si durante la consulta se aplicó algún cambio, la pasada se descarta para no
+     * sobrescribirlo con datos anteriores; la siguiente pasada volverá a intentarlo
+     */
+    @Scheduled(fixedDelayString = "${mikeys.pedidos.contadores.reconciliacion-ms:300000}",
+               initialDelayString = "${mikeys.pedidos.contadores.reconciliacion-ms:300000}")
+    public void reconciliar() {
+        long cambiosAntes;
+        synchronized (this) {
+            cambiosAntes = cambios;
+        }
+
+        Map<EstadoPedido, Long> desdeBaseDeDatos = new EnumMap<>(EstadoPedido.class);
+        for (PedidoRepository.ConteoPorEstado conteo : pedidoRepository.contarAgrupadosPorEstado()) {
+            desdeBaseDeDatos.put(conteo.getEstado(), conteo.getCantidad());
+        }
+
+        synchronized (this) {
+            if (cambios != cambiosAntes) {
+                reconciliacionesOmitidas.incrementAndGet();
+                return;
+            }
+            long desvios = 0;
+            for (Map.Entry<EstadoPedido, AtomicLong> contador : contadores.entrySet()) {
+                long real = desdeBaseDeDatos.getOrDefault(contador.getKey(), 0L);
+                desvios += Math.abs(contador.getValue().getAndSet(real) - real);
+            }
+            if (construido && desvios > 0) {
+                desviosCorregidos.addAndGet(desvios);
+                logger.warn("Contadores de pedidos por estado desviados en {} pedidos, corregidos contra la base de datos",
+                        desvios);
+            }
+            construido = true;
+            reconciliaciones.incrementAndGet();
+        }
+    }
+
+    /**
+     * Registra pedidos nuevos (siempre en estado PENDIENTE)
+     * Si hay una transacción activa se aplica tras el commit (y se descarta si hace rollback),
+     * de lo contrario se aplica inmediatamente
+     * @param cantidad Cantidad de pedidos creados
+     */
+    public void registrarCreadosTrasCommit(int cantidad) {
+        if (cantidad > 0) {
+            aplicarTrasCommit(null, EstadoPedido.PENDIENTE, cantidad);
+        }
+    }
+
+    /**
+     * Registra el cambio de estado de un pedido
+     * @param anterior Estado que tenía el pedido
+     * @param nuevo Estado nuevo del pedido
+     */
+    public void registrarCambioTrasCommit(EstadoPedido anterior, EstadoPedido nuevo) {
+        if (anterior != nuevo) {
+            aplicarTrasCommit(anterior, nuevo, 1);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de pedidos de cada estado
+     * @return Mapa ordenado por estado con la cantidad de pedidos
+     */
+    public Map<EstadoPedido, Long> obtenerConteos() {
+        if (!construido) {
+            reconciliar();
+        }
+        Map<EstadoPedido, Long> conteos = new EnumMap<>(EstadoPedido.class);
+        contadores.forEach((estado, contador) -> conteos.put(estado, contador.get()));
+        return conteos;
+    }
+
+    /**
+     * Obtiene los contadores junto con el estado de la reconciliación
+     * @return Mapa con la cantidad por estado, el total y los desvíos corregidos
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<EstadoPedido, Long> conteos = obtenerConteos();
+        Map<String, Long> porEstado = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<EstadoPedido, Long> conteo : conteos.entrySet()) {
+            porEstado.put(conteo.getKey().name(), conteo.getValue());
+            total += conteo.getValue();
+        }
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("porEstado", porEstado);
+        estadisticas.put("total", total);
+        estadisticas.put("reconciliaciones", reconciliaciones.get());
+        estadisticas.put("reconciliacionesOmitidas", reconciliacionesOmitidas.get());
+        estadisticas.put("desviosCorregidos", desviosCorregidos.get());
+        return estadisticas;
+    }
+
+    private void aplicarTrasCommit(EstadoPedido anterior, EstadoPedido nuevo, int cantidad) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(anterior, nuevo, cantidad);
+                }
+            });
+        } else {
+            aplicar(anterior, nuevo, cantidad);
+        }
+    }
+
+    private synchronized void aplicar(EstadoPedido anterior, EstadoPedido nuevo, int cantidad) {
+        if (anterior != null) {
+            contadores.get(anterior).addAndGet(-cantidad);
+        }
+        contadores.get(nuevo).addAndGet(cantidad);
+        cambios++;
+    }
+}
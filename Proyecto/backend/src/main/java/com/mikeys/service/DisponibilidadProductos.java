@@ -0,0 +1,213 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Producto;
+import com.mikeys.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conjunto en memoria de los productos disponibles (stock > 0)
+ * Se representa como un mapa de bits indexado por ID de producto, de modo que
+ * /api/products/available no necesita recorrer la tabla de productos.
+ * Los cambios se aplican solo cuando la transacción que los produjo hace commit,
+ * y una reconciliación periódica contra la base de datos corrige cualquier desvío.
+ * Las lecturas no usan bloqueos: los escritores publican un mapa de bits nuevo en cada cambio.
+ */
+@Component
+public class DisponibilidadProductos {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisponibilidadProductos.class);
+
+    private final ProductoRepository productoRepository;
+
+    private volatile BitSet disponibles = new BitSet();
+    private volatile boolean construido = false;
+
+    // Cantidad de cambios aplicados; la reconciliación la usa para detectar escrituras concurrentes
+    private long cambios;
+
+    private final AtomicLong reconciliaciones = new AtomicLong();
+    private final AtomicLong reconciliacionesOmitidas = new AtomicLong();
+    private final AtomicLong desviosCorregidos = new AtomicLong();
+
+    @Autowired
+    public DisponibilidadProductos(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * Construye el conjunto al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        reconciliar();
+    }
+
+    /**
+     * Compara el conjunto con la base de datos y corrige las diferencias
+     * Si durante la consulta se aplicó algún cambio, la pasada se descarta para no
+     * sobrescribirlo con datos anteriores; la siguiente pasada volverá a intentarlo
+     */
+    @Scheduled(fixedDelayString = "${mikeys.disponibilidad.reconciliacion-ms:300000}",
+               initialDelayString = "${mikeys.disponibilidad.reconciliacion-ms:300000}")
+    public void reconciliar() {
+        long cambiosAntes;
+        synchronized (this) {
+            cambiosAntes = cambios;
+        }
+
+        BitSet desdeBaseDeDatos = new BitSet();
+        for (Long id : productoRepository.buscarIdsDisponibles()) {
+            desdeBaseDeDatos.set(posicion(id));
+        }
+
+        synchronized (this) {
+            if (cambios != cambiosAntes) {
+                reconciliacionesOmitidas.incrementAndGet();
+                return;
+            }
+            BitSet diferencias = (BitSet) disponibles.clone();
+            diferencias.xor(desdeBaseDeDatos);
+            int desvios = diferencias.cardinality();
+            if (construido && desvios > 0) {
+                desviosCorregidos.addAndGet(desvios);
+                logger.warn("Disponibilidad de productos desviada en {} productos, corregida contra la base de datos",
+                        desvios);
+            }
+            disponibles = desdeBaseDeDatos;
+            construido = true;
+            reconciliaciones.incrementAndGet();
+        }
+    }
+
+    /**
+     * Indica si un producto tiene stock
+     * @param id ID del producto
+     * @return true si el producto existe y tiene stock > 0
+     */
+    public boolean estaDisponible(long id) {
+        if (!construido) {
+            reconciliar();
+        }
+        return id >= 0 && id <= Integer.MAX_VALUE && disponibles.get((int) id);
+    }
+
+    /**
+     * Obtiene los IDs de los productos disponibles posteriores a uno dado, en orden ascendente
+     * @param despuesId ID del último producto ya entregado (null para empezar desde el inicio)
+     * @param limite Cantidad máxima de IDs a devolver
+     * @return IDs de productos disponibles
+     */
+    public List<Long> siguientes(Long despuesId, int limite) {
+        if (!construido) {
+            reconciliar();
+        }
+        BitSet actual = disponibles;
+        List<Long> ids = new ArrayList<>(Math.min(limite, actual.cardinality()));
+        int desde = despuesId != null ? posicion(despuesId) + 1 : 0;
+        for (int i = actual.nextSetBit(desde); i >= 0 && ids.size() < limite; i = actual.nextSetBit(i + 1)) {
+            ids.add((long) i);
+        }
+        return ids;
+    }
+
+    /**
+     * Registra el stock actual de varios productos
+     * Si hay una transacción activa se aplica tras el commit (y se descarta si hace rollback),
+     * de lo contrario se aplica inmediatamente
+     * @param productos Productos cuyo stock cambió
+     */
+    public void actualizarTrasCommit(Collection<Producto> productos) {
+        Map<Long, Boolean> estados = new LinkedHashMap<>();
+        for (Producto producto : productos) {
+            estados.put(producto.getId(), producto.getStock() != null && producto.getStock() > 0);
+        }
+        aplicarTrasCommit(estados);
+    }
+
+    /**
+     * Registra el stock actual de un producto
+     * @param producto Producto cuyo stock cambió
+     */
+    public void actualizarTrasCommit(Producto producto) {
+        actualizarTrasCommit(Collections.singletonList(producto));
+    }
+
+    /**
+     * Retira un producto eliminado del conjunto
+     * @param id ID del producto eliminado
+     */
+    public void retirarTrasCommit(Long id) {
+        aplicarTrasCommit(Collections.singletonMap(id, false));
+    }
+
+    /**
+     * Obtiene el estado del conjunto y de la reconciliación
+     * @return Mapa con la cantidad de productos disponibles y los desvíos corregidos
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("disponibles", disponibles.cardinality());
+        estadisticas.put("construido", construido);
+        estadisticas.put("reconciliaciones", reconciliaciones.get());
+        estadisticas.put("reconciliacionesOmitidas", reconciliacionesOmitidas.get());
+        estadisticas.put("desviosCorregidos", desviosCorregidos.get());
+        return estadisticas;
+    }
+
+    private void aplicarTrasCommit(Map<Long, Boolean> estados) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(estados);
+                }
+            });
+        } else {
+            aplicar(estados);
+        }
+    }
+
+    /**
+     * Aplica los estados sobre una copia del mapa de bits y la publica si algo cambió
+     */
+    private synchronized void aplicar(Map<Long, Boolean> estados) {
+        BitSet actual = disponibles;
+        BitSet copia = null;
+        for (Map.Entry<Long, Boolean> estado : estados.entrySet()) {
+            int posicion = posicion(estado.getKey());
+            if (actual.get(posicion) == estado.getValue()) {
+                continue;
+            }
+            if (copia == null) {
+                copia = (BitSet) actual.clone();
+            }
+            copia.set(posicion, estado.getValue());
+        }
+        if (copia != null) {
+            disponibles = copia;
+            cambios++;
+        }
+    }
+
+    private static int posicion(Long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -0,0 +1,195 @@
+package com.mikeys.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mikeys.dto.FilaPedido;
+import com.mikeys.dto.ItemPedidoDTO;
+import com.mikeys.dto.PedidoDTO;
+import com.mikeys.dto.ProductoDTO;
+import com.mikeys.repository.PedidoArchivadoRepository;
+import com.mikeys.repository.PedidoRepository;
+import com.mikeys.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Servicio de exportación masiva de productos y pedidos en CSV o NDJSON
+ * Recorre las tablas con consultas en flujo (el driver trae las filas por bloques) y escribe
+ * cada fila directamente en la salida, de modo que la memoria usada no depende del tamaño de la tabla.
+ * Las consultas devuelven proyecciones, no entidades, así que el contexto de persistencia
+ * no retiene nada mientras se recorre el flujo.
+ */
+@Service
+public class ExportacionDatos {
+
+    /** Cada cuántas filas se envía al cliente lo que se lleva escrito */
+    private static final int FILAS_POR_ENVIO = 1000;
+
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+
+    private static final String CABECERA_PRODUCTOS =
+            "id,nombre,descripcion,precio,stock,imagen,fecha_creacion,fecha_actualizacion";
+
+    private static final String CABECERA_PEDIDOS =
+            "pedido_id,usuario_id,fecha_pedido,fecha_actualizacion,total,estado," +
+            "item_id,producto_id,producto_nombre,cantidad,precio";
+
+    private final ProductoRepository productoRepository;
+    private final PedidoRepository pedidoRepository;
+    private final PedidoArchivadoRepository pedidoArchivadoRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportacionDatos(ProductoRepository productoRepository,
+                            PedidoRepository pedidoRepository,
+                            PedidoArchivadoRepository pedidoArchivadoRepository,
+                            ObjectMapper objectMapper) {
+        this.productoRepository = productoRepository;
+        this.pedidoRepository = pedidoRepository;
+        this.pedidoArchivadoRepository = pedidoArchivadoRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exporta todos los productos ordenados por ID
+     * El CSV usa las mismas columnas que acepta la importación, por lo que puede volver a importarse
+     * @param salida Flujo donde se escribe el archivo (no se cierra)
+     * @param formato Formato del archivo
+     * @return Cantidad de productos exportados
+     * @throws IOException si falla la escritura en la salida
+     */
+    @Transactional(readOnly = true)
+    public long exportarProductos(OutputStream salida, FormatoArchivo formato) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+        long filas = 0;
+        if (formato == FormatoArchivo.CSV) {
+            escritor.write(CABECERA_PRODUCTOS);
+            escritor.write('\n');
+        }
+
+        try (Stream<ProductoDTO> productos = productoRepository.recorrerProyecciones()) {
+            Iterator<ProductoDTO> iterador = productos.iterator();
+            while (iterador.hasNext()) {
+                ProductoDTO producto = iterador.next();
+                if (formato == FormatoArchivo.NDJSON) {
+                    escribirJson(escritor, producto);
+                } else {
+                    escribirCsv(escritor, producto.id(), producto.nombre(), producto.descripcion(), producto.precio(),
+                            producto.stock(), producto.imagen(), producto.fechaCreacion(), producto.fechaActualizacion());
+                }
+                if (++filas % FILAS_POR_ENVIO == 0) {
+                    escritor.flush();
+                }
+            }
+        }
+        escritor.flush();
+        return filas;
+    }
+
+    /**
+     * Exporta todos los pedidos con sus items: primero los activos y después los archivados, cada grupo
+     * ordenado por ID. Las dos tablas se recorren una después de la otra, nunca con dos flujos abiertos.
+     * En NDJSON cada línea es un pedido con sus items; en CSV cada línea es un item
+     * (un pedido sin items ocupa una línea con las columnas del item vacías)
+     * @param salida Flujo donde se escribe el archivo (no se cierra)
+     * @param formato Formato del archivo
+     * @return Cantidad de pedidos exportados
+     * @throws IOException si falla la escritura en la salida
+     */
+    @Transactional(readOnly = true)
+    public long exportarPedidos(OutputStream salida, FormatoArchivo formato) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+        long pedidos = 0;
+        long filas = 0;
+        if (formato == FormatoArchivo.CSV) {
+            escritor.write(CABECERA_PEDIDOS);
+            escritor.write('\n');
+        }
+
+        // Las filas de un pedido llegan consecutivas: solo se retienen los items del pedido en curso
+        FilaPedido cabecera = null;
+        List<ItemPedidoDTO> items = new ArrayList<>();
+
+        List<Supplier<Stream<FilaPedido>>> origenes =
+                List.of(pedidoRepository::recorrerFilas, pedidoArchivadoRepository::recorrerFilas);
+        for (Supplier<Stream<FilaPedido>> origen : origenes) {
+            try (Stream<FilaPedido> filasPedido = origen.get()) {
+                Iterator<FilaPedido> iterador = filasPedido.iterator();
+                while (iterador.hasNext()) {
+                    FilaPedido fila = iterador.next();
+                    if (cabecera == null || !cabecera.pedidoId().equals(fila.pedidoId())) {
+                        if (cabecera != null && formato == FormatoArchivo.NDJSON) {
+                            escribirPedido(escritor, cabecera, items);
+                        }
+                        cabecera = fila;
+                        items.clear();
+                        pedidos++;
+                    }
+
+                    if (formato == FormatoArchivo.NDJSON) {
+                        if (fila.itemId() != null) {
+                            items.add(new ItemPedidoDTO(fila.itemId(), fila.productoId(), fila.productoNombre(),
+                                    fila.cantidad(), fila.precio()));
+                        }
+                    } else {
+                        escribirCsv(escritor, fila.pedidoId(), fila.usuarioId(), fila.fechaPedido(),
+                                fila.fechaActualizacion(), fila.total(), fila.estado().name(), fila.itemId(),
+                                fila.productoId(), fila.productoNombre(), fila.cantidad(), fila.precio());
+                    }
+                    if (++filas % FILAS_POR_ENVIO == 0) {
+                        escritor.flush();
+                    }
+                }
+            }
+        }
+        if (cabecera != null && formato == FormatoArchivo.NDJSON) {
+            escribirPedido(escritor, cabecera, items);
+        }
+        escritor.flush();
+        return pedidos;
+    }
+
+    private void escribirPedido(Writer escritor, FilaPedido cabecera, List<ItemPedidoDTO> items) throws IOException {
+        escribirJson(escritor, new PedidoDTO(cabecera.pedidoId(), cabecera.usuarioId(), cabecera.fechaPedido(),
+                cabecera.fechaActualizacion(), cabecera.total(), cabecera.estado(), items));
+    }
+
+    private void escribirJson(Writer escritor, Object valor) throws IOException {
+        escritor.write(objectMapper.writeValueAsString(valor));
+        escritor.write('\n');
+    }
+
+    /**
+     * Escribe un registro CSV (RFC 4180); los valores null quedan como campos vacíos
+     */
+    private static void escribirCsv(Writer escritor, Object... valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                escritor.write(',');
+            }
+            if (valores[i] != null) {
+                escritor.write(escaparCsv(valores[i].toString()));
+            }
+        }
+        escritor.write('\n');
+    }
+
+    private static String escaparCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
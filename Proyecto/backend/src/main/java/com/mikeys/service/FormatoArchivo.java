@@ -0,0 +1,55 @@
+package com.mikeys.service;
+
+/**
+ * Enum que representa los formatos de archivo admitidos
+ * por la importación y la exportación masivas
+ */
+public enum FormatoArchivo {
+
+    CSV("csv", "text/csv;charset=UTF-8"),
+
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String parametro;
+    private final String tipoContenido;
+
+    FormatoArchivo(String parametro, String tipoContenido) {
+        this.parametro = parametro;
+        this.tipoContenido = tipoContenido;
+    }
+
+    public String getParametro() {
+        return parametro;
+    }
+
+    /**
+     * Content-Type con el que se responde un archivo exportado en este formato
+     */
+    public String getTipoContenido() {
+        return tipoContenido;
+    }
+
+    /**
+     * Obtiene el formato a partir del parámetro de la petición o, si no se indica, del Content-Type
+     * @param parametro Valor recibido (csv o ndjson); null para deducirlo del Content-Type
+     * @param contentType Content-Type de la petición (puede ser null)
+     * @return Formato correspondiente; CSV si no se puede deducir
+     * @throws IllegalArgumentException si el parámetro no es válido
+     */
+    public static FormatoArchivo desdeParametro(String parametro, String contentType) {
+        if (parametro == null || parametro.trim().isEmpty()) {
+            return contentType != null && contentType.toLowerCase().contains("json") ? NDJSON : CSV;
+        }
+        for (FormatoArchivo formato : values()) {
+            if (formato.parametro.equalsIgnoreCase(parametro.trim())) {
+                return formato;
+            }
+        }
+        throw new IllegalArgumentException("Formato de archivo no válido: " + parametro);
+    }
+
+    @Override
+    public String toString() {
+        return this.parametro;
+    }
+}
@@ -0,0 +1,304 @@
+package com.mikeys.service;
+
+import com.mikeys.model.ClaveIdempotencia;
+import com.mikeys.repository.ClaveIdempotenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Claves de idempotencia de la creación de pedidos (encabezado Idempotency-Key)
+ * La primera solicitud con una clave se ejecuta y su respuesta se guarda en la tabla
+ * claves_idempotencia y en una caché LRU en memoria; los reintentos con la misma clave
+ * reciben esa respuesta sin volver a crear el pedido. Si un duplicado llega mientras la
+ * primera solicitud se está ejecutando en esta instancia, espera su resultado en lugar de
+ * competir con ella. La fila se inserta antes de ejecutar, así que otra instancia que reciba
+ * la misma clave la encuentra en proceso y rechaza el duplicado.
+ * Las claves vencen ttl-ms después de creadas. Las respuestas 5xx no se guardan.
+ * Si no se sabe si el pedido se creó (PedidoSinResultadoException), la clave queda en proceso
+ * hasta que vence: los reintentos se rechazan en lugar de arriesgar un pedido duplicado.
+ */
+@Component
+public class IdempotenciaPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenciaPedidos.class);
+
+    /** Tiempo máximo que un duplicado espera a que termine la primera solicitud */
+    private static final long ESPERA_DUPLICADO_SEGUNDOS = 30;
+
+    private final ClaveIdempotenciaRepository claveRepository;
+    private final TransactionTemplate transaccion;
+    private final int maxEntradas;
+    private final long ttlMs;
+
+    // LinkedHashMap en orden de acceso: el primer elemento es el menos usado recientemente
+    private final LinkedHashMap<String, Entrada> entradas;
+
+    // Solicitudes en ejecución en esta instancia, por clave
+    private final Map<String, EnCurso> enCurso = new ConcurrentHashMap<>();
+
+    private final AtomicLong ejecutadas = new AtomicLong();
+    private final AtomicLong repetidasDesdeMemoria = new AtomicLong();
+    private final AtomicLong repetidasDesdeBaseDatos = new AtomicLong();
+    private final AtomicLong esperasDuplicados = new AtomicLong();
+    private final AtomicLong conflictos = new AtomicLong();
+    private final AtomicLong sinResultado = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    @Autowired
+    public IdempotenciaPedidos(ClaveIdempotenciaRepository claveRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${mikeys.idempotencia.max-entradas:10000}") int maxEntradas,
+                               @Value("${mikeys.idempotencia.ttl-ms:86400000}") long ttlMs) {
+        if (maxEntradas <= 0 || ttlMs <= 0) {
+            throw new IllegalArgumentException("El tamaño y la vigencia de las claves de idempotencia deben ser mayores a 0");
+        }
+        this.claveRepository = claveRepository;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.maxEntradas = maxEntradas;
+        this.ttlMs = ttlMs;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                if (size() > IdempotenciaPedidos.this.maxEntradas) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Ejecuta una solicitud una sola vez por clave
+     * @param clave Clave de idempotencia enviada por el cliente
+     * @param solicitud Representación canónica de la solicitud (se guarda solo su huella)
+     * @param operacion Ejecución de la solicitud; solo se invoca si la clave no tiene respuesta guardada
+     * @return Respuesta de esta ejecución o la guardada de la primera (marcada como repetida)
+     * @throws IllegalArgumentException si la clave ya se usó con una solicitud distinta
+     * @throws IllegalStateException si la clave se está procesando en otra instancia
+     *         o la primera solicitud no terminó a tiempo
+     * @throws PedidoSinResultadoException si no se sabe si la operación creó el pedido (la clave queda reservada)
+     */
+    public RespuestaIdempotente ejecutar(String clave, String solicitud, Supplier<RespuestaIdempotente> operacion) {
+        String huella = calcularHuella(solicitud);
+        while (true) {
+            Entrada guardada = obtenerDeMemoria(clave);
+            if (guardada != null) {
+                verificarHuella(guardada.huella(), huella);
+                repetidasDesdeMemoria.incrementAndGet();
+                return guardada.respuesta().comoRepetida();
+            }
+
+            EnCurso propia = new EnCurso(huella, new CompletableFuture<>());
+            EnCurso existente = enCurso.putIfAbsent(clave, propia);
+            if (existente == null) {
+                try {
+                    RespuestaIdempotente respuesta = ejecutarComoPrimera(clave, huella, operacion);
+                    propia.resultado().complete(respuesta);
+                    return respuesta;
+                } catch (RuntimeException e) {
+                    propia.resultado().completeExceptionally(e);
+                    throw e;
+                } finally {
+                    enCurso.remove(clave, propia);
+                }
+            }
+
+            verificarHuella(existente.huella(), huella);
+            esperasDuplicados.incrementAndGet();
+            RespuestaIdempotente respuesta = esperar(existente);
+            if (respuesta != null && respuesta.isGuardable()) {
+                return respuesta.comoRepetida();
+            }
+            // La primera solicitud falló sin guardar respuesta: este duplicado vuelve a intentarlo
+        }
+    }
+
+    /**
+     * Elimina las claves vencidas de la base de datos y de la memoria
+     */
+    @Scheduled(fixedDelayString = "${mikeys.idempotencia.limpieza-ms:3600000}",
+               initialDelayString = "${mikeys.idempotencia.limpieza-ms:3600000}")
+    public void eliminarVencidas() {
+        Integer eliminadas = transaccion.execute(estado ->
+                claveRepository.eliminarAnterioresA(LocalDateTime.now().minusNanos(ttlMs * 1_000_000)));
+        long ahora = System.currentTimeMillis();
+        synchronized (this) {
+            entradas.values().removeIf(entrada -> entrada.venceEn() <= ahora);
+        }
+        if (eliminadas != null && eliminadas > 0) {
+            logger.info("Se eliminaron {} claves de idempotencia vencidas", eliminadas);
+        }
+    }
+
+    /**
+     * Obtiene el tamaño de la caché y cómo se resolvieron las solicitudes con clave
+     * @return Mapa con las entradas en memoria y los contadores de ejecuciones, repeticiones y conflictos
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        synchronized (this) {
+            estadisticas.put("entradas", entradas.size());
+        }
+        estadisticas.put("maxEntradas", maxEntradas);
+        estadisticas.put("enCurso", enCurso.size());
+        estadisticas.put("ejecutadas", ejecutadas.get());
+        estadisticas.put("repetidasDesdeMemoria", repetidasDesdeMemoria.get());
+        estadisticas.put("repetidasDesdeBaseDatos", repetidasDesdeBaseDatos.get());
+        estadisticas.put("duplicadosEnEspera", esperasDuplicados.get());
+        estadisticas.put("conflictos", conflictos.get());
+        estadisticas.put("sinResultado", sinResultado.get());
+        estadisticas.put("desalojos", desalojos.get());
+        return estadisticas;
+    }
+
+    /**
+     * Ejecuta la solicitud en el hilo que registró la clave en enCurso
+     * Consulta primero la base de datos (la clave pudo usarse antes de un reinicio o en otra instancia)
+     * y registra la clave en proceso antes de ejecutar
+     */
+    private RespuestaIdempotente ejecutarComoPrimera(String clave, String huella,
+                                                     Supplier<RespuestaIdempotente> operacion) {
+        Optional<ClaveIdempotencia> registrada = claveRepository.findById(clave);
+        if (registrada.isPresent()) {
+            ClaveIdempotencia fila = registrada.get();
+            if (fila.getFechaCreacion().isBefore(LocalDateTime.now().minusNanos(ttlMs * 1_000_000))) {
+                transaccion.executeWithoutResult(estado -> claveRepository.deleteById(clave));
+            } else {
+                verificarHuella(fila.getHuellaSolicitud(), huella);
+                if (!fila.isCompletada()) {
+                    conflictos.incrementAndGet();
+                    throw new IllegalStateException("Ya hay un pedido en proceso con esta clave de idempotencia");
+                }
+                RespuestaIdempotente respuesta =
+                        RespuestaIdempotente.nueva(fila.getEstadoHttp(), fila.getRespuesta(), fila.getUbicacion());
+                guardarEnMemoria(clave, huella, respuesta, fila.getFechaCreacion());
+                repetidasDesdeBaseDatos.incrementAndGet();
+                return respuesta.comoRepetida();
+            }
+        }
+
+        // La clave se inserta (no se fusiona): si otra instancia la registró después de la consulta
+        // anterior, el INSERT falla por clave duplicada en lugar de sobrescribir su fila
+        ClaveIdempotencia nueva = new ClaveIdempotencia(clave, huella);
+        try {
+            transaccion.executeWithoutResult(estado -> claveRepository.saveAndFlush(nueva));
+        } catch (DataIntegrityViolationException e) {
+            conflictos.incrementAndGet();
+            throw new IllegalStateException("Ya hay un pedido en proceso con esta clave de idempotencia");
+        }
+
+        RespuestaIdempotente respuesta;
+        try {
+            respuesta = operacion.get();
+        } catch (PedidoSinResultadoException e) {
+            // El pedido puede haberse creado: liberar la clave permitiría que el reintento lo duplique
+            sinResultado.incrementAndGet();
+            logger.warn("La clave de idempotencia {} queda en proceso hasta que venza: {}", clave, e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            eliminarRegistro(clave);
+            throw e;
+        }
+        ejecutadas.incrementAndGet();
+
+        if (!respuesta.isGuardable()) {
+            eliminarRegistro(clave);
+            return respuesta;
+        }
+        nueva.setEstadoHttp(respuesta.estado());
+        nueva.setRespuesta(respuesta.cuerpo());
+        nueva.setUbicacion(respuesta.ubicacion());
+        try {
+            transaccion.executeWithoutResult(estado -> claveRepository.save(nueva));
+        } catch (RuntimeException e) {
+            // La fila queda en proceso: los reintentos se rechazan hasta que venza, sin duplicar el pedido
+            logger.error("No se pudo guardar la respuesta de la clave de idempotencia {}", clave, e);
+        }
+        guardarEnMemoria(clave, huella, respuesta, nueva.getFechaCreacion());
+        return respuesta;
+    }
+
+    private RespuestaIdempotente esperar(EnCurso primera) {
+        try {
+            return primera.resultado().get(ESPERA_DUPLICADO_SEGUNDOS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            conflictos.incrementAndGet();
+            throw new IllegalStateException("Ya hay un pedido en proceso con esta clave de idempotencia");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la espera del pedido con esta clave de idempotencia");
+        }
+    }
+
+    private void eliminarRegistro(String clave) {
+        try {
+            transaccion.executeWithoutResult(estado -> claveRepository.deleteById(clave));
+        } catch (RuntimeException e) {
+            logger.error("No se pudo liberar la clave de idempotencia {}", clave, e);
+        }
+    }
+
+    private synchronized Entrada obtenerDeMemoria(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null && entrada.venceEn() <= System.currentTimeMillis()) {
+            entradas.remove(clave);
+            return null;
+        }
+        return entrada;
+    }
+
+    private synchronized void guardarEnMemoria(String clave, String huella, RespuestaIdempotente respuesta,
+                                               LocalDateTime fechaCreacion) {
+        long creada = fechaCreacion.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        entradas.put(clave, new Entrada(huella, respuesta, creada + ttlMs));
+    }
+
+    private static void verificarHuella(String registrada, String recibida) {
+        if (!registrada.equals(recibida)) {
+            throw new IllegalArgumentException("La clave de idempotencia ya se usó con un pedido distinto");
+        }
+    }
+
+    private static String calcularHuella(String solicitud) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(solicitud.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entrada(String huella, RespuestaIdempotente respuesta, long venceEn) {
+    }
+
+    private record EnCurso(String huella, CompletableFuture<RespuestaIdempotente> resultado) {
+    }
+}
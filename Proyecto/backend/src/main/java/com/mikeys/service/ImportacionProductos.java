@@ -0,0 +1,214 @@
+package com.mikeys.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mikeys.model.Producto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Servicio de importación masiva de productos desde CSV o NDJSON
+ * Lee el archivo como flujo, valida cada fila con las mismas reglas que la creación de productos
+ * y guarda las filas válidas en lotes JDBC (un lote por transacción), de modo que la memoria
+ * usada depende del tamaño del lote y no del archivo.
+ * Las filas con ID se insertan o actualizan (upsert); las filas sin ID se insertan como productos nuevos.
+ * El stock de los productos con stock fraccionado no se modifica (se administra con sus fracciones).
+ * Un error en una fila se informa en el resultado sin detener la importación.
+ */
+@Service
+public class ImportacionProductos {
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO productos (nombre, descripcion, precio, stock, imagen, fecha_creacion, fecha_actualizacion) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_INSERTAR_O_ACTUALIZAR =
+            "INSERT INTO productos (id, nombre, descripcion, precio, stock, imagen, fecha_creacion, fecha_actualizacion) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE nombre = VALUES(nombre), descripcion = VALUES(descripcion), " +
+            "precio = VALUES(precio), " +
+            "stock = CASE WHEN stock_fraccionado THEN stock ELSE VALUES(stock) END, imagen = VALUES(imagen), " +
+            "fecha_actualizacion = VALUES(fecha_actualizacion), version = version + 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final ProductoService productoService;
+    private final ObjectMapper objectMapper;
+    private final int tamanioLote;
+
+    @Autowired
+    public ImportacionProductos(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ProductoService productoService,
+                                ObjectMapper objectMapper,
+                                @Value("${mikeys.importacion.tamanio-lote:1000}") int tamanioLote) {
+        if (tamanioLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote de la importación debe ser mayor a 0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.productoService = productoService;
+        this.objectMapper = objectMapper;
+        this.tamanioLote = tamanioLote;
+    }
+
+    /**
+     * Importa los productos de un archivo
+     * Al terminar se recargan la caché y los índices en memoria del catálogo
+     * @param entrada Contenido del archivo (se lee como flujo, sin cargarlo completo)
+     * @param formato Formato del archivo
+     * @return Resumen con las filas importadas y los errores por fila
+     * @throws IOException si falla la lectura del flujo
+     * @throws IllegalArgumentException si el archivo no tiene un formato válido (por ejemplo, sin cabecera CSV)
+     */
+    public ResultadoImportacion importar(InputStream entrada, FormatoArchivo formato) throws IOException {
+        long inicio = System.currentTimeMillis();
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<FilaProducto> lote = new ArrayList<>(tamanioLote);
+
+        try (LectorFilasImportacion lector = new LectorFilasImportacion(entrada, formato, objectMapper)) {
+            LectorFilasImportacion.Fila fila;
+            while ((fila = lector.siguiente()) != null) {
+                resultado.registrarLeida();
+                if (fila.tieneError()) {
+                    resultado.registrarError(fila.getNumero(), fila.getError());
+                    continue;
+                }
+                try {
+                    Producto producto = aProducto(fila);
+                    productoService.validarProducto(producto);
+                    lote.add(new FilaProducto(fila.getNumero(), producto));
+                } catch (IllegalArgumentException e) {
+                    resultado.registrarError(fila.getNumero(), e.getMessage());
+                    continue;
+                }
+
+                if (lote.size() == tamanioLote) {
+                    guardarLote(lote, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                guardarLote(lote, resultado);
+            }
+        } finally {
+            if (resultado.getImportadas() > 0) {
+                productoService.recargarCatalogoEnMemoria();
+            }
+            resultado.setDuracionMs(System.currentTimeMillis() - inicio);
+        }
+        return resultado;
+    }
+
+    /**
+     * Guarda un lote en una sola transacción
+     * Si el lote falla se reintenta fila por fila para informar solo las filas con error
+     */
+    private void guardarLote(List<FilaProducto> lote, ResultadoImportacion resultado) {
+        try {
+            transaccion.executeWithoutResult(estado -> ejecutarLote(lote));
+            resultado.registrarImportadas(lote.size());
+        } catch (DataAccessException e) {
+            for (FilaProducto fila : lote) {
+                try {
+                    transaccion.executeWithoutResult(estado -> ejecutarLote(Collections.singletonList(fila)));
+                    resultado.registrarImportadas(1);
+                } catch (DataAccessException errorFila) {
+                    resultado.registrarError(fila.numero, "Error al guardar: " + errorFila.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void ejecutarLote(List<FilaProducto> lote) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> nuevas = new ArrayList<>();
+        List<Object[]> conId = new ArrayList<>();
+        for (FilaProducto fila : lote) {
+            Producto producto = fila.producto;
+            if (producto.getId() == null) {
+                nuevas.add(new Object[] {producto.getNombre(), producto.getDescripcion(), producto.getPrecio(),
+                        producto.getStock(), producto.getImagen(), ahora, ahora});
+            } else {
+                conId.add(new Object[] {producto.getId(), producto.getNombre(), producto.getDescripcion(),
+                        producto.getPrecio(), producto.getStock(), producto.getImagen(), ahora, ahora});
+            }
+        }
+        if (!nuevas.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERTAR, nuevas);
+        }
+        if (!conId.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERTAR_O_ACTUALIZAR, conId);
+        }
+    }
+
+    /**
+     * Convierte los campos de una fila en un producto sin guardarlo
+     * @throws IllegalArgumentException si un campo numérico no tiene un formato válido
+     */
+    private Producto aProducto(LectorFilasImportacion.Fila fila) {
+        Producto producto = new Producto(fila.getCampo("nombre"), fila.getCampo("descripcion"),
+                decimal(fila.getCampo("precio"), "precio"), entero(fila.getCampo("stock"), "stock"),
+                fila.getCampo("imagen"));
+        String id = fila.getCampo("id");
+        if (id != null) {
+            try {
+                producto.setId(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("El id no es un número entero válido: " + id);
+            }
+            if (producto.getId() <= 0) {
+                throw new IllegalArgumentException("El id debe ser mayor a 0");
+            }
+        }
+        return producto;
+    }
+
+    private static BigDecimal decimal(String valor, String campo) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El " + campo + " no es un número válido: " + valor);
+        }
+    }
+
+    private static Integer entero(String valor, String campo) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El " + campo + " no es un número entero válido: " + valor);
+        }
+    }
+
+    /**
+     * Producto validado junto con la línea del archivo de la que proviene
+     */
+    private static final class FilaProducto {
+        private final int numero;
+        private final Producto producto;
+
+        private FilaProducto(int numero, Producto producto) {
+            this.numero = numero;
+            this.producto = producto;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Producto;
+import com.mikeys.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria para la búsqueda de productos
+ * Indexa los términos normalizados (sin tildes ni mayúsculas) de nombre y descripción,
+ * y los trigramas de cada término para resolver coincidencias parciales sin recorrer la tabla.
+ * Se mantiene al día con las altas, modificaciones y bajas de ProductoService.
+ */
+@Component
+public class IndiceBusquedaProductos {
+
+    // Campos en los que aparece un término, como máscara de bits
+    private static final int CAMPO_NOMBRE = 1;
+    private static final int CAMPO_DESCRIPCION = 2;
+
+    // Pesos por tipo de coincidencia
+    private static final int COINCIDENCIA_EXACTA = 4;
+    private static final int COINCIDENCIA_PREFIJO = 2;
+    private static final int COINCIDENCIA_INTERNA = 1;
+
+    private final ProductoRepository productoRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // término -> (ID de producto -> campos en los que aparece); ordenado para búsquedas por prefijo
+    private final TreeMap<String, Map<Long, Integer>> terminos = new TreeMap<>();
+
+    // trigrama -> términos del vocabulario que lo contienen
+    private final Map<String, Set<String>> trigramas = new HashMap<>();
+
+    // ID de producto -> términos indexados, para poder retirarlo del índice
+    private final Map<Long, Map<String, Integer>> terminosPorProducto = new HashMap<>();
+
+    private volatile boolean construido = false;
+
+    @Autowired
+    public IndiceBusquedaProductos(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * Construye el índice al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Reconstruye el índice completo a partir de la base de datos
+     */
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            terminos.clear();
+            trigramas.clear();
+            terminosPorProducto.clear();
+            for (Producto producto : productoRepository.findAll()) {
+                indexarSinBloqueo(producto);
+            }
+            construido = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega o reemplaza un producto en el índice
+     * @param producto Producto creado o actualizado
+     */
+    public void actualizar(Producto producto) {
+        lock.writeLock().lock();
+        try {
+            retirarSinBloqueo(producto.getId());
+            indexarSinBloqueo(producto);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira un producto del índice
+     * @param id ID del producto eliminado
+     */
+    public void eliminar(Long id) {
+        lock.writeLock().lock();
+        try {
+            retirarSinBloqueo(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca productos cuyos nombre o descripción contengan todos los términos de la consulta
+     * Cada término puede coincidir de forma exacta, como prefijo o dentro de una palabra;
+     * el resultado se ordena por relevancia (coincidencias en el nombre pesan más)
+     * @param consulta Texto a buscar, con una o varias palabras
+     * @return IDs de los productos encontrados, del más al menos relevante
+     */
+    public List<Long> buscar(String consulta) {
+        List<String> terminosConsulta = NormalizadorTexto.tokenizar(consulta);
+        if (terminosConsulta.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!construido) {
+            reconstruir();
+        }
+
+        Map<Long, Integer> puntajes = null;
+        lock.readLock().lock();
+        try {
+            for (String termino : terminosConsulta) {
+                Map<Long, Integer> puntajesTermino = puntuarTermino(termino);
+
+                if (puntajes == null) {
+                    puntajes = puntajesTermino;
+                } else {
+                    // Todos los términos de la consulta deben coincidir
+                    puntajes.keySet().retainAll(puntajesTermino.keySet());
+                    for (Map.Entry<Long, Integer> entrada : puntajes.entrySet()) {
+                        entrada.setValue(entrada.getValue() + puntajesTermino.get(entrada.getKey()));
+                    }
+                }
+
+                if (puntajes.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Long, Integer>> ordenados = new ArrayList<>(puntajes.entrySet());
+        ordenados.sort((a, b) -> {
+            int comparacion = Integer.compare(b.getValue(), a.getValue());
+            return comparacion != 0 ? comparacion : Long.compare(a.getKey(), b.getKey());
+        });
+
+        List<Long> ids = new ArrayList<>(ordenados.size());
+        for (Map.Entry<Long, Integer> entrada : ordenados) {
+            ids.add(entrada.getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * Calcula el puntaje de cada producto para un término de la consulta
+     * Se conserva el mejor puntaje entre todos los términos del vocabulario que coinciden
+     */
+    private Map<Long, Integer> puntuarTermino(String termino) {
+        Map<Long, Integer> puntajes = new HashMap<>();
+
+        // Coincidencia exacta y por prefijo: rango del vocabulario ordenado
+        for (Map.Entry<String, Map<Long, Integer>> entrada
+                : terminos.subMap(termino, true, termino + Character.MAX_VALUE, false).entrySet()) {
+            int tipo = entrada.getKey().equals(termino) ? COINCIDENCIA_EXACTA : COINCIDENCIA_PREFIJO;
+            acumular(puntajes, entrada.getValue(), tipo);
+        }
+
+        // Coincidencia dentro de una palabra: intersección de los trigramas del término
+        if (termino.length() >= 3) {
+            for (String candidato : candidatosPorTrigramas(termino)) {
+                if (!candidato.startsWith(termino) && candidato.contains(termino)) {
+                    acumular(puntajes, terminos.get(candidato), COINCIDENCIA_INTERNA);
+                }
+            }
+        }
+        return puntajes;
+    }
+
+    private Set<String> candidatosPorTrigramas(String termino) {
+        List<Set<String>> conjuntos = new ArrayList<>();
+        for (String trigrama : NormalizadorTexto.trigramas(termino)) {
+            Set<String> conjunto = trigramas.get(trigrama);
+            if (conjunto == null) {
+                return new HashSet<>();
+            }
+            conjuntos.add(conjunto);
+        }
+        conjuntos.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<String> candidatos = new HashSet<>(conjuntos.get(0));
+        for (int i = 1; i < conjuntos.size() && !candidatos.isEmpty(); i++) {
+            candidatos.retainAll(conjuntos.get(i));
+        }
+        return candidatos;
+    }
+
+    private void acumular(Map<Long, Integer> puntajes, Map<Long, Integer> apariciones, int tipo) {
+        for (Map.Entry<Long, Integer> aparicion : apariciones.entrySet()) {
+            int peso = (aparicion.getValue() & CAMPO_NOMBRE) != 0 ? 3 : 1;
+            puntajes.merge(aparicion.getKey(), tipo * peso, Math::max);
+        }
+    }
+
+    private void indexarSinBloqueo(Producto producto) {
+        Map<String, Integer> campos = new HashMap<>();
+        for (String termino : NormalizadorTexto.tokenizar(producto.getNombre())) {
+            campos.merge(termino, CAMPO_NOMBRE, (a, b) -> a | b);
+        }
+        for (String termino : NormalizadorTexto.tokenizar(producto.getDescripcion())) {
+            campos.merge(termino, CAMPO_DESCRIPCION, (a, b) -> a | b);
+        }
+
+        for (Map.Entry<String, Integer> entrada : campos.entrySet()) {
+            String termino = entrada.getKey();
+            Map<Long, Integer> apariciones = terminos.get(termino);
+            if (apariciones == null) {
+                apariciones = new HashMap<>();
+                terminos.put(termino, apariciones);
+                for (String trigrama : NormalizadorTexto.trigramas(termino)) {
+                    trigramas.computeIfAbsent(trigrama, t -> new HashSet<>()).add(termino);
+                }
+            }
+            apariciones.put(producto.getId(), entrada.getValue());
+        }
+        terminosPorProducto.put(producto.getId(), campos);
+    }
+
+    private void retirarSinBloqueo(Long id) {
+        Map<String, Integer> campos = terminosPorProducto.remove(id);
+        if (campos == null) {
+            return;
+        }
+        for (String termino : campos.keySet()) {
+            Map<Long, Integer> apariciones = terminos.get(termino);
+            if (apariciones == null) {
+                continue;
+            }
+            apariciones.remove(id);
+            if (apariciones.isEmpty()) {
+                terminos.remove(termino);
+                for (String trigrama : NormalizadorTexto.trigramas(termino)) {
+                    Set<String> conjunto = trigramas.get(trigrama);
+                    if (conjunto != null) {
+                        conjunto.remove(termino);
+                        if (conjunto.isEmpty()) {
+                            trigramas.remove(trigrama);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene el tamaño del índice
+     * @return Mapa con la cantidad de productos, términos y trigramas indexados
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            estadisticas.put("productos", terminosPorProducto.size());
+            estadisticas.put("terminos", terminos.size());
+            estadisticas.put("trigramas", trigramas.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        estadisticas.put("construido", construido);
+        return estadisticas;
+    }
+}
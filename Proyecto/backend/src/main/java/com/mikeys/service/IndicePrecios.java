@@ -0,0 +1,263 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Producto;
+import com.mikeys.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Índice de precios en memoria para consultas por rango y listados ordenados por precio
+ * Guarda dos arreglos paralelos de tipos primitivos (precio en centavos e ID de producto)
+ * ordenados por precio y luego por ID, de modo que cada consulta es una búsqueda binaria
+ * más un recorrido secuencial, sin acceder a la base de datos.
+ * Las lecturas no usan bloqueos: los escritores publican una tabla nueva en cada cambio.
+ * Se mantiene al día con las altas, modificaciones y bajas de ProductoService.
+ */
+@Component
+public class IndicePrecios {
+
+    private static final Tabla VACIA = new Tabla(new long[0], new long[0]);
+
+    private final ProductoRepository productoRepository;
+
+    private volatile Tabla tabla = VACIA;
+    private volatile boolean construido = false;
+
+    // ID de producto -> precio indexado en centavos, para poder ubicarlo al modificarlo (solo escritores)
+    private final Map<Long, Long> precioPorProducto = new HashMap<>();
+
+    @Autowired
+    public IndicePrecios(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * Construye el índice al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Reconstruye el índice completo a partir de la base de datos
+     */
+    public synchronized void reconstruir() {
+        List<Producto> productos = productoRepository.findAll();
+        precioPorProducto.clear();
+
+        long[][] pares = new long[productos.size()][];
+        int cantidad = 0;
+        for (Producto producto : productos) {
+            if (producto.getPrecio() == null) {
+                continue;
+            }
+            long centavos = aCentavos(producto.getPrecio());
+            precioPorProducto.put(producto.getId(), centavos);
+            pares[cantidad++] = new long[] {centavos, producto.getId()};
+        }
+        Arrays.sort(pares, 0, cantidad, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        long[] centavos = new long[cantidad];
+        long[] ids = new long[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            centavos[i] = pares[i][0];
+            ids[i] = pares[i][1];
+        }
+        tabla = new Tabla(centavos, ids);
+        construido = true;
+    }
+
+    /**
+     * Busca los productos dentro de un rango de precio, ordenados por precio y luego por ID
+     * @param minPrecio Precio mínimo incluido (null para no acotar)
+     * @param maxPrecio Precio máximo incluido (null para no acotar)
+     * @param despuesPrecio Precio del último producto ya entregado (null para empezar desde el inicio)
+     * @param despuesId ID del último producto ya entregado
+     * @param limite Cantidad máxima de IDs a devolver
+     * @return IDs de los productos encontrados
+     */
+    public List<Long> buscar(BigDecimal minPrecio, BigDecimal maxPrecio,
+                             BigDecimal despuesPrecio, Long despuesId, int limite) {
+        return buscar(minPrecio, maxPrecio, despuesPrecio, despuesId, limite, null);
+    }
+
+    /**
+     * Busca los productos dentro de un rango de precio que cumplen un filtro por ID
+     * @param minPrecio Precio mínimo incluido (null para no acotar)
+     * @param maxPrecio Precio máximo incluido (null para no acotar)
+     * @param despuesPrecio Precio del último producto ya entregado (null para empezar desde el inicio)
+     * @param despuesId ID del último producto ya entregado
+     * @param limite Cantidad máxima de IDs a devolver
+     * @param filtro Condición adicional sobre el ID del producto (null para no filtrar)
+     * @return IDs de los productos encontrados
+     */
+    public List<Long> buscar(BigDecimal minPrecio, BigDecimal maxPrecio,
+                             BigDecimal despuesPrecio, Long despuesId, int limite, LongPredicate filtro) {
+        if (!construido) {
+            reconstruir();
+        }
+        Tabla actual = tabla;
+        int n = actual.ids.length;
+
+        int desde = minPrecio != null ? actual.primeraPosicion(techoCentavos(minPrecio), Long.MIN_VALUE) : 0;
+        if (despuesPrecio != null && despuesId != null) {
+            int trasCursor = actual.primeraPosicion(aCentavos(despuesPrecio), despuesId + 1);
+            desde = Math.max(desde, trasCursor);
+        }
+        long tope = maxPrecio != null ? pisoCentavos(maxPrecio) : Long.MAX_VALUE;
+
+        List<Long> ids = new ArrayList<>(Math.min(limite, Math.max(n - desde, 0)));
+        for (int i = desde; i < n && ids.size() < limite && actual.centavos[i] <= tope; i++) {
+            if (filtro == null || filtro.test(actual.ids[i])) {
+                ids.add(actual.ids[i]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Agrega o reubica un producto en el índice
+     * @param producto Producto creado o modificado
+     */
+    public synchronized void actualizar(Producto producto) {
+        if (!construido) {
+            return;
+        }
+        Long anterior = precioPorProducto.get(producto.getId());
+        Long nuevo = producto.getPrecio() != null ? aCentavos(producto.getPrecio()) : null;
+        if (anterior != null && anterior.equals(nuevo)) {
+            return;
+        }
+
+        Tabla actual = tabla;
+        if (anterior != null) {
+            actual = actual.sin(anterior, producto.getId());
+            precioPorProducto.remove(producto.getId());
+        }
+        if (nuevo != null) {
+            actual = actual.con(nuevo, producto.getId());
+            precioPorProducto.put(producto.getId(), nuevo);
+        }
+        tabla = actual;
+    }
+
+    /**
+     * Retira un producto del índice
+     * @param id ID del producto eliminado
+     */
+    public synchronized void eliminar(Long id) {
+        Long anterior = precioPorProducto.remove(id);
+        if (anterior != null) {
+            tabla = tabla.sin(anterior, id);
+        }
+    }
+
+    /**
+     * Obtiene el tamaño del índice
+     * @return Mapa con la cantidad de productos indexados y el rango de precios
+     */
+    public Map<String, Object> getEstadisticas() {
+        Tabla actual = tabla;
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("productos", actual.ids.length);
+        estadisticas.put("precioMinimo", actual.ids.length > 0 ? aPrecio(actual.centavos[0]) : null);
+        estadisticas.put("precioMaximo", actual.ids.length > 0
+                ? aPrecio(actual.centavos[actual.ids.length - 1]) : null);
+        estadisticas.put("construido", construido);
+        return estadisticas;
+    }
+
+    private static long aCentavos(BigDecimal precio) {
+        return precio.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Centavos del menor precio representable mayor o igual al indicado
+     */
+    private static long techoCentavos(BigDecimal precio) {
+        return precio.setScale(2, RoundingMode.CEILING).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Centavos del mayor precio representable menor o igual al indicado
+     */
+    private static long pisoCentavos(BigDecimal precio) {
+        return precio.setScale(2, RoundingMode.FLOOR).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal aPrecio(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * Arreglos paralelos ordenados por (precio, ID)
+     * Es inmutable: cada modificación publica una instancia nueva
+     */
+    private static final class Tabla {
+        private final long[] centavos;
+        private final long[] ids;
+
+        private Tabla(long[] centavos, long[] ids) {
+            this.centavos = centavos;
+            this.ids = ids;
+        }
+
+        /**
+         * Primera posición cuyo par (precio, ID) es mayor o igual al indicado
+         */
+        private int primeraPosicion(long precio, long id) {
+            int bajo = 0;
+            int alto = ids.length;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (centavos[medio] < precio || (centavos[medio] == precio && ids[medio] < id)) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+
+        private Tabla con(long precio, long id) {
+            int posicion = primeraPosicion(precio, id);
+            int n = ids.length;
+            long[] nuevosCentavos = new long[n + 1];
+            long[] nuevosIds = new long[n + 1];
+            System.arraycopy(centavos, 0, nuevosCentavos, 0, posicion);
+            System.arraycopy(ids, 0, nuevosIds, 0, posicion);
+            nuevosCentavos[posicion] = precio;
+            nuevosIds[posicion] = id;
+            System.arraycopy(centavos, posicion, nuevosCentavos, posicion + 1, n - posicion);
+            System.arraycopy(ids, posicion, nuevosIds, posicion + 1, n - posicion);
+            return new Tabla(nuevosCentavos, nuevosIds);
+        }
+
+        private Tabla sin(long precio, long id) {
+            int posicion = primeraPosicion(precio, id);
+            int n = ids.length;
+            if (posicion >= n || ids[posicion] != id || centavos[posicion] != precio) {
+                return this;
+            }
+            long[] nuevosCentavos = new long[n - 1];
+            long[] nuevosIds = new long[n - 1];
+            System.arraycopy(centavos, 0, nuevosCentavos, 0, posicion);
+            System.arraycopy(ids, 0, nuevosIds, 0, posicion);
+            System.arraycopy(centavos, posicion + 1, nuevosCentavos, posicion, n - posicion - 1);
+            System.arraycopy(ids, posicion + 1, nuevosIds, posicion, n - posicion - 1);
+            return new Tabla(nuevosCentavos, nuevosIds);
+        }
+    }
+}
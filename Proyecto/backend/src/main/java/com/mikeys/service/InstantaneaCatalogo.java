@@ -0,0 +1,179 @@
+package com.mikeys.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mikeys.dto.ProductoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuesta del catálogo completo serializada y comprimida de antemano
+ * Guarda, para cada versión del catálogo, el JSON de GET /api/products ya renderizado
+ * y su variante gzip, de modo que el controlador solo escribe bytes.
+ * Se reconstruye en un hilo propio cada vez que CatalogoCache publica una nueva versión;
+ * mientras no está al día, el controlador responde por el camino normal de Jackson.
+ */
+@Component
+public class InstantaneaCatalogo {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstantaneaCatalogo.class);
+
+    private final ProductoService productoService;
+    private final ObjectMapper objectMapper;
+
+    private final ExecutorService constructor = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "instantanea-catalogo");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Evita encolar reconstrucciones repetidas; la que corre siempre lee la versión más reciente
+    private final AtomicBoolean reconstruccionPendiente = new AtomicBoolean();
+
+    private volatile Instantanea actual;
+
+    private final AtomicLong reconstrucciones = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong desactualizadas = new AtomicLong();
+
+    @Autowired
+    public InstantaneaCatalogo(ProductoService productoService, ObjectMapper objectMapper) {
+        this.productoService = productoService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Construye la primera instantánea al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        programarReconstruccion();
+    }
+
+    /**
+     * Programa una reconstrucción cuando cambia la versión del catálogo
+     */
+    @EventListener
+    public void alModificarseCatalogo(CatalogoModificadoEvent evento) {
+        programarReconstruccion();
+    }
+
+    /**
+     * Obtiene la instantánea de una versión del catálogo
+     * @param version Versión del catálogo que se va a responder
+     * @return Instantánea de esa versión, o null si todavía no está construida
+     */
+    public Instantanea obtener(String version) {
+        Instantanea instantanea = actual;
+        if (instantanea != null && instantanea.getVersion().equals(version)) {
+            aciertos.incrementAndGet();
+            return instantanea;
+        }
+        desactualizadas.incrementAndGet();
+        programarReconstruccion();
+        return null;
+    }
+
+    /**
+     * Obtiene el tamaño de la instantánea actual y cuántas veces se usó
+     * @return Mapa con versión, tamaños en bytes, reconstrucciones y peticiones servidas
+     */
+    public Map<String, Object> getEstadisticas() {
+        Instantanea instantanea = actual;
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("version", instantanea != null ? instantanea.getVersion() : null);
+        estadisticas.put("bytesJson", instantanea != null ? instantanea.getJson().length : 0);
+        estadisticas.put("bytesGzip", instantanea != null ? instantanea.getGzip().length : 0);
+        estadisticas.put("reconstrucciones", reconstrucciones.get());
+        estadisticas.put("aciertos", aciertos.get());
+        estadisticas.put("desactualizadas", desactualizadas.get());
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void detener() {
+        constructor.shutdownNow();
+    }
+
+    private void programarReconstruccion() {
+        if (reconstruccionPendiente.compareAndSet(false, true)) {
+            constructor.execute(this::reconstruir);
+        }
+    }
+
+    private void reconstruir() {
+        reconstruccionPendiente.set(false);
+        try {
+            // La versión se lee antes que los datos: los datos nunca son más viejos que la versión
+            String version = productoService.obtenerVersionCatalogo();
+            Instantanea instantanea = actual;
+            if (instantanea != null && instantanea.getVersion().equals(version)) {
+                return;
+            }
+
+            List<ProductoDTO> productos = productoService.obtenerTodos();
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("success", true);
+            respuesta.put("message", productos.isEmpty()
+                    ? "No hay productos disponibles" : "Productos obtenidos exitosamente");
+            respuesta.put("data", productos);
+
+            byte[] json = objectMapper.writeValueAsBytes(respuesta);
+            actual = new Instantanea(version, json, comprimirGzip(json));
+            reconstrucciones.incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("No se pudo construir la instantánea del catálogo: {}", e.getMessage());
+        }
+    }
+
+    private static byte[] comprimirGzip(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(datos.length / 4, 64));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Catálogo de una versión ya serializado, sin comprimir y en gzip
+     */
+    public static final class Instantanea {
+        private final String version;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private Instantanea(String version, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.mikeys.service;
+
+import com.mikeys.model.FraccionStock;
+import com.mikeys.model.Producto;
+import com.mikeys.repository.FraccionStockRepository;
+import com.mikeys.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inventario fraccionado para productos con muchísima demanda
+ * El stock de un producto fraccionado se reparte en varias filas de stock_shards; cada compra
+ * descuenta de una fracción elegida al azar, de modo que las compras simultáneas bloquean filas
+ * distintas en lugar de competir por la fila del producto.
+ * La columna stock del producto pasa a ser el total de sus fracciones: se mantiene al día en cada
+ * operación de administración y con un refresco periódico, que además rebalancea las fracciones
+ * que se quedaron sin unidades.
+ */
+@Service
+public class InventarioFraccionado {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventarioFraccionado.class);
+
+    /** Cantidad máxima de fracciones por producto */
+    public static final int MAX_FRACCIONES = 64;
+
+    private final FraccionStockRepository fraccionRepository;
+    private final ProductoRepository productoRepository;
+    private final CatalogoCache catalogoCache;
+    private final SugerenciasProductos sugerencias;
+    private final DisponibilidadProductos disponibilidad;
+    private final ReservasStock reservas;
+    private final TransactionTemplate transaccion;
+
+    // Cantidad de fracciones por producto; solo orienta la elección al azar, la base de datos decide
+    private final Map<Long, Integer> fracciones = new ConcurrentHashMap<>();
+
+    private final AtomicLong descuentosDirectos = new AtomicLong();
+    private final AtomicLong descuentosAlternativos = new AtomicLong();
+    private final AtomicLong rebalanceos = new AtomicLong();
+    private final AtomicLong totalesRefrescados = new AtomicLong();
+
+    @Autowired
+    public InventarioFraccionado(FraccionStockRepository fraccionRepository,
+                                 ProductoRepository productoRepository,
+                                 CatalogoCache catalogoCache,
+                                 SugerenciasProductos sugerencias,
+                                 DisponibilidadProductos disponibilidad,
+                                 ReservasStock reservas,
+                                 PlatformTransactionManager transactionManager) {
+        this.fraccionRepository = fraccionRepository;
+        this.productoRepository = productoRepository;
+        this.catalogoCache = catalogoCache;
+        this.sugerencias = sugerencias;
+        this.disponibilidad = disponibilidad;
+        this.reservas = reservas;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Reparte el stock actual de un producto en fracciones
+     * Si el producto ya estaba fraccionado, su stock se vuelve a repartir en la nueva cantidad de fracciones
+     * @param productoId ID del producto
+     * @param cantidadFracciones Cantidad de fracciones (entre 2 y MAX_FRACCIONES)
+     * @return Stock total repartido
+     * @throws IllegalArgumentException si el producto no existe o la cantidad de fracciones no es válida
+     */
+    @Transactional
+    public int fraccionar(Long productoId, int cantidadFracciones) {
+        if (cantidadFracciones < 2 || cantidadFracciones > MAX_FRACCIONES) {
+            throw new IllegalArgumentException("La cantidad de fracciones debe estar entre 2 y " + MAX_FRACCIONES);
+        }
+        Producto producto = productoRepository.bloquearPorId(productoId)
+                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado con ID: " + productoId));
+
+        int total = producto.getStock();
+        if (producto.isStockFraccionado()) {
+            total = sumar(fraccionRepository.bloquearPorProducto(productoId));
+            fraccionRepository.eliminarPorProducto(productoId);
+        }
+
+        List<FraccionStock> nuevas = new ArrayList<>(cantidadFracciones);
+        int[] repartido = repartir(total, cantidadFracciones);
+        for (int numero = 0; numero < cantidadFracciones; numero++) {
+            nuevas.add(new FraccionStock(producto, numero, repartido[numero]));
+        }
+        fraccionRepository.saveAll(nuevas);
+
+        producto.setStock(total);
+        producto.setStockFraccionado(true);
+        fracciones.put(productoId, cantidadFracciones);
+        return total;
+    }
+
+    /**
+     * Vuelve a guardar el stock de un producto en una sola fila
+     * @param productoId ID del producto
+     * @return Stock total
+     * @throws IllegalArgumentException si el producto no existe o no tiene el stock fraccionado
+     */
+    @Transactional
+    public int unificar(Long productoId) {
+        Producto producto = productoRepository.bloquearPorId(productoId)
+                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado con ID: " + productoId));
+        if (!producto.isStockFraccionado()) {
+            throw new IllegalArgumentException("El producto no tiene el stock fraccionado: " + productoId);
+        }
+
+        int total = sumar(fraccionRepository.bloquearPorProducto(productoId));
+        fraccionRepository.eliminarPorProducto(productoId);
+        producto.setStock(total);
+        producto.setStockFraccionado(false);
+        fracciones.remove(productoId);
+        catalogoCache.invalidarTrasCommit(productoId);
+        return total;
+    }
+
+    /**
+     * Descuenta unidades de una fracción del producto
+     * Primero intenta con una fracción al azar, luego con la que más unidades tiene y, si ninguna
+     * alcanza por sí sola pero el total sí, rebalancea las fracciones y descuenta del total.
+     * Se une a la transacción del pedido, así que un rollback devuelve las unidades
+     * @param productoId ID del producto
+     * @param cantidad Unidades a descontar
+     * @return true si se descontaron, false si el producto no tiene stock suficiente
+     */
+    @Transactional
+    public boolean descontar(Long productoId, int cantidad) {
+        int cantidadFracciones = obtenerCantidadFracciones(productoId);
+        if (cantidadFracciones > 0) {
+            int numero = ThreadLocalRandom.current().nextInt(cantidadFracciones);
+            if (fraccionRepository.descontar(productoId, numero, cantidad) == 1) {
+                descuentosDirectos.incrementAndGet();
+                return true;
+            }
+        }
+
+        List<Integer> conStock = fraccionRepository.buscarConStock(productoId, cantidad, PageRequest.of(0, 1));
+        if (!conStock.isEmpty() && fraccionRepository.descontar(productoId, conStock.get(0), cantidad) == 1) {
+            descuentosAlternativos.incrementAndGet();
+            return true;
+        }
+
+        // Con el producto agotado no se bloquean las fracciones: cada pedido rechazado
+        // las bloquearía todas y se interbloquearía con los demás
+        if (fraccionRepository.sumarStock(productoId) < cantidad) {
+            return false;
+        }
+        return rebalancear(productoId, cantidad);
+    }
+
+    /**
+     * Suma unidades a una fracción del producto elegida al azar (por ejemplo, al cancelar un pedido)
+     * Como los descuentos, solo modifica la fila de esa fracción: no bloquea las demás ni compite
+     * con las compras que descuentan de ellas. El refresco periódico rebalancea las fracciones
+     * @param productoId ID del producto
+     * @param cantidad Unidades a sumar
+     * @throws IllegalArgumentException si el producto no tiene el stock fraccionado
+     */
+    @Transactional
+    public void acreditar(Long productoId, int cantidad) {
+        int cantidadFracciones = obtenerCantidadFracciones(productoId);
+        if (cantidadFracciones > 0) {
+            int numero = ThreadLocalRandom.current().nextInt(cantidadFracciones);
+            if (fraccionRepository.acreditar(productoId, numero, cantidad) == 1) {
+                return;
+            }
+            // El producto se volvió a fraccionar con menos fracciones: la 0 existe siempre
+            fracciones.remove(productoId);
+            if (fraccionRepository.acreditar(productoId, 0, cantidad) == 1) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException("El producto no tiene el stock fraccionado: " + productoId);
+    }
+
+    /**
+     * Reemplaza el stock total de un producto fraccionado repartiéndolo en partes iguales
+     * @param productoId ID del producto
+     * @param total Nuevo stock total
+     * @throws IllegalArgumentException si el producto no tiene el stock fraccionado
+     */
+    @Transactional
+    public void fijarTotal(Long productoId, int total) {
+        List<FraccionStock> lista = fraccionRepository.bloquearPorProducto(productoId);
+        if (lista.isEmpty()) {
+            throw new IllegalArgumentException("El producto no tiene el stock fraccionado: " + productoId);
+        }
+        int[] repartido = repartir(total, lista.size());
+        for (int i = 0; i < lista.size(); i++) {
+            lista.get(i).setStock(repartido[i]);
+        }
+    }
+
+    /**
+     * Obtiene el stock total de un producto fraccionado
+     * @param productoId ID del producto
+     * @return Suma del stock de sus fracciones
+     */
+    public int obtenerTotal(Long productoId) {
+        return Math.toIntExact(fraccionRepository.sumarStock(productoId));
+    }
+
+    /**
+     * Elimina las fracciones de un producto que se va a eliminar
+     * Debe llamarse en la misma transacción que elimina el producto; el producto deja de
+     * considerarse fraccionado solo tras el commit
+     * @param productoId ID del producto
+     */
+    @Transactional
+    public void eliminarFracciones(Long productoId) {
+        fraccionRepository.eliminarPorProducto(productoId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fracciones.remove(productoId);
+                }
+            });
+        } else {
+            fracciones.remove(productoId);
+        }
+    }
+
+    /**
+     * Actualiza el total de los productos fraccionados y rebalancea las fracciones vacías
+     * Cada producto se procesa en su propia transacción; los productos cuyo total cambió
+     * se actualizan también en la caché y las estructuras en memoria del catálogo
+     */
+    @Scheduled(fixedDelayString = "${mikeys.stock-fraccionado.refresco-ms:2000}",
+               initialDelayString = "${mikeys.stock-fraccionado.refresco-ms:2000}")
+    public void refrescarTotales() {
+        List<FraccionStockRepository.ResumenFracciones> resumen = fraccionRepository.resumirPorProducto();
+        Map<Long, Integer> cantidadFracciones = new HashMap<>();
+        Map<Long, Integer> totales = new TreeMap<>();
+        for (FraccionStockRepository.ResumenFracciones fila : resumen) {
+            cantidadFracciones.put(fila.getProductoId(), fila.getFracciones().intValue());
+            totales.put(fila.getProductoId(), fila.getStock().intValue());
+            if (fila.getMinimo() == 0 && fila.getStock() >= fila.getFracciones()) {
+                try {
+                    transaccion.executeWithoutResult(estado -> rebalancear(fila.getProductoId(), 0));
+                } catch (RuntimeException e) {
+                    logger.warn("No se pudo rebalancear el stock del producto {}: {}", fila.getProductoId(), e.getMessage());
+                }
+            }
+        }
+        fracciones.keySet().retainAll(cantidadFracciones.keySet());
+        fracciones.putAll(cantidadFracciones);
+        if (totales.isEmpty()) {
+            return;
+        }
+
+        List<Long> modificados = new ArrayList<>();
+        for (ProductoRepository.StockProducto actual : productoRepository.buscarStockPorIds(totales.keySet())) {
+            Integer total = totales.get(actual.getId());
+            if (!total.equals(actual.getStock())) {
+                Integer filas = transaccion.execute(estado ->
+                        productoRepository.actualizarTotalFraccionado(actual.getId(), total, LocalDateTime.now()));
+                if (filas != null && filas == 1) {
+                    modificados.add(actual.getId());
+                }
+            }
+        }
+        if (modificados.isEmpty()) {
+            return;
+        }
+
+        totalesRefrescados.addAndGet(modificados.size());
+        catalogoCache.invalidarTrasCommit(modificados);
+        List<Producto> productos = productoRepository.findAllById(modificados);
+        for (Producto producto : productos) {
+            sugerencias.actualizar(producto);
+        }
+        disponibilidad.actualizarTrasCommit(productos);
+        reservas.sincronizarTrasCommit(productos);
+    }
+
+    /**
+     * Obtiene los productos fraccionados y cómo se resolvieron los descuentos
+     * @return Mapa con las fracciones por producto y los contadores de descuentos y rebalanceos
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("productos", new TreeMap<>(fracciones));
+        estadisticas.put("descuentosDirectos", descuentosDirectos.get());
+        estadisticas.put("descuentosAlternativos", descuentosAlternativos.get());
+        estadisticas.put("rebalanceos", rebalanceos.get());
+        estadisticas.put("totalesRefrescados", totalesRefrescados.get());
+        return estadisticas;
+    }
+
+    /**
+     * Bloquea todas las fracciones del producto, descuenta la cantidad del total
+     * y reparte el resto en partes iguales
+     * @return false si el total no alcanza (las fracciones no se modifican)
+     */
+    private boolean rebalancear(Long productoId, int cantidad) {
+        List<FraccionStock> lista = fraccionRepository.bloquearPorProducto(productoId);
+        int total = sumar(lista);
+        if (lista.isEmpty() || total < cantidad) {
+            return false;
+        }
+        int[] repartido = repartir(total - cantidad, lista.size());
+        for (int i = 0; i < lista.size(); i++) {
+            lista.get(i).setStock(repartido[i]);
+        }
+        fracciones.put(productoId, lista.size());
+        rebalanceos.incrementAndGet();
+        return true;
+    }
+
+    private int obtenerCantidadFracciones(Long productoId) {
+        Integer cantidad = fracciones.get(productoId);
+        if (cantidad == null) {
+            cantidad = (int) fraccionRepository.countByProductoId(productoId);
+            if (cantidad > 0) {
+                fracciones.put(productoId, cantidad);
+            }
+        }
+        return cantidad;
+    }
+
+    private static int sumar(List<FraccionStock> lista) {
+        int total = 0;
+        for (FraccionStock fraccion : lista) {
+            total += fraccion.getStock();
+        }
+        return total;
+    }
+
+    private static int[] repartir(int total, int partes) {
+        int[] repartido = new int[partes];
+        for (int i = 0; i < partes; i++) {
+            repartido[i] = total / partes + (i < total % partes ? 1 : 0);
+        }
+        return repartido;
+    }
+}
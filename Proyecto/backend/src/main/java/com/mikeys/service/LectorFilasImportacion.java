@@ -0,0 +1,229 @@
+package com.mikeys.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lector secuencial de las filas de un archivo de importación de productos
+ * Lee una fila a la vez desde el flujo de entrada, por lo que la memoria usada
+ * no depende del tamaño del archivo.
+ * En CSV la primera fila debe ser la cabecera con los nombres de las columnas;
+ * en NDJSON cada línea es un objeto JSON. Las líneas vacías se ignoran.
+ */
+public class LectorFilasImportacion implements Closeable {
+
+    /** Longitud máxima de un registro CSV, para no cargar en memoria un archivo mal formado */
+    private static final int MAX_LONGITUD_REGISTRO = 64 * 1024;
+
+    private static final List<String> COLUMNAS_OBLIGATORIAS = List.of("nombre", "descripcion", "precio", "stock");
+
+    private final BufferedReader lector;
+    private final FormatoArchivo formato;
+    private final ObjectMapper objectMapper;
+
+    private List<String> cabecera;
+    private int linea = 0;
+
+    public LectorFilasImportacion(InputStream entrada, FormatoArchivo formato, ObjectMapper objectMapper) {
+        this.lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        this.formato = formato;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Lee la siguiente fila del archivo
+     * @return Fila leída, o null si no quedan filas
+     * @throws IOException si falla la lectura del flujo
+     * @throws IllegalArgumentException si la cabecera CSV no es válida o un registro excede el tamaño máximo
+     */
+    public Fila siguiente() throws IOException {
+        return formato == FormatoArchivo.NDJSON ? siguienteNdjson() : siguienteCsv();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lector.close();
+    }
+
+    private Fila siguienteNdjson() throws IOException {
+        String texto;
+        while ((texto = lector.readLine()) != null) {
+            linea++;
+            if (linea == 1) {
+                texto = sinBom(texto);
+            }
+            if (texto.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                JsonNode nodo = objectMapper.readTree(texto);
+                if (!nodo.isObject()) {
+                    return Fila.conError(linea, "La línea no es un objeto JSON");
+                }
+                Map<String, String> campos = new HashMap<>();
+                Iterator<Map.Entry<String, JsonNode>> propiedades = nodo.fields();
+                while (propiedades.hasNext()) {
+                    Map.Entry<String, JsonNode> propiedad = propiedades.next();
+                    JsonNode valor = propiedad.getValue();
+                    campos.put(propiedad.getKey().trim().toLowerCase(), valor.isNull() ? null : valor.asText());
+                }
+                return new Fila(linea, campos, null);
+            } catch (JsonProcessingException e) {
+                return Fila.conError(linea, "JSON no válido: " + e.getOriginalMessage());
+            }
+        }
+        return null;
+    }
+
+    private Fila siguienteCsv() throws IOException {
+        if (cabecera == null) {
+            List<String> nombres = leerRegistroCsv();
+            if (nombres == null) {
+                return null;
+            }
+            cabecera = new ArrayList<>();
+            for (int i = 0; i < nombres.size(); i++) {
+                String nombre = i == 0 ? sinBom(nombres.get(i)) : nombres.get(i);
+                cabecera.add(nombre.trim().toLowerCase());
+            }
+            for (String obligatoria : COLUMNAS_OBLIGATORIAS) {
+                if (!cabecera.contains(obligatoria)) {
+                    throw new IllegalArgumentException("La cabecera CSV debe incluir la columna " + obligatoria);
+                }
+            }
+        }
+
+        List<String> valores;
+        int inicio;
+        do {
+            inicio = linea + 1;
+            valores = leerRegistroCsv();
+            if (valores == null) {
+                return null;
+            }
+        } while (valores.size() == 1 && valores.get(0).trim().isEmpty());
+
+        if (valores.size() != cabecera.size()) {
+            return Fila.conError(inicio, "Se esperaban " + cabecera.size() + " columnas y hay " + valores.size());
+        }
+        Map<String, String> campos = new HashMap<>();
+        for (int i = 0; i < valores.size(); i++) {
+            campos.put(cabecera.get(i), valores.get(i));
+        }
+        return new Fila(inicio, campos, null);
+    }
+
+    /**
+     * Lee un registro CSV (RFC 4180): campos separados por coma, entre comillas dobles
+     * si contienen comas, comillas (duplicadas) o saltos de línea
+     * @return Campos del registro, o null al final del archivo
+     */
+    private List<String> leerRegistroCsv() throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        boolean leido = false;
+        int longitud = 0;
+        int c;
+        while ((c = lector.read()) != -1) {
+            leido = true;
+            if (++longitud > MAX_LONGITUD_REGISTRO) {
+                throw new IllegalArgumentException("El registro de la línea " + (linea + 1)
+                        + " excede " + MAX_LONGITUD_REGISTRO + " caracteres");
+            }
+            if (entreComillas) {
+                if (c == '"') {
+                    lector.mark(1);
+                    int siguiente = lector.read();
+                    if (siguiente == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        if (siguiente != -1) {
+                            lector.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        linea++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n') {
+                linea++;
+                campos.add(campo.toString());
+                return campos;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+        }
+        if (!leido) {
+            return null;
+        }
+        linea++;
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static String sinBom(String texto) {
+        return !texto.isEmpty() && texto.charAt(0) == '\uFEFF' ? texto.substring(1) : texto;
+    }
+
+    /**
+     * Fila leída del archivo: sus campos por nombre de columna (en minúsculas)
+     * o el error que impidió leerla
+     */
+    public static final class Fila {
+        private final int numero;
+        private final Map<String, String> campos;
+        private final String error;
+
+        private Fila(int numero, Map<String, String> campos, String error) {
+            this.numero = numero;
+            this.campos = campos;
+            this.error = error;
+        }
+
+        private static Fila conError(int numero, String error) {
+            return new Fila(numero, null, error);
+        }
+
+        /**
+         * Número de línea del archivo donde empieza la fila
+         */
+        public int getNumero() {
+            return numero;
+        }
+
+        public String getCampo(String nombre) {
+            String valor = campos.get(nombre);
+            return valor == null || valor.trim().isEmpty() ? null : valor.trim();
+        }
+
+        public boolean tieneError() {
+            return error != null;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
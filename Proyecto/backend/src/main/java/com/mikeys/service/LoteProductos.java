@@ -0,0 +1,33 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.ProductoDTO;
+
+import java.util.List;
+
+/**
+ * Resultado de una búsqueda de varios productos por ID
+ */
+public class LoteProductos {
+
+    private final List<ProductoDTO> productos;
+    private final List<Long> idsNoEncontrados;
+
+    public LoteProductos(List<ProductoDTO> productos, List<Long> idsNoEncontrados) {
+        this.productos = productos;
+        this.idsNoEncontrados = idsNoEncontrados;
+    }
+
+    /**
+     * Productos encontrados, en el mismo orden en que se pidieron
+     */
+    public List<ProductoDTO> getProductos() {
+        return productos;
+    }
+
+    /**
+     * IDs pedidos que no corresponden a ningún producto
+     */
+    public List<Long> getIdsNoEncontrados() {
+        return idsNoEncontrados;
+    }
+}
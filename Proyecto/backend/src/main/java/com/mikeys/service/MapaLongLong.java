@@ -0,0 +1,161 @@
+package com.mikeys.service;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de claves long a valores long sin objetos envoltorio
+ * Direccionamiento abierto con sondeo lineal sobre dos arreglos paralelos; los borrados
+ * desplazan hacia atrás las claves siguientes, así que no quedan marcas de borrado.
+ * Una clave cuyo valor llega a 0 se elimina. No es seguro para hilos: quien lo usa sincroniza.
+ */
+class MapaLongLong {
+
+    private static final long VACIA = Long.MIN_VALUE;
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private long[] claves;
+    private long[] valores;
+    private int tamanio;
+
+    MapaLongLong() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    private MapaLongLong(int capacidad) {
+        claves = new long[capacidad];
+        valores = new long[capacidad];
+        Arrays.fill(claves, VACIA);
+    }
+
+    /**
+     * Valor asociado a una clave
+     * @return Valor de la clave, o 0 si no está
+     */
+    long obtener(long clave) {
+        int posicion = buscar(clave);
+        return posicion >= 0 ? valores[posicion] : 0;
+    }
+
+    /**
+     * Suma un valor al de una clave (la crea si no está y la elimina si queda en 0)
+     */
+    void sumar(long clave, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        int mascara = claves.length - 1;
+        int posicion = dispersar(clave) & mascara;
+        while (claves[posicion] != VACIA) {
+            if (claves[posicion] == clave) {
+                valores[posicion] += delta;
+                if (valores[posicion] == 0) {
+                    eliminarEn(posicion);
+                }
+                return;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+        claves[posicion] = clave;
+        valores[posicion] = delta;
+        if (++tamanio * 2 > claves.length) {
+            redimensionar(claves.length * 2);
+        }
+    }
+
+    /**
+     * Suma (o resta, con signo -1) todas las entradas de otro mapa
+     */
+    void sumarTodo(MapaLongLong otro, int signo) {
+        otro.recorrer((clave, valor) -> sumar(clave, signo * valor));
+    }
+
+    int tamanio() {
+        return tamanio;
+    }
+
+    void limpiar() {
+        Arrays.fill(claves, VACIA);
+        Arrays.fill(valores, 0);
+        tamanio = 0;
+    }
+
+    /**
+     * Copia independiente del mapa
+     */
+    MapaLongLong copia() {
+        MapaLongLong copia = new MapaLongLong(claves.length);
+        System.arraycopy(claves, 0, copia.claves, 0, claves.length);
+        System.arraycopy(valores, 0, copia.valores, 0, valores.length);
+        copia.tamanio = tamanio;
+        return copia;
+    }
+
+    /**
+     * Recorre las entradas en un orden no especificado
+     */
+    void recorrer(Visitante visitante) {
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != VACIA) {
+                visitante.visitar(claves[i], valores[i]);
+            }
+        }
+    }
+
+    private int buscar(long clave) {
+        int mascara = claves.length - 1;
+        int posicion = dispersar(clave) & mascara;
+        while (claves[posicion] != VACIA) {
+            if (claves[posicion] == clave) {
+                return posicion;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+        return -1;
+    }
+
+    /**
+     * Borra la entrada y reubica las siguientes del mismo grupo para que el sondeo no se corte
+     */
+    private void eliminarEn(int posicion) {
+        int mascara = claves.length - 1;
+        int hueco = posicion;
+        int siguiente = (hueco + 1) & mascara;
+        while (claves[siguiente] != VACIA) {
+            int ideal = dispersar(claves[siguiente]) & mascara;
+            // La entrada se mueve al hueco si su posición ideal no está entre el hueco y ella
+            if (((siguiente - ideal) & mascara) >= ((siguiente - hueco) & mascara)) {
+                claves[hueco] = claves[siguiente];
+                valores[hueco] = valores[siguiente];
+                hueco = siguiente;
+            }
+            siguiente = (siguiente + 1) & mascara;
+        }
+        claves[hueco] = VACIA;
+        valores[hueco] = 0;
+        tamanio--;
+    }
+
+    private void redimensionar(int capacidad) {
+        long[] clavesAnteriores = claves;
+        long[] valoresAnteriores = valores;
+        claves = new long[capacidad];
+        valores = new long[capacidad];
+        Arrays.fill(claves, VACIA);
+        tamanio = 0;
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            if (clavesAnteriores[i] != VACIA) {
+                sumar(clavesAnteriores[i], valoresAnteriores[i]);
+            }
+        }
+    }
+
+    private static int dispersar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    interface Visitante {
+        void visitar(long clave, long valor);
+    }
+}
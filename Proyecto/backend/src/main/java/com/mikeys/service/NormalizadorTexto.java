@@ -0,0 +1,66 @@
+package com.mikeys.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades para normalizar texto de búsqueda
+ * Elimina tildes y diacríticos, pasa a minúsculas y separa en términos
+ */
+public final class NormalizadorTexto {
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private NormalizadorTexto() {
+    }
+
+    /**
+     * Normaliza un texto: sin tildes, en minúsculas y con los signos reemplazados por espacios
+     * @param texto Texto original
+     * @return Texto normalizado (vacío si el texto es null)
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinDiacriticos = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(sinDiacriticos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Separa un texto en términos normalizados sin repetir, conservando el orden de aparición
+     * @param texto Texto original
+     * @return Lista de términos normalizados
+     */
+    public static List<String> tokenizar(String texto) {
+        String normalizado = normalizar(texto);
+        Set<String> terminos = new LinkedHashSet<>();
+        if (!normalizado.isEmpty()) {
+            for (String termino : normalizado.split(" ")) {
+                if (!termino.isEmpty()) {
+                    terminos.add(termino);
+                }
+            }
+        }
+        return new ArrayList<>(terminos);
+    }
+
+    /**
+     * Obtiene los trigramas de un término normalizado
+     * @param termino Término normalizado
+     * @return Trigramas del término (vacío si tiene menos de 3 caracteres)
+     */
+    public static Set<String> trigramas(String termino) {
+        Set<String> trigramas = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= termino.length(); i++) {
+            trigramas.add(termino.substring(i, i + 3));
+        }
+        return trigramas;
+    }
+}
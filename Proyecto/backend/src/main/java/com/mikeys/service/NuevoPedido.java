@@ -0,0 +1,30 @@
+package com.mikeys.service;
+
+import com.mikeys.model.ItemPedido;
+import com.mikeys.model.Producto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datos de un pedido por crear dentro de un grupo
+ * @param usuarioId ID del usuario que realiza el pedido
+ * @param items Items del pedido (con el ID del producto y la cantidad)
+ */
+public record NuevoPedido(Long usuarioId, List<ItemPedido> items) {
+
+    /**
+     * Copia el pedido con items nuevos (solo ID del producto y cantidad), para volver a crearlo
+     * después de que un grupo fallido modificó los items originales
+     */
+    NuevoPedido copia() {
+        List<ItemPedido> copias = new ArrayList<>(items.size());
+        for (ItemPedido item : items) {
+            Producto producto = new Producto();
+            producto.setId(item.getProducto().getId());
+            copias.add(new ItemPedido(producto, item.getCantidad(), BigDecimal.ZERO));
+        }
+        return new NuevoPedido(usuarioId, copias);
+    }
+}
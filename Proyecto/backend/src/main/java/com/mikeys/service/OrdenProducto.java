@@ -0,0 +1,69 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.ProductoDTO;
+
+import java.util.Comparator;
+
+/**
+ * Enum que representa los criterios de ordenamiento disponibles
+ * para la paginación por cursor del catálogo de productos
+ */
+public enum OrdenProducto {
+
+    ID("id"),
+
+    PRECIO("precio"),
+
+    FECHA_CREACION("fecha_creacion");
+
+    private final String parametro;
+
+    OrdenProducto(String parametro) {
+        this.parametro = parametro;
+    }
+
+    public String getParametro() {
+        return parametro;
+    }
+
+    /**
+     * Obtiene el comparador equivalente al ORDER BY de la paginación en base de datos
+     * ID y precio ascendentes; fecha de creación descendente (más recientes primero).
+     * El ID desempata en todos los casos.
+     * @return Comparador de productos según este criterio
+     */
+    public Comparator<ProductoDTO> comparador() {
+        switch (this) {
+            case PRECIO:
+                return Comparator.comparing(ProductoDTO::precio).thenComparing(ProductoDTO::id);
+            case FECHA_CREACION:
+                return Comparator.comparing(ProductoDTO::fechaCreacion)
+                        .thenComparing(ProductoDTO::id).reversed();
+            default:
+                return Comparator.comparing(ProductoDTO::id);
+        }
+    }
+
+    /**
+     * Obtiene el criterio de ordenamiento a partir del parámetro de la petición
+     * @param parametro Valor recibido (id, precio o fecha_creacion); null usa ID
+     * @return Criterio de ordenamiento correspondiente
+     * @throws IllegalArgumentException si el parámetro no es válido
+     */
+    public static OrdenProducto desdeParametro(String parametro) {
+        if (parametro == null || parametro.trim().isEmpty()) {
+            return ID;
+        }
+        for (OrdenProducto orden : values()) {
+            if (orden.parametro.equalsIgnoreCase(parametro.trim())) {
+                return orden;
+            }
+        }
+        throw new IllegalArgumentException("Orden no válido: " + parametro);
+    }
+
+    @Override
+    public String toString() {
+        return this.parametro;
+    }
+}
@@ -0,0 +1,34 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.PedidoDTO;
+
+import java.util.List;
+
+/**
+ * Resultado de una consulta paginada por cursor de pedidos
+ */
+public class PaginaPedidos {
+
+    private final List<PedidoDTO> pedidos;
+    private final String siguienteCursor;
+
+    public PaginaPedidos(List<PedidoDTO> pedidos, String siguienteCursor) {
+        this.pedidos = pedidos;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<PedidoDTO> getPedidos() {
+        return pedidos;
+    }
+
+    /**
+     * Cursor para pedir la página siguiente, o null si no hay más pedidos
+     */
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public boolean hayMas() {
+        return siguienteCursor != null;
+    }
+}
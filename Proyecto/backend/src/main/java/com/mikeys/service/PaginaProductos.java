@@ -0,0 +1,34 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.ProductoDTO;
+
+import java.util.List;
+
+/**
+ * Resultado de una consulta paginada por cursor del catálogo
+ */
+public class PaginaProductos {
+
+    private final List<ProductoDTO> productos;
+    private final String siguienteCursor;
+
+    public PaginaProductos(List<ProductoDTO> productos, String siguienteCursor) {
+        this.productos = productos;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<ProductoDTO> getProductos() {
+        return productos;
+    }
+
+    /**
+     * Cursor para pedir la página siguiente, o null si no hay más productos
+     */
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public boolean hayMas() {
+        return siguienteCursor != null;
+    }
+}
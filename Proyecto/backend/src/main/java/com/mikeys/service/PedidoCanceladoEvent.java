@@ -0,0 +1,47 @@
+package com.mikeys.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Evento publicado por PedidoService cuando un pedido pasa al estado CANCELADO,
+ * por una cancelación o por un cambio de estado.
+ * Los oyentes transaccionales lo reciben solo si la transacción hace commit
+ */
+public class PedidoCanceladoEvent {
+
+    private final Long pedidoId;
+    private final LocalDateTime fechaPedido;
+    private final BigDecimal total;
+    private final Map<Long, Integer> unidades;
+
+    public PedidoCanceladoEvent(Long pedidoId, LocalDateTime fechaPedido, BigDecimal total, Map<Long, Integer> unidades) {
+        this.pedidoId = pedidoId;
+        this.fechaPedido = fechaPedido;
+        this.total = total;
+        this.unidades = unidades;
+    }
+
+    public Long getPedidoId() {
+        return pedidoId;
+    }
+
+    /**
+     * Fecha en que se creó el pedido; la venta se descuenta de ese día
+     */
+    public LocalDateTime getFechaPedido() {
+        return fechaPedido;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    /**
+     * Unidades del pedido por ID de producto
+     */
+    public Map<Long, Integer> getUnidades() {
+        return unidades;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mikeys.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Evento publicado por PedidoService cuando un pedido pasa a contar como venta:
+ * al crearse, o al salir del estado CANCELADO con un cambio de estado.
+ * Los oyentes transaccionales lo reciben solo si la transacción hace commit
+ */
+public class PedidoCreadoEvent {
+
+    private final Long pedidoId;
+    private final LocalDateTime fechaPedido;
+    private final BigDecimal total;
+    private final Map<Long, Integer> unidades;
+
+    public PedidoCreadoEvent(Long pedidoId, LocalDateTime fechaPedido, BigDecimal total, Map<Long, Integer> unidades) {
+        this.pedidoId = pedidoId;
+        this.fechaPedido = fechaPedido;
+        this.total = total;
+        this.unidades = unidades;
+    }
+
+    public Long getPedidoId() {
+        return pedidoId;
+    }
+
+    public LocalDateTime getFechaPedido() {
+        return fechaPedido;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    /**
+     * Unidades pedidas por ID de producto
+     */
+    public Map<Long, Integer> getUnidades() {
+        return unidades;
+    }
+}
@@ -0,0 +1,71 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.PedidoDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para la paginación por clave (keyset) de los listados de pedidos
+ * Guarda la fecha y el ID del último pedido entregado; los listados van del más reciente
+ * al más antiguo, de modo que cada página se obtiene con un WHERE sobre el índice
+ * (usuario_id o estado, fecha_pedido, id) y no con OFFSET
+ */
+public final class PedidoCursor {
+
+    private static final String SEPARADOR = "|";
+
+    private final LocalDateTime fechaPedido;
+    private final Long id;
+
+    private PedidoCursor(LocalDateTime fechaPedido, Long id) {
+        this.fechaPedido = fechaPedido;
+        this.id = id;
+    }
+
+    /**
+     * Crea el cursor que apunta justo después del pedido indicado
+     * @param pedido Último pedido de la página
+     * @return Cursor posicionado tras el pedido
+     */
+    public static PedidoCursor despuesDe(PedidoDTO pedido) {
+        return new PedidoCursor(pedido.fechaPedido(), pedido.id());
+    }
+
+    /**
+     * Codifica el cursor como texto opaco apto para URLs
+     * @return Cursor codificado en Base64 URL-safe
+     */
+    public String codificar() {
+        String plano = fechaPedido + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor recibido en la petición
+     * @param cursor Texto opaco generado por {@link #codificar()}
+     * @return Cursor decodificado
+     * @throws IllegalArgumentException si el cursor es inválido
+     */
+    public static PedidoCursor decodificar(String cursor) {
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = plano.split("\\|", -1);
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new PedidoCursor(LocalDateTime.parse(partes[0]), Long.valueOf(partes[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    public LocalDateTime getFechaPedido() {
+        return fechaPedido;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
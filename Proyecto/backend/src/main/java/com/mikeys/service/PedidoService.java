@@ -1,17 +1,49 @@
 package com.mikeys.service;
 
+import com.mikeys.dto.FilaPedido;
+import com.mikeys.dto.PedidoDTO;
 import com.mikeys.model.*;
-import com.mikeys.repository.ItemPedidoRepository;
+import com.mikeys.repository.PedidoArchivadoRepository;
 import com.mikeys.repository.PedidoRepository;
 import com.mikeys.repository.ProductoRepository;
 import com.mikeys.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Servicio de negocio para gestionar pedidos
@@ -20,46 +52,167 @@ import java.util.List;
 @Service
 public class PedidoService {
 
+    /** Tamaño de página de los listados de pedidos cuando la petición no indica un límite */
+    public static final int LIMITE_POR_DEFECTO = 20;
+
+    /** Tamaño máximo de página de los listados de pedidos */
+    public static final int LIMITE_MAXIMO = 100;
+
+    private static final String SQL_DESCONTAR_STOCK =
+            "UPDATE productos SET stock = stock - ?, fecha_actualizacion = ?, version = version + 1 " +
+            "WHERE id = ? AND stock >= ? AND stock_fraccionado = FALSE";
+
+    private static final String SQL_BLOQUEAR_STOCK =
+            "SELECT id, stock FROM productos WHERE id IN (%s) AND stock_fraccionado = FALSE ORDER BY id FOR UPDATE";
+
+    private static final String SQL_INSERTAR_PEDIDO =
+            "INSERT INTO pedidos (usuario_id, fecha_pedido, total, estado, fecha_actualizacion) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_INSERTAR_ITEM =
+            "INSERT INTO items_pedido (pedido_id, producto_id, cantidad, precio) VALUES (?, ?, ?, ?)";
+
+    private static final String SQL_BLOQUEAR_PEDIDOS =
+            "SELECT id, estado, fecha_pedido, total FROM pedidos WHERE id IN (%s) ORDER BY id FOR UPDATE";
+
+    private static final String SQL_UNIDADES_DE_PEDIDOS =
+            "SELECT pedido_id, producto_id, SUM(cantidad) FROM items_pedido WHERE pedido_id IN (%s) " +
+            "GROUP BY pedido_id, producto_id";
+
+    private static final String SQL_CANTIDADES_FRACCIONADAS =
+            "SELECT i.producto_id, SUM(i.cantidad) FROM items_pedido i JOIN productos p ON p.id = i.producto_id " +
+            "WHERE i.pedido_id IN (%s) AND p.stock_fraccionado = TRUE GROUP BY i.producto_id ORDER BY i.producto_id";
+
+    private static final String SQL_RESTAURAR_STOCK =
+            "UPDATE productos SET stock = stock + (SELECT SUM(i.cantidad) FROM items_pedido i " +
+            "WHERE i.pedido_id IN (%1$s) AND i.producto_id = productos.id), fecha_actualizacion = ?, " +
+            "version = version + 1 " +
+            "WHERE stock_fraccionado = FALSE AND id IN (SELECT producto_id FROM items_pedido WHERE pedido_id IN (%1$s))";
+
+    private static final String SQL_ESTADOS_ARCHIVADOS =
+            "SELECT id, estado FROM pedidos_archivados WHERE id IN (%s)";
+
+    private static final String SQL_MARCAR_CANCELADOS =
+            "UPDATE pedidos SET estado = ?, fecha_actualizacion = ? WHERE id IN (%s)";
+
+    private static final String SQL_PRODUCTOS_DE_PEDIDOS =
+            "SELECT id, nombre, stock, stock_fraccionado FROM productos " +
+            "WHERE id IN (SELECT producto_id FROM items_pedido WHERE pedido_id IN (%s)) ORDER BY id";
+
+    /** Cantidad máxima de pedidos por cancelación masiva */
+    public static final int LIMITE_CANCELACION_MASIVA = 1000;
+
+    /** Orden de los listados de pedidos: del más reciente al más antiguo, desempatando por ID */
+    private static final Comparator<PedidoDTO> ORDEN_LISTADO = Comparator
+            .comparing(PedidoDTO::fechaPedido).thenComparing(PedidoDTO::id).reversed();
+
     private final PedidoRepository pedidoRepository;
+    private final PedidoArchivadoRepository pedidoArchivadoRepository;
+    private final ArchivoPedidos archivo;
     private final UsuarioRepository usuarioRepository;
     private final ProductoRepository productoRepository;
-    private final ItemPedidoRepository itemPedidoRepository;
+    private final CatalogoCache catalogoCache;
+    private final SugerenciasProductos sugerencias;
+    private final DisponibilidadProductos disponibilidad;
+    private final ReservasStock reservas;
+    private final InventarioFraccionado inventarioFraccionado;
+    private final ContadoresPedidos contadores;
+    private final ReintentosConcurrencia reintentos;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final ApplicationEventPublisher eventos;
 
     @Autowired
     public PedidoService(PedidoRepository pedidoRepository,
+                        PedidoArchivadoRepository pedidoArchivadoRepository,
+                        ArchivoPedidos archivo,
                         UsuarioRepository usuarioRepository,
                         ProductoRepository productoRepository,
-                        ItemPedidoRepository itemPedidoRepository) {
+                        CatalogoCache catalogoCache,
+                        SugerenciasProductos sugerencias,
+                        DisponibilidadProductos disponibilidad,
+                        ReservasStock reservas,
+                        InventarioFraccionado inventarioFraccionado,
+                        ContadoresPedidos contadores,
+                        ReintentosConcurrencia reintentos,
+                        JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        ApplicationEventPublisher eventos) {
         this.pedidoRepository = pedidoRepository;
+        this.pedidoArchivadoRepository = pedidoArchivadoRepository;
+        this.archivo = archivo;
         this.usuarioRepository = usuarioRepository;
         this.productoRepository = productoRepository;
-        this.itemPedidoRepository = itemPedidoRepository;
+        this.catalogoCache = catalogoCache;
+        this.sugerencias = sugerencias;
+        this.disponibilidad = disponibilidad;
+        this.reservas = reservas;
+        this.inventarioFraccionado = inventarioFraccionado;
+        this.contadores = contadores;
+        this.reintentos = reintentos;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
     }
 
     /**
      * Crea un nuevo pedido
+     * Si la transacción choca con otra (interbloqueo o espera de bloqueo vencida) se revierte
+     * y el pedido se vuelve a crear en una transacción nueva, con copias de los items originales
      * @param usuarioId ID del usuario que realiza el pedido
      * @param items Lista de items del pedido
      * @return Pedido creado
      * @throws IllegalArgumentException si no hay suficiente stock
+     * @throws IllegalStateException si el pedido sigue en conflicto después de los reintentos
      */
-    @Transactional
     public Pedido crearPedido(Long usuarioId, List<ItemPedido> items) {
+        NuevoPedido solicitud = new NuevoPedido(usuarioId, items);
+        AtomicInteger intentos = new AtomicInteger();
+        return reintentos.ejecutar("crearPedido", () -> transaccion.execute(estado ->
+                crearPedidoEnTransaccion(usuarioId, intentos.getAndIncrement() == 0 ? items : solicitud.copia().items())));
+    }
+
+    private Pedido crearPedidoEnTransaccion(Long usuarioId, List<ItemPedido> items) {
+        // Cantidad total pedida por producto, ordenada por ID para que las transacciones
+        // concurrentes bloqueen las filas en el mismo orden
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        for (ItemPedido item : items) {
+            cantidades.merge(item.getProducto().getId(), item.getCantidad(), Integer::sum);
+        }
+
+        // Los productos con reservas en memoria se admiten o rechazan antes de consultar la base de datos;
+        // la reserva se devuelve si la transacción no llega a hacer commit
+        reservas.reservar(cantidades);
+
         // Buscar el usuario
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId));
 
-        // Validar y actualizar stock de productos
-        for (ItemPedido item : items) {
-            Producto producto = productoRepository.findById(item.getProducto().getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado con ID: " + item.getProducto().getId()));
+        // Cargar todos los productos del pedido con una sola consulta
+        Map<Long, Producto> productos = productoRepository.buscarSoloLecturaPorIds(cantidades.keySet()).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+        // Validar stock de productos
+        for (Map.Entry<Long, Integer> cantidad : cantidades.entrySet()) {
+            Producto producto = productos.get(cantidad.getKey());
+            if (producto == null) {
+                throw new IllegalArgumentException("Producto no encontrado con ID: " + cantidad.getKey());
+            }
             
-            // Verificar stock disponible
-            if (producto.getStock() < item.getCantidad()) {
+            // Verificar stock disponible (en los productos fraccionados la columna stock es un total
+            // que se refresca periódicamente, así que lo decide el descuento en las fracciones)
+            if (!producto.isStockFraccionado() && producto.getStock() < cantidad.getValue()) {
                 throw new IllegalArgumentException("No hay suficiente stock del producto: " + producto.getNombre());
             }
-            
+        }
+
+        // Descontar el stock con un UPDATE condicional por producto, enviados en un solo lote;
+        // si otra compra se llevó el stock entre la validación y el UPDATE, la fila no se modifica.
+        // Los productos fraccionados descuentan de una de sus fracciones
+        descontarStock(cantidades, productos);
+
+        for (ItemPedido item : items) {
             // Actualizar el producto en el item con los datos completos
+            Producto producto = productos.get(item.getProducto().getId());
             item.setProducto(producto);
             item.setPrecio(producto.getPrecio());
         }
@@ -73,36 +226,474 @@ public class PedidoService {
         // Guardar el pedido
         Pedido pedidoGuardado = pedidoRepository.save(pedido);
 
-        // Actualizar el stock de los productos
-        for (ItemPedido item : items) {
-            Producto producto = item.getProducto();
-            producto.setStock(producto.getStock() - item.getCantidad());
-            productoRepository.save(producto);
+        // Las entidades son de solo lectura: el stock se copia de la base de datos solo para
+        // actualizar las estructuras en memoria
+        for (ProductoRepository.StockProducto stock : productoRepository.buscarStockPorIds(cantidades.keySet())) {
+            Producto producto = productos.get(stock.getId());
+            producto.setStock(producto.isStockFraccionado()
+                    ? inventarioFraccionado.obtenerTotal(producto.getId()) : stock.getStock());
         }
+        catalogoCache.invalidarTrasCommit(cantidades.keySet());
+        sugerencias.actualizarTrasCommit(productos.values());
+        disponibilidad.actualizarTrasCommit(productos.values());
+        contadores.registrarCreadosTrasCommit(1);
+        eventos.publishEvent(new PedidoCreadoEvent(pedidoGuardado.getId(), pedidoGuardado.getFechaPedido(),
+                pedidoGuardado.getTotal(), cantidades));
 
         return pedidoGuardado;
     }
 
     /**
-     * Busca un pedido por su ID
+     * Descuenta el stock de los productos de un pedido en un solo lote JDBC
+     * Cada sentencia solo modifica la fila si el stock alcanza, de modo que dos compras
+     * simultáneas nunca dejan el stock en negativo. Los productos con stock fraccionado
+     * descuentan de sus fracciones en lugar de la fila del producto
+     * @param cantidades Cantidad a descontar por ID de producto
+     * @param productos Productos del pedido, para el mensaje de error
+     * @throws IllegalArgumentException si algún producto ya no tiene stock suficiente (la transacción se revierte)
+     */
+    private void descontarStock(Map<Long, Integer> cantidades, Map<Long, Producto> productos) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = new ArrayList<>(cantidades.size());
+        List<Object[]> parametros = new ArrayList<>(cantidades.size());
+        for (Map.Entry<Long, Integer> cantidad : cantidades.entrySet()) {
+            Long id = cantidad.getKey();
+            if (productos.get(id).isStockFraccionado()) {
+                if (!inventarioFraccionado.descontar(id, cantidad.getValue())) {
+                    throw new IllegalArgumentException("No hay suficiente stock del producto: "
+                            + productos.get(id).getNombre());
+                }
+                continue;
+            }
+            ids.add(id);
+            parametros.add(new Object[] {cantidad.getValue(), ahora, id, cantidad.getValue()});
+        }
+        if (parametros.isEmpty()) {
+            return;
+        }
+
+        int[] filasModificadas = jdbcTemplate.batchUpdate(SQL_DESCONTAR_STOCK, parametros);
+        for (int i = 0; i < filasModificadas.length; i++) {
+            if (filasModificadas[i] == 0) {
+                throw new IllegalArgumentException("No hay suficiente stock del producto: "
+                        + productos.get(ids.get(i)).getNombre());
+            }
+        }
+    }
+
+    /**
+     * Crea varios pedidos en una sola transacción (group commit)
+     * Bloquea las filas de los productos del grupo en orden de ID y decide en memoria, en orden
+     * de llegada, qué pedidos se aceptan con el stock bloqueado. Los aceptados se guardan con un
+     * UPDATE por producto en un solo lote y con lotes JDBC de inserts para pedidos e items.
+     * Un pedido rechazado no modifica nada ni afecta a los demás del grupo
+     * @param solicitudes Pedidos a crear
+     * @return Resultado de cada pedido, en el mismo orden que las solicitudes
+     */
+    @Transactional
+    public List<ResultadoPedido> crearPedidosAgrupados(List<NuevoPedido> solicitudes) {
+        List<Map<Long, Integer>> cantidadesPorPedido = new ArrayList<>(solicitudes.size());
+        Set<Long> usuarioIds = new HashSet<>();
+        Set<Long> productoIds = new TreeSet<>();
+        for (NuevoPedido solicitud : solicitudes) {
+            Map<Long, Integer> cantidades = new TreeMap<>();
+            for (ItemPedido item : solicitud.items()) {
+                cantidades.merge(item.getProducto().getId(), item.getCantidad(), Integer::sum);
+            }
+            cantidadesPorPedido.add(cantidades);
+            usuarioIds.add(solicitud.usuarioId());
+            productoIds.addAll(cantidades.keySet());
+        }
+
+        // Mientras dure la transacción nadie más modifica el stock bloqueado,
+        // así que lo que se decide en memoria es exacto
+        Map<Long, Integer> disponible = bloquearStock(productoIds);
+        Map<Long, Usuario> usuarios = usuarioRepository.findAllById(usuarioIds).stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+        Map<Long, Producto> productos = productoRepository.buscarSoloLecturaPorIds(productoIds).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+        List<ResultadoPedido> resultados = new ArrayList<>(solicitudes.size());
+        List<Pedido> aceptados = new ArrayList<>();
+        List<Map<Long, Integer>> cantidadesAceptadas = new ArrayList<>();
+        Map<Long, Integer> descuentos = new TreeMap<>();
+        for (int i = 0; i < solicitudes.size(); i++) {
+            NuevoPedido solicitud = solicitudes.get(i);
+            Map<Long, Integer> cantidades = cantidadesPorPedido.get(i);
+            try {
+                Usuario usuario = usuarios.get(solicitud.usuarioId());
+                if (usuario == null) {
+                    throw new IllegalArgumentException("Usuario no encontrado con ID: " + solicitud.usuarioId());
+                }
+                for (Map.Entry<Long, Integer> cantidad : cantidades.entrySet()) {
+                    Producto producto = productos.get(cantidad.getKey());
+                    if (producto == null) {
+                        throw new IllegalArgumentException("Producto no encontrado con ID: " + cantidad.getKey());
+                    }
+                    if (!producto.isStockFraccionado() && disponible.getOrDefault(producto.getId(), 0) < cantidad.getValue()) {
+                        throw new IllegalArgumentException("No hay suficiente stock del producto: " + producto.getNombre());
+                    }
+                }
+
+                Map<Long, Integer> tomadas = reservas.tomar(cantidades);
+                try {
+                    descontarFracciones(cantidades, productos);
+                } catch (RuntimeException e) {
+                    // Rechazo del pedido o error que revierte el grupo: las unidades tomadas se devuelven ya
+                    if (!tomadas.isEmpty()) {
+                        reservas.liberar(tomadas);
+                    }
+                    throw e;
+                }
+                // Desde aquí las unidades siguen a la transacción del grupo: si cualquier pedido
+                // posterior la revierte, también se devuelven
+                if (!tomadas.isEmpty()) {
+                    reservas.confirmarTrasCompletar(tomadas);
+                }
+
+                // Pedido aceptado: el stock se descuenta en memoria y se guarda al final del grupo
+                for (Map.Entry<Long, Integer> cantidad : cantidades.entrySet()) {
+                    if (!productos.get(cantidad.getKey()).isStockFraccionado()) {
+                        disponible.merge(cantidad.getKey(), -cantidad.getValue(), Integer::sum);
+                        descuentos.merge(cantidad.getKey(), cantidad.getValue(), Integer::sum);
+                    }
+                }
+
+                for (ItemPedido item : solicitud.items()) {
+                    Producto producto = productos.get(item.getProducto().getId());
+                    item.setProducto(producto);
+                    item.setPrecio(producto.getPrecio());
+                }
+                Pedido pedido = new Pedido(usuario, calcularTotal(solicitud.items()), solicitud.items());
+                aceptados.add(pedido);
+                cantidadesAceptadas.add(cantidades);
+                resultados.add(ResultadoPedido.creado(pedido));
+            } catch (IllegalArgumentException e) {
+                resultados.add(ResultadoPedido.rechazado(e));
+            }
+        }
+        if (aceptados.isEmpty()) {
+            return resultados;
+        }
+
+        aplicarDescuentos(descuentos);
+        insertarPedidos(aceptados);
+
+        // Las entidades son de solo lectura: el stock se copia solo para las estructuras en memoria
+        Map<Long, Producto> modificados = new TreeMap<>();
+        for (Pedido pedido : aceptados) {
+            for (ItemPedido item : pedido.getItems()) {
+                modificados.put(item.getProducto().getId(), item.getProducto());
+            }
+        }
+        for (Producto producto : modificados.values()) {
+            producto.setStock(producto.isStockFraccionado()
+                    ? inventarioFraccionado.obtenerTotal(producto.getId()) : disponible.get(producto.getId()));
+        }
+        catalogoCache.invalidarTrasCommit(modificados.keySet());
+        sugerencias.actualizarTrasCommit(modificados.values());
+        disponibilidad.actualizarTrasCommit(modificados.values());
+        contadores.registrarCreadosTrasCommit(aceptados.size());
+        for (int i = 0; i < aceptados.size(); i++) {
+            Pedido pedido = aceptados.get(i);
+            eventos.publishEvent(new PedidoCreadoEvent(pedido.getId(), pedido.getFechaPedido(), pedido.getTotal(),
+                    cantidadesAceptadas.get(i)));
+        }
+
+        return resultados;
+    }
+
+    /**
+     * Bloquea las filas de los productos no fraccionados hasta el fin de la transacción
+     * @param ids IDs de los productos
+     * @return Stock actual por ID (los productos fraccionados o inexistentes no aparecen)
+     */
+    private Map<Long, Integer> bloquearStock(Collection<Long> ids) {
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query(String.format(SQL_BLOQUEAR_STOCK, marcadores(ids.size())),
+                (RowCallbackHandler) fila -> stock.put(fila.getLong(1), fila.getInt(2)), ids.toArray());
+        return stock;
+    }
+
+    /**
+     * Descuenta de sus fracciones los productos fraccionados de un pedido del grupo
+     * Si alguno no alcanza, acredita lo ya descontado para que el rechazo no afecte al resto del grupo
+     * @throws IllegalArgumentException si algún producto fraccionado no tiene stock suficiente
+     */
+    private void descontarFracciones(Map<Long, Integer> cantidades, Map<Long, Producto> productos) {
+        Map<Long, Integer> descontadas = new TreeMap<>();
+        for (Map.Entry<Long, Integer> cantidad : cantidades.entrySet()) {
+            Producto producto = productos.get(cantidad.getKey());
+            if (!producto.isStockFraccionado()) {
+                continue;
+            }
+            if (!inventarioFraccionado.descontar(producto.getId(), cantidad.getValue())) {
+                descontadas.forEach(inventarioFraccionado::acreditar);
+                throw new IllegalArgumentException("No hay suficiente stock del producto: " + producto.getNombre());
+            }
+            descontadas.put(producto.getId(), cantidad.getValue());
+        }
+    }
+
+    /**
+     * Descuenta en un solo lote el total aceptado de cada producto bloqueado del grupo
+     * @throws IllegalStateException si alguna fila no se modificó (el grupo completo se revierte)
+     */
+    private void aplicarDescuentos(Map<Long, Integer> descuentos) {
+        if (descuentos.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = new ArrayList<>(descuentos.keySet());
+        List<Object[]> parametros = new ArrayList<>(descuentos.size());
+        for (Long id : ids) {
+            parametros.add(new Object[] {descuentos.get(id), ahora, id, descuentos.get(id)});
+        }
+        int[] filasModificadas = jdbcTemplate.batchUpdate(SQL_DESCONTAR_STOCK, parametros);
+        for (int i = 0; i < filasModificadas.length; i++) {
+            if (filasModificadas[i] == 0) {
+                throw new IllegalStateException("El stock del producto " + ids.get(i) + " cambió durante el grupo de pedidos");
+            }
+        }
+    }
+
+    /**
+     * Inserta los pedidos y sus items con lotes JDBC y asigna los IDs generados a las entidades
+     * (Hibernate no agrupa los inserts de entidades con IDs IDENTITY)
+     */
+    private void insertarPedidos(List<Pedido> pedidos) {
+        List<ItemPedido> items = new ArrayList<>();
+        jdbcTemplate.execute((ConnectionCallback<Void>) conexion -> {
+            try (PreparedStatement sentencia = conexion.prepareStatement(SQL_INSERTAR_PEDIDO, Statement.RETURN_GENERATED_KEYS)) {
+                for (Pedido pedido : pedidos) {
+                    sentencia.setLong(1, pedido.getUsuario().getId());
+                    sentencia.setTimestamp(2, Timestamp.valueOf(pedido.getFechaPedido()));
+                    sentencia.setBigDecimal(3, pedido.getTotal());
+                    sentencia.setString(4, pedido.getEstado().name());
+                    sentencia.setTimestamp(5, Timestamp.valueOf(pedido.getFechaActualizacion()));
+                    sentencia.addBatch();
+                    items.addAll(pedido.getItems());
+                }
+                sentencia.executeBatch();
+                asignarIds(sentencia, pedidos, Pedido::setId);
+            }
+
+            try (PreparedStatement sentencia = conexion.prepareStatement(SQL_INSERTAR_ITEM, Statement.RETURN_GENERATED_KEYS)) {
+                for (ItemPedido item : items) {
+                    sentencia.setLong(1, item.getPedido().getId());
+                    sentencia.setLong(2, item.getProducto().getId());
+                    sentencia.setInt(3, item.getCantidad());
+                    sentencia.setBigDecimal(4, item.getPrecio());
+                    sentencia.addBatch();
+                }
+                sentencia.executeBatch();
+                asignarIds(sentencia, items, ItemPedido::setId);
+            }
+            return null;
+        });
+    }
+
+    private static <T> void asignarIds(Statement sentencia, List<T> entidades, BiConsumer<T, Long> asignador)
+            throws SQLException {
+        int i = 0;
+        try (ResultSet claves = sentencia.getGeneratedKeys()) {
+            while (claves.next() && i < entidades.size()) {
+                asignador.accept(entidades.get(i++), claves.getLong(1));
+            }
+        }
+        if (i != entidades.size()) {
+            throw new IllegalStateException("La base de datos no devolvió los IDs generados del lote");
+        }
+    }
+
+    /**
+     * Busca un pedido por su ID, con sus items y sus productos cargados en la misma consulta
+     * Si no está entre los pedidos activos se busca en el archivo (se devuelve como entidad no administrada)
      * @param id ID del pedido
      * @return Pedido encontrado
      * @throws IllegalArgumentException si no existe el pedido
      */
     public Pedido buscarPorId(Long id) {
-        return pedidoRepository.findById(id)
+        return pedidoRepository.buscarConItemsPorId(id)
+                .or(() -> archivo.buscar(id))
+                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
+    }
+
+    /**
+     * Obtiene la proyección de un pedido con sus items en una sola consulta
+     * @param id ID del pedido
+     * Si no está entre los pedidos activos se busca en el archivo
+     * @return Pedido con sus items y los nombres de sus productos
+     * @throws IllegalArgumentException si no existe el pedido
+     */
+    public PedidoDTO obtenerDetallePorId(Long id) {
+        List<PedidoDTO> pedidos = FilaPedido.agrupar(pedidoRepository.buscarFilasPorId(id));
+        if (pedidos.isEmpty()) {
+            pedidos = FilaPedido.agrupar(pedidoArchivadoRepository.buscarFilasPorId(id));
+        }
+        if (pedidos.isEmpty()) {
+            throw new IllegalArgumentException("Pedido no encontrado con ID: " + id);
+        }
+        return pedidos.get(0);
+    }
+
+    /**
+     * Obtiene la proyección de los pedidos de un usuario con sus items, activos y archivados
+     * (una consulta por tabla). Solo se verifica la existencia del usuario cuando no tiene pedidos
+     * @param usuarioId ID del usuario
+     * @return Pedidos del usuario, del más reciente al más antiguo
+     * @throws IllegalArgumentException si no existe el usuario
+     */
+    public List<PedidoDTO> obtenerDetallesPorUsuario(Long usuarioId) {
+        List<PedidoDTO> pedidos = new ArrayList<>(FilaPedido.agrupar(pedidoRepository.buscarFilasPorUsuario(usuarioId)));
+        List<PedidoDTO> archivados = FilaPedido.agrupar(pedidoArchivadoRepository.buscarFilasPorUsuario(usuarioId));
+        if (!archivados.isEmpty()) {
+            pedidos.addAll(archivados);
+            pedidos.sort(ORDEN_LISTADO);
+        }
+        if (pedidos.isEmpty() && !usuarioRepository.existsById(usuarioId)) {
+            throw new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId);
+        }
+        return pedidos;
+    }
+
+    /**
+     * Obtiene una página de los pedidos de un usuario usando paginación por cursor (keyset)
+     * El costo de cada página es el mismo sin importar cuántos pedidos tenga el usuario.
+     * La página combina los pedidos activos y los archivados
+     * @param usuarioId ID del usuario
+     * @param cursor Cursor devuelto por la página anterior (null para la primera página)
+     * @param limite Cantidad máxima de pedidos de la página (null usa el valor por defecto)
+     * @return Página de pedidos, del más reciente al más antiguo, con el cursor de la siguiente página
+     * @throws IllegalArgumentException si no existe el usuario, o el cursor o el límite no son válidos
+     */
+    public PaginaPedidos obtenerPaginaPorUsuario(Long usuarioId, String cursor, Integer limite) {
+        PedidoCursor despues = decodificarCursor(cursor);
+        Pageable pageable = PageRequest.of(0, validarLimite(limite));
+        LocalDateTime despuesFecha = despues != null ? despues.getFechaPedido() : null;
+        Long despuesId = despues != null ? despues.getId() : null;
+        Slice<PedidoRepository.ClavePedido> activos =
+                pedidoRepository.buscarClavesSiguientesPorUsuario(usuarioId, despuesFecha, despuesId, pageable);
+        Slice<PedidoRepository.ClavePedido> archivados =
+                pedidoArchivadoRepository.buscarClavesSiguientesPorUsuario(usuarioId, despuesFecha, despuesId, pageable);
+        if (!activos.hasContent() && !archivados.hasContent() && despues == null
+                && !usuarioRepository.existsById(usuarioId)) {
+            throw new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId);
+        }
+        return cargarPagina(activos, archivados, pageable.getPageSize());
+    }
+
+    /**
+     * Obtiene una página de los pedidos con un estado usando paginación por cursor (keyset)
+     * Solo los estados archivables se buscan también en el archivo
+     * @param estado Estado de los pedidos
+     * @param cursor Cursor devuelto por la página anterior (null para la primera página)
+     * @param limite Cantidad máxima de pedidos de la página (null usa el valor por defecto)
+     * @return Página de pedidos, del más reciente al más antiguo, con el cursor de la siguiente página
+     * @throws IllegalArgumentException si el cursor o el límite no son válidos
+     */
+    public PaginaPedidos obtenerPaginaPorEstado(EstadoPedido estado, String cursor, Integer limite) {
+        PedidoCursor despues = decodificarCursor(cursor);
+        Pageable pageable = PageRequest.of(0, validarLimite(limite));
+        LocalDateTime despuesFecha = despues != null ? despues.getFechaPedido() : null;
+        Long despuesId = despues != null ? despues.getId() : null;
+        Slice<PedidoRepository.ClavePedido> activos =
+                pedidoRepository.buscarClavesSiguientesPorEstado(estado, despuesFecha, despuesId, pageable);
+        Slice<PedidoRepository.ClavePedido> archivados = ArchivoPedidos.ESTADOS_ARCHIVABLES.contains(estado)
+                ? pedidoArchivadoRepository.buscarClavesSiguientesPorEstado(estado, despuesFecha, despuesId, pageable)
+                : new SliceImpl<>(List.of());
+        return cargarPagina(activos, archivados, pageable.getPageSize());
+    }
+
+    private PedidoCursor decodificarCursor(String cursor) {
+        return (cursor == null || cursor.trim().isEmpty()) ? null : PedidoCursor.decodificar(cursor.trim());
+    }
+
+    private int validarLimite(Integer limite) {
+        int tamanio = limite != null ? limite : LIMITE_POR_DEFECTO;
+        if (tamanio <= 0 || tamanio > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        return tamanio;
+    }
+
+    /**
+     * Combina las claves de los pedidos activos y archivados en el orden del listado, se queda con
+     * las primeras limite, carga esos pedidos con sus items (una consulta por tabla) y arma el cursor siguiente
+     */
+    private PaginaPedidos cargarPagina(Slice<PedidoRepository.ClavePedido> activos,
+                                       Slice<PedidoRepository.ClavePedido> archivados, int limite) {
+        List<PedidoRepository.ClavePedido> claves = new ArrayList<>(activos.getContent());
+        claves.addAll(archivados.getContent());
+        if (claves.isEmpty()) {
+            return new PaginaPedidos(List.of(), null);
+        }
+        claves.sort(Comparator.comparing(PedidoRepository.ClavePedido::getFechaPedido)
+                .thenComparing(PedidoRepository.ClavePedido::getId).reversed());
+        boolean hayMas = claves.size() > limite || activos.hasNext() || archivados.hasNext();
+        Set<Long> pagina = claves.subList(0, Math.min(limite, claves.size())).stream()
+                .map(PedidoRepository.ClavePedido::getId)
+                .collect(Collectors.toSet());
+
+        List<Long> idsActivos = new ArrayList<>();
+        for (PedidoRepository.ClavePedido clave : activos) {
+            if (pagina.contains(clave.getId())) {
+                idsActivos.add(clave.getId());
+            }
+        }
+        List<Long> idsArchivados = new ArrayList<>();
+        for (PedidoRepository.ClavePedido clave : archivados) {
+            if (pagina.contains(clave.getId())) {
+                idsArchivados.add(clave.getId());
+            }
+        }
+
+        List<PedidoDTO> pedidos = new ArrayList<>(pagina.size());
+        if (!idsActivos.isEmpty()) {
+            pedidos.addAll(FilaPedido.agrupar(pedidoRepository.buscarFilasPorIds(idsActivos)));
+        }
+        if (!idsArchivados.isEmpty()) {
+            pedidos.addAll(FilaPedido.agrupar(pedidoArchivadoRepository.buscarFilasPorIds(idsArchivados)));
+            pedidos.sort(ORDEN_LISTADO);
+        }
+        String siguienteCursor = hayMas && !pedidos.isEmpty()
+                ? PedidoCursor.despuesDe(pedidos.get(pedidos.size() - 1)).codificar()
+                : null;
+        return new PaginaPedidos(pedidos, siguienteCursor);
+    }
+
+    /**
+     * Obtiene la versión de un pedido sin cargar la entidad ni sus items
+     * @param id ID del pedido
+     * @return Estado y fecha de actualización del pedido
+     * @throws IllegalArgumentException si no existe el pedido
+     */
+    public PedidoRepository.VersionPedido obtenerVersion(Long id) {
+        return pedidoRepository.buscarVersionPorId(id)
+                .or(() -> pedidoArchivadoRepository.buscarVersionPorId(id))
                 .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
     }
 
     /**
-     * Obtiene todos los pedidos de un usuario
+     * Obtiene todos los pedidos de un usuario con sus items y sus productos, activos y archivados
+     * Se resuelve con una cantidad fija de consultas sin importar la cantidad de pedidos: la del usuario,
+     * la de los pedidos activos y, si tiene pedidos archivados, la del archivo y la de sus productos
      * @param usuarioId ID del usuario
-     * @return Lista de pedidos del usuario
+     * @return Lista de pedidos del usuario, del más reciente al más antiguo
      */
     public List<Pedido> obtenerPedidosPorUsuario(Long usuarioId) {
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId));
-        return pedidoRepository.findByUsuarioOrderByFechaPedidoDesc(usuario);
+        if (!usuarioRepository.existsById(usuarioId)) {
+            throw new IllegalArgumentException("Usuario no encontrado con ID: " + usuarioId);
+        }
+        List<Pedido> pedidos = pedidoRepository.buscarConItemsPorUsuario(usuarioId);
+        List<Pedido> archivados = archivo.buscarPorUsuario(usuarioId);
+        if (archivados.isEmpty()) {
+            return pedidos;
+        }
+        List<Pedido> todos = new ArrayList<>(pedidos);
+        todos.addAll(archivados);
+        todos.sort(Comparator.comparing(Pedido::getFechaPedido).thenComparing(Pedido::getId).reversed());
+        return todos;
     }
 
     /**
@@ -115,12 +706,27 @@ public class PedidoService {
 
     /**
      * Actualiza el estado de un pedido
+     * Un pedido archivado se restaura a las tablas activas en la misma transacción antes de modificarlo
      * @param id ID del pedido
      * @param estado Nuevo estado del pedido
      * @return Pedido actualizado
      */
+    @Transactional
     public Pedido actualizarEstado(Long id, EstadoPedido estado) {
-        Pedido pedido = buscarPorId(id);
+        Pedido pedido = pedidoRepository.buscarConItemsPorId(id)
+                .or(() -> archivo.restaurar(id) ? pedidoRepository.buscarConItemsPorId(id) : Optional.empty())
+                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado con ID: " + id));
+        EstadoPedido anterior = pedido.getEstado();
+        contadores.registrarCambioTrasCommit(anterior, estado);
+        if (anterior != estado && (estado == EstadoPedido.CANCELADO || anterior == EstadoPedido.CANCELADO)) {
+            Map<Long, Integer> unidades = new TreeMap<>();
+            for (ItemPedido item : pedido.getItems()) {
+                unidades.merge(item.getProducto().getId(), item.getCantidad(), Integer::sum);
+            }
+            eventos.publishEvent(estado == EstadoPedido.CANCELADO
+                    ? new PedidoCanceladoEvent(id, pedido.getFechaPedido(), pedido.getTotal(), unidades)
+                    : new PedidoCreadoEvent(id, pedido.getFechaPedido(), pedido.getTotal(), unidades));
+        }
         pedido.setEstado(estado);
         return pedidoRepository.save(pedido);
     }
@@ -128,27 +734,142 @@ public class PedidoService {
     /**
      * Cancela un pedido y restaura el stock
      * @param id ID del pedido a cancelar
-     * @return Pedido cancelado
+     * @throws IllegalArgumentException si el pedido no existe, ya fue entregado o ya está cancelado
      */
-    @Transactional
-    public Pedido cancelarPedido(Long id) {
-        Pedido pedido = buscarPorId(id);
-        
-        // Verificar que el pedido pueda ser cancelado
-        if (pedido.getEstado() == EstadoPedido.ENTREGADO) {
-            throw new IllegalArgumentException("No se puede cancelar un pedido ya entregado");
-        }
-        
-        // Restaurar el stock de los productos
-        for (ItemPedido item : pedido.getItems()) {
-            Producto producto = item.getProducto();
-            producto.setStock(producto.getStock() + item.getCantidad());
-            productoRepository.save(producto);
-        }
-        
-        // Cambiar el estado a cancelado
-        pedido.setEstado(EstadoPedido.CANCELADO);
-        return pedidoRepository.save(pedido);
+    public void cancelarPedido(Long id) {
+        String rechazo = cancelarPedidos(Collections.singletonList(id)).rechazados().get(id);
+        if (rechazo != null) {
+            throw new IllegalArgumentException(rechazo);
+        }
+    }
+
+    /**
+     * Cancela varios pedidos en una sola transacción y restaura su stock
+     * Bloquea las filas de los pedidos en orden de ID y restaura el stock de todos los productos
+     * con un solo UPDATE sobre items_pedido, sin cargar pedidos, items ni productos como entidades.
+     * Los pedidos que no se pueden cancelar se informan sin afectar a los demás
+     * @param ids IDs de los pedidos a cancelar (hasta LIMITE_CANCELACION_MASIVA)
+     * @return Pedidos cancelados y motivo de rechazo de los demás
+     * @throws IllegalArgumentException si no se indican IDs o se indican demasiados
+     * @throws IllegalStateException si la cancelación sigue en conflicto después de los reintentos
+     */
+    public ResultadoCancelacion cancelarPedidos(Collection<Long> ids) {
+        Set<Long> unicos = new TreeSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                unicos.add(id);
+            }
+        }
+        if (unicos.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un pedido");
+        }
+        if (unicos.size() > LIMITE_CANCELACION_MASIVA) {
+            throw new IllegalArgumentException("No se pueden cancelar más de " + LIMITE_CANCELACION_MASIVA
+                    + " pedidos a la vez");
+        }
+        return reintentos.ejecutar("cancelarPedidos",
+                () -> transaccion.execute(estado -> cancelarEnTransaccion(unicos)));
+    }
+
+    private ResultadoCancelacion cancelarEnTransaccion(Set<Long> unicos) {
+
+        Map<Long, EstadoPedido> estados = new HashMap<>();
+        Map<Long, LocalDateTime> fechas = new HashMap<>();
+        Map<Long, BigDecimal> totales = new HashMap<>();
+        jdbcTemplate.query(String.format(SQL_BLOQUEAR_PEDIDOS, marcadores(unicos.size())),
+                (RowCallbackHandler) fila -> {
+                    estados.put(fila.getLong(1), EstadoPedido.valueOf(fila.getString(2)));
+                    fechas.put(fila.getLong(1), fila.getTimestamp(3).toLocalDateTime());
+                    totales.put(fila.getLong(1), fila.getBigDecimal(4));
+                }, unicos.toArray());
+
+        // Los pedidos que no están entre los activos pueden estar archivados (entregados o cancelados)
+        List<Long> faltantes = unicos.stream().filter(id -> !estados.containsKey(id)).collect(Collectors.toList());
+        if (!faltantes.isEmpty()) {
+            jdbcTemplate.query(String.format(SQL_ESTADOS_ARCHIVADOS, marcadores(faltantes.size())),
+                    (RowCallbackHandler) fila -> estados.put(fila.getLong(1), EstadoPedido.valueOf(fila.getString(2))),
+                    faltantes.toArray());
+        }
+
+        List<Long> cancelables = new ArrayList<>();
+        Map<Long, String> rechazados = new TreeMap<>();
+        for (Long id : unicos) {
+            EstadoPedido estado = estados.get(id);
+            if (estado == null) {
+                rechazados.put(id, "Pedido no encontrado con ID: " + id);
+            } else if (estado == EstadoPedido.ENTREGADO) {
+                rechazados.put(id, "No se puede cancelar un pedido ya entregado");
+            } else if (estado == EstadoPedido.CANCELADO) {
+                rechazados.put(id, "El pedido ya está cancelado");
+            } else {
+                cancelables.add(id);
+            }
+        }
+        if (cancelables.isEmpty()) {
+            return new ResultadoCancelacion(cancelables, rechazados);
+        }
+
+        String marcadores = marcadores(cancelables.size());
+        Object[] pedidoIds = cancelables.toArray();
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+        // Los productos fraccionados devuelven las unidades a sus fracciones
+        Map<Long, Integer> fraccionadas = new TreeMap<>();
+        jdbcTemplate.query(String.format(SQL_CANTIDADES_FRACCIONADAS, marcadores),
+                (RowCallbackHandler) fila -> fraccionadas.put(fila.getLong(1), fila.getInt(2)), pedidoIds);
+        fraccionadas.forEach(inventarioFraccionado::acreditar);
+
+        // Un solo UPDATE suma a cada producto las unidades de todos los pedidos cancelados
+        List<Object> parametros = new ArrayList<>(cancelables.size() * 2 + 1);
+        parametros.addAll(cancelables);
+        parametros.add(ahora);
+        parametros.addAll(cancelables);
+        jdbcTemplate.update(String.format(SQL_RESTAURAR_STOCK, marcadores), parametros.toArray());
+
+        List<Object> marcarParametros = new ArrayList<>(cancelables.size() + 2);
+        marcarParametros.add(EstadoPedido.CANCELADO.name());
+        marcarParametros.add(ahora);
+        marcarParametros.addAll(cancelables);
+        jdbcTemplate.update(String.format(SQL_MARCAR_CANCELADOS, marcadores), marcarParametros.toArray());
+
+        // El stock restaurado se lee con una consulta para actualizar las estructuras en memoria
+        List<Producto> productos = jdbcTemplate.query(String.format(SQL_PRODUCTOS_DE_PEDIDOS, marcadores),
+                (fila, numero) -> {
+                    Producto producto = new Producto();
+                    producto.setId(fila.getLong(1));
+                    producto.setNombre(fila.getString(2));
+                    producto.setStockFraccionado(fila.getBoolean(4));
+                    producto.setStock(producto.isStockFraccionado()
+                            ? inventarioFraccionado.obtenerTotal(producto.getId()) : fila.getInt(3));
+                    return producto;
+                }, pedidoIds);
+        List<Long> productosModificados = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            productosModificados.add(producto.getId());
+        }
+        catalogoCache.invalidarTrasCommit(productosModificados);
+        sugerencias.actualizarTrasCommit(productos);
+        disponibilidad.actualizarTrasCommit(productos);
+        reservas.sincronizarTrasCommit(productos);
+        for (Long id : cancelables) {
+            contadores.registrarCambioTrasCommit(estados.get(id), EstadoPedido.CANCELADO);
+        }
+
+        // Las unidades de cada pedido cancelado se informan a los oyentes (por ejemplo, los reportes de ventas)
+        Map<Long, Map<Long, Integer>> unidades = new HashMap<>();
+        jdbcTemplate.query(String.format(SQL_UNIDADES_DE_PEDIDOS, marcadores), (RowCallbackHandler) fila ->
+                unidades.computeIfAbsent(fila.getLong(1), pedidoId -> new TreeMap<>())
+                        .put(fila.getLong(2), fila.getInt(3)), pedidoIds);
+        for (Long id : cancelables) {
+            eventos.publishEvent(new PedidoCanceladoEvent(id, fechas.get(id), totales.get(id),
+                    unidades.getOrDefault(id, Map.of())));
+        }
+
+        return new ResultadoCancelacion(cancelables, rechazados);
+    }
+
+    private static String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
     }
 
     /**
@@ -168,8 +889,7 @@ public class PedidoService {
      * @return Lista de items del pedido
      */
     public List<ItemPedido> obtenerItemsPorPedido(Long pedidoId) {
-        Pedido pedido = buscarPorId(pedidoId);
-        return itemPedidoRepository.findByPedido(pedido);
+        return buscarPorId(pedidoId).getItems();
     }
 
     /**
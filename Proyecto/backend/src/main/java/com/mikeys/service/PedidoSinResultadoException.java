@@ -0,0 +1,14 @@
+package com.mikeys.service;
+
+/**
+ * El pedido ya formaba parte de una transacción en curso cuando terminó la espera de su resultado:
+ * esa transacción todavía puede confirmarse, así que no se sabe si el pedido se creó
+ * Quien la reciba no debe permitir que el mismo pedido se vuelva a crear automáticamente
+ * (por ejemplo, liberando su clave de idempotencia)
+ */
+public class PedidoSinResultadoException extends IllegalStateException {
+
+    public PedidoSinResultadoException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,118 @@
+package com.mikeys.service;
+
+import com.mikeys.dto.ProductoDTO;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para la paginación por clave (keyset) del catálogo
+ * Guarda el criterio de orden y la clave del último producto entregado,
+ * de modo que cada página se obtiene con un WHERE sobre el índice y no con OFFSET
+ */
+public final class ProductoCursor {
+
+    private static final String SEPARADOR = "|";
+
+    private final OrdenProducto orden;
+    private final Long id;
+    private final BigDecimal precio;
+    private final LocalDateTime fechaCreacion;
+
+    private ProductoCursor(OrdenProducto orden, Long id, BigDecimal precio, LocalDateTime fechaCreacion) {
+        this.orden = orden;
+        this.id = id;
+        this.precio = precio;
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    /**
+     * Crea el cursor que apunta justo después del producto indicado
+     * @param orden Criterio de orden de la página
+     * @param producto Último producto de la página
+     * @return Cursor posicionado tras el producto
+     */
+    public static ProductoCursor despuesDe(OrdenProducto orden, ProductoDTO producto) {
+        return new ProductoCursor(orden, producto.id(), producto.precio(), producto.fechaCreacion());
+    }
+
+    /**
+     * Codifica el cursor como texto opaco apto para URLs
+     * @return Cursor codificado en Base64 URL-safe
+     */
+    public String codificar() {
+        String valor;
+        switch (orden) {
+            case PRECIO:
+                valor = precio.toPlainString();
+                break;
+            case FECHA_CREACION:
+                valor = fechaCreacion.toString();
+                break;
+            default:
+                valor = "";
+                break;
+        }
+        String plano = orden.getParametro() + SEPARADOR + id + SEPARADOR + valor;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor recibido en la petición
+     * @param cursor Texto opaco generado por {@link #codificar()}
+     * @param ordenEsperado Criterio de orden de la petición actual
+     * @return Cursor decodificado
+     * @throws IllegalArgumentException si el cursor es inválido o fue generado con otro orden
+     */
+    public static ProductoCursor decodificar(String cursor, OrdenProducto ordenEsperado) {
+        ProductoCursor decodificado;
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = plano.split("\\|", -1);
+            if (partes.length != 3) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+
+            OrdenProducto orden = OrdenProducto.desdeParametro(partes[0]);
+            Long id = Long.valueOf(partes[1]);
+            BigDecimal precio = orden == OrdenProducto.PRECIO ? new BigDecimal(partes[2]) : null;
+            LocalDateTime fecha = orden == OrdenProducto.FECHA_CREACION ? LocalDateTime.parse(partes[2]) : null;
+            decodificado = new ProductoCursor(orden, id, precio, fecha);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+
+        if (decodificado.orden != ordenEsperado) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+        return decodificado;
+    }
+
+    /**
+     * Indica si un producto va después del cursor según su criterio de orden
+     * @param producto Producto a comparar
+     * @return true si el producto pertenece a páginas posteriores al cursor
+     */
+    public boolean precede(ProductoDTO producto) {
+        ProductoDTO clave = new ProductoDTO(id, null, null, precio, null, null, fechaCreacion, null);
+        return orden.comparador().compare(clave, producto) < 0;
+    }
+
+    public OrdenProducto getOrden() {
+        return orden;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public BigDecimal getPrecio() {
+        return precio;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+}
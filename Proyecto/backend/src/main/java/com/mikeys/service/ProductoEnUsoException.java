@@ -0,0 +1,13 @@
+package com.mikeys.service;
+
+/**
+ * El producto no se puede eliminar porque otros registros que deben conservarse lo referencian
+ * (por ejemplo, pedidos archivados que se pueden restaurar)
+ * Reintentar la operación no cambia el resultado
+ */
+public class ProductoEnUsoException extends IllegalStateException {
+
+    public ProductoEnUsoException(String mensaje) {
+        super(mensaje);
+    }
+}
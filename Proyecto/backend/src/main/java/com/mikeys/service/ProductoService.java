@@ -1,12 +1,23 @@
 package com.mikeys.service;
 
+import com.mikeys.dto.ProductoDTO;
 import com.mikeys.model.Producto;
+import com.mikeys.repository.PedidoArchivadoRepository;
 import com.mikeys.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Servicio de negocio para gestionar productos
@@ -15,11 +26,42 @@ import java.util.List;
 @Service
 public class ProductoService {
 
+    /** Tamaño de página usado cuando la petición no indica un límite */
+    public static final int LIMITE_POR_DEFECTO = 20;
+
+    /** Tamaño máximo de página permitido */
+    public static final int LIMITE_MAXIMO = 100;
+
     private final ProductoRepository productoRepository;
+    private final PedidoArchivadoRepository pedidoArchivadoRepository;
+    private final CatalogoCache catalogoCache;
+    private final IndiceBusquedaProductos indiceBusqueda;
+    private final SugerenciasProductos sugerencias;
+    private final IndicePrecios indicePrecios;
+    private final DisponibilidadProductos disponibilidad;
+    private final ReservasStock reservas;
+    private final InventarioFraccionado inventarioFraccionado;
+    private final ReintentosConcurrencia reintentos;
+    private final TransactionTemplate transaccion;
 
     @Autowired
-    public ProductoService(ProductoRepository productoRepository) {
+    public ProductoService(ProductoRepository productoRepository, PedidoArchivadoRepository pedidoArchivadoRepository,
+                           CatalogoCache catalogoCache,
+                           IndiceBusquedaProductos indiceBusqueda, SugerenciasProductos sugerencias,
+                           IndicePrecios indicePrecios, DisponibilidadProductos disponibilidad,
+                           ReservasStock reservas, InventarioFraccionado inventarioFraccionado,
+                           ReintentosConcurrencia reintentos, PlatformTransactionManager transactionManager) {
         this.productoRepository = productoRepository;
+        this.pedidoArchivadoRepository = pedidoArchivadoRepository;
+        this.catalogoCache = catalogoCache;
+        this.indiceBusqueda = indiceBusqueda;
+        this.sugerencias = sugerencias;
+        this.indicePrecios = indicePrecios;
+        this.disponibilidad = disponibilidad;
+        this.reservas = reservas;
+        this.inventarioFraccionado = inventarioFraccionado;
+        this.reintentos = reintentos;
+        this.transaccion = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -28,101 +70,385 @@ public class ProductoService {
      * @return Producto creado
      */
     public Producto crearProducto(Producto producto) {
+        validarProducto(producto);
+
+        Producto productoGuardado = productoRepository.save(producto);
+        catalogoCache.invalidarTrasCommit(productoGuardado.getId());
+        indiceBusqueda.actualizar(productoGuardado);
+        sugerencias.actualizar(productoGuardado);
+        indicePrecios.actualizar(productoGuardado);
+        disponibilidad.actualizarTrasCommit(productoGuardado);
+        return productoGuardado;
+    }
+
+    /**
+     * Valida los datos de un producto antes de guardarlo
+     * Se usa al crear productos y en la importación masiva
+     * @param producto Producto a validar
+     * @throws IllegalArgumentException si algún dato no es válido
+     */
+    public void validarProducto(Producto producto) {
+        if (producto.getNombre() == null || producto.getNombre().trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre del producto es obligatorio");
+        }
+        if (producto.getNombre().length() > 100) {
+            throw new IllegalArgumentException("El nombre no puede exceder 100 caracteres");
+        }
+        if (producto.getDescripcion() == null || producto.getDescripcion().trim().isEmpty()) {
+            throw new IllegalArgumentException("La descripción del producto es obligatoria");
+        }
+        if (producto.getDescripcion().length() > 500) {
+            throw new IllegalArgumentException("La descripción no puede exceder 500 caracteres");
+        }
+        if (producto.getImagen() != null && producto.getImagen().length() > 255) {
+            throw new IllegalArgumentException("La URL de la imagen no puede exceder 255 caracteres");
+        }
+
         // Validar que el precio sea positivo
+        if (producto.getPrecio() == null) {
+            throw new IllegalArgumentException("El precio del producto es obligatorio");
+        }
         if (producto.getPrecio().compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("El precio debe ser mayor a 0");
         }
 
         // Validar que el stock no sea negativo
+        if (producto.getStock() == null) {
+            throw new IllegalArgumentException("El stock del producto es obligatorio");
+        }
         if (producto.getStock() < 0) {
             throw new IllegalArgumentException("El stock no puede ser negativo");
         }
+    }
 
-        return productoRepository.save(producto);
+    /**
+     * Recarga desde la base de datos todas las estructuras en memoria del catálogo
+     * Se usa tras escrituras masivas que no pasan por los métodos de este servicio
+     */
+    public void recargarCatalogoEnMemoria() {
+        catalogoCache.limpiar();
+        indiceBusqueda.reconstruir();
+        sugerencias.reconstruir();
+        indicePrecios.reconstruir();
+        disponibilidad.reconciliar();
+        reservas.reconciliar();
     }
 
     /**
      * Busca un producto por su ID
+     * La lectura se atiende desde la caché del catálogo cuando es posible
      * @param id ID del producto
-     * @return Producto encontrado
+     * @return Proyección del producto encontrado
      * @throws IllegalArgumentException si no existe el producto
      */
-    public Producto buscarPorId(Long id) {
-        return productoRepository.findById(id)
+    public ProductoDTO buscarPorId(Long id) {
+        return catalogoCache.obtener(id, () -> productoRepository.buscarProyeccionPorId(id))
                 .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado con ID: " + id));
     }
 
     /**
      * Obtiene todos los productos
+     * La lectura se atiende desde la caché del catálogo cuando es posible
      * @return Lista de todos los productos
      */
-    public List<Producto> obtenerTodos() {
-        return productoRepository.findAll();
+    public List<ProductoDTO> obtenerTodos() {
+        return catalogoCache.obtenerCatalogo(productoRepository::buscarProyecciones);
+    }
+
+    /**
+     * Busca varios productos por su ID en una sola operación
+     * Los que están en caché se responden desde memoria y el resto se carga con una sola consulta IN
+     * @param ids IDs de los productos (los repetidos se consideran una sola vez)
+     * @return Productos encontrados en el orden pedido y los IDs que no existen
+     * @throws IllegalArgumentException si no se indican IDs o se piden más de LIMITE_MAXIMO
+     */
+    public LoteProductos buscarPorIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un ID de producto");
+        }
+        List<Long> unicos = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (unicos.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un ID de producto");
+        }
+        if (unicos.size() > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("No se pueden consultar más de " + LIMITE_MAXIMO + " productos a la vez");
+        }
+
+        Map<Long, ProductoDTO> encontrados = catalogoCache.obtenerVarios(unicos,
+                productoRepository::buscarProyeccionesPorIds);
+        List<ProductoDTO> productos = new ArrayList<>(unicos.size());
+        List<Long> idsNoEncontrados = new ArrayList<>();
+        for (Long id : unicos) {
+            ProductoDTO producto = encontrados.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            } else {
+                idsNoEncontrados.add(id);
+            }
+        }
+        return new LoteProductos(productos, idsNoEncontrados);
+    }
+
+    /**
+     * Obtiene la versión actual del catálogo, usada para construir ETag
+     * @return Versión opaca que cambia con cada escritura de productos
+     */
+    public String obtenerVersionCatalogo() {
+        return catalogoCache.getVersion();
+    }
+
+    /**
+     * Obtiene el instante de la última modificación del catálogo, usado para Last-Modified
+     * @return Epoch en milisegundos
+     */
+    public long obtenerUltimaModificacionCatalogo() {
+        return catalogoCache.getUltimaModificacion();
     }
 
     /**
      * Obtiene todos los productos disponibles (con stock > 0)
+     * La disponibilidad se toma del conjunto en memoria y los datos de la caché del catálogo
      * @return Lista de productos disponibles
      */
-    public List<Producto> obtenerProductosDisponibles() {
-        return productoRepository.findByStockGreaterThan(0);
+    public List<ProductoDTO> obtenerProductosDisponibles() {
+        return catalogoCache.obtenerCatalogo(productoRepository::buscarProyecciones).stream()
+                .filter(producto -> disponibilidad.estaDisponible(producto.id()))
+                .collect(Collectors.toList());
     }
 
     /**
-     * Busca productos por nombre
-     * @param nombre Nombre o parte del nombre del producto
-     * @return Lista de productos que coinciden
+     * Obtiene una página del catálogo usando paginación por cursor (keyset)
+     * El costo de cada página es el mismo sin importar su profundidad,
+     * ya que se filtra por la clave del último producto entregado en lugar de usar OFFSET
+     * @param nombre Texto a buscar con el índice en memoria (null o vacío para no filtrar)
+     * @param soloDisponibles true para devolver solo productos con stock > 0
+     * @param orden Criterio de orden (id, precio o fecha_creacion)
+     * @param cursor Cursor devuelto por la página anterior (null para la primera página)
+     * @param limite Cantidad máxima de productos de la página (null usa el valor por defecto)
+     * @return Página de productos con el cursor de la siguiente página
+     * @throws IllegalArgumentException si el orden, el cursor o el límite no son válidos
      */
-    public List<Producto> buscarPorNombre(String nombre) {
-        return productoRepository.findByNombreContainingIgnoreCase(nombre);
+    public PaginaProductos obtenerPagina(String nombre, boolean soloDisponibles, String orden,
+                                         String cursor, Integer limite) {
+        return obtenerPagina(nombre, soloDisponibles, orden, cursor, limite, null, null);
+    }
+
+    /**
+     * Obtiene una página del catálogo usando paginación por cursor, acotada a un rango de precio
+     * Los listados del catálogo completo ordenados por precio se resuelven con el índice de precios
+     * en memoria y solo se cargan (desde la caché o con una consulta IN) los productos de la página
+     * @param nombre Texto a buscar con el índice en memoria (null o vacío para no filtrar)
+     * @param soloDisponibles true para devolver solo productos con stock > 0
+     * @param orden Criterio de orden (id, precio o fecha_creacion); con rango de precio debe ser precio
+     * @param cursor Cursor devuelto por la página anterior (null para la primera página)
+     * @param limite Cantidad máxima de productos de la página (null usa el valor por defecto)
+     * @param minPrecio Precio mínimo incluido (null para no acotar)
+     * @param maxPrecio Precio máximo incluido (null para no acotar)
+     * @return Página de productos con el cursor de la siguiente página
+     * @throws IllegalArgumentException si el orden, el cursor, el límite o el rango no son válidos
+     */
+    public PaginaProductos obtenerPagina(String nombre, boolean soloDisponibles, String orden,
+                                         String cursor, Integer limite,
+                                         BigDecimal minPrecio, BigDecimal maxPrecio) {
+        boolean conRango = minPrecio != null || maxPrecio != null;
+        if (conRango) {
+            validarRangoPrecio(minPrecio, maxPrecio);
+            if (orden == null) {
+                orden = "precio";
+            }
+        }
+        OrdenProducto ordenProducto = OrdenProducto.desdeParametro(orden);
+        if (conRango && ordenProducto != OrdenProducto.PRECIO) {
+            throw new IllegalArgumentException("El filtro por rango de precio solo admite el orden por precio");
+        }
+        ProductoCursor despues = (cursor == null || cursor.trim().isEmpty())
+                ? null : ProductoCursor.decodificar(cursor.trim(), ordenProducto);
+
+        int tamanio = limite != null ? limite : LIMITE_POR_DEFECTO;
+        if (tamanio <= 0 || tamanio > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+
+        if (nombre != null && !nombre.trim().isEmpty()) {
+            // Las búsquedas se resuelven con el índice en memoria y se paginan sobre sus resultados
+            List<ProductoDTO> encontrados = buscarPorNombre(nombre);
+            if (soloDisponibles) {
+                encontrados.removeIf(producto -> producto.stock() <= 0);
+            }
+            if (conRango) {
+                encontrados.removeIf(producto -> !enRango(producto.precio(), minPrecio, maxPrecio));
+            }
+            return paginarEnMemoria(encontrados, ordenProducto, despues, tamanio);
+        }
+
+        if (ordenProducto == OrdenProducto.PRECIO) {
+            // El índice de precios entrega los IDs de la página sin consultar la base de datos
+            List<Long> ids = indicePrecios.buscar(minPrecio, maxPrecio,
+                    despues != null ? despues.getPrecio() : null,
+                    despues != null ? despues.getId() : null, tamanio + 1,
+                    soloDisponibles ? disponibilidad::estaDisponible : null);
+            return paginaDesdeIds(ids, ordenProducto, tamanio);
+        }
+
+        if (ordenProducto == OrdenProducto.ID && soloDisponibles) {
+            // El conjunto de disponibilidad entrega los IDs de la página sin consultar la base de datos
+            List<Long> ids = disponibilidad.siguientes(despues != null ? despues.getId() : null, tamanio + 1);
+            return paginaDesdeIds(ids, ordenProducto, tamanio);
+        }
+
+        Pageable pageable = PageRequest.of(0, tamanio);
+        Long despuesId = despues != null ? despues.getId() : null;
+
+        Slice<ProductoDTO> porcion;
+        switch (ordenProducto) {
+            case PRECIO:
+                porcion = productoRepository.buscarSiguientesPorPrecio(soloDisponibles,
+                        despues != null ? despues.getPrecio() : null, despuesId, pageable);
+                break;
+            case FECHA_CREACION:
+                porcion = productoRepository.buscarSiguientesPorFechaCreacion(soloDisponibles,
+                        despues != null ? despues.getFechaCreacion() : null, despuesId, pageable);
+                break;
+            default:
+                porcion = productoRepository.buscarSiguientesPorId(soloDisponibles,
+                        despuesId, pageable);
+                break;
+        }
+
+        List<ProductoDTO> productos = porcion.getContent();
+        String siguienteCursor = porcion.hasNext() && !productos.isEmpty()
+                ? ProductoCursor.despuesDe(ordenProducto, productos.get(productos.size() - 1)).codificar()
+                : null;
+        return new PaginaProductos(productos, siguienteCursor);
+    }
+
+    /**
+     * Busca productos por nombre o descripción usando el índice invertido en memoria
+     * Ignora tildes y mayúsculas, admite varias palabras y ordena por relevancia
+     * @param nombre Texto a buscar (una o varias palabras, completas o parciales)
+     * @return Lista de productos que coinciden, del más al menos relevante
+     */
+    public List<ProductoDTO> buscarPorNombre(String nombre) {
+        return resolverEnOrden(indiceBusqueda.buscar(nombre));
+    }
+
+    /**
+     * Obtiene sugerencias de autocompletado para un prefijo
+     * Se responden desde el árbol de prefijos en memoria, sin acceder a la base de datos
+     * @param prefijo Texto escrito por el usuario
+     * @param limite Cantidad máxima de sugerencias (null usa 10)
+     * @return Sugerencias ordenadas por stock descendente
+     */
+    public List<SugerenciaProducto> sugerir(String prefijo, Integer limite) {
+        return sugerencias.sugerir(prefijo, limite != null ? limite : 10);
     }
 
     /**
      * Actualiza un producto existente
+     * Si otra operación modificó el producto entre la lectura y el guardado (su versión cambió),
+     * la actualización se vuelve a aplicar sobre los datos nuevos
      * @param id ID del producto a actualizar
      * @param producto Datos actualizados del producto
      * @return Producto actualizado
+     * @throws IllegalStateException si el producto sigue en conflicto después de los reintentos
      */
     public Producto actualizarProducto(Long id, Producto producto) {
-        Producto productoExistente = buscarPorId(id);
-        
-        // Actualizar campos
-        productoExistente.setNombre(producto.getNombre());
-        productoExistente.setDescripcion(producto.getDescripcion());
-        productoExistente.setPrecio(producto.getPrecio());
-        productoExistente.setStock(producto.getStock());
-        productoExistente.setImagen(producto.getImagen());
-        
-        return productoRepository.save(productoExistente);
+        Producto productoGuardado = reintentos.ejecutar("actualizarProducto", () -> transaccion.execute(estado -> {
+            Producto productoExistente = buscarEntidad(id);
+
+            // Actualizar campos
+            productoExistente.setNombre(producto.getNombre());
+            productoExistente.setDescripcion(producto.getDescripcion());
+            productoExistente.setPrecio(producto.getPrecio());
+            productoExistente.setStock(producto.getStock());
+            productoExistente.setImagen(producto.getImagen());
+            if (productoExistente.isStockFraccionado()) {
+                inventarioFraccionado.fijarTotal(id, producto.getStock());
+            }
+
+            // El flush verifica la versión antes de actualizar las estructuras en memoria
+            return productoRepository.saveAndFlush(productoExistente);
+        }));
+        catalogoCache.invalidarTrasCommit(id);
+        indiceBusqueda.actualizar(productoGuardado);
+        sugerencias.actualizar(productoGuardado);
+        indicePrecios.actualizar(productoGuardado);
+        disponibilidad.actualizarTrasCommit(productoGuardado);
+        reservas.sincronizarTrasCommit(productoGuardado);
+        return productoGuardado;
     }
 
     /**
      * Actualiza el stock de un producto
+     * Si otra operación modificó el producto entre la lectura y el guardado (su versión cambió),
+     * la cantidad se vuelve a aplicar sobre el stock nuevo, de modo que ningún cambio se pierde
      * @param id ID del producto
      * @param cantidad Cantidad a agregar (positivo) o restar (negativo)
      * @return Producto actualizado
+     * @throws IllegalStateException si el producto sigue en conflicto después de los reintentos
      */
     public Producto actualizarStock(Long id, Integer cantidad) {
-        Producto producto = buscarPorId(id);
-        int nuevoStock = producto.getStock() + cantidad;
-        
-        if (nuevoStock < 0) {
-            throw new IllegalArgumentException("No hay suficiente stock disponible");
-        }
-        
-        producto.setStock(nuevoStock);
-        return productoRepository.save(producto);
+        Producto productoGuardado = reintentos.ejecutar("actualizarStock", () -> transaccion.execute(estado -> {
+            Producto producto = buscarEntidad(id);
+            int nuevoStock;
+            if (producto.isStockFraccionado()) {
+                if (cantidad >= 0) {
+                    inventarioFraccionado.acreditar(id, cantidad);
+                } else if (!inventarioFraccionado.descontar(id, -cantidad)) {
+                    throw new IllegalArgumentException("No hay suficiente stock disponible");
+                }
+                nuevoStock = inventarioFraccionado.obtenerTotal(id);
+            } else {
+                nuevoStock = producto.getStock() + cantidad;
+            }
+
+            if (nuevoStock < 0) {
+                throw new IllegalArgumentException("No hay suficiente stock disponible");
+            }
+
+            producto.setStock(nuevoStock);
+            return productoRepository.saveAndFlush(producto);
+        }));
+        catalogoCache.invalidarTrasCommit(id);
+        sugerencias.actualizar(productoGuardado);
+        disponibilidad.actualizarTrasCommit(productoGuardado);
+        reservas.sincronizarTrasCommit(productoGuardado);
+        return productoGuardado;
     }
 
     /**
      * Elimina un producto por su ID
+     * Las fracciones de stock y el producto se eliminan en la misma transacción, de modo que
+     * si el borrado falla el producto conserva sus fracciones; las estructuras en memoria
+     * se actualizan solo tras el commit
      * @param id ID del producto a eliminar
+     * @throws IllegalArgumentException si no existe el producto
+     * @throws ProductoEnUsoException si el producto aparece en pedidos archivados, que deben
+     *         poder restaurarse a las tablas activas
      */
     public void eliminarProducto(Long id) {
-        if (!productoRepository.existsById(id)) {
-            throw new IllegalArgumentException("Producto no encontrado con ID: " + id);
-        }
-        productoRepository.deleteById(id);
+        reintentos.ejecutar("eliminarProducto", () -> transaccion.execute(estado -> {
+            if (!productoRepository.existsById(id)) {
+                throw new IllegalArgumentException("Producto no encontrado con ID: " + id);
+            }
+            if (pedidoArchivadoRepository.existeItemConProducto(id)) {
+                throw new ProductoEnUsoException(
+                        "El producto con ID " + id + " aparece en pedidos archivados y no se puede eliminar");
+            }
+            inventarioFraccionado.eliminarFracciones(id);
+            productoRepository.deleteById(id);
+            productoRepository.flush();
+            return id;
+        }));
+        catalogoCache.invalidarTrasCommit(id);
+        indiceBusqueda.eliminar(id);
+        sugerencias.eliminar(id);
+        indicePrecios.eliminar(id);
+        disponibilidad.retirarTrasCommit(id);
+        reservas.desactivar(id);
     }
 
     /**
@@ -131,17 +457,108 @@ public class ProductoService {
      * @return true si tiene stock, false en caso contrario
      */
     public boolean estaDisponible(Long id) {
-        Producto producto = buscarPorId(id);
-        return producto.getStock() > 0;
+        return disponibilidad.estaDisponible(id);
     }
 
     /**
      * Obtiene productos por rango de precio
      * @param minPrecio Precio mínimo
      * @param maxPrecio Precio máximo
-     * @return Lista de productos en el rango de precio
+     * @return Lista de productos en el rango de precio, del más barato al más caro
+     * @throws IllegalArgumentException si el rango no es válido
+     */
+    public List<ProductoDTO> obtenerPorRangoPrecio(BigDecimal minPrecio, BigDecimal maxPrecio) {
+        validarRangoPrecio(minPrecio, maxPrecio);
+        return resolverEnOrden(indicePrecios.buscar(minPrecio, maxPrecio, null, null, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Busca la entidad gestionada de un producto directamente en la base de datos
+     * Se usa en las escrituras, que no deben partir de la proyección de la caché
+     * @param id ID del producto
+     * @return Entidad del producto
+     * @throws IllegalArgumentException si no existe el producto
+     */
+    private Producto buscarEntidad(Long id) {
+        return productoRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado con ID: " + id));
+    }
+
+    /**
+     * Valida que los límites de un rango de precio no sean negativos ni estén invertidos
+     */
+    private void validarRangoPrecio(BigDecimal minPrecio, BigDecimal maxPrecio) {
+        if ((minPrecio != null && minPrecio.signum() < 0) || (maxPrecio != null && maxPrecio.signum() < 0)) {
+            throw new IllegalArgumentException("Los precios del rango no pueden ser negativos");
+        }
+        if (minPrecio != null && maxPrecio != null && minPrecio.compareTo(maxPrecio) > 0) {
+            throw new IllegalArgumentException("El precio mínimo no puede ser mayor al precio máximo");
+        }
+    }
+
+    private static boolean enRango(BigDecimal precio, BigDecimal minPrecio, BigDecimal maxPrecio) {
+        return precio != null
+                && (minPrecio == null || precio.compareTo(minPrecio) >= 0)
+                && (maxPrecio == null || precio.compareTo(maxPrecio) <= 0);
+    }
+
+    /**
+     * Obtiene los productos de una lista de IDs conservando su orden
+     * Los que no están en caché se cargan con una sola consulta; los inexistentes se omiten
+     * @param ids IDs de los productos
+     * @return Lista de productos en el mismo orden que los IDs
      */
-    public List<Producto> obtenerPorRangoPrecio(BigDecimal minPrecio, BigDecimal maxPrecio) {
-        return productoRepository.findByPrecioBetweenOrderByPrecioAsc(minPrecio, maxPrecio);
+    private List<ProductoDTO> resolverEnOrden(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductoDTO> productos = catalogoCache.obtenerVarios(ids,
+                productoRepository::buscarProyeccionesPorIds);
+        return ids.stream()
+                .map(productos::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Construye una página a partir de los IDs de un índice en memoria
+     * Se piden tamanio + 1 IDs al índice para saber si hay una página siguiente
+     * sin otra consulta; solo se cargan los productos de la página
+     */
+    private PaginaProductos paginaDesdeIds(List<Long> ids, OrdenProducto orden, int tamanio) {
+        boolean hayMas = ids.size() > tamanio;
+        List<ProductoDTO> productos = resolverEnOrden(hayMas ? ids.subList(0, tamanio) : ids);
+        String siguienteCursor = hayMas && !productos.isEmpty()
+                ? ProductoCursor.despuesDe(orden, productos.get(productos.size() - 1)).codificar()
+                : null;
+        return new PaginaProductos(productos, siguienteCursor);
+    }
+
+    /**
+     * Pagina por cursor una lista de productos ya cargada en memoria
+     * Aplica el mismo orden y la misma semántica de cursor que las consultas en base de datos
+     */
+    private PaginaProductos paginarEnMemoria(List<ProductoDTO> productos, OrdenProducto orden,
+                                             ProductoCursor despues, int tamanio) {
+        List<ProductoDTO> ordenados = new ArrayList<>(productos);
+        ordenados.sort(orden.comparador());
+
+        List<ProductoDTO> pagina = new ArrayList<>(tamanio);
+        boolean hayMas = false;
+        for (ProductoDTO producto : ordenados) {
+            if (despues != null && !despues.precede(producto)) {
+                continue;
+            }
+            if (pagina.size() == tamanio) {
+                hayMas = true;
+                break;
+            }
+            pagina.add(producto);
+        }
+
+        String siguienteCursor = hayMas
+                ? ProductoCursor.despuesDe(orden, pagina.get(pagina.size() - 1)).codificar()
+                : null;
+        return new PaginaProductos(pagina, siguienteCursor);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package com.mikeys.service;
+
+/**
+ * Producto de un reporte de más vendidos
+ * @param productoId ID del producto
+ * @param nombre Nombre actual del producto (null si el producto ya no existe)
+ * @param unidades Unidades vendidas en la ventana
+ */
+public record ProductoVendido(Long productoId, String nombre, long unidades) {
+}
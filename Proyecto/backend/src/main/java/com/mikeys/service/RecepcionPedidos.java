@@ -0,0 +1,268 @@
+package com.mikeys.service;
+
+import com.mikeys.model.ItemPedido;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recepción asíncrona de pedidos
+ * POST /api/orders encola el pedido en una cola acotada y responde 202 con un ticket, sin esperar
+ * a la base de datos. Un grupo fijo de hilos toma de la cola lotes de hasta tamanio-lote pedidos
+ * y los crea con AgrupadorPedidos: uno por uno, o en una sola transacción si los pedidos agrupados
+ * están activados; en ambos casos el rechazo de uno no afecta a los demás del lote.
+ * Si la cola está llena el pedido se rechaza de inmediato
+ * para que el cliente reintente, en lugar de dejar la petición esperando.
+ * Los tickets se guardan en memoria y se descartan tickets.retencion-ms después de finalizar;
+ * los pedidos que siguen en la cola al reiniciar la aplicación se pierden.
+ */
+@Component
+public class RecepcionPedidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecepcionPedidos.class);
+
+    /** Tiempo máximo que se espera a que los hilos vacíen la cola al detener la aplicación */
+    private static final long ESPERA_CIERRE_SEGUNDOS = 30;
+
+    private final AgrupadorPedidos agrupador;
+    private final int capacidad;
+    private final int cantidadTrabajadores;
+    private final int tamanioLote;
+    private final long retencionMs;
+
+    private final BlockingQueue<SolicitudPedido> cola;
+    private final Map<String, TicketPedido> tickets = new ConcurrentHashMap<>();
+    private final ExecutorService trabajadores;
+
+    private volatile boolean aceptando = true;
+
+    private final AtomicLong encolados = new AtomicLong();
+    private final AtomicLong rechazadosPorCola = new AtomicLong();
+    private final AtomicLong creados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong pedidosEnLotes = new AtomicLong();
+    private final AtomicLong esperaTotalMs = new AtomicLong();
+    private final AtomicInteger loteMaximo = new AtomicInteger();
+
+    @Autowired
+    public RecepcionPedidos(AgrupadorPedidos agrupador,
+                            @Value("${mikeys.pedidos.cola.capacidad:10000}") int capacidad,
+                            @Value("${mikeys.pedidos.trabajadores:4}") int cantidadTrabajadores,
+                            @Value("${mikeys.pedidos.tamanio-lote:50}") int tamanioLote,
+                            @Value("${mikeys.pedidos.tickets.retencion-ms:600000}") long retencionMs) {
+        if (capacidad <= 0 || cantidadTrabajadores <= 0 || tamanioLote <= 0) {
+            throw new IllegalArgumentException(
+                    "La capacidad de la cola, los trabajadores y el tamaño de lote de pedidos deben ser mayores a 0");
+        }
+        this.agrupador = agrupador;
+        this.capacidad = capacidad;
+        this.cantidadTrabajadores = cantidadTrabajadores;
+        this.tamanioLote = tamanioLote;
+        this.retencionMs = retencionMs;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+
+        AtomicInteger numero = new AtomicInteger();
+        this.trabajadores = Executors.newFixedThreadPool(cantidadTrabajadores, tarea -> {
+            Thread hilo = new Thread(tarea, "recepcion-pedidos-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Arranca los hilos que procesan la cola
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        for (int i = 0; i < cantidadTrabajadores; i++) {
+            trabajadores.execute(this::atender);
+        }
+        logger.info("Recepción asíncrona de pedidos: {} hilos, cola de {}, lotes de hasta {}",
+                cantidadTrabajadores, capacidad, tamanioLote);
+    }
+
+    /**
+     * Deja de aceptar pedidos y espera a que los hilos terminen los que quedan en la cola
+     */
+    @PreDestroy
+    public void detener() {
+        aceptando = false;
+        trabajadores.shutdown();
+        try {
+            if (!trabajadores.awaitTermination(ESPERA_CIERRE_SEGUNDOS, TimeUnit.SECONDS)) {
+                logger.warn("Se detiene la recepción de pedidos con {} pedidos sin procesar", cola.size());
+                trabajadores.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            trabajadores.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encola un pedido para crearlo en segundo plano
+     * @param usuarioId ID del usuario que realiza el pedido
+     * @param items Items del pedido (con el ID del producto y la cantidad)
+     * @return Ticket con el que se consulta el resultado
+     * @throws IllegalStateException si la cola está llena o la aplicación se está deteniendo
+     */
+    public TicketPedido encolar(Long usuarioId, List<ItemPedido> items) {
+        if (!aceptando) {
+            throw new IllegalStateException("La recepción de pedidos se está deteniendo, intente nuevamente");
+        }
+        TicketPedido ticket = new TicketPedido(UUID.randomUUID().toString());
+        tickets.put(ticket.getId(), ticket);
+        if (!cola.offer(new SolicitudPedido(ticket, usuarioId, items, System.currentTimeMillis()))) {
+            tickets.remove(ticket.getId());
+            rechazadosPorCola.incrementAndGet();
+            throw new IllegalStateException("La cola de pedidos está llena, intente nuevamente");
+        }
+        encolados.incrementAndGet();
+        return ticket;
+    }
+
+    /**
+     * Busca un ticket por su ID
+     * @param id ID del ticket
+     * @return Ticket encontrado
+     * @throws IllegalArgumentException si el ticket no existe o ya se descartó
+     */
+    public TicketPedido buscarTicket(String id) {
+        TicketPedido ticket = tickets.get(id);
+        if (ticket == null) {
+            throw new IllegalArgumentException("Ticket no encontrado: " + id);
+        }
+        return ticket;
+    }
+
+    /**
+     * Descarta los tickets finalizados hace más de tickets.retencion-ms
+     */
+    @Scheduled(fixedDelayString = "${mikeys.pedidos.tickets.limpieza-ms:60000}",
+               initialDelayString = "${mikeys.pedidos.tickets.limpieza-ms:60000}")
+    public void descartarTicketsVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minusNanos(retencionMs * 1_000_000);
+        tickets.values().removeIf(ticket -> ticket.isFinalizado() && ticket.getFechaFinalizacion().isBefore(limite));
+    }
+
+    /**
+     * Obtiene el estado de la cola y los resultados de los pedidos procesados
+     * @return Mapa con la profundidad de la cola, la configuración, los lotes y los contadores por resultado
+     */
+    public Map<String, Object> getEstadisticas() {
+        long cantidadLotes = lotes.get();
+        long procesados = creados.get() + rechazados.get() + fallidos.get();
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("profundidadCola", cola.size());
+        estadisticas.put("capacidadCola", capacidad);
+        estadisticas.put("trabajadores", cantidadTrabajadores);
+        estadisticas.put("tamanioLote", tamanioLote);
+        estadisticas.put("encolados", encolados.get());
+        estadisticas.put("rechazadosPorColaLlena", rechazadosPorCola.get());
+        estadisticas.put("creados", creados.get());
+        estadisticas.put("rechazados", rechazados.get());
+        estadisticas.put("conError", fallidos.get());
+        estadisticas.put("lotes", cantidadLotes);
+        estadisticas.put("loteMaximo", loteMaximo.get());
+        estadisticas.put("lotePromedio", cantidadLotes == 0 ? 0.0 : (double) pedidosEnLotes.get() / cantidadLotes);
+        estadisticas.put("esperaPromedioMs", procesados == 0 ? 0.0 : (double) esperaTotalMs.get() / procesados);
+        estadisticas.put("ticketsEnMemoria", tickets.size());
+        return estadisticas;
+    }
+
+    /**
+     * Ciclo de cada hilo: espera el primer pedido y se lleva los que ya estén en la cola
+     * hasta completar un lote; termina cuando la aplicación se detiene y la cola queda vacía
+     */
+    private void atender() {
+        List<SolicitudPedido> lote = new ArrayList<>(tamanioLote);
+        while (true) {
+            SolicitudPedido primera;
+            try {
+                primera = cola.poll(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (primera == null) {
+                if (!aceptando) {
+                    return;
+                }
+                continue;
+            }
+
+            lote.add(primera);
+            cola.drainTo(lote, tamanioLote - 1);
+            lotes.incrementAndGet();
+            pedidosEnLotes.addAndGet(lote.size());
+            loteMaximo.accumulateAndGet(lote.size(), Math::max);
+
+            procesar(lote);
+            lote.clear();
+        }
+    }
+
+    private void procesar(List<SolicitudPedido> lote) {
+        long ahora = System.currentTimeMillis();
+        List<NuevoPedido> pedidos = new ArrayList<>(lote.size());
+        for (SolicitudPedido solicitud : lote) {
+            esperaTotalMs.addAndGet(ahora - solicitud.recibidoMs());
+            solicitud.ticket().iniciar();
+            pedidos.add(new NuevoPedido(solicitud.usuarioId(), solicitud.items()));
+        }
+
+        List<ResultadoPedido> resultados;
+        try {
+            resultados = agrupador.crearPedidos(pedidos);
+        } catch (RuntimeException e) {
+            logger.error("Error al crear un lote de {} pedidos", lote.size(), e);
+            for (SolicitudPedido solicitud : lote) {
+                fallidos.incrementAndGet();
+                solicitud.ticket().fallar("Error al crear pedido: " + e.getMessage());
+            }
+            return;
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            TicketPedido ticket = lote.get(i).ticket();
+            ResultadoPedido resultado = resultados.get(i);
+            if (resultado.error() == null) {
+                creados.incrementAndGet();
+                ticket.completar(resultado.pedido().getId());
+            } else if (resultado.error() instanceof IllegalArgumentException) {
+                rechazados.incrementAndGet();
+                ticket.rechazar(resultado.error().getMessage());
+            } else {
+                fallidos.incrementAndGet();
+                logger.error("Error al crear el pedido del ticket {}", ticket.getId(), resultado.error());
+                ticket.fallar("Error al crear pedido: " + resultado.error().getMessage());
+            }
+        }
+    }
+
+    private record SolicitudPedido(TicketPedido ticket, Long usuarioId, List<ItemPedido> items, long recibidoMs) {
+    }
+}
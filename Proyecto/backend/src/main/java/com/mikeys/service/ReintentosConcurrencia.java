@@ -0,0 +1,142 @@
+package com.mikeys.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Reintentos de las modificaciones de stock que chocan con otra escritura concurrente
+ * Un conflicto de versión (bloqueo optimista), un interbloqueo o una espera de bloqueo vencida
+ * revierten la transacción; la operación se vuelve a ejecutar completa, en una transacción nueva,
+ * hasta max-intentos veces. Entre intentos se espera un tiempo al azar entre 0 y
+ * espera-base-ms * 2^(intento - 1), acotado a espera-max-ms, para que los que chocaron no vuelvan
+ * a chocar en el mismo instante.
+ * Si ya hay una transacción activa la operación se ejecuta una sola vez: el conflicto
+ * debe revertir la transacción exterior y reintentarse desde afuera.
+ */
+@Component
+public class ReintentosConcurrencia {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReintentosConcurrencia.class);
+
+    private final int maxIntentos;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+
+    private final Map<String, Contadores> porOperacion = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReintentosConcurrencia(@Value("${mikeys.reintentos.max-intentos:5}") int maxIntentos,
+                                  @Value("${mikeys.reintentos.espera-base-ms:10}") long esperaBaseMs,
+                                  @Value("${mikeys.reintentos.espera-max-ms:200}") long esperaMaximaMs) {
+        if (maxIntentos <= 0 || esperaBaseMs < 0 || esperaMaximaMs < esperaBaseMs) {
+            throw new IllegalArgumentException(
+                    "Los intentos deben ser mayores a 0 y la espera máxima no puede ser menor a la espera base");
+        }
+        this.maxIntentos = maxIntentos;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    /**
+     * Ejecuta una operación y la reintenta si falla por una escritura concurrente
+     * @param operacion Nombre de la operación, para las métricas
+     * @param accion Operación a ejecutar; debe abrir y completar su propia transacción
+     * @return Resultado de la operación
+     * @throws IllegalStateException si la operación sigue en conflicto después de max-intentos
+     */
+    public <T> T ejecutar(String operacion, Supplier<T> accion) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return accion.get();
+        }
+
+        Contadores contadores = porOperacion.computeIfAbsent(operacion, nombre -> new Contadores());
+        contadores.ejecuciones.incrementAndGet();
+        for (int intento = 1; ; intento++) {
+            try {
+                T resultado = accion.get();
+                if (intento > 1) {
+                    contadores.exitosTrasReintento.incrementAndGet();
+                }
+                return resultado;
+            } catch (ConcurrencyFailureException e) {
+                contadores.conflictos.incrementAndGet();
+                if (intento >= maxIntentos) {
+                    contadores.agotados.incrementAndGet();
+                    logger.warn("{}: conflicto de concurrencia después de {} intentos", operacion, intento);
+                    throw new IllegalStateException(
+                            "El registro fue modificado por otra operación al mismo tiempo, intente nuevamente", e);
+                }
+                contadores.reintentos.incrementAndGet();
+                esperar(intento);
+            }
+        }
+    }
+
+    /**
+     * Obtiene la configuración y los conflictos y reintentos de cada operación
+     * @return Mapa con la configuración y los contadores por operación
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> operaciones = new TreeMap<>();
+        long conflictos = 0;
+        long reintentos = 0;
+        for (Map.Entry<String, Contadores> entrada : porOperacion.entrySet()) {
+            Contadores contadores = entrada.getValue();
+            conflictos += contadores.conflictos.get();
+            reintentos += contadores.reintentos.get();
+            operaciones.put(entrada.getKey(), contadores.comoMapa());
+        }
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("maxIntentos", maxIntentos);
+        estadisticas.put("esperaBaseMs", esperaBaseMs);
+        estadisticas.put("esperaMaximaMs", esperaMaximaMs);
+        estadisticas.put("conflictos", conflictos);
+        estadisticas.put("reintentos", reintentos);
+        estadisticas.put("operaciones", operaciones);
+        return estadisticas;
+    }
+
+    private void esperar(int intento) {
+        long tope = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intento - 1, 20));
+        if (tope <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la espera para reintentar la operación", e);
+        }
+    }
+
+    private static final class Contadores {
+        private final AtomicLong ejecuciones = new AtomicLong();
+        private final AtomicLong conflictos = new AtomicLong();
+        private final AtomicLong reintentos = new AtomicLong();
+        private final AtomicLong exitosTrasReintento = new AtomicLong();
+        private final AtomicLong agotados = new AtomicLong();
+
+        private Map<String, Long> comoMapa() {
+            Map<String, Long> mapa = new HashMap<>();
+            mapa.put("ejecuciones", ejecuciones.get());
+            mapa.put("conflictos", conflictos.get());
+            mapa.put("reintentos", reintentos.get());
+            mapa.put("exitosTrasReintento", exitosTrasReintento.get());
+            mapa.put("agotados", agotados.get());
+            return mapa;
+        }
+    }
+}
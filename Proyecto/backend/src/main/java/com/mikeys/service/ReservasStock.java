@@ -0,0 +1,424 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Producto;
+import com.mikeys.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reservas de stock en memoria para productos muy demandados (por ejemplo, en una oferta relámpago)
+ * Cada producto activado tiene un contador de unidades repartido en franjas que se descuentan
+ * con compare-and-set, sin bloqueos, de modo que las compras simultáneas del mismo producto
+ * no compiten por una sola variable. Un pedido se rechaza en memoria si no alcanzan las unidades,
+ * sin llegar a la base de datos; los pedidos admitidos siguen descontando el stock con el UPDATE
+ * condicional, que sigue siendo la fuente de verdad.
+ * La reserva se confirma cuando la transacción del pedido hace commit y se devuelve si hace rollback.
+ * Los productos no activados no pasan por aquí.
+ */
+@Component
+public class ReservasStock {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservasStock.class);
+
+    private final ProductoRepository productoRepository;
+    private final int franjas;
+    private final List<Long> productosIniciales;
+
+    private final Map<Long, Contador> contadores = new ConcurrentHashMap<>();
+
+    private final AtomicLong admitidas = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final AtomicLong compensadas = new AtomicLong();
+    private final AtomicLong desviosCorregidos = new AtomicLong();
+
+    @Autowired
+    public ReservasStock(ProductoRepository productoRepository,
+                         @Value("${mikeys.reservas.franjas:8}") int franjas,
+                         @Value("${mikeys.reservas.productos:}") Long[] productosIniciales) {
+        if (franjas <= 0) {
+            throw new IllegalArgumentException("La cantidad de franjas de las reservas debe ser mayor a 0");
+        }
+        this.productoRepository = productoRepository;
+        this.franjas = franjas;
+        this.productosIniciales = List.of(productosIniciales);
+    }
+
+    /**
+     * Activa las reservas de los productos configurados al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void activarAlIniciar() {
+        for (Long id : productosIniciales) {
+            try {
+                activar(id);
+            } catch (IllegalArgumentException e) {
+                logger.warn("No se activaron las reservas del producto {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Activa las reservas en memoria de un producto, partiendo de su stock actual
+     * @param id ID del producto
+     * @return Unidades disponibles en el contador
+     * @throws IllegalArgumentException si el producto no existe
+     */
+    public int activar(Long id) {
+        List<ProductoRepository.StockProducto> stock = productoRepository.buscarStockPorIds(List.of(id));
+        if (stock.isEmpty()) {
+            throw new IllegalArgumentException("Producto no encontrado con ID: " + id);
+        }
+        Contador contador = contadores.computeIfAbsent(id, clave -> new Contador(franjas));
+        contador.fijar(stock.get(0).getStock() - contador.enCurso.get());
+        return contador.disponibles();
+    }
+
+    /**
+     * Desactiva las reservas en memoria de un producto
+     * Sus pedidos vuelven a validarse solo contra la base de datos
+     * @param id ID del producto
+     * @return true si el producto tenía las reservas activadas
+     */
+    public boolean desactivar(Long id) {
+        return contadores.remove(id) != null;
+    }
+
+    /**
+     * Reserva en memoria las unidades de los productos activados de un pedido
+     * Si algún producto no tiene unidades suficientes se devuelven las ya tomadas y el pedido se rechaza.
+     * Debe llamarse dentro de la transacción del pedido: tras el commit la reserva se confirma
+     * y tras un rollback las unidades se devuelven
+     * @param cantidades Cantidad pedida por ID de producto
+     * @throws IllegalArgumentException si algún producto activado no tiene unidades suficientes
+     * @throws IllegalStateException si no hay una transacción activa
+     */
+    public void reservar(Map<Long, Integer> cantidades) {
+        Map<Long, Integer> reservadas = tomar(cantidades);
+        if (!reservadas.isEmpty()) {
+            confirmarTrasCompletar(reservadas);
+        }
+    }
+
+    /**
+     * Toma las unidades de los productos activados de un pedido sin asociarlas a la transacción
+     * Las unidades tomadas deben devolverse con liberar o asociarse a la transacción con
+     * confirmarTrasCompletar en cuanto se toman: la reconciliación las cuenta como pedidos en curso,
+     * así que no recupera las que nadie devuelve
+     * @param cantidades Cantidad pedida por ID de producto
+     * @return Unidades tomadas por ID de producto (vacío si ningún producto está activado)
+     * @throws IllegalArgumentException si algún producto activado no tiene unidades suficientes
+     */
+    Map<Long, Integer> tomar(Map<Long, Integer> cantidades) {
+        Map<Long, Integer> reservadas = new TreeMap<>();
+        for (Map.Entry<Long, Integer> cantidad : cantidades.entrySet()) {
+            Contador contador = contadores.get(cantidad.getKey());
+            if (contador == null) {
+                continue;
+            }
+            if (!contador.tomar(cantidad.getValue())) {
+                devolver(reservadas);
+                rechazadas.incrementAndGet();
+                throw new IllegalArgumentException("No hay suficiente stock del producto con ID: " + cantidad.getKey());
+            }
+            reservadas.put(cantidad.getKey(), cantidad.getValue());
+        }
+        if (!reservadas.isEmpty()) {
+            admitidas.incrementAndGet();
+        }
+        return reservadas;
+    }
+
+    /**
+     * Devuelve unidades tomadas de un pedido que finalmente no se guarda
+     * @param reservadas Unidades tomadas por ID de producto
+     */
+    void liberar(Map<Long, Integer> reservadas) {
+        devolver(reservadas);
+        compensadas.incrementAndGet();
+    }
+
+    /**
+     * Asocia unidades tomadas a la transacción activa: tras el commit se confirman
+     * y tras un rollback se devuelven
+     * @param reservadas Unidades tomadas por ID de producto
+     * @throws IllegalStateException si no hay una transacción activa (las unidades se devuelven)
+     */
+    void confirmarTrasCompletar(Map<Long, Integer> reservadas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            devolver(reservadas);
+            throw new IllegalStateException("Las reservas de stock requieren una transacción activa");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado == STATUS_COMMITTED) {
+                    confirmar(reservadas);
+                } else {
+                    devolver(reservadas);
+                    compensadas.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Registra el stock actual de varios productos modificados fuera de los pedidos
+     * (edición del producto, ajuste de stock, cancelación)
+     * Si hay una transacción activa se aplica tras el commit, de lo contrario inmediatamente
+     * @param productos Productos cuyo stock cambió
+     */
+    public void sincronizarTrasCommit(Collection<Producto> productos) {
+        Map<Long, Integer> stock = new LinkedHashMap<>();
+        for (Producto producto : productos) {
+            if (contadores.containsKey(producto.getId())) {
+                stock.put(producto.getId(), producto.getStock());
+            }
+        }
+        if (stock.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sincronizar(stock);
+                }
+            });
+        } else {
+            sincronizar(stock);
+        }
+    }
+
+    /**
+     * Registra el stock actual de un producto modificado fuera de los pedidos
+     * @param producto Producto cuyo stock cambió
+     */
+    public void sincronizarTrasCommit(Producto producto) {
+        sincronizarTrasCommit(Collections.singletonList(producto));
+    }
+
+    /**
+     * Compara los contadores con el stock de la base de datos y corrige las diferencias
+     * Del stock leído se descuentan las unidades en curso antes de la lectura y todas las tomadas
+     * desde entonces: el stock leído puede no reflejar ninguno de esos pedidos. Si alguno ya estaba
+     * reflejado, el contador queda por debajo hasta la siguiente pasada, lo que solo rechaza de más
+     */
+    @Scheduled(fixedDelayString = "${mikeys.reservas.reconciliacion-ms:60000}",
+               initialDelayString = "${mikeys.reservas.reconciliacion-ms:60000}")
+    public void reconciliar() {
+        if (contadores.isEmpty()) {
+            return;
+        }
+        // Unidades en curso y tomadas acumuladas antes de leer la base de datos
+        Map<Long, Lectura> antes = new HashMap<>();
+        for (Map.Entry<Long, Contador> entrada : contadores.entrySet()) {
+            Contador contador = entrada.getValue();
+            antes.put(entrada.getKey(), new Lectura(contador, contador.enCurso.get(), contador.tomadasAcumuladas.get()));
+        }
+
+        Map<Long, Integer> stock = new HashMap<>();
+        for (ProductoRepository.StockProducto fila : productoRepository.buscarStockPorIds(new ArrayList<>(antes.keySet()))) {
+            stock.put(fila.getId(), fila.getStock());
+        }
+        for (Map.Entry<Long, Lectura> entrada : antes.entrySet()) {
+            Lectura lectura = entrada.getValue();
+            if (contadores.get(entrada.getKey()) != lectura.contador()) {
+                // Desactivado o reactivado durante la lectura
+                continue;
+            }
+            long pendientes = lectura.enCurso()
+                    + (lectura.contador().tomadasAcumuladas.get() - lectura.tomadasAcumuladas());
+            corregir(lectura.contador(), (int) (stock.getOrDefault(entrada.getKey(), 0) - pendientes));
+        }
+    }
+
+    /**
+     * Obtiene el estado de las reservas
+     * @return Mapa con los pedidos admitidos, rechazados y compensados, y las unidades por producto
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> productos = new TreeMap<>();
+        for (Map.Entry<Long, Contador> entrada : contadores.entrySet()) {
+            Map<String, Object> contador = new HashMap<>();
+            contador.put("disponibles", entrada.getValue().disponibles());
+            contador.put("enCurso", entrada.getValue().enCurso.get());
+            productos.put(String.valueOf(entrada.getKey()), contador);
+        }
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("franjas", franjas);
+        estadisticas.put("productos", productos);
+        estadisticas.put("admitidas", admitidas.get());
+        estadisticas.put("rechazadas", rechazadas.get());
+        estadisticas.put("compensadas", compensadas.get());
+        estadisticas.put("desviosCorregidos", desviosCorregidos.get());
+        return estadisticas;
+    }
+
+    private void confirmar(Map<Long, Integer> reservadas) {
+        for (Map.Entry<Long, Integer> reservada : reservadas.entrySet()) {
+            Contador contador = contadores.get(reservada.getKey());
+            if (contador != null) {
+                contador.enCurso.addAndGet(-reservada.getValue());
+            }
+        }
+    }
+
+    private void devolver(Map<Long, Integer> reservadas) {
+        for (Map.Entry<Long, Integer> reservada : reservadas.entrySet()) {
+            Contador contador = contadores.get(reservada.getKey());
+            if (contador != null) {
+                contador.enCurso.addAndGet(-reservada.getValue());
+                contador.sumar(reservada.getValue());
+            }
+        }
+    }
+
+    private void sincronizar(Map<Long, Integer> stock) {
+        for (Map.Entry<Long, Integer> entrada : stock.entrySet()) {
+            Contador contador = contadores.get(entrada.getKey());
+            if (contador == null) {
+                continue;
+            }
+            corregir(contador, entrada.getValue() - contador.enCurso.get());
+        }
+    }
+
+    private void corregir(Contador contador, int total) {
+        if (contador.fijar(total) != 0) {
+            desviosCorregidos.incrementAndGet();
+        }
+    }
+
+    /**
+     * Estado de un contador tomado antes de leer el stock de la base de datos
+     */
+    private record Lectura(Contador contador, int enCurso, long tomadasAcumuladas) {
+    }
+
+    /**
+     * Contador de unidades de un producto repartido en franjas
+     * Cada franja ocupa su propia línea de caché para que los hilos que descuentan
+     * de franjas distintas no se invaliden entre sí
+     */
+    private static final class Contador {
+
+        /** Enteros por franja: 16 x 4 bytes = una línea de caché de 64 bytes */
+        private static final int ESPACIADO = 16;
+
+        private final int franjas;
+        private final AtomicIntegerArray unidades;
+
+        /** Unidades reservadas por pedidos cuya transacción todavía no terminó */
+        private final AtomicInteger enCurso = new AtomicInteger();
+
+        /** Unidades tomadas desde la activación, usadas para detectar pedidos nuevos durante la reconciliación */
+        private final AtomicLong tomadasAcumuladas = new AtomicLong();
+
+        private Contador(int franjas) {
+            this.franjas = franjas;
+            this.unidades = new AtomicIntegerArray(franjas * ESPACIADO);
+        }
+
+        /**
+         * Toma unidades empezando por una franja al azar y siguiendo por las demás
+         * @return true si se tomaron todas; si no alcanzan se devuelven las tomadas
+         */
+        private boolean tomar(int cantidad) {
+            int inicio = ThreadLocalRandom.current().nextInt(franjas);
+            int tomadas = 0;
+            for (int i = 0; i < franjas && tomadas < cantidad; i++) {
+                int posicion = ((inicio + i) % franjas) * ESPACIADO;
+                int actual;
+                int tomar;
+                do {
+                    actual = unidades.get(posicion);
+                    tomar = Math.min(actual, cantidad - tomadas);
+                } while (tomar > 0 && !unidades.compareAndSet(posicion, actual, actual - tomar));
+                if (tomar > 0) {
+                    tomadas += tomar;
+                }
+            }
+            if (tomadas < cantidad) {
+                sumar(tomadas);
+                return false;
+            }
+            tomadasAcumuladas.addAndGet(cantidad);
+            enCurso.addAndGet(cantidad);
+            return true;
+        }
+
+        /**
+         * Reparte unidades entre todas las franjas
+         */
+        private void sumar(int cantidad) {
+            if (cantidad <= 0) {
+                return;
+            }
+            int base = cantidad / franjas;
+            int resto = cantidad % franjas;
+            int inicio = ThreadLocalRandom.current().nextInt(franjas);
+            for (int i = 0; i < franjas; i++) {
+                int porFranja = base + (i < resto ? 1 : 0);
+                if (porFranja > 0) {
+                    unidades.addAndGet(((inicio + i) % franjas) * ESPACIADO, porFranja);
+                }
+            }
+        }
+
+        /**
+         * Lleva el total de unidades al valor indicado sumando o tomando la diferencia,
+         * para no perder las operaciones concurrentes
+         * @return Diferencia aplicada
+         */
+        private int fijar(int total) {
+            int diferencia = Math.max(total, 0) - disponibles();
+            if (diferencia > 0) {
+                sumar(diferencia);
+            } else if (diferencia < 0) {
+                int porQuitar = -diferencia;
+                for (int i = 0; i < franjas && porQuitar > 0; i++) {
+                    int posicion = i * ESPACIADO;
+                    int actual;
+                    int quitar;
+                    do {
+                        actual = unidades.get(posicion);
+                        quitar = Math.min(actual, porQuitar);
+                    } while (quitar > 0 && !unidades.compareAndSet(posicion, actual, actual - quitar));
+                    porQuitar -= Math.max(quitar, 0);
+                }
+            }
+            return diferencia;
+        }
+
+        private int disponibles() {
+            int total = 0;
+            for (int i = 0; i < franjas; i++) {
+                total += unidades.get(i * ESPACIADO);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mikeys.service;
+
+/**
+ * Respuesta HTTP guardada para una clave de idempotencia
+ * @param estado Código de estado HTTP
+ * @param cuerpo Cuerpo JSON de la respuesta
+ * @param ubicacion Encabezado Location (null si la respuesta no lo tenía)
+ * @param repetida true si se devuelve la respuesta guardada de una ejecución anterior
+ */
+public record RespuestaIdempotente(int estado, String cuerpo, String ubicacion, boolean repetida) {
+
+    /**
+     * Crea una respuesta obtenida en esta ejecución
+     */
+    public static RespuestaIdempotente nueva(int estado, String cuerpo, String ubicacion) {
+        return new RespuestaIdempotente(estado, cuerpo, ubicacion, false);
+    }
+
+    RespuestaIdempotente comoRepetida() {
+        return repetida ? this : new RespuestaIdempotente(estado, cuerpo, ubicacion, true);
+    }
+
+    /**
+     * Las respuestas de error del servidor y los conflictos de concurrencia (409) no se guardan:
+     * el reintento vuelve a ejecutar la solicitud. Solo llegan aquí los 409 en los que no se guardó nada;
+     * cuando el resultado es desconocido la operación lanza PedidoSinResultadoException
+     */
+    boolean isGuardable() {
+        return estado < 500 && estado != 409;
+    }
+}
@@ -0,0 +1,12 @@
+package com.mikeys.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de una cancelación de varios pedidos
+ * @param cancelados IDs de los pedidos cancelados, en orden ascendente
+ * @param rechazados Motivo por el que no se canceló cada uno de los demás pedidos, por ID
+ */
+public record ResultadoCancelacion(List<Long> cancelados, Map<Long, String> rechazados) {
+}
@@ -0,0 +1,93 @@
+package com.mikeys.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resumen de una importación masiva de productos
+ * Solo se guardan los primeros errores para que la memoria no crezca con el tamaño del archivo
+ */
+public class ResultadoImportacion {
+
+    /** Cantidad máxima de errores por fila que se detallan en el resultado */
+    public static final int MAX_ERRORES_DETALLADOS = 1000;
+
+    private long filasLeidas;
+    private long importadas;
+    private long conError;
+    private long duracionMs;
+    private final List<ErrorFila> errores = new ArrayList<>();
+
+    void registrarLeida() {
+        filasLeidas++;
+    }
+
+    void registrarImportadas(int cantidad) {
+        importadas += cantidad;
+    }
+
+    void registrarError(int fila, String mensaje) {
+        conError++;
+        if (errores.size() < MAX_ERRORES_DETALLADOS) {
+            errores.add(new ErrorFila(fila, mensaje));
+        }
+    }
+
+    void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    public long getFilasLeidas() {
+        return filasLeidas;
+    }
+
+    public long getImportadas() {
+        return importadas;
+    }
+
+    public long getConError() {
+        return conError;
+    }
+
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    /**
+     * Detalle de los primeros MAX_ERRORES_DETALLADOS errores
+     */
+    public List<ErrorFila> getErrores() {
+        return errores;
+    }
+
+    /**
+     * Cantidad de errores que no se detallan por superar el máximo
+     */
+    public long getErroresOmitidos() {
+        return conError - errores.size();
+    }
+
+    /**
+     * Error de una fila del archivo
+     */
+    public static final class ErrorFila {
+        private final int fila;
+        private final String mensaje;
+
+        private ErrorFila(int fila, String mensaje) {
+            this.fila = fila;
+            this.mensaje = mensaje;
+        }
+
+        /**
+         * Número de línea del archivo donde empieza la fila
+         */
+        public int getFila() {
+            return fila;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Pedido;
+
+/**
+ * Resultado de un pedido creado dentro de un grupo: el pedido guardado o el motivo del rechazo
+ * @param pedido Pedido creado (null si se rechazó)
+ * @param error Excepción que se habría lanzado al crearlo individualmente (null si se creó)
+ */
+public record ResultadoPedido(Pedido pedido, RuntimeException error) {
+
+    public static ResultadoPedido creado(Pedido pedido) {
+        return new ResultadoPedido(pedido, null);
+    }
+
+    public static ResultadoPedido rechazado(RuntimeException error) {
+        return new ResultadoPedido(null, error);
+    }
+
+    /**
+     * Obtiene el pedido creado o lanza la excepción del rechazo
+     */
+    public Pedido obtener() {
+        if (error != null) {
+            throw error;
+        }
+        return pedido;
+    }
+}
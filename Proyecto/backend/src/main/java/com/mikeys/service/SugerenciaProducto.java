@@ -0,0 +1,29 @@
+package com.mikeys.service;
+
+/**
+ * Sugerencia de autocompletado para la búsqueda de productos
+ */
+public final class SugerenciaProducto {
+
+    private final Long id;
+    private final String nombre;
+    private final int stock;
+
+    public SugerenciaProducto(Long id, String nombre, int stock) {
+        this.id = id;
+        this.nombre = nombre;
+        this.stock = stock;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+}
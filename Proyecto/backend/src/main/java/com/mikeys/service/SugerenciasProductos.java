@@ -0,0 +1,416 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Producto;
+import com.mikeys.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Árbol de prefijos (trie) en memoria para el autocompletado de nombres de productos
+ * Cada nodo guarda precalculadas las mejores sugerencias de su subárbol, ordenadas por stock,
+ * de modo que una consulta solo recorre tantos nodos como caracteres tenga el prefijo.
+ * Se indexa cada palabra del nombre normalizado, así "gam" sugiere "Laptop Gamer Pro".
+ * Las lecturas no usan bloqueos: los nodos publican arreglos inmutables que los escritores reemplazan.
+ */
+@Component
+public class SugerenciasProductos {
+
+    private static final Entrada[] SIN_ENTRADAS = new Entrada[0];
+
+    private static final Comparator<Entrada> POR_RELEVANCIA = Comparator
+            .comparingInt((Entrada entrada) -> entrada.sugerencia.getStock()).reversed()
+            .thenComparing(entrada -> entrada.sugerencia.getNombre())
+            .thenComparing(entrada -> entrada.sugerencia.getId());
+
+    private final ProductoRepository productoRepository;
+    private final int maxSugerencias;
+    private final Nodo raiz = new Nodo();
+
+    // ID de producto -> entrada indexada, para poder retirarla (solo lo usan los escritores)
+    private final Map<Long, Entrada> entradasPorProducto = new HashMap<>();
+
+    @Autowired
+    public SugerenciasProductos(ProductoRepository productoRepository,
+                                @Value("${mikeys.sugerencias.max-por-prefijo:10}") int maxSugerencias) {
+        this.productoRepository = productoRepository;
+        this.maxSugerencias = maxSugerencias;
+    }
+
+    /**
+     * Construye el árbol al arrancar la aplicación
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        reconstruir();
+    }
+
+    /**
+     * Reconstruye el árbol completo a partir de la base de datos
+     */
+    public synchronized void reconstruir() {
+        for (Long id : new ArrayList<>(entradasPorProducto.keySet())) {
+            eliminar(id);
+        }
+        for (Producto producto : productoRepository.findAll()) {
+            actualizar(producto);
+        }
+    }
+
+    /**
+     * Obtiene las mejores sugerencias para un prefijo, sin acceder a la base de datos
+     * @param prefijo Texto escrito por el usuario
+     * @param limite Cantidad máxima de sugerencias
+     * @return Sugerencias ordenadas por stock descendente
+     */
+    public List<SugerenciaProducto> sugerir(String prefijo, int limite) {
+        String clave = NormalizadorTexto.normalizar(prefijo);
+        List<SugerenciaProducto> sugerencias = new ArrayList<>();
+        if (clave.isEmpty() || limite <= 0) {
+            return sugerencias;
+        }
+
+        Nodo nodo = raiz;
+        for (int i = 0; i < clave.length() && nodo != null; i++) {
+            nodo = nodo.hijo(clave.charAt(i));
+        }
+        if (nodo == null) {
+            return sugerencias;
+        }
+
+        Entrada[] mejores = nodo.mejores;
+        for (int i = 0; i < mejores.length && i < limite; i++) {
+            sugerencias.add(mejores[i].sugerencia);
+        }
+        return sugerencias;
+    }
+
+    /**
+     * Agrega o reemplaza un producto en el árbol
+     * Solo se recalculan los nodos de las ramas afectadas
+     * @param producto Producto creado o modificado
+     */
+    public void actualizar(Producto producto) {
+        aplicar(entrada(producto));
+    }
+
+    /**
+     * Agrega o reemplaza productos en el árbol después del commit de la transacción actual
+     * Si no hay una transacción activa se aplica inmediatamente; tras un rollback no se aplica,
+     * de modo que las sugerencias nunca muestran stock no confirmado
+     * @param productos Productos modificados (su nombre y stock se copian en este momento)
+     */
+    public void actualizarTrasCommit(Collection<Producto> productos) {
+        List<Entrada> nuevas = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            nuevas.add(entrada(producto));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(nuevas);
+                }
+            });
+        } else {
+            aplicar(nuevas);
+        }
+    }
+
+    /**
+     * Agrega o reemplaza un producto en el árbol después del commit de la transacción actual
+     * @param producto Producto modificado
+     */
+    public void actualizarTrasCommit(Producto producto) {
+        actualizarTrasCommit(Collections.singletonList(producto));
+    }
+
+    private static Entrada entrada(Producto producto) {
+        return new Entrada(new SugerenciaProducto(producto.getId(), producto.getNombre(),
+                producto.getStock() != null ? producto.getStock() : 0), claves(producto.getNombre()));
+    }
+
+    private synchronized void aplicar(List<Entrada> nuevas) {
+        for (Entrada nueva : nuevas) {
+            aplicar(nueva);
+        }
+    }
+
+    private synchronized void aplicar(Entrada nueva) {
+        Long id = nueva.sugerencia.getId();
+        Entrada anterior = entradasPorProducto.get(id);
+        if (anterior != null && anterior.mismaSugerencia(nueva)) {
+            return;
+        }
+        if (anterior != null) {
+            eliminar(id);
+        }
+
+        entradasPorProducto.put(id, nueva);
+        for (String clave : nueva.claves) {
+            List<Nodo> camino = caminoCreando(clave);
+            Nodo fin = camino.get(camino.size() - 1);
+            fin.terminales = agregar(fin.terminales, nueva);
+            for (Nodo nodo : camino) {
+                nodo.mejores = insertarOrdenado(nodo.mejores, nueva);
+            }
+        }
+    }
+
+    /**
+     * Retira un producto del árbol
+     * @param id ID del producto eliminado
+     */
+    public synchronized void eliminar(Long id) {
+        Entrada anterior = entradasPorProducto.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (String clave : anterior.claves) {
+            List<Nodo> camino = caminoExistente(clave);
+            if (camino == null) {
+                continue;
+            }
+            Nodo fin = camino.get(camino.size() - 1);
+            fin.terminales = quitar(fin.terminales, id);
+            recalcularTrasQuitar(camino, clave, id);
+        }
+    }
+
+    /**
+     * Obtiene el tamaño del árbol
+     * @return Mapa con la cantidad de productos indexados y el máximo de sugerencias por prefijo
+     */
+    public synchronized Map<String, Object> getEstadisticas() {
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("productos", entradasPorProducto.size());
+        estadisticas.put("maxSugerenciasPorPrefijo", maxSugerencias);
+        return estadisticas;
+    }
+
+    /**
+     * Calcula las claves de un nombre: el nombre normalizado desde el inicio de cada palabra
+     */
+    private static Set<String> claves(String nombre) {
+        String normalizado = NormalizadorTexto.normalizar(nombre);
+        Set<String> claves = new HashSet<>();
+        for (int i = 0; i < normalizado.length(); i++) {
+            if (i == 0 || normalizado.charAt(i - 1) == ' ') {
+                claves.add(normalizado.substring(i));
+            }
+        }
+        return claves;
+    }
+
+    private List<Nodo> caminoCreando(String clave) {
+        List<Nodo> camino = new ArrayList<>(clave.length() + 1);
+        Nodo nodo = raiz;
+        camino.add(nodo);
+        for (int i = 0; i < clave.length(); i++) {
+            nodo = nodo.hijoCreando(clave.charAt(i));
+            camino.add(nodo);
+        }
+        return camino;
+    }
+
+    private List<Nodo> caminoExistente(String clave) {
+        List<Nodo> camino = new ArrayList<>(clave.length() + 1);
+        Nodo nodo = raiz;
+        camino.add(nodo);
+        for (int i = 0; i < clave.length(); i++) {
+            nodo = nodo.hijo(clave.charAt(i));
+            if (nodo == null) {
+                return null;
+            }
+            camino.add(nodo);
+        }
+        return camino;
+    }
+
+    /**
+     * Recalcula de abajo hacia arriba las mejores sugerencias de los nodos del camino
+     * que contenían al producto retirado, y poda los nodos que quedaron vacíos
+     */
+    private void recalcularTrasQuitar(List<Nodo> camino, String clave, Long id) {
+        for (int i = camino.size() - 1; i >= 0; i--) {
+            Nodo nodo = camino.get(i);
+            if (contiene(nodo.mejores, id)) {
+                nodo.mejores = combinar(nodo);
+            }
+            if (i > 0 && nodo.terminales.length == 0 && nodo.hijos.claves.length == 0) {
+                camino.get(i - 1).quitarHijo(clave.charAt(i - 1));
+            }
+        }
+    }
+
+    private Entrada[] combinar(Nodo nodo) {
+        List<Entrada> candidatos = new ArrayList<>(Arrays.asList(nodo.terminales));
+        for (Nodo hijo : nodo.hijos.nodos) {
+            candidatos.addAll(Arrays.asList(hijo.mejores));
+        }
+        candidatos.sort(POR_RELEVANCIA);
+
+        List<Entrada> mejores = new ArrayList<>(maxSugerencias);
+        Set<Long> vistos = new HashSet<>();
+        for (Entrada candidato : candidatos) {
+            if (mejores.size() == maxSugerencias) {
+                break;
+            }
+            if (vistos.add(candidato.sugerencia.getId())) {
+                mejores.add(candidato);
+            }
+        }
+        return mejores.toArray(SIN_ENTRADAS);
+    }
+
+    /**
+     * Inserta una entrada en una lista de mejores sugerencias ya ordenada, respetando el máximo
+     */
+    private Entrada[] insertarOrdenado(Entrada[] mejores, Entrada entrada) {
+        if (contiene(mejores, entrada.sugerencia.getId())) {
+            return mejores;
+        }
+        int posicion = 0;
+        while (posicion < mejores.length && POR_RELEVANCIA.compare(mejores[posicion], entrada) <= 0) {
+            posicion++;
+        }
+        if (posicion >= maxSugerencias) {
+            return mejores;
+        }
+
+        int tamanio = Math.min(mejores.length + 1, maxSugerencias);
+        Entrada[] resultado = new Entrada[tamanio];
+        System.arraycopy(mejores, 0, resultado, 0, posicion);
+        resultado[posicion] = entrada;
+        System.arraycopy(mejores, posicion, resultado, posicion + 1, tamanio - posicion - 1);
+        return resultado;
+    }
+
+    private static boolean contiene(Entrada[] entradas, Long id) {
+        for (Entrada entrada : entradas) {
+            if (entrada.sugerencia.getId().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entrada[] agregar(Entrada[] entradas, Entrada entrada) {
+        Entrada[] copia = Arrays.copyOf(entradas, entradas.length + 1);
+        copia[entradas.length] = entrada;
+        return copia;
+    }
+
+    private static Entrada[] quitar(Entrada[] entradas, Long id) {
+        return Arrays.stream(entradas)
+                .filter(entrada -> !entrada.sugerencia.getId().equals(id))
+                .toArray(Entrada[]::new);
+    }
+
+    /**
+     * Producto indexado junto con sus claves en el árbol
+     */
+    private static final class Entrada {
+        private final SugerenciaProducto sugerencia;
+        private final Set<String> claves;
+
+        private Entrada(SugerenciaProducto sugerencia, Set<String> claves) {
+            this.sugerencia = sugerencia;
+            this.claves = claves;
+        }
+
+        private boolean mismaSugerencia(Entrada otra) {
+            return sugerencia.getStock() == otra.sugerencia.getStock()
+                    && sugerencia.getNombre().equals(otra.sugerencia.getNombre());
+        }
+    }
+
+    /**
+     * Hijos de un nodo en arreglos paralelos ordenados por carácter
+     * Es inmutable: cada modificación publica una instancia nueva
+     */
+    private static final class Hijos {
+        private static final Hijos VACIO = new Hijos(new char[0], new Nodo[0]);
+
+        private final char[] claves;
+        private final Nodo[] nodos;
+
+        private Hijos(char[] claves, Nodo[] nodos) {
+            this.claves = claves;
+            this.nodos = nodos;
+        }
+    }
+
+    /**
+     * Nodo del árbol
+     * Los hijos y las mejores sugerencias se reemplazan completos al modificarse,
+     * por lo que los lectores siempre ven un estado consistente sin bloquear.
+     * Las modificaciones se hacen siempre bajo el bloqueo de SugerenciasProductos.
+     */
+    private static final class Nodo {
+        private volatile Hijos hijos = Hijos.VACIO;
+        private volatile Entrada[] mejores = SIN_ENTRADAS;
+        private Entrada[] terminales = SIN_ENTRADAS;
+
+        private Nodo hijo(char c) {
+            Hijos actuales = hijos;
+            int posicion = Arrays.binarySearch(actuales.claves, c);
+            return posicion >= 0 ? actuales.nodos[posicion] : null;
+        }
+
+        private Nodo hijoCreando(char c) {
+            Hijos actuales = hijos;
+            int posicion = Arrays.binarySearch(actuales.claves, c);
+            if (posicion >= 0) {
+                return actuales.nodos[posicion];
+            }
+            int insercion = -posicion - 1;
+            int cantidad = actuales.claves.length;
+            Nodo nuevo = new Nodo();
+
+            char[] claves = new char[cantidad + 1];
+            Nodo[] nodos = new Nodo[cantidad + 1];
+            System.arraycopy(actuales.claves, 0, claves, 0, insercion);
+            System.arraycopy(actuales.nodos, 0, nodos, 0, insercion);
+            claves[insercion] = c;
+            nodos[insercion] = nuevo;
+            System.arraycopy(actuales.claves, insercion, claves, insercion + 1, cantidad - insercion);
+            System.arraycopy(actuales.nodos, insercion, nodos, insercion + 1, cantidad - insercion);
+
+            hijos = new Hijos(claves, nodos);
+            return nuevo;
+        }
+
+        private void quitarHijo(char c) {
+            Hijos actuales = hijos;
+            int posicion = Arrays.binarySearch(actuales.claves, c);
+            if (posicion < 0) {
+                return;
+            }
+            int cantidad = actuales.claves.length;
+            char[] claves = new char[cantidad - 1];
+            Nodo[] nodos = new Nodo[cantidad - 1];
+            System.arraycopy(actuales.claves, 0, claves, 0, posicion);
+            System.arraycopy(actuales.nodos, 0, nodos, 0, posicion);
+            System.arraycopy(actuales.claves, posicion + 1, claves, posicion, cantidad - posicion - 1);
+            System.arraycopy(actuales.nodos, posicion + 1, nodos, posicion, cantidad - posicion - 1);
+
+            hijos = new Hijos(claves, nodos);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mikeys.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Seguimiento de un pedido recibido de forma asíncrona
+ * Lo crea RecepcionPedidos al encolar el pedido y lo actualiza el hilo que lo procesa;
+ * el cliente consulta su estado con GET /api/orders/tickets/{id}
+ */
+public class TicketPedido {
+
+    /**
+     * Estados por los que pasa un ticket
+     */
+    public enum Estado {
+        EN_COLA,
+        PROCESANDO,
+        CREADO,
+        RECHAZADO,
+        ERROR
+    }
+
+    private final String id;
+    private final LocalDateTime fechaRecepcion;
+    private volatile Estado estado = Estado.EN_COLA;
+    private volatile Long pedidoId;
+    private volatile String mensaje;
+    private volatile LocalDateTime fechaFinalizacion;
+
+    TicketPedido(String id) {
+        this.id = id;
+        this.fechaRecepcion = LocalDateTime.now();
+    }
+
+    void iniciar() {
+        estado = Estado.PROCESANDO;
+    }
+
+    void completar(Long pedidoId) {
+        this.pedidoId = pedidoId;
+        finalizar(Estado.CREADO, "Pedido creado exitosamente");
+    }
+
+    void rechazar(String mensaje) {
+        finalizar(Estado.RECHAZADO, mensaje);
+    }
+
+    void fallar(String mensaje) {
+        finalizar(Estado.ERROR, mensaje);
+    }
+
+    private void finalizar(Estado estadoFinal, String mensaje) {
+        this.mensaje = mensaje;
+        this.fechaFinalizacion = LocalDateTime.now();
+        // El estado se publica al final para que quien lo lea vea también el resto de los campos
+        this.estado = estadoFinal;
+    }
+
+    /**
+     * Indica si el pedido ya se procesó (creado, rechazado o con error)
+     */
+    public boolean isFinalizado() {
+        Estado actual = estado;
+        return actual != Estado.EN_COLA && actual != Estado.PROCESANDO;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * ID del pedido creado (null mientras no esté en estado CREADO)
+     */
+    public Long getPedidoId() {
+        return pedidoId;
+    }
+
+    /**
+     * Motivo del rechazo o del error (null mientras no se haya procesado)
+     */
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public LocalDateTime getFechaRecepcion() {
+        return fechaRecepcion;
+    }
+
+    public LocalDateTime getFechaFinalizacion() {
+        return fechaFinalizacion;
+    }
+}
@@ -1,5 +1,6 @@
 package com.mikeys.service;
 
+import com.mikeys.dto.UsuarioDTO;
 import com.mikeys.model.Usuario;
 import com.mikeys.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,11 +43,11 @@ public class UsuarioService {
      * Autentica un usuario por email y contraseña
      * @param email Email del usuario
      * @param password Contraseña del usuario
-     * @return Usuario autenticado
+     * @return Proyección del usuario autenticado (sin contraseña)
      * @throws IllegalArgumentException si las credenciales son incorrectas
      */
-    public Usuario autenticarUsuario(String email, String password) {
-        Optional<Usuario> usuarioOptional = usuarioRepository.findByEmailAndPassword(email, password);
+    public UsuarioDTO autenticarUsuario(String email, String password) {
+        Optional<UsuarioDTO> usuarioOptional = usuarioRepository.buscarProyeccionPorCredenciales(email, password);
         
         if (usuarioOptional.isEmpty()) {
             throw new IllegalArgumentException("Credenciales incorrectas");
@@ -0,0 +1,126 @@
+package com.mikeys.repository;
+
+import com.mikeys.dto.FilaPedido;
+import com.mikeys.dto.PedidoDTO;
+import com.mikeys.model.ItemPedido;
+import com.mikeys.model.Pedido;
+import com.mikeys.model.Producto;
+import com.mikeys.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifica que los pedidos de un usuario se lean con sus items y productos sin consultas N+1
+ * Cuenta las sentencias preparadas con las estadísticas de Hibernate
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class PedidoRepositoryTest {
+
+    private static final int PEDIDOS = 40;
+    private static final int ITEMS_POR_PEDIDO = 3;
+    private static final int PRODUCTOS = 10;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+    private Long usuarioId;
+    private Long primerPedidoId;
+
+    @BeforeEach
+    void cargarPedidos() {
+        Usuario usuario = entityManager.persist(
+                new Usuario("Juan", "juan@mikeys.test", "secret1", "Calle 1", "555"));
+        usuarioId = usuario.getId();
+
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            productos.add(entityManager.persist(
+                    new Producto("Producto " + i, "Descripción " + i, new BigDecimal("10.00"), 100, null)));
+        }
+
+        for (int i = 0; i < PEDIDOS; i++) {
+            List<ItemPedido> items = new ArrayList<>();
+            for (int j = 0; j < ITEMS_POR_PEDIDO; j++) {
+                items.add(new ItemPedido(productos.get((i + j) % PRODUCTOS), 1, new BigDecimal("10.00")));
+            }
+            Pedido pedido = entityManager.persist(new Pedido(usuario, new BigDecimal("30.00"), items));
+            items.forEach(entityManager::persist);
+            if (primerPedidoId == null) {
+                primerPedidoId = pedido.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    void filasPorUsuarioSeLeenEnUnaSolaConsulta() {
+        List<PedidoDTO> pedidos = FilaPedido.agrupar(pedidoRepository.buscarFilasPorUsuario(usuarioId));
+
+        assertEquals(PEDIDOS, pedidos.size());
+        for (PedidoDTO pedido : pedidos) {
+            assertEquals(ITEMS_POR_PEDIDO, pedido.items().size());
+        }
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void filasPorIdSeLeenEnUnaSolaConsulta() {
+        List<PedidoDTO> pedidos = FilaPedido.agrupar(pedidoRepository.buscarFilasPorId(primerPedidoId));
+
+        assertEquals(1, pedidos.size());
+        assertEquals(ITEMS_POR_PEDIDO, pedidos.get(0).items().size());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void pedidosConItemsPorUsuarioSeCarganEnUnaSolaConsulta() {
+        List<Pedido> pedidos = pedidoRepository.buscarConItemsPorUsuario(usuarioId);
+
+        assertEquals(PEDIDOS, pedidos.size());
+        for (Pedido pedido : pedidos) {
+            assertEquals(ITEMS_POR_PEDIDO, pedido.getItems().size());
+            for (ItemPedido item : pedido.getItems()) {
+                item.getProducto().getNombre();
+            }
+        }
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void pedidoConItemsPorIdSeCargaEnUnaSolaConsulta() {
+        Pedido pedido = pedidoRepository.buscarConItemsPorId(primerPedidoId).orElseThrow();
+
+        assertEquals(ITEMS_POR_PEDIDO, pedido.getItems().size());
+        for (ItemPedido item : pedido.getItems()) {
+            item.getProducto().getNombre();
+        }
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,95 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Pedido;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifica qué recibe una petición cuya espera vence según en qué punto estaba su pedido:
+ * en la cola (no se guardó nada) o dentro de un grupo en curso (el resultado es desconocido)
+ */
+class AgrupadorPedidosTest {
+
+    private static final long ESPERA_MAXIMA_MS = 200;
+
+    private final CountDownLatch grupoEnCurso = new CountDownLatch(1);
+    private final CountDownLatch terminarGrupo = new CountDownLatch(1);
+
+    private PedidoService pedidoService;
+    private AgrupadorPedidos agrupador;
+
+    @BeforeEach
+    void iniciar() {
+        pedidoService = mock(PedidoService.class);
+        // El primer grupo queda en curso hasta que la prueba lo libere
+        when(pedidoService.crearPedidosAgrupados(anyList())).thenAnswer(invocacion -> {
+            grupoEnCurso.countDown();
+            terminarGrupo.await(10, TimeUnit.SECONDS);
+            List<NuevoPedido> solicitudes = invocacion.getArgument(0);
+            List<ResultadoPedido> resultados = new ArrayList<>();
+            for (int i = 0; i < solicitudes.size(); i++) {
+                resultados.add(ResultadoPedido.creado(new Pedido()));
+            }
+            return resultados;
+        });
+        agrupador = new AgrupadorPedidos(pedidoService, true, 0, 1, ESPERA_MAXIMA_MS);
+        agrupador.iniciar();
+    }
+
+    @AfterEach
+    void detener() {
+        terminarGrupo.countDown();
+        agrupador.detener();
+    }
+
+    @Test
+    void esperaVencidaDentroDeUnGrupoEnCursoNoTieneResultado() throws Exception {
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> agrupador.crearPedido(1L, List.of()));
+
+        assertInstanceOf(PedidoSinResultadoException.class, error);
+        assertTrue(grupoEnCurso.await(0, TimeUnit.SECONDS));
+        verify(pedidoService, times(1)).crearPedidosAgrupados(anyList());
+    }
+
+    @Test
+    void esperaVencidaEnLaColaSeRechazaSinGuardarNada() throws Exception {
+        CompletableFuture<Pedido> primero = CompletableFuture.supplyAsync(() -> agrupador.crearPedido(1L, List.of()));
+        assertTrue(grupoEnCurso.await(10, TimeUnit.SECONDS));
+
+        // Con grupos de un pedido, el segundo espera en la cola mientras el primero está en curso
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> agrupador.crearPedido(2L, List.of()));
+        assertNotEquals(PedidoSinResultadoException.class, error.getClass());
+
+        // La espera del primero también venció, pero con su grupo en curso
+        ExecutionException sinResultado = assertThrows(ExecutionException.class,
+                () -> primero.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(PedidoSinResultadoException.class, sinResultado.getCause());
+
+        // El pedido vencido se quitó de la cola: el hilo agrupador no lo procesa después
+        terminarGrupo.countDown();
+        Thread.sleep(ESPERA_MAXIMA_MS);
+        verify(pedidoService, times(1)).crearPedidosAgrupados(anyList());
+        assertEquals(0, agrupador.getEstadisticas().get("enEspera"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.mikeys.service;
+
+import com.mikeys.model.ClaveIdempotencia;
+import com.mikeys.repository.ClaveIdempotenciaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifica que una clave de idempotencia se ejecute una sola vez aunque dos instancias
+ * de la aplicación la reciban al mismo tiempo, y que solo se libere cuando no se guardó nada
+ * Cada prueba confirma sus transacciones, como lo hace la aplicación
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotenciaPedidosTest {
+
+    private static final String CLAVE = "clave-prueba";
+    private static final String SOLICITUD = "{\"usuarioId\":1}";
+
+    @Autowired
+    private ClaveIdempotenciaRepository claveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void limpiar() {
+        claveRepository.deleteAll();
+    }
+
+    @Test
+    void claveRegistradaPorOtraInstanciaDuranteLaConsultaSeRechazaSinSobrescribirla() throws Exception {
+        IdempotenciaPedidos primera = nuevaInstancia(claveRepository);
+        // La segunda instancia consulta la clave antes de que la primera la inserte
+        ClaveIdempotenciaRepository sinRegistro = mock(ClaveIdempotenciaRepository.class, delegatesTo(claveRepository));
+        doReturn(Optional.empty()).when(sinRegistro).findById(CLAVE);
+        IdempotenciaPedidos segunda = nuevaInstancia(sinRegistro);
+
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch enEjecucion = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        CompletableFuture<RespuestaIdempotente> original = CompletableFuture.supplyAsync(() ->
+                primera.ejecutar(CLAVE, SOLICITUD, () -> {
+                    ejecuciones.incrementAndGet();
+                    enEjecucion.countDown();
+                    esperar(continuar);
+                    return RespuestaIdempotente.nueva(201, "{\"id\":1}", "/api/orders/1");
+                }));
+        assertTrue(enEjecucion.await(10, TimeUnit.SECONDS));
+
+        assertThrows(IllegalStateException.class, () -> segunda.ejecutar(CLAVE, SOLICITUD, () -> {
+            ejecuciones.incrementAndGet();
+            return RespuestaIdempotente.nueva(201, "{\"id\":2}", "/api/orders/2");
+        }));
+        continuar.countDown();
+
+        assertEquals(201, original.get(10, TimeUnit.SECONDS).estado());
+        assertEquals(1, ejecuciones.get());
+        ClaveIdempotencia fila = claveRepository.findById(CLAVE).orElseThrow();
+        assertEquals(201, fila.getEstadoHttp());
+        assertEquals("/api/orders/1", fila.getUbicacion());
+    }
+
+    @Test
+    void claveCompletadaSeRepiteSinVolverAEjecutar() {
+        IdempotenciaPedidos idempotencia = nuevaInstancia(claveRepository);
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        RespuestaIdempotente original = idempotencia.ejecutar(CLAVE, SOLICITUD, () -> {
+            ejecuciones.incrementAndGet();
+            return RespuestaIdempotente.nueva(201, "{\"id\":1}", "/api/orders/1");
+        });
+        // Otra instancia solo la encuentra en la base de datos
+        RespuestaIdempotente repetida = nuevaInstancia(claveRepository).ejecutar(CLAVE, SOLICITUD, () -> {
+            ejecuciones.incrementAndGet();
+            return RespuestaIdempotente.nueva(201, "{\"id\":2}", "/api/orders/2");
+        });
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(original.cuerpo(), repetida.cuerpo());
+        assertTrue(repetida.repetida());
+    }
+
+    @Test
+    void pedidoSinResultadoDejaLaClaveReservadaParaLosReintentos() {
+        IdempotenciaPedidos idempotencia = nuevaInstancia(claveRepository);
+        AtomicInteger ejecuciones = new AtomicInteger();
+        Supplier<RespuestaIdempotente> grupoSinResultado = () -> {
+            ejecuciones.incrementAndGet();
+            throw new PedidoSinResultadoException("El pedido se está procesando y su resultado no se conoce todavía");
+        };
+
+        assertThrows(PedidoSinResultadoException.class, () -> idempotencia.ejecutar(CLAVE, SOLICITUD, grupoSinResultado));
+        // El reintento que pedía el 409 no vuelve a crear el pedido, ni en esta instancia ni en otra
+        IllegalStateException reintento = assertThrows(IllegalStateException.class,
+                () -> idempotencia.ejecutar(CLAVE, SOLICITUD, grupoSinResultado));
+        assertNotEquals(PedidoSinResultadoException.class, reintento.getClass());
+        assertThrows(IllegalStateException.class,
+                () -> nuevaInstancia(claveRepository).ejecutar(CLAVE, SOLICITUD, grupoSinResultado));
+
+        assertEquals(1, ejecuciones.get());
+        assertFalse(claveRepository.findById(CLAVE).orElseThrow().isCompletada());
+    }
+
+    @Test
+    void conflictoSinCambiosLiberaLaClave() {
+        IdempotenciaPedidos idempotencia = nuevaInstancia(claveRepository);
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        RespuestaIdempotente conflicto = idempotencia.ejecutar(CLAVE, SOLICITUD, () -> {
+            ejecuciones.incrementAndGet();
+            return RespuestaIdempotente.nueva(409, "{\"success\":false}", null);
+        });
+        RespuestaIdempotente creado = idempotencia.ejecutar(CLAVE, SOLICITUD, () -> {
+            ejecuciones.incrementAndGet();
+            return RespuestaIdempotente.nueva(201, "{\"id\":1}", "/api/orders/1");
+        });
+
+        assertEquals(409, conflicto.estado());
+        assertEquals(201, creado.estado());
+        assertFalse(creado.repetida());
+        assertEquals(2, ejecuciones.get());
+    }
+
+    private IdempotenciaPedidos nuevaInstancia(ClaveIdempotenciaRepository repositorio) {
+        return new IdempotenciaPedidos(repositorio, transactionManager, 100, 60_000);
+    }
+
+    private static void esperar(CountDownLatch senal) {
+        try {
+            senal.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Producto;
+import com.mikeys.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica los descuentos y las acreditaciones del stock fraccionado con transacciones confirmadas
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.mikeys=INFO",
+        "logging.level.org.springframework.web=INFO",
+        "mikeys.archivo.habilitado=false"
+})
+@AutoConfigureTestDatabase
+class InventarioFraccionadoTest {
+
+    private static final int FRACCIONES = 4;
+    private static final int STOCK = 400;
+
+    @Autowired
+    private InventarioFraccionado inventario;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productoId;
+
+    @BeforeEach
+    void fraccionarProducto() {
+        productoId = productoRepository.save(
+                new Producto("Fraccionado", "Producto fraccionado", new BigDecimal("10.00"), STOCK, null)).getId();
+        inventario.fraccionar(productoId, FRACCIONES);
+    }
+
+    @Test
+    void acreditarSumaLasUnidadesEnUnaSolaFraccion() {
+        inventario.acreditar(productoId, 7);
+
+        List<Integer> stock = stockPorFraccion();
+        assertEquals(FRACCIONES, stock.size());
+        assertEquals(1, stock.stream().filter(unidades -> unidades == STOCK / FRACCIONES + 7).count());
+        assertEquals(FRACCIONES - 1, stock.stream().filter(unidades -> unidades == STOCK / FRACCIONES).count());
+        assertEquals(STOCK + 7, inventario.obtenerTotal(productoId));
+    }
+
+    @Test
+    void acreditarUnProductoSinFraccionesSeRechaza() {
+        Long sinFracciones = productoRepository.save(
+                new Producto("Entero", "Producto sin fracciones", new BigDecimal("10.00"), 10, null)).getId();
+
+        assertThrows(IllegalArgumentException.class, () -> inventario.acreditar(sinFracciones, 1));
+    }
+
+    @Test
+    void descuentosYAcreditacionesConcurrentesConservanElTotal() throws Exception {
+        // Cada compra y cada cancelación en su propia transacción, como en los pedidos
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Void>> tareas = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tareas.add(CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 25; j++) {
+                    assertTrue(inventario.descontar(productoId, 2));
+                    inventario.acreditar(productoId, 1);
+                }
+            }, hilos));
+        }
+        CompletableFuture.allOf(tareas.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        hilos.shutdown();
+
+        assertEquals(STOCK - 8 * 25, inventario.obtenerTotal(productoId));
+    }
+
+    private List<Integer> stockPorFraccion() {
+        return jdbcTemplate.queryForList("SELECT stock FROM stock_shards WHERE producto_id = ? ORDER BY numero",
+                Integer.class, productoId);
+    }
+}
@@ -0,0 +1,127 @@
+package com.mikeys.service;
+
+import com.mikeys.model.ItemPedido;
+import com.mikeys.model.Producto;
+import com.mikeys.model.Usuario;
+import com.mikeys.repository.ProductoRepository;
+import com.mikeys.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Verifica que las reservas en memoria tomadas por un grupo de pedidos se devuelvan
+ * cuando la transacción del grupo se revierte, y se confirmen cuando hace commit
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.mikeys=INFO",
+        "logging.level.org.springframework.web=INFO",
+        "mikeys.archivo.habilitado=false"
+})
+@AutoConfigureTestDatabase
+class PedidosAgrupadosTest {
+
+    private static final int STOCK = 50;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ReservasStock reservas;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @SpyBean
+    private InventarioFraccionado inventario;
+
+    private Long usuarioId;
+    private Long reservadoId;
+    private Long fraccionadoId;
+
+    @BeforeEach
+    void crearProductos() {
+        usuarioId = usuarioRepository.save(new Usuario("Ana", "ana-" + System.nanoTime() + "@mikeys.test",
+                "secret1", "Calle 1", "555")).getId();
+        reservadoId = productoRepository.save(
+                new Producto("Oferta", "Producto con reservas", new BigDecimal("10.00"), STOCK, null)).getId();
+        fraccionadoId = productoRepository.save(
+                new Producto("Fraccionado", "Producto fraccionado", new BigDecimal("5.00"), STOCK, null)).getId();
+        reservas.activar(reservadoId);
+        inventario.fraccionar(fraccionadoId, 2);
+    }
+
+    @AfterEach
+    void desactivar() {
+        reservas.desactivar(reservadoId);
+    }
+
+    @Test
+    void errorEnUnPedidoPosteriorDevuelveLasReservasDeTodoElGrupo() {
+        // El segundo pedido falla con un error de base de datos después de tomar sus reservas
+        doThrow(new DataAccessResourceFailureException("Conexión perdida"))
+                .when(inventario).descontar(eq(fraccionadoId), anyInt());
+
+        List<NuevoPedido> grupo = List.of(
+                pedido(Map.of(reservadoId, 2)),
+                pedido(Map.of(reservadoId, 3, fraccionadoId, 1)));
+        assertThrows(DataAccessResourceFailureException.class, () -> pedidoService.crearPedidosAgrupados(grupo));
+
+        assertEquals(STOCK, unidades("disponibles"));
+        assertEquals(0, unidades("enCurso"));
+        assertEquals(STOCK, productoRepository.findById(reservadoId).orElseThrow().getStock());
+    }
+
+    @Test
+    void pedidoRechazadoDevuelveSusReservasYElGrupoConfirmaLasDemas() {
+        List<NuevoPedido> grupo = List.of(
+                pedido(Map.of(reservadoId, 2)),
+                pedido(Map.of(reservadoId, 3, fraccionadoId, STOCK + 1)));
+        List<ResultadoPedido> resultados = pedidoService.crearPedidosAgrupados(grupo);
+
+        assertNull(resultados.get(0).error());
+        assertNotNull(resultados.get(1).error());
+        assertEquals(STOCK - 2, unidades("disponibles"));
+        assertEquals(0, unidades("enCurso"));
+        assertEquals(STOCK - 2, productoRepository.findById(reservadoId).orElseThrow().getStock());
+    }
+
+    private NuevoPedido pedido(Map<Long, Integer> cantidades) {
+        List<ItemPedido> items = new ArrayList<>();
+        cantidades.forEach((id, cantidad) -> {
+            Producto producto = new Producto();
+            producto.setId(id);
+            items.add(new ItemPedido(producto, cantidad, BigDecimal.ZERO));
+        });
+        return new NuevoPedido(usuarioId, items);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int unidades(String campo) {
+        Map<String, Object> productos = (Map<String, Object>) reservas.getEstadisticas().get("productos");
+        return (int) ((Map<String, Object>) productos.get(String.valueOf(reservadoId))).get(campo);
+    }
+}
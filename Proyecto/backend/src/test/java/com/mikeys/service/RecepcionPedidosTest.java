@@ -0,0 +1,108 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Pedido;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifica que la cola de recepción rechace de inmediato cuando está llena, sin perder
+ * ni duplicar tickets con muchos hilos a la vez, y que cada ticket reciba el resultado de su pedido
+ */
+class RecepcionPedidosTest {
+
+    private static final int CAPACIDAD = 500;
+
+    private AgrupadorPedidos agrupador;
+    private RecepcionPedidos recepcion;
+
+    @BeforeEach
+    void crearRecepcion() {
+        agrupador = mock(AgrupadorPedidos.class);
+        recepcion = new RecepcionPedidos(agrupador, CAPACIDAD, 1, 10, 60_000);
+    }
+
+    @AfterEach
+    void detener() {
+        recepcion.detener();
+    }
+
+    @Test
+    void colaLlenaRechazaSinPerderNiDuplicarTickets() throws Exception {
+        // Sin hilos trabajadores la cola solo se llena
+        AtomicInteger aceptados = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Void>> tareas = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tareas.add(CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 100; j++) {
+                    try {
+                        TicketPedido ticket = recepcion.encolar(1L, List.of());
+                        assertEquals(TicketPedido.Estado.EN_COLA, recepcion.buscarTicket(ticket.getId()).getEstado());
+                        aceptados.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rechazados.incrementAndGet();
+                    }
+                }
+            }, hilos));
+        }
+        CompletableFuture.allOf(tareas.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        hilos.shutdown();
+
+        assertEquals(CAPACIDAD, aceptados.get());
+        assertEquals(800 - CAPACIDAD, rechazados.get());
+        assertEquals(CAPACIDAD, recepcion.getEstadisticas().get("profundidadCola"));
+        assertEquals(CAPACIDAD, recepcion.getEstadisticas().get("ticketsEnMemoria"));
+    }
+
+    @Test
+    void cadaTicketRecibeElResultadoDeSuPedido() throws Exception {
+        Pedido pedido = new Pedido();
+        pedido.setId(42L);
+        when(agrupador.crearPedidos(anyList())).thenReturn(List.of(
+                ResultadoPedido.creado(pedido),
+                ResultadoPedido.rechazado(new IllegalArgumentException("No hay suficiente stock del producto: Pan")),
+                ResultadoPedido.rechazado(new IllegalStateException("Conflicto después de los reintentos"))));
+
+        // Los tres se encolan antes de arrancar el trabajador, así que forman un solo lote
+        TicketPedido creado = recepcion.encolar(1L, List.of());
+        TicketPedido rechazado = recepcion.encolar(2L, List.of());
+        TicketPedido fallido = recepcion.encolar(3L, List.of());
+        recepcion.iniciar();
+
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!fallido.isFinalizado() && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertTrue(fallido.isFinalizado());
+        assertEquals(TicketPedido.Estado.CREADO, creado.getEstado());
+        assertEquals(42L, creado.getPedidoId());
+        assertEquals(TicketPedido.Estado.RECHAZADO, rechazado.getEstado());
+        assertEquals("No hay suficiente stock del producto: Pan", rechazado.getMensaje());
+        assertEquals(TicketPedido.Estado.ERROR, fallido.getEstado());
+        assertEquals(1L, recepcion.getEstadisticas().get("lotes"));
+    }
+
+    @Test
+    void recepcionDetenidaRechazaPedidosNuevos() {
+        recepcion.detener();
+
+        assertThrows(IllegalStateException.class, () -> recepcion.encolar(1L, List.of()));
+    }
+}
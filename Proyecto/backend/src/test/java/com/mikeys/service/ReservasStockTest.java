@@ -0,0 +1,134 @@
+package com.mikeys.service;
+
+import com.mikeys.model.Producto;
+import com.mikeys.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que las reservas en memoria sigan a la transacción del pedido y que la reconciliación
+ * con la base de datos no cuente dos veces las unidades de los pedidos en curso
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.mikeys=INFO",
+        "logging.level.org.springframework.web=INFO",
+        "mikeys.archivo.habilitado=false"
+})
+@AutoConfigureTestDatabase
+class ReservasStockTest {
+
+    private static final int STOCK = 20;
+
+    @Autowired
+    private ReservasStock reservas;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaccion;
+    private Long productoId;
+
+    @BeforeEach
+    void activarProducto() {
+        transaccion = new TransactionTemplate(transactionManager);
+        productoId = productoRepository.save(
+                new Producto("Oferta", "Producto con reservas", new BigDecimal("10.00"), STOCK, null)).getId();
+        assertEquals(STOCK, reservas.activar(productoId));
+    }
+
+    @AfterEach
+    void desactivar() {
+        reservas.desactivar(productoId);
+    }
+
+    @Test
+    void rollbackDevuelveLaReservaYCommitLaConfirma() {
+        transaccion.executeWithoutResult(estado -> {
+            reservas.reservar(Map.of(productoId, 5));
+            assertEquals(STOCK - 5, unidades("disponibles"));
+            assertEquals(5, unidades("enCurso"));
+            estado.setRollbackOnly();
+        });
+        assertEquals(STOCK, unidades("disponibles"));
+        assertEquals(0, unidades("enCurso"));
+
+        transaccion.executeWithoutResult(estado -> reservas.reservar(Map.of(productoId, 5)));
+        assertEquals(STOCK - 5, unidades("disponibles"));
+        assertEquals(0, unidades("enCurso"));
+    }
+
+    @Test
+    void tomarMasDeLoDisponibleNoTomaNada() {
+        assertThrows(IllegalArgumentException.class, () -> reservas.tomar(Map.of(productoId, STOCK + 1)));
+        assertEquals(STOCK, unidades("disponibles"));
+
+        Map<Long, Integer> tomadas = reservas.tomar(Map.of(productoId, STOCK));
+        assertEquals(0, unidades("disponibles"));
+        reservas.liberar(tomadas);
+        assertEquals(STOCK, unidades("disponibles"));
+        assertEquals(0, unidades("enCurso"));
+    }
+
+    @Test
+    void reconciliarDuranteUnPedidoEnCursoNoLoCuentaDosVeces() throws Exception {
+        CountDownLatch reservado = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+        // Pedido en curso: tomó 5 unidades en memoria pero todavía no descontó la base de datos
+        CompletableFuture<Void> pedido = CompletableFuture.runAsync(() -> transaccion.executeWithoutResult(estado -> {
+            reservas.reservar(Map.of(productoId, 5));
+            reservado.countDown();
+            try {
+                terminar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            estado.setRollbackOnly();
+        }));
+        assertTrue(reservado.await(10, TimeUnit.SECONDS));
+
+        // Un ajuste de stock hecho fuera de la aplicación
+        jdbcTemplate.update("UPDATE productos SET stock = ? WHERE id = ?", STOCK + 10, productoId);
+        reservas.reconciliar();
+        assertEquals(STOCK + 10 - 5, unidades("disponibles"));
+
+        // El pedido se revierte: sus unidades vuelven al contador ya corregido
+        terminar.countDown();
+        pedido.get(10, TimeUnit.SECONDS);
+        assertEquals(STOCK + 10, unidades("disponibles"));
+        assertEquals(0, unidades("enCurso"));
+
+        reservas.reconciliar();
+        assertEquals(STOCK + 10, unidades("disponibles"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private int unidades(String campo) {
+        Map<String, Object> productos = (Map<String, Object>) reservas.getEstadisticas().get("productos");
+        return (int) ((Map<String, Object>) productos.get(String.valueOf(productoId))).get(campo);
+    }
+}
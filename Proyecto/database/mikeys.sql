@@ -36,6 +36,8 @@ CREATE TABLE IF NOT EXISTS productos (
     descripcion VARCHAR(500) NOT NULL,
     precio DECIMAL(10, 2) NOT NULL,
     stock INT NOT NULL DEFAULT 0,
+    stock_fraccionado BOOLEAN NOT NULL DEFAULT FALSE,
+    version BIGINT NOT NULL DEFAULT 0,
     imagen VARCHAR(255),
     fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     fecha_actualizacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -53,6 +55,7 @@ CREATE TABLE IF NOT EXISTS pedidos (
     total DECIMAL(10, 2) NOT NULL,
     estado ENUM('PENDIENTE', 'PROCESANDO', 'ENVIADO', 'ENTREGADO', 'CANCELADO') 
         NOT NULL DEFAULT 'PENDIENTE',
+    fecha_actualizacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     PRIMARY KEY (id),
     FOREIGN KEY (usuario_id) REFERENCES usuarios(id) 
         ON DELETE RESTRICT ON UPDATE CASCADE
@@ -75,6 +78,65 @@ CREATE TABLE IF NOT EXISTS items_pedido (
         ON DELETE RESTRICT ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
+-- ============================================
+-- Tabla: pedidos_archivados
+-- Pedidos cerrados (ENTREGADO o CANCELADO) movidos desde pedidos por el archivo periódico;
+-- conservan su ID original
+-- ============================================
+CREATE TABLE IF NOT EXISTS pedidos_archivados (
+    id BIGINT NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    fecha_pedido DATETIME NOT NULL,
+    total DECIMAL(10, 2) NOT NULL,
+    estado ENUM('PENDIENTE', 'PROCESANDO', 'ENVIADO', 'ENTREGADO', 'CANCELADO') NOT NULL,
+    fecha_actualizacion DATETIME,
+    fecha_archivado DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+-- ============================================
+-- Tabla: items_pedido_archivados
+-- Items de los pedidos archivados (sin claves foráneas, para no frenar el borrado de usuarios o productos)
+-- ============================================
+CREATE TABLE IF NOT EXISTS items_pedido_archivados (
+    id BIGINT NOT NULL,
+    pedido_id BIGINT NOT NULL,
+    producto_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    precio DECIMAL(10, 2) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+-- ============================================
+-- Tabla: stock_shards
+-- Fracciones del stock de los productos con stock fraccionado
+-- ============================================
+CREATE TABLE IF NOT EXISTS stock_shards (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    producto_id BIGINT NOT NULL,
+    numero INT NOT NULL,
+    stock INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_stock_shards_producto_numero (producto_id, numero),
+    FOREIGN KEY (producto_id) REFERENCES productos(id) 
+        ON DELETE CASCADE ON UPDATE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+-- ============================================
+-- Tabla: claves_idempotencia
+-- Respuestas guardadas de POST /api/orders por clave Idempotency-Key
+-- ============================================
+CREATE TABLE IF NOT EXISTS claves_idempotencia (
+    clave VARCHAR(100) NOT NULL,
+    huella_solicitud VARCHAR(64) NOT NULL,
+    estado_http INT,
+    respuesta LONGTEXT,
+    ubicacion VARCHAR(255),
+    fecha_creacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (clave),
+    INDEX idx_claves_idempotencia_fecha (fecha_creacion)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
 -- ============================================
 -- Índices para mejorar el rendimiento
 -- ============================================
@@ -85,15 +147,30 @@ CREATE INDEX IF NOT EXISTS idx_usuarios_email ON usuarios(email);
 -- Índice para búsqueda rápida de productos por nombre
 CREATE INDEX IF NOT EXISTS idx_productos_nombre ON productos(nombre);
 
--- Índice para búsqueda rápida de pedidos por usuario
-CREATE INDEX IF NOT EXISTS idx_pedidos_usuario_id ON pedidos(usuario_id);
+-- Índices para la paginación por cursor del catálogo (orden + desempate por id)
+CREATE INDEX IF NOT EXISTS idx_productos_precio_id ON productos(precio, id);
+CREATE INDEX IF NOT EXISTS idx_productos_fecha_creacion_id ON productos(fecha_creacion, id);
 
--- Índice para búsqueda rápida de pedidos por estado
-CREATE INDEX IF NOT EXISTS idx_pedidos_estado ON pedidos(estado);
+-- Índices para los listados de pedidos por usuario y por estado, paginados por cursor
+-- (filtro + orden por fecha + desempate por id, sin ordenar en memoria). También sirven
+-- para las búsquedas solo por usuario (incluida la clave foránea) o solo por estado
+CREATE INDEX IF NOT EXISTS idx_pedidos_usuario_fecha_id ON pedidos(usuario_id, fecha_pedido, id);
+CREATE INDEX IF NOT EXISTS idx_pedidos_estado_fecha_id ON pedidos(estado, fecha_pedido, id);
+
+-- Índice del archivo de pedidos: pedidos cerrados por estado y fecha del último cambio de estado
+CREATE INDEX IF NOT EXISTS idx_pedidos_estado_actualizacion_id ON pedidos(estado, fecha_actualizacion, id);
 
 -- Índice para búsqueda rápida de items por pedido
 CREATE INDEX IF NOT EXISTS idx_items_pedido_pedido_id ON items_pedido(pedido_id);
 
+-- Índices del archivo de pedidos: los mismos listados por usuario y por estado, y los items por pedido
+CREATE INDEX IF NOT EXISTS idx_pedidos_archivados_usuario_fecha_id ON pedidos_archivados(usuario_id, fecha_pedido, id);
+CREATE INDEX IF NOT EXISTS idx_pedidos_archivados_estado_fecha_id ON pedidos_archivados(estado, fecha_pedido, id);
+CREATE INDEX IF NOT EXISTS idx_items_pedido_archivados_pedido_id ON items_pedido_archivados(pedido_id);
+
+-- Índice para impedir eliminar productos que aparecen en pedidos archivados (la tabla no tiene clave foránea)
+CREATE INDEX IF NOT EXISTS idx_items_pedido_archivados_producto_id ON items_pedido_archivados(producto_id);
+
 -- ============================================
 -- Inserción de datos de prueba
 -- ============================================
@@ -137,7 +214,9 @@ SELECT 'Productos:' AS Tabla, COUNT(*) AS Total FROM productos
 UNION ALL
 SELECT 'Pedidos:' AS Tabla, COUNT(*) AS Total FROM pedidos
 UNION ALL
-SELECT 'Items de Pedido:' AS Tabla, COUNT(*) AS Total FROM items_pedido;
+SELECT 'Items de Pedido:' AS Tabla, COUNT(*) AS Total FROM items_pedido
+UNION ALL
+SELECT 'Pedidos Archivados:' AS Tabla, COUNT(*) AS Total FROM pedidos_archivados;
 
 -- ============================================
 -- Fin del script
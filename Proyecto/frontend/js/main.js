@@ -4,6 +4,9 @@ const API_URL = 'http://localhost:8080/api';
 // Estado de la aplicación
 let currentUser = null;
 let cart = JSON.parse(localStorage.getItem('cart')) || [];
+// Clave de idempotencia (y cuerpo) del pedido en curso: se conserva si la petición falla por conexión
+// para que el reintento no cree un pedido duplicado
+let orderIdempotencyKey = null;
 
 // Verificar sesión al cargar la página
 document.addEventListener('DOMContentLoaded', function() {
@@ -236,9 +239,8 @@ function addToCart(productId) {
     }
     
     // Buscar el producto
-    fetch(`${API_URL}/products`)
-        .then(response => response.json())
-        .then(products => {
+    fetchProductsByIds([productId])
+        .then(({ products }) => {
             const product = products.find(p => p.id === productId);
             if (product && product.stock > 0) {
                 // Verificar si ya está en el carrito
@@ -274,6 +276,43 @@ function addToCart(productId) {
         });
 }
 
+// Obtener varios productos por ID en una sola petición
+async function fetchProductsByIds(ids) {
+    const response = await fetch(`${API_URL}/products/batch?ids=${ids.join(',')}`);
+    const data = await response.json();
+    
+    if (!response.ok) {
+        throw new Error(data.message || 'Error al obtener productos');
+    }
+    
+    return { products: data.data || [], missing: data.missing || [] };
+}
+
+// Validar precio y stock de todas las líneas del carrito en una sola petición
+async function validateCart() {
+    const { products, missing } = await fetchProductsByIds(cart.map(item => item.id));
+    const errors = [];
+    
+    missing.forEach(id => {
+        const item = cart.find(item => item.id === id);
+        errors.push(`${item ? item.nombre : 'Producto ' + id} ya no está disponible`);
+    });
+    
+    products.forEach(product => {
+        const item = cart.find(item => item.id === product.id);
+        if (!item) return;
+        
+        // Mantener el precio del carrito al día con el catálogo
+        item.precio = product.precio;
+        if (item.quantity > product.stock) {
+            errors.push(`No hay suficiente stock de ${product.nombre} (disponible: ${product.stock})`);
+        }
+    });
+    
+    localStorage.setItem('cart', JSON.stringify(cart));
+    return errors;
+}
+
 // Actualizar UI del carrito
 function updateCartUI() {
     // Actualizar contador del carrito si existe
@@ -334,9 +373,8 @@ function updateQuantity(productId, newQuantity) {
     const item = cart.find(item => item.id === productId);
     if (item) {
         // Verificar stock
-        fetch(`${API_URL}/products`)
-            .then(response => response.json())
-            .then(products => {
+        fetchProductsByIds([productId])
+            .then(({ products }) => {
                 const product = products.find(p => p.id === productId);
                 if (product && newQuantity <= product.stock) {
                     item.quantity = newQuantity;
@@ -393,6 +431,19 @@ async function handleCheckout() {
         return;
     }
     
+    try {
+        const errors = await validateCart();
+        if (errors.length > 0) {
+            loadCartItems();
+            showMessage(errors.join('. '), 'error');
+            return;
+        }
+    } catch (error) {
+        console.error('Error:', error);
+        showMessage('Error al validar el carrito', 'error');
+        return;
+    }
+    
     const orderData = {
         usuarioId: currentUser.id,
         items: cart.map(item => ({
@@ -402,16 +453,24 @@ async function handleCheckout() {
         }))
     };
     
+    const requestBody = JSON.stringify(orderData);
+    if (!orderIdempotencyKey || orderIdempotencyKey.body !== requestBody) {
+        orderIdempotencyKey = { key: generateIdempotencyKey(), body: requestBody };
+    }
+    
     try {
         const response = await fetch(`${API_URL}/orders`, {
             method: 'POST',
             headers: {
                 'Content-Type': 'application/json',
-                'Authorization': `Bearer ${localStorage.getItem('token')}`
+                'Authorization': `Bearer ${localStorage.getItem('token')}`,
+                'Idempotency-Key': orderIdempotencyKey.key
             },
-            body: JSON.stringify(orderData)
+            body: requestBody
         });
         
+        // El servidor respondió: el próximo intento es un pedido nuevo
+        orderIdempotencyKey = null;
         const data = await response.json();
         
         if (response.ok) {
@@ -434,6 +493,14 @@ async function handleCheckout() {
     }
 }
 
+// Generar una clave de idempotencia para un pedido
+function generateIdempotencyKey() {
+    if (window.crypto && typeof window.crypto.randomUUID === 'function') {
+        return window.crypto.randomUUID();
+    }
+    return `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}`;
+}
+
 // Mostrar mensaje
 function showMessage(text, type) {
     const messageElement = document.getElementById('message');